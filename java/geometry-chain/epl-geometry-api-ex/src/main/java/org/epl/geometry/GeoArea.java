@@ -0,0 +1,143 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package org.epl.geometry;
+
+import com.esri.core.geometry.*;
+
+/**
+ * Ellipsoidal area and length of multipaths in geographic coordinates, computed from the vertex coordinates without
+ * projecting the geometry.
+ *
+ * The area maps the latitudes to authalic latitudes, which preserve area on the sphere of the same surface as the
+ * ellipsoid, and sums the spherical excess of every edge against the equator. The edges are great circles on that
+ * sphere rather than geodesics of the ellipsoid, which only makes a difference for long edges. Rings that enclose a
+ * pole are not supported. The length sums the geodesic distances of GeoDist.
+ */
+final class GeoArea {
+	private static final double DEG_TO_RAD = Math.PI / 180.0;
+
+	private GeoArea() {
+	}
+
+	/**
+	 * The signed area of the polygon in square units of the major axis. Clockwise rings are positive and counter
+	 * clockwise rings are negative, the same as for Geometry.calculateArea2D.
+	 *
+	 * @param a  the major axis of the ellipsoid
+	 * @param e2 the eccentricity squared of the ellipsoid
+	 */
+	static double geodesicArea(double a, double e2, Polygon polygon) {
+		if (polygon.isEmpty())
+			return 0;
+
+		MultiPathImpl impl = (MultiPathImpl) polygon._getImpl();
+		AttributeStreamOfDbl xy = (AttributeStreamOfDbl) impl.getAttributeStreamRef(VertexDescription.Semantics.POSITION);
+
+		double e = Math.sqrt(e2);
+		double qp = q_(1.0, e, e2);
+		MathUtils.KahanSummator excess = new MathUtils.KahanSummator(0);
+		for (int ipath = 0, pathCount = impl.getPathCount(); ipath < pathCount; ipath++) {
+			int start = impl.getPathStart(ipath);
+			int end = impl.getPathEnd(ipath);
+			if (end - start < 3)
+				continue;
+
+			// every ring is closed from its last vertex back to its first one
+			double lam1 = xy.read(2 * (end - 1)) * DEG_TO_RAD;
+			double t1 = tanHalfAuthalic_(xy.read(2 * (end - 1) + 1) * DEG_TO_RAD, e, e2, qp);
+			for (int i = start; i < end; i++) {
+				double lam2 = xy.read(2 * i) * DEG_TO_RAD;
+				double t2 = tanHalfAuthalic_(xy.read(2 * i + 1) * DEG_TO_RAD, e, e2, qp);
+				double dlam = Math.IEEEremainder(lam2 - lam1, 2 * Math.PI);
+				// the excess of the triangle between the edge and the equator
+				excess.add(2 * Math.atan2(Math.tan(dlam / 2) * (t1 + t2), 1 + t1 * t2));
+				lam1 = lam2;
+				t1 = t2;
+			}
+		}
+
+		// the squared radius of the sphere with the surface of the ellipsoid
+		double rq2 = a * a * qp / 2;
+		return excess.getResult() * rq2;
+	}
+
+	/**
+	 * The geodesic length of the multipath, in units of the major axis. The closing segments of the rings are included.
+	 *
+	 * @param a  the major axis of the ellipsoid
+	 * @param e2 the eccentricity squared of the ellipsoid
+	 */
+	static double geodesicLength(double a, double e2, MultiPath multiPath) {
+		if (multiPath.isEmpty())
+			return 0;
+
+		MultiPathImpl impl = (MultiPathImpl) multiPath._getImpl();
+		AttributeStreamOfDbl xy = (AttributeStreamOfDbl) impl.getAttributeStreamRef(VertexDescription.Semantics.POSITION);
+
+		PeDouble distance = new PeDouble();
+		MathUtils.KahanSummator length = new MathUtils.KahanSummator(0);
+		for (int ipath = 0, pathCount = impl.getPathCount(); ipath < pathCount; ipath++) {
+			int start = impl.getPathStart(ipath);
+			int end = impl.getPathEnd(ipath);
+			if (end - start < 2)
+				continue;
+
+			boolean bClosed = impl.isClosedPath(ipath);
+			int i = bClosed ? end - 1 : start;
+			for (int j = bClosed ? start : start + 1; j < end; i = j++) {
+				GeoDist.geodesic_distance_ngs(a, e2,
+						xy.read(2 * i) * DEG_TO_RAD, xy.read(2 * i + 1) * DEG_TO_RAD,
+						xy.read(2 * j) * DEG_TO_RAD, xy.read(2 * j + 1) * DEG_TO_RAD,
+						distance, null, null);
+				length.add(distance.val);
+			}
+		}
+
+		return length.getResult();
+	}
+
+	/**
+	 * tan(beta / 2) of the authalic latitude beta of the geodetic latitude.
+	 */
+	private static double tanHalfAuthalic_(double phi, double e, double e2, double qp) {
+		double sinBeta = q_(Math.sin(phi), e, e2) / qp;
+		if (sinBeta > 1)
+			sinBeta = 1;
+		else if (sinBeta < -1)
+			sinBeta = -1;
+		return sinBeta / (1 + Math.sqrt(1 - sinBeta * sinBeta));
+	}
+
+	/**
+	 * Snyder's q of the sine of the geodetic latitude, 2 sin(phi) on the sphere.
+	 */
+	private static double q_(double sinPhi, double e, double e2) {
+		if (e == 0)
+			return 2 * sinPhi;
+
+		double es = e * sinPhi;
+		return (1 - e2) * (sinPhi / (1 - es * es) + atanh_(es) / e);
+	}
+
+	private static double atanh_(double x) {
+		return 0.5 * Math.log1p(2 * x / (1 - x));
+	}
+}
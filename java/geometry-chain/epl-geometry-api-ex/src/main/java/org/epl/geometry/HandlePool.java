@@ -0,0 +1,85 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package org.epl.geometry;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool of handles that are expensive to create and can't be used by two threads at once, such as the PJ
+ * handles of a spatial reference.
+ *
+ * A caller borrows a handle, uses it on its own and gives it back. A handle is created only if none is idle, so the
+ * number of handles follows the number of concurrent callers, not the number of threads that ever used the pool. At
+ * most maxIdle handles are kept; handles given back to a full pool are dropped.
+ */
+final class HandlePool<T> {
+	private final Supplier<T> m_factory;
+	private final int m_maxIdle;
+	private final ArrayDeque<T> m_idle = new ArrayDeque<>();
+	private volatile LongAdder m_creations;
+
+	HandlePool(Supplier<T> factory, int maxIdle) {
+		if (maxIdle < 1)
+			throw new IllegalArgumentException("maxIdle must be at least 1");
+
+		m_factory = factory;
+		m_maxIdle = maxIdle;
+	}
+
+	/**
+	 * Returns an idle handle, or creates one.
+	 */
+	T borrow() {
+		synchronized (m_idle) {
+			T handle = m_idle.pollLast();
+			if (handle != null)
+				return handle;
+		}
+
+		T handle = m_factory.get();
+		LongAdder creations = m_creations;
+		if (creations != null)
+			creations.increment();
+		return handle;
+	}
+
+	void giveBack(T handle) {
+		synchronized (m_idle) {
+			if (m_idle.size() < m_maxIdle)
+				m_idle.addLast(handle);
+		}
+	}
+
+	int getIdleCount() {
+		synchronized (m_idle) {
+			return m_idle.size();
+		}
+	}
+
+	/**
+	 * Counts the handles created from now on in creations, for the statistics of ProjectionCache.
+	 */
+	void countCreations(LongAdder creations) {
+		m_creations = creations;
+	}
+}
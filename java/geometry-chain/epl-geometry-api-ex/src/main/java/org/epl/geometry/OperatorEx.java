@@ -61,7 +61,7 @@ public abstract class OperatorEx {
 		GeodeticDensifyByLength,
 		//        ShapePreservingDensify,
 		GeodeticLength,
-		//        GeodeticArea,
+		GeodeticArea,
 //        Simplify,
 //        SimplifyOGC,
 //        Offset,
@@ -65,7 +65,7 @@ public class OperatorFactoryLocalEx extends OperatorFactoryEx {
 		st_supportedOperators.put(OperatorEx.Type.GeodesicBuffer, new OperatorGeodesicBufferLocal());
 //
 		st_supportedOperators.put(OperatorEx.Type.GeodeticLength, new OperatorGeodeticLengthLocal());
-//		st_supportedOperators.put(Type.GeodeticArea, new OperatorGeodeticAreaLocal());
+		st_supportedOperators.put(OperatorEx.Type.GeodeticArea, new OperatorGeodeticAreaLocal());
 
 		st_supportedOperators.put(OperatorEx.Type.Buffer, new OperatorBufferExLocal());
 //		st_supportedOperators.put(Type.Distance, new OperatorDistanceLocal());
@@ -0,0 +1,64 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package org.epl.geometry;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.GeometryCursor;
+import com.esri.core.geometry.ProgressTracker;
+
+/**
+ * Geodetic area calculation.
+ */
+public abstract class OperatorGeodeticArea extends OperatorEx {
+
+	@Override
+	public Type getType() {
+		return OperatorEx.Type.GeodeticArea;
+	}
+
+	/**
+	 * Calculates the geodetic area of the input Geometry, on the ellipsoid of the spatial reference and without
+	 * projecting the Geometry if the spatial reference is geographic.
+	 *
+	 * @param geom              The input Geometry for the geodetic area calculation. Points, multipoints and
+	 *                          polylines have no area.
+	 * @param sr                The SpatialReference of the Geometry.
+	 * @param geodeticCurveType Use the {@link GeodeticCurveType} interface to choose the
+	 *                          interpretation of a line connecting two points.
+	 * @param progressTracker
+	 * @return Returns the geodetic area of the Geometry in square meters. Clockwise rings are positive and
+	 * counter clockwise rings negative, the same as for Geometry.calculateArea2D.
+	 */
+	public abstract double execute(Geometry geom, SpatialReferenceEx sr,
+	                               int geodeticCurveType, ProgressTracker progressTracker);
+
+	/**
+	 * Calculates the geodetic area of every Geometry of the cursor, all in the same SpatialReference.
+	 */
+	public abstract OperatorGeodeticAreaCursor execute(GeometryCursor geoms, SpatialReferenceEx sr,
+	                                                   int geodeticCurveType, ProgressTracker progressTracker);
+
+	public static OperatorGeodeticArea local() {
+		return (OperatorGeodeticArea) OperatorFactoryLocalEx.getInstance()
+				.getOperator(Type.GeodeticArea);
+	}
+
+}
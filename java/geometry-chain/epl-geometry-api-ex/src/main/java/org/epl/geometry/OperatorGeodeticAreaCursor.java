@@ -0,0 +1,71 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package org.epl.geometry;
+
+import com.esri.core.geometry.GeometryCursor;
+import com.esri.core.geometry.ProgressTracker;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * The geodetic areas of the geometries of a cursor, in the order of the cursor. getGeometryID() returns the id of the
+ * geometry of the last area returned.
+ */
+public class OperatorGeodeticAreaCursor implements PrimitiveIterator.OfDouble {
+	private final GeometryCursor m_inputGeoms;
+	private final OperatorGeodeticArea m_operator;
+	private final SpatialReferenceEx m_spatialReference;
+	private final int m_geodeticCurveType;
+	private final ProgressTracker m_progressTracker;
+
+	OperatorGeodeticAreaCursor(GeometryCursor inputGeoms,
+	                           OperatorGeodeticArea operator,
+	                           SpatialReferenceEx spatialReference,
+	                           int geodeticCurveType,
+	                           ProgressTracker progressTracker) {
+		if (inputGeoms == null)
+			throw new IllegalArgumentException();
+
+		m_inputGeoms = inputGeoms;
+		m_operator = operator;
+		m_spatialReference = spatialReference;
+		m_geodeticCurveType = geodeticCurveType;
+		m_progressTracker = progressTracker;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return m_inputGeoms.hasNext();
+	}
+
+	@Override
+	public double nextDouble() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+
+		return m_operator.execute(m_inputGeoms.next(), m_spatialReference, m_geodeticCurveType, m_progressTracker);
+	}
+
+	public int getGeometryID() {
+		return m_inputGeoms.getGeometryID();
+	}
+}
@@ -0,0 +1,65 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package org.epl.geometry;
+
+import com.esri.core.geometry.*;
+
+class OperatorGeodeticAreaLocal extends OperatorGeodeticArea {
+
+	@Override
+	public double execute(Geometry geom,
+	                      SpatialReferenceEx sr,
+	                      int geodeticCurveType,
+	                      ProgressTracker progressTracker) {
+		if (geodeticCurveType != GeodeticCurveType.Geodesic) {
+			throw new GeometryException("only Geodesic implemented");
+		}
+		if (geom.getDimension() < 2 || geom.isEmpty()) {
+			return 0;
+		}
+
+		Polygon polygon;
+		if (geom.getType() == Geometry.Type.Envelope) {
+			polygon = new Polygon(geom.getDescription());
+			polygon.addEnvelope((Envelope) geom, false);
+		} else {
+			polygon = (Polygon) geom;
+		}
+
+		if (sr.getCoordinateSystemType() != SpatialReferenceEx.CoordinateSystemType.GEOGRAPHIC) {
+			// TODO get the GCS from the SpatialReference instead of assuming Geographic == 4326
+			SpatialReferenceEx wgs84 = ProjectionCache.getInstance().get(4326);
+			ProjectionTransformation projectionTransformation = ProjectionCache.getInstance().getTransformation(sr, wgs84);
+			polygon = (Polygon) OperatorProject.local().execute(polygon, projectionTransformation, progressTracker);
+			sr = wgs84;
+		}
+
+		return GeoArea.geodesicArea(sr.getMajorAxis(), sr.getEccentricitySquared(), polygon);
+	}
+
+	@Override
+	public OperatorGeodeticAreaCursor execute(GeometryCursor geoms,
+	                                          SpatialReferenceEx sr,
+	                                          int geodeticCurveType,
+	                                          ProgressTracker progressTracker) {
+		return new OperatorGeodeticAreaCursor(geoms, this, sr, geodeticCurveType, progressTracker);
+	}
+}
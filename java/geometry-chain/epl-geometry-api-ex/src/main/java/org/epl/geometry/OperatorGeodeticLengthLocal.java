@@ -36,33 +36,25 @@ class OperatorGeodeticLengthLocal extends OperatorGeodeticLength {
 			return 0;
 		}
 
-		SegmentIterator segIter;
-		double a, e2;
-		if (sr.getCoordinateSystemType() != SpatialReferenceEx.CoordinateSystemType.GEOGRAPHIC) {
-			// TODO get the GCS from the SpatialReference instead of assuming Geographic == 4326
-			SpatialReferenceEx wgs84 = SpatialReferenceEx.create(4326);
-
-			ProjectionTransformation projectionTransformation = new ProjectionTransformation(sr, wgs84);
-			Geometry projected = OperatorProject.local().execute(geom, projectionTransformation, progressTracker);
-			segIter = ((MultiPath) projected).querySegmentIterator();
-			a = wgs84.getMajorAxis();
-			e2 = wgs84.getEccentricitySquared();
+		MultiPath multiPath;
+		if (geom.getType() == Geometry.Type.Envelope) {
+			multiPath = new Polygon(geom.getDescription());
+			multiPath.addEnvelope((Envelope) geom, false);
+		} else if (Geometry.isSegment(geom.getType().value())) {
+			multiPath = new Polyline(geom.getDescription());
+			multiPath.addSegment((Segment) geom, true);
 		} else {
-			segIter = ((MultiPath) geom).querySegmentIterator();
-			a = sr.getMajorAxis();
-			e2 = sr.getEccentricitySquared();
+			multiPath = (MultiPath) geom;
 		}
 
-		MathUtils.KahanSummator len = new MathUtils.KahanSummator(0);
-
-		while (segIter.nextPath()) {
-			while (segIter.hasNextSegment()) {
-				Segment segment = segIter.nextSegment();
-				double dist = GeoDist.geodesicDistance(a, e2, segment.getStartXY(), segment.getEndXY(), null, null);
-				len.add(dist);
-			}
+		if (sr.getCoordinateSystemType() != SpatialReferenceEx.CoordinateSystemType.GEOGRAPHIC) {
+			// TODO get the GCS from the SpatialReference instead of assuming Geographic == 4326
+			SpatialReferenceEx wgs84 = ProjectionCache.getInstance().get(4326);
+			ProjectionTransformation projectionTransformation = ProjectionCache.getInstance().getTransformation(sr, wgs84);
+			multiPath = (MultiPath) OperatorProject.local().execute(multiPath, projectionTransformation, progressTracker);
+			sr = wgs84;
 		}
 
-		return len.getResult();
+		return GeoArea.geodesicLength(sr.getMajorAxis(), sr.getEccentricitySquared(), multiPath);
 	}
 }
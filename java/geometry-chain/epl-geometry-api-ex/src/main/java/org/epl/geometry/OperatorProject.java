@@ -41,6 +41,19 @@ public abstract class OperatorProject extends OperatorEx {
                                            ProjectionTransformation projection,
                                            ProgressTracker progressTracker);
 
+    /**
+     * Performs the Project operation on a geometry cursor
+     *
+     * @param bParallel When True, the vertices of geometries with at least 100000 vertices are split into chunks
+     *                  that are projected concurrently on the common ForkJoinPool. Smaller geometries are projected
+     *                  with a single call.
+     * @return Returns a GeometryCursor.
+     */
+    public abstract GeometryCursor execute(GeometryCursor inputGeoms,
+                                           ProjectionTransformation projection,
+                                           ProgressTracker progressTracker,
+                                           boolean bParallel);
+
     /**
      * Performs the Project operation on a single geometry instance
      *
@@ -50,6 +63,17 @@ public abstract class OperatorProject extends OperatorEx {
                                      ProjectionTransformation projection,
                                      ProgressTracker progressTracker);
 
+    /**
+     * Performs the Project operation on a single geometry instance
+     *
+     * @param bParallel When True, large geometries are projected in concurrent chunks. See the cursor version.
+     * @return Returns the Geometry after projection
+     */
+    public abstract Geometry execute(Geometry geometry,
+                                     ProjectionTransformation projection,
+                                     ProgressTracker progressTracker,
+                                     boolean bParallel);
+
     /**
      * Transforms an array of points. Returns the number of points transformed.
      */
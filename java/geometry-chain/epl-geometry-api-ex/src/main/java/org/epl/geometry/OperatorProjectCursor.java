@@ -30,21 +30,31 @@ import com.esri.core.geometry.ProgressTracker;
 public class OperatorProjectCursor extends GeometryCursor {
     ProjectionTransformation m_projectionTransformation;
     ProgressTracker m_progressTracker;
+    boolean m_bParallel;
 
     OperatorProjectCursor(
             GeometryCursor inputGeoms,
             ProjectionTransformation projectionTransformation,
             ProgressTracker progressTracker) {
+        this(inputGeoms, projectionTransformation, progressTracker, false);
+    }
+
+    OperatorProjectCursor(
+            GeometryCursor inputGeoms,
+            ProjectionTransformation projectionTransformation,
+            ProgressTracker progressTracker,
+            boolean bParallel) {
         m_inputGeoms = inputGeoms;
         m_projectionTransformation = projectionTransformation;
         m_progressTracker = progressTracker;
+        m_bParallel = bParallel;
     }
 
     @Override
     public Geometry next() {
         if (m_inputGeoms.hasNext()) {
             Geometry geometry = m_inputGeoms.next();
-            return Projector.project(geometry, m_projectionTransformation, m_progressTracker);
+            return Projector.project(geometry, m_projectionTransformation, m_progressTracker, m_bParallel);
         }
         return null;
     }
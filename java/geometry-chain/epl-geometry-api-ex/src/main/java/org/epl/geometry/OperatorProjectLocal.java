@@ -32,12 +32,28 @@ class OperatorProjectLocal extends OperatorProject {
         return new OperatorProjectCursor(inputGeoms, transform, progressTracker);
     }
 
+    @Override
+    public GeometryCursor execute(GeometryCursor inputGeoms,
+                                  ProjectionTransformation transform,
+                                  ProgressTracker progressTracker,
+                                  boolean bParallel) {
+        return new OperatorProjectCursor(inputGeoms, transform, progressTracker, bParallel);
+    }
+
     public Geometry execute(Geometry inputGeom,
                             ProjectionTransformation transform,
                             ProgressTracker progressTracker) {
         return execute(new SimpleGeometryCursor(inputGeom), transform, progressTracker).next();
     }
 
+    @Override
+    public Geometry execute(Geometry inputGeom,
+                            ProjectionTransformation transform,
+                            ProgressTracker progressTracker,
+                            boolean bParallel) {
+        return execute(new SimpleGeometryCursor(inputGeom), transform, progressTracker, bParallel).next();
+    }
+
     @Override
     public int transform(ProjectionTransformation transform,
                          Point[] pointsIn,
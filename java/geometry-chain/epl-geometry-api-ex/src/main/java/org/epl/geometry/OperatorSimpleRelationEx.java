@@ -23,26 +23,72 @@ package org.epl.geometry;
 import com.esri.core.geometry.*;
 
 import java.util.HashMap;
+import java.util.concurrent.ForkJoinPool;
 
 public class OperatorSimpleRelationEx extends OperatorEx {
+	/**
+	 * Tests the relation between inputGeom1 and every geometry of geometryCursor2.
+	 * Once the cursor yields a second geometry, inputGeom1 is prepared with the
+	 * quad tree and rasterized geometry accelerators of the relation operator, so
+	 * the remaining tests do not rebuild it. The accelerators are built on a copy,
+	 * inputGeom1 is not modified.
+	 *
+	 * @return Returns a map from the right geometry id to the relation result.
+	 */
 	public HashMap<Long, Boolean> execute(Geometry inputGeom1,
 	                                         GeometryCursor geometryCursor2,
 	                                         SpatialReference sr,
 	                                         ProgressTracker progressTracker,
 	                                         Operator.Type operatorType) {
 		HashMap<Long, Boolean> hashMap = new HashMap<>();
+		OperatorSimpleRelation operator = (OperatorSimpleRelation) OperatorFactoryLocal.getInstance().getOperator(operatorType);
+		Geometry preparedGeom1 = inputGeom1;
+		int count = 0;
 		Geometry inputGeom2;
 		while ((inputGeom2 = geometryCursor2.next()) != null) {
 			long index = geometryCursor2.getGeometryID();
 			if ((progressTracker != null) && !(progressTracker.progress(-1, -1)))
 				throw new RuntimeException("user_canceled");
-			Boolean result = ((OperatorSimpleRelation)OperatorFactoryLocal.getInstance().getOperator(operatorType))
-					.execute(inputGeom1, inputGeom2, sr,null);
+			if (++count == 2 && operator.canAccelerateGeometry(inputGeom1)) {
+				preparedGeom1 = inputGeom1.copy();
+				operator.accelerateGeometry(preparedGeom1, sr, Geometry.GeometryAccelerationDegree.enumMedium);
+			}
+			Boolean result = operator.execute(preparedGeom1, inputGeom2, sr, null);
 			hashMap.put(index, result);
 		}
 		return hashMap;
 	}
 
+	/**
+	 * Tests the relation between every geometry of leftGeometries and every
+	 * geometry of rightGeometries. Both sides are indexed by their envelopes, so
+	 * only pairs with intersecting envelopes are tested.
+	 *
+	 * @return Returns the pairs of geometries the relation holds for.
+	 */
+	public RelationMatrix execute(GeometryCursor leftGeometries,
+	                              GeometryCursor rightGeometries,
+	                              SpatialReference sr,
+	                              ProgressTracker progressTracker,
+	                              Operator.Type operatorType) {
+		return execute(leftGeometries, rightGeometries, sr, ForkJoinPool.commonPool(), progressTracker, operatorType);
+	}
+
+	/**
+	 * Same as above, with the left geometries tested in parallel on the pool.
+	 *
+	 * @return Returns the pairs of geometries the relation holds for.
+	 */
+	public RelationMatrix execute(GeometryCursor leftGeometries,
+	                              GeometryCursor rightGeometries,
+	                              SpatialReference sr,
+	                              ForkJoinPool pool,
+	                              ProgressTracker progressTracker,
+	                              Operator.Type operatorType) {
+		OperatorSimpleRelation operator = (OperatorSimpleRelation) OperatorFactoryLocal.getInstance().getOperator(operatorType);
+		return operator.execute(leftGeometries, rightGeometries, sr, pool, progressTracker);
+	}
+
 	@Override
 	public Type getType() {
 		return Type.SimpleRelation;
@@ -0,0 +1,144 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package org.epl.geometry;
+
+import com.esri.core.geometry.ObjectCacheTable;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Bounded, thread safe cache of spatial references and projection transformations, keyed by EPSG code, proj4 text
+ * or well-known text. A cached spatial reference keeps a small pool of the PJ handles it has parsed, so the proj4
+ * initialization runs once per concurrent caller instead of once per request.
+ *
+ * The entries are kept in an ObjectCacheTable, so lookups of different keys from many request threads rarely contend.
+ * When the cache is full the least recently used entry is dropped. The idle PJ handles of a dropped spatial reference
+ * go with it, and are freed when it is no longer used. The hit, miss and eviction counters are there to size the
+ * cache, the count of PJ handles created is there to check that the handles are reused.
+ */
+public class ProjectionCache {
+	public static final int DEFAULT_MAX_SIZE = 256;
+
+	private static final ProjectionCache m_instance = new ProjectionCache(DEFAULT_MAX_SIZE);
+
+	private final ObjectCacheTable<String, Object> m_entries;
+	private final LongAdder m_pjCreations = new LongAdder();
+
+	public ProjectionCache(int maxSize) {
+		m_entries = new ObjectCacheTable<>(maxSize);
+	}
+
+	/**
+	 * The cache shared by the geometry service.
+	 */
+	public static ProjectionCache getInstance() {
+		return m_instance;
+	}
+
+	public SpatialReferenceEx get(int wkid) {
+		return (SpatialReferenceEx) getOrCreate("epsg:" + wkid, () -> pooled_(SpatialReferenceEx.create(wkid)));
+	}
+
+	public SpatialReferenceEx getFromWkt(String wktext) {
+		return (SpatialReferenceEx) getOrCreate("wkt:" + wktext, () -> pooled_(SpatialReferenceEx.create(wktext)));
+	}
+
+	public SpatialReferenceEx getFromProj4(String proj4Text) {
+		return (SpatialReferenceEx) getOrCreate("proj4:" + proj4Text, () -> pooled_(SpatialReferenceEx.createFromProj4(proj4Text)));
+	}
+
+	public SpatialReferenceEx getEqualArea(double lon_0, double lat_0) {
+		return (SpatialReferenceEx) getOrCreate("laea:" + lon_0 + "," + lat_0, () -> pooled_(SpatialReferenceEx.createEqualArea(lon_0, lat_0)));
+	}
+
+	/**
+	 * The transformation between two spatial references. Spatial references are matched by their EPSG code, proj4
+	 * text or well-known text, so the arguments don't have to come from this cache.
+	 */
+	public ProjectionTransformation getTransformation(SpatialReferenceEx from, SpatialReferenceEx to) {
+		String fromKey = keyOf(from);
+		String toKey = keyOf(to);
+		if (fromKey == null || toKey == null)
+			return new ProjectionTransformation(from, to);
+
+		return (ProjectionTransformation) getOrCreate(fromKey + "|" + toKey, () -> new ProjectionTransformation(from, to));
+	}
+
+	public long getHits() {
+		return m_entries.getHits();
+	}
+
+	public long getMisses() {
+		return m_entries.getMisses();
+	}
+
+	public long getEvictions() {
+		return m_entries.getEvictions();
+	}
+
+	/**
+	 * The number of PJ handles the spatial references of this cache have created. With handles reused it grows with
+	 * the number of concurrent callers, not with the number of requests.
+	 */
+	public long getPJCreations() {
+		return m_pjCreations.sum();
+	}
+
+	public int size() {
+		return m_entries.size();
+	}
+
+	public int getMaxSize() {
+		return m_entries.getMaxSize();
+	}
+
+	public void setMaxSize(int maxSize) {
+		m_entries.setMaxSize(maxSize);
+	}
+
+	public void clear() {
+		m_entries.clear();
+		m_pjCreations.reset();
+	}
+
+	private Object getOrCreate(String key, Supplier<Object> factory) {
+		return m_entries.getOrCreate(key, k -> factory.get());
+	}
+
+	private SpatialReferenceEx pooled_(SpatialReferenceEx spatialReference) {
+		if (spatialReference instanceof SpatialReferenceExImpl)
+			((SpatialReferenceExImpl) spatialReference).getPJPool().countCreations(m_pjCreations);
+		return spatialReference;
+	}
+
+	private static String keyOf(SpatialReferenceEx spatialReference) {
+		if (spatialReference == null)
+			return null;
+		if (spatialReference.getID() != 0)
+			return "epsg:" + spatialReference.getID();
+		if (spatialReference.getProj4() != null)
+			return "proj4:" + spatialReference.getProj4();
+		if (spatialReference.getText() != null)
+			return "wkt:" + spatialReference.getText();
+		return null;
+	}
+}
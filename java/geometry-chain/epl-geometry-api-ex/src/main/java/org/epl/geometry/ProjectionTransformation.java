@@ -22,12 +22,13 @@ package org.epl.geometry;
 
 import com.esri.core.geometry.Geometry;
 import org.proj4.PJ;
+import org.proj4.PJException;
 
 //This is a stub
 public class ProjectionTransformation {
 	SpatialReferenceEx m_fromSpatialReference;
 	SpatialReferenceEx m_toSpatialReference;
-	// TODO maybe cache the PJ objects?
+	// cached transformations come from ProjectionCache
 
 	public ProjectionTransformation(SpatialReferenceEx fromSpatialReference, SpatialReferenceEx toSpatialReference) {
 		m_fromSpatialReference = fromSpatialReference;
@@ -38,8 +39,24 @@ public class ProjectionTransformation {
 		return new ProjectionTransformation(m_toSpatialReference, m_fromSpatialReference);
 	}
 
-	PJ getFromProj() {
-		return ((SpatialReferenceExImpl) m_fromSpatialReference).getPJ();
+	/**
+	 * Transforms count positions of dimension coordinates each, from offset on, in place. The PJ handles are borrowed
+	 * from the spatial references for the call.
+	 */
+	void transform(int dimension, double[] coordinates, int offset, int count) throws PJException {
+		SpatialReferenceExImpl from = (SpatialReferenceExImpl) m_fromSpatialReference;
+		SpatialReferenceExImpl to = (SpatialReferenceExImpl) m_toSpatialReference;
+		PJ fromPJ = from.borrowPJ();
+		try {
+			PJ toPJ = to.borrowPJ();
+			try {
+				fromPJ.transform(toPJ, dimension, coordinates, offset, count);
+			} finally {
+				to.givePJBack(toPJ);
+			}
+		} finally {
+			from.givePJBack(fromPJ);
+		}
 	}
 
 	public SpatialReferenceEx getFrom() {
@@ -50,10 +67,6 @@ public class ProjectionTransformation {
 		return m_toSpatialReference;
 	}
 
-	PJ getToProj() {
-		return ((SpatialReferenceExImpl) m_toSpatialReference).getPJ();
-	}
-
     public static ProjectionTransformation getEqualArea(Geometry geometry, SpatialReferenceEx spatialReference) {
         return new ProjectionTransformation(spatialReference, SpatialReferenceEx.createEqualArea(geometry, spatialReference));
     }
@@ -23,6 +23,10 @@ package org.epl.geometry;
 import com.esri.core.geometry.*;
 import org.proj4.PJException;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
 /**
  * Created by davidraleigh on 5/12/17.
  */
@@ -31,6 +35,11 @@ class Projector {
         System.loadLibrary("proj");
     }
 
+    // geometries with fewer vertices are projected with a single native call, even in parallel mode
+    static final int PARALLEL_VERTEX_THRESHOLD = 100000;
+    // number of vertices projected by one task in parallel mode
+    static final int PARALLEL_CHUNK_SIZE = 32768;
+
     public static int transform(ProjectionTransformation projectionTransformation, Point[] pointsIn,
                                 int count, Point[] pointsOut) throws org.proj4.PJException {
         if (pointsIn[0].hasZ())
@@ -85,13 +94,83 @@ class Projector {
         if (hasZ)
             n = 3;
 
-        projectionTransformation.getFromProj().transform(projectionTransformation.getToProj(), n, coordsSrc, 0, coordsSrc.length / n);
+        projectionTransformation.transform(n, coordsSrc, 0, coordsSrc.length / n);
         return coordsSrc;
     }
 
+    /**
+     * Transforms the first pointCount xy pairs of xyPositions in place. In parallel mode and above
+     * PARALLEL_VERTEX_THRESHOLD vertices the positions are split into chunks that are transformed concurrently on the
+     * common ForkJoinPool. Each chunk borrows PJ handles of its own (see ProjectionTransformation.transform).
+     */
+    static void transformPositions(ProjectionTransformation projectionTransformation,
+                                   double[] xyPositions,
+                                   int pointCount,
+                                   boolean bParallel) throws org.proj4.PJException {
+        if (!bParallel || pointCount < PARALLEL_VERTEX_THRESHOLD) {
+            transform(projectionTransformation, xyPositions, false);
+            return;
+        }
+
+        List<Transform_chunk_task> tasks = new ArrayList<>();
+        for (int start = 0; start < pointCount; start += PARALLEL_CHUNK_SIZE) {
+            tasks.add(new Transform_chunk_task(projectionTransformation, xyPositions, start, Math.min(PARALLEL_CHUNK_SIZE, pointCount - start)));
+        }
+
+        try {
+            RecursiveAction.invokeAll(tasks);
+        } catch (Transform_chunk_exception e) {
+            throw e.m_cause;
+        }
+    }
+
+    private static final class Transform_chunk_exception extends RuntimeException {
+        final PJException m_cause;
+
+        Transform_chunk_exception(PJException cause) {
+            super(cause);
+            m_cause = cause;
+        }
+    }
+
+    private static final class Transform_chunk_task extends RecursiveAction {
+        private final ProjectionTransformation m_projectionTransformation;
+        private final double[] m_xyPositions;
+        private final int m_start;
+        private final int m_count;
+
+        Transform_chunk_task(ProjectionTransformation projectionTransformation, double[] xyPositions, int start, int count) {
+            m_projectionTransformation = projectionTransformation;
+            m_xyPositions = xyPositions;
+            m_start = start;
+            m_count = count;
+        }
+
+        @Override
+        protected void compute() {
+            // every chunk is transformed in an array of its own, so the native call never touches the positions
+            // another thread is working on
+            double[] chunk = new double[m_count * 2];
+            System.arraycopy(m_xyPositions, m_start * 2, chunk, 0, chunk.length);
+            try {
+                m_projectionTransformation.transform(2, chunk, 0, m_count);
+            } catch (PJException e) {
+                throw new Transform_chunk_exception(e);
+            }
+            System.arraycopy(chunk, 0, m_xyPositions, m_start * 2, chunk.length);
+        }
+    }
+
     static Geometry project(Geometry geometry,
                             ProjectionTransformation projectionTransformation,
                             ProgressTracker progressTracker) {
+        return project(geometry, projectionTransformation, progressTracker, false);
+    }
+
+    static Geometry project(Geometry geometry,
+                            ProjectionTransformation projectionTransformation,
+                            ProgressTracker progressTracker,
+                            boolean bParallel) {
         if (geometry.isEmpty()) {
             return geometry;
         }
@@ -113,16 +192,16 @@ class Projector {
                 case Line:
                     break;
                 case Envelope:
-                    result = projectEnvelope(result, projectionTransformation, progressTracker);
+                    result = projectEnvelope(result, projectionTransformation, progressTracker, bParallel);
                     break;
                 case MultiPoint:
-                    result = projectMultiPoint(result, projectionTransformation, progressTracker);
+                    result = projectMultiPoint(result, projectionTransformation, progressTracker, bParallel);
                     break;
                 case Polyline:
-                    result = projectPolyline(result, projectionTransformation, progressTracker);
+                    result = projectPolyline(result, projectionTransformation, progressTracker, bParallel);
                     break;
                 case Polygon:
-                    result = projectPolygon(result, projectionTransformation, progressTracker);
+                    result = projectPolygon(result, projectionTransformation, progressTracker, bParallel);
                     break;
             }
         } catch (PJException e) {
@@ -162,7 +241,8 @@ class Projector {
 
     static Geometry projectMultiPoint(Geometry geometry,
                                       ProjectionTransformation projectionTransformation,
-                                      ProgressTracker progressTracker) throws org.proj4.PJException {
+                                      ProgressTracker progressTracker,
+                                      boolean bParallel) throws org.proj4.PJException {
         MultiPoint multiPoint = (MultiPoint) clipGeometry(geometry, projectionTransformation, progressTracker);
 
         int pointCount = multiPoint.getPointCount();
@@ -171,7 +251,7 @@ class Projector {
 
         AttributeStreamOfDbl xyPositions = (AttributeStreamOfDbl) multiVertexGeometry.getAttributeStreamRef(0);
         // TODO check that there isn't a way for grabbing xyzPositions
-        transform(projectionTransformation, xyPositions.m_buffer, false);
+        transformPositions(projectionTransformation, xyPositions.m_buffer, pointCount, bParallel);
         multiVertexGeometry._setDirtyFlag(MultiVertexGeometryImpl.DirtyFlags.DirtyAll, true);
 //        AttributeStreamOfDbl attributeStreamOfDbl = new AttributeStreamOfDbl(pointCount * 2);
 //        attributeStreamOfDbl.writeRange(0, pointCount * 2, output, 0, true);
@@ -189,7 +269,8 @@ class Projector {
 
     static Geometry projectPolyline(Geometry geometry,
                                     ProjectionTransformation projectionTransformation,
-                                    ProgressTracker progressTracker) throws org.proj4.PJException {
+                                    ProgressTracker progressTracker,
+                                    boolean bParallel) throws org.proj4.PJException {
         Polyline polyline = (Polyline) clipGeometry(geometry, projectionTransformation, progressTracker);
 
         int pointCount = polyline.getPointCount();
@@ -197,7 +278,7 @@ class Projector {
 
         AttributeStreamOfDbl xyPositions = (AttributeStreamOfDbl) multiVertexGeometry.getAttributeStreamRef(0);
         // TODO check that there isn't a way for grabbing xyzPositions
-        transform(projectionTransformation, xyPositions.m_buffer, false);
+        transformPositions(projectionTransformation, xyPositions.m_buffer, pointCount, bParallel);
         multiVertexGeometry._setDirtyFlag(MultiVertexGeometryImpl.DirtyFlags.DirtyAll, true);
 //        AttributeStreamOfDbl attributeStreamOfDbl = new AttributeStreamOfDbl(pointCount * 2);
 //        attributeStreamOfDbl.writeRange(0, pointCount * 2, output, 0, true);
@@ -214,14 +295,15 @@ class Projector {
 
     static Geometry projectPolygon(Geometry geometry,
                                    ProjectionTransformation projectionTransformation,
-                                   ProgressTracker progressTracker) throws org.proj4.PJException {
+                                   ProgressTracker progressTracker,
+                                   boolean bParallel) throws org.proj4.PJException {
         Polygon polygon = (Polygon) clipGeometry(geometry, projectionTransformation, progressTracker);
 
         MultiVertexGeometryImpl multiVertexGeometry = (MultiVertexGeometryImpl) polygon._getImpl();
 
         AttributeStreamOfDbl xyPositions = (AttributeStreamOfDbl) multiVertexGeometry.getAttributeStreamRef(0);
         // TODO check that there isn't a way for grabbing xyzPositions
-        transform(projectionTransformation, xyPositions.m_buffer, false);
+        transformPositions(projectionTransformation, xyPositions.m_buffer, polygon.getPointCount(), bParallel);
         multiVertexGeometry._setDirtyFlag(MultiVertexGeometryImpl.DirtyFlags.DirtyAll, true);
 //        AttributeStreamOfDbl attributeStreamOfDbl = new AttributeStreamOfDbl(pointCount * 2);
 //        attributeStreamOfDbl.writeRange(0, pointCount * 2, output, 0, true);
@@ -237,12 +319,13 @@ class Projector {
 
     static Geometry projectEnvelope(Geometry geometry,
                                     ProjectionTransformation projectionTransformation,
-                                    ProgressTracker progressTracker) throws org.proj4.PJException {
+                                    ProgressTracker progressTracker,
+                                    boolean bParallel) throws org.proj4.PJException {
         Envelope envelope = (Envelope) geometry;
         // TODO how to properly copy envelope into polygon
         Polygon polygon = new Polygon();
         polygon.addEnvelope(envelope, false);
 
-        return projectPolygon(polygon, projectionTransformation, progressTracker);
+        return projectPolygon(polygon, projectionTransformation, progressTracker, bParallel);
     }
 }
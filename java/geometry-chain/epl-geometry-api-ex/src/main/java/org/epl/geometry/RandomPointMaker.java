@@ -104,7 +104,7 @@ class RandomPointMaker {
 
         ProjectionTransformation backProjectionTransformation = forwardProjectionTransformation.getReverse();
         // project inplace instead of projecting a copy using OperatorProject::execute
-        Projector.projectMultiPoint(multiPoint, backProjectionTransformation, progressTracker);
+        Projector.projectMultiPoint(multiPoint, backProjectionTransformation, progressTracker, false);
 
 
         // TODO project multipoint back to input spatial reference (it is necessary to do it here,
@@ -35,6 +35,8 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 	//	https://regex101.com/r/F0FAUw/1
 	public final static Pattern m_pattern = Pattern.compile("^([\\w\\W]+AUTHORITY[\\s]*\\[[\\s]*\"EPSG\"[\\s]*,[\\s]*[\"]*([\\d]+)[\"]*[\\s]*][\\s]*][\\s\\]]*)$");
 	public final static Pattern m_proj4wkid = Pattern.compile("^\\+init=epsg:([\\d]+)");
+	// PJ handles kept by a spatial reference between calls
+	static final int MAX_IDLE_PJ = Runtime.getRuntime().availableProcessors();
 
 
 	enum Precision {
@@ -47,7 +49,8 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 	int m_userOldestWkid;
 	String m_proj4;
 	String m_userWkt;// a string, the well-known text.
-	PJ m_pj;
+	// PJ handles can't be shared between threads, so every call borrows one from the pool and gives it back
+	private final HandlePool<PJ> m_pjPool = new HandlePool<>(() -> new PJ(getProj4()), MAX_IDLE_PJ);
 	double m_a;
 	double m_e2;
 	// public SgCoordRef m_sgCoordRef;
@@ -71,7 +74,6 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 		m_userOldestWkid = -1;
 		m_userWkt = null;
 		m_proj4 = null;
-		m_pj = null;
 		m_a = Double.NEGATIVE_INFINITY;
 		m_e2 = Double.NEGATIVE_INFINITY;
 	}
@@ -114,11 +116,25 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 	}
 
 
-	PJ getPJ() {
-		if (m_pj == null) {
-			m_pj = new PJ(this.getProj4());
+	PJ borrowPJ() {
+		return m_pjPool.borrow();
+	}
+
+	void givePJBack(PJ pj) {
+		m_pjPool.giveBack(pj);
+	}
+
+	HandlePool<PJ> getPJPool() {
+		return m_pjPool;
+	}
+
+	private PJ.Type getPJType() {
+		PJ pj = borrowPJ();
+		try {
+			return pj.getType();
+		} finally {
+			givePJBack(pj);
 		}
-		return m_pj;
 	}
 
 	CoordinateSystemType getCoordinateSystemType() {
@@ -145,9 +161,10 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 			}
 
 		}
-		if (getPJ().getType() == PJ.Type.GEOGRAPHIC) {
+		PJ.Type type = getPJType();
+		if (type == PJ.Type.GEOGRAPHIC) {
 			return CoordinateSystemType.GEOGRAPHIC;
-		} else if (getPJ().getType() == PJ.Type.PROJECTED) {
+		} else if (type == PJ.Type.PROJECTED) {
 			return CoordinateSystemType.PROJECTED;
 		}
 
@@ -241,7 +258,12 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 	@Override
 	public double getMajorAxis() {
 		if (Double.isInfinite(m_a)) {
-			m_a = this.getPJ().getSemiMajorAxis();
+			PJ pj = borrowPJ();
+			try {
+				m_a = pj.getSemiMajorAxis();
+			} finally {
+				givePJBack(pj);
+			}
 		}
 		return m_a;
 	}
@@ -249,7 +271,12 @@ public class SpatialReferenceExImpl extends SpatialReferenceEx {
 	@Override
 	public double getEccentricitySquared() {
 		if (Double.isInfinite(m_e2)) {
-			m_e2 = this.getPJ().getEccentricitySquared();
+			PJ pj = borrowPJ();
+			try {
+				m_e2 = pj.getEccentricitySquared();
+			} finally {
+				givePJBack(pj);
+			}
 		}
 		return m_e2;
 	}
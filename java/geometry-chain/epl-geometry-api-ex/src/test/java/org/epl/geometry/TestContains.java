@@ -24,7 +24,16 @@
 
 package org.epl.geometry;
 
+import com.esri.core.geometry.Envelope;
+import com.esri.core.geometry.Geometry;
 import com.esri.core.geometry.MapGeometry;
+import com.esri.core.geometry.Operator;
+import com.esri.core.geometry.OperatorFactoryLocal;
+import com.esri.core.geometry.OperatorSimpleRelation;
+import com.esri.core.geometry.Point;
+import com.esri.core.geometry.Polygon;
+import com.esri.core.geometry.SimpleGeometryCursor;
+import com.esri.core.geometry.SpatialReference;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
@@ -32,6 +41,7 @@ import junit.framework.TestCase;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.HashMap;
 
 public class TestContains extends TestCase {
     @Override
@@ -53,4 +63,36 @@ public class TestContains extends TestCase {
         boolean res = GeometryEngineEx.contains(mg.getGeometry(), mg.getGeometry(), SpatialReferenceEx.create(4326));
         assertTrue(res);
     }
+    @Test
+    public static void testSimpleRelationExAccelerated() {
+        Polygon polygon = new Polygon();
+        for (int i = 0; i < 256; i++) {
+            double a = -2 * Math.PI * i / 256;
+            double r = i % 2 == 0 ? 10 : 7;
+            if (i == 0)
+                polygon.startPath(r * Math.cos(a), r * Math.sin(a));
+            else
+                polygon.lineTo(r * Math.cos(a), r * Math.sin(a));
+        }
+
+        Geometry[] geometries = new Geometry[800];
+        for (int i = 0; i < 400; i++) {
+            double x = -12 + (i % 20) * 1.2;
+            double y = -12 + (i / 20) * 1.2;
+            geometries[2 * i] = new Point(x, y);
+            geometries[2 * i + 1] = new Envelope(x, y, x + 0.5, y + 0.5);
+        }
+
+        SpatialReference sr = SpatialReference.create(4326);
+        OperatorSimpleRelationEx operatorEx = (OperatorSimpleRelationEx) OperatorFactoryLocalEx.getInstance().getOperator(OperatorEx.Type.SimpleRelation);
+        Operator.Type[] types = new Operator.Type[]{Operator.Type.Intersects, Operator.Type.Contains, Operator.Type.Disjoint, Operator.Type.Within, Operator.Type.Touches};
+        for (Operator.Type type : types) {
+            HashMap<Long, Boolean> results = operatorEx.execute(polygon, new SimpleGeometryCursor(geometries), sr, null, type);
+            assertEquals(geometries.length, results.size());
+            OperatorSimpleRelation operator = (OperatorSimpleRelation) OperatorFactoryLocal.getInstance().getOperator(type);
+            for (int i = 0; i < geometries.length; i++) {
+                assertEquals(operator.execute(polygon, geometries[i], sr, null), (boolean) results.get((long) i));
+            }
+        }
+    }
 }
@@ -946,4 +946,83 @@ public class TestGeodetic extends TestCase {
         assertEquals(0, inverseResult.getAz12_rad(), 14);
         assertEquals(Math.PI, inverseResult.getAz21_rad(), 14);
     }
+
+    @Test
+    public void testGeodeticArea() {
+        // WGS 84
+        double a = 6378137.0;
+        double e2 = 0.0066943799901413165;
+        double e = Math.sqrt(e2);
+        double ellipsoidArea = 2 * Math.PI * a * a * (1 + (1 - e2) / e * 0.5 * Math.log((1 + e) / (1 - e)));
+
+        // the equator and two meridians are geodesics, so the octant is exact
+        Polygon octant = new Polygon();
+        octant.startPath(0, 0);
+        octant.lineTo(0, 90);
+        octant.lineTo(90, 0);
+        assertEquals(ellipsoidArea / 8, GeoArea.geodesicArea(a, e2, octant), 1e-9 * ellipsoidArea);
+
+        // counter clockwise rings are negative
+        Polygon reversed = new Polygon();
+        reversed.startPath(0, 0);
+        reversed.lineTo(90, 0);
+        reversed.lineTo(0, 90);
+        assertEquals(-ellipsoidArea / 8, GeoArea.geodesicArea(a, e2, reversed), 1e-9 * ellipsoidArea);
+
+        // a parcel of about 80 by 110 meters, against the area element of the ellipsoid
+        double phi = 45 * Math.PI / 180;
+        double d = 0.001 * Math.PI / 180;
+        double w = Math.sqrt(1 - e2 * Math.sin(phi) * Math.sin(phi));
+        double expected = (a * Math.cos(phi) / w * d) * (a * (1 - e2) / (w * w * w) * d);
+        Polygon parcel = new Polygon();
+        parcel.addEnvelope(new Envelope(-122.3, 44.9995, -122.299, 45.0005), false);
+        assertEquals(expected, GeoArea.geodesicArea(a, e2, parcel), 1e-6 * expected);
+
+        // across the antimeridian
+        Polygon antimeridian = new Polygon();
+        antimeridian.startPath(179.9995, 44.9995);
+        antimeridian.lineTo(179.9995, 45.0005);
+        antimeridian.lineTo(-179.9995, 45.0005);
+        antimeridian.lineTo(-179.9995, 44.9995);
+        assertEquals(expected, GeoArea.geodesicArea(a, e2, antimeridian), 1e-6 * expected);
+
+        // holes are subtracted
+        Polygon withHole = new Polygon();
+        withHole.addEnvelope(new Envelope(-122.3, 44.9995, -122.299, 45.0005), false);
+        withHole.addEnvelope(new Envelope(-122.2999, 44.9996, -122.2991, 45.0004), true);
+        double hole = GeoArea.geodesicArea(a, e2, withHole) - expected;
+        assertTrue(hole < 0);
+        assertEquals(-0.64 * expected, hole, 1e-4 * expected);
+
+        // the perimeter includes the closing edge of the ring
+        Polygon square = new Polygon();
+        square.addEnvelope(new Envelope(0, 0, 1, 1), false);
+        Polyline open = new Polyline();
+        open.startPath(0, 0);
+        open.lineTo(1, 0);
+        assertEquals(111319.4907932264, GeoArea.geodesicLength(a, e2, open), 1e-6);
+        double perimeter = 0;
+        for (int i = 0; i < 4; i++) {
+            perimeter += GeoDist.geodesicDistance(a, e2, square.getXY(i), square.getXY((i + 1) % 4), null, null);
+        }
+        assertEquals(perimeter, GeoArea.geodesicLength(a, e2, square), 1e-6);
+    }
+
+    @Test
+    public void testGeodeticAreaOperator() {
+        SpatialReferenceEx sr = SpatialReferenceEx.create(4326);
+        Polygon parcel = new Polygon();
+        parcel.addEnvelope(new Envelope(-122.3, 44.9995, -122.299, 45.0005), false);
+        double area = OperatorGeodeticArea.local().execute(parcel, sr, GeodeticCurveType.Geodesic, null);
+        assertEquals(GeoArea.geodesicArea(sr.getMajorAxis(), sr.getEccentricitySquared(), parcel), area);
+        assertEquals(0.0, OperatorGeodeticArea.local().execute(new Point(1, 2), sr, GeodeticCurveType.Geodesic, null));
+
+        Polygon larger = new Polygon();
+        larger.addEnvelope(new Envelope(-122.3, 44.999, -122.298, 45.001), false);
+        OperatorGeodeticAreaCursor cursor = OperatorGeodeticArea.local().execute(
+                new SimpleGeometryCursor(new Geometry[]{parcel, larger}), sr, GeodeticCurveType.Geodesic, null);
+        assertEquals(area, cursor.nextDouble());
+        assertEquals(4 * area, cursor.nextDouble(), 1e-3 * area);
+        assertFalse(cursor.hasNext());
+    }
 }
@@ -589,4 +589,33 @@ public class TestProjection extends TestCase {
         Geometry difference = GeometryEngineEx.difference(geometry, roundTrip, spatialReference4326);
         assertEquals(difference.calculateArea2D(), 0.0);
     }
+
+    @Test
+    public void testParallelProjectionMatchesSerial() {
+        // more vertices than Projector.PARALLEL_VERTEX_THRESHOLD and not a multiple of the chunk size
+        int pointCount = Projector.PARALLEL_VERTEX_THRESHOLD + Projector.PARALLEL_CHUNK_SIZE / 2 + 7;
+        Polyline polyline = new Polyline();
+        for (int i = 0; i < pointCount; i++) {
+            double x = -170 + 340.0 * i / pointCount;
+            double y = 60 * Math.sin(i / 1000.0);
+            if (i == 0)
+                polyline.startPath(x, y);
+            else
+                polyline.lineTo(x, y);
+        }
+
+        Polyline serial = (Polyline) OperatorProject.local().execute(polyline, projectionTransformationToMerc, null);
+        Polyline parallel = (Polyline) OperatorProject.local().execute(polyline, projectionTransformationToMerc, null, true);
+        assertEquals(serial.getPointCount(), parallel.getPointCount());
+        for (int i = 0; i < serial.getPointCount(); i++) {
+            assertEquals(serial.getXY(i), parallel.getXY(i));
+        }
+
+        // small geometries take the single call path
+        Polygon polygon = new Polygon();
+        polygon.addEnvelope(new Envelope(-10, -10, 10, 10), false);
+        Polygon smallSerial = (Polygon) OperatorProject.local().execute(polygon, projectionTransformationToMerc, null);
+        Polygon smallParallel = (Polygon) OperatorProject.local().execute(polygon, projectionTransformationToMerc, null, true);
+        assertTrue(smallSerial.equals(smallParallel));
+    }
 }
\ No newline at end of file
@@ -27,6 +27,8 @@ package org.epl.geometry;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -227,5 +229,84 @@ public class TestSpatialReference extends TestCase {
         SpatialReferenceEx spatialReference2 = SpatialReferenceEx.createFromProj4("+proj=utm +zone=30 +ellps=GRS80 +towgs84=0,0,0,0,0,0,0 +units=m +no_defs ");
         assertEquals(spatialReference, spatialReference2);
     }
+
+    @Test
+    public void testProjectionCache() {
+        ProjectionCache cache = new ProjectionCache(3);
+        SpatialReferenceEx wgs84 = cache.get(4326);
+        assertSame(wgs84, cache.get(4326));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        String proj4 = "+proj=utm +zone=30 +ellps=GRS80 +towgs84=0,0,0,0,0,0,0 +units=m +no_defs ";
+        SpatialReferenceEx utm = cache.getFromProj4(proj4);
+        assertSame(utm, cache.getFromProj4(proj4));
+        assertEquals(SpatialReferenceEx.createFromProj4(proj4), utm);
+
+        // one PJ handle serves calls one after the other
+        HandlePool<?> utmPJs = ((SpatialReferenceExImpl) utm).getPJPool();
+        utm.getCoordinateSystemType();
+        utm.getCoordinateSystemType();
+        assertEquals(1, cache.getPJCreations());
+        assertEquals(1, utmPJs.getIdleCount());
+
+        // spatial references that are equal but not cached map to the same transformation
+        ProjectionTransformation transformation = cache.getTransformation(wgs84, utm);
+        assertSame(transformation, cache.getTransformation(SpatialReferenceEx.create(4326), SpatialReferenceEx.createFromProj4(proj4)));
+        assertNotSame(transformation, cache.getTransformation(utm, wgs84));
+        assertEquals(3, cache.size());
+
+        // least recently used entries are dropped
+        assertSame(utm, cache.getFromProj4(proj4));
+        cache.get(3857);
+        assertEquals(3, cache.size());
+        assertEquals(2, cache.getEvictions());
+        long misses = cache.getMisses();
+        assertSame(utm, cache.getFromProj4(proj4));
+        assertNotSame(transformation, cache.getTransformation(wgs84, utm));
+        assertEquals(misses + 1, cache.getMisses());
+
+        cache.setMaxSize(1);
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHits());
+        assertEquals(0, cache.getEvictions());
+        assertEquals(0, cache.getPJCreations());
+    }
+
+    @Test
+    public void testHandlePool() {
+        AtomicInteger created = new AtomicInteger();
+        HandlePool<Object> pool = new HandlePool<>(() -> {
+            created.incrementAndGet();
+            return new Object();
+        }, 2);
+        LongAdder creations = new LongAdder();
+        pool.countCreations(creations);
+
+        Object first = pool.borrow();
+        pool.giveBack(first);
+        assertSame(first, pool.borrow());
+
+        // concurrent callers get handles of their own, and no more than maxIdle are kept
+        Object second = pool.borrow();
+        Object third = pool.borrow();
+        assertNotSame(first, second);
+        assertNotSame(second, third);
+        pool.giveBack(first);
+        pool.giveBack(second);
+        pool.giveBack(third);
+        assertEquals(3, created.get());
+        assertEquals(3, creations.sum());
+        assertEquals(2, pool.getIdleCount());
+
+        // the idle handles are borrowed before new ones are created
+        pool.borrow();
+        pool.borrow();
+        assertEquals(3, creations.sum());
+        pool.borrow();
+        assertEquals(4, creations.sum());
+    }
 }
 
@@ -0,0 +1,141 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A thread safe pool of native order ByteBuffers for the WKB and EWKB export.
+ *
+ * Buffers are kept in power of two size classes. {@link #acquire(int)} returns a pooled buffer of the smallest class
+ * that fits, or allocates one, and {@link #release(ByteBuffer)} hands it back for the next export. Every class keeps
+ * at most maxPooledPerClass buffers and buffers larger than the largest class are never pooled, so a pool does not
+ * grow without bounds.
+ */
+public final class ByteBufferPool {
+	private static final int MIN_CLASS = 6; // 64 bytes
+	private static final int MAX_CLASS = 26; // 64 MB
+
+	private final boolean m_bDirect;
+	private final int m_maxPooledPerClass;
+	private final ConcurrentLinkedQueue<ByteBuffer>[] m_classes;
+	private final AtomicIntegerArray m_classCounts;
+
+	/**
+	 * @param bDirect when true the pool allocates direct buffers, otherwise heap buffers.
+	 * @param maxPooledPerClass the number of released buffers kept per size class.
+	 */
+	@SuppressWarnings("unchecked")
+	public ByteBufferPool(boolean bDirect, int maxPooledPerClass) {
+		if (maxPooledPerClass < 0)
+			throw new IllegalArgumentException();
+
+		m_bDirect = bDirect;
+		m_maxPooledPerClass = maxPooledPerClass;
+		m_classes = new ConcurrentLinkedQueue[MAX_CLASS - MIN_CLASS + 1];
+		for (int i = 0; i < m_classes.length; i++)
+			m_classes[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+		m_classCounts = new AtomicIntegerArray(m_classes.length);
+	}
+
+	public boolean isDirect() {
+		return m_bDirect;
+	}
+
+	/**
+	 * Returns a native order buffer with a capacity of at least size bytes, with the position at 0 and the limit at
+	 * size.
+	 */
+	public ByteBuffer acquire(int size) {
+		if (size < 0)
+			throw new IllegalArgumentException();
+
+		int sizeClass = sizeClass(size);
+		if (sizeClass > MAX_CLASS)
+			return allocate(size, m_bDirect);
+
+		int index = sizeClass - MIN_CLASS;
+		ByteBuffer buffer = m_classes[index].poll();
+		if (buffer == null)
+			buffer = allocate(1 << sizeClass, m_bDirect);
+		else
+			m_classCounts.decrementAndGet(index);
+
+		buffer.clear();
+		buffer.limit(size);
+		return buffer;
+	}
+
+	/**
+	 * Hands a buffer returned by {@link #acquire(int)} back to the pool. The caller must not use it afterwards.
+	 */
+	public void release(ByteBuffer buffer) {
+		if (buffer == null || buffer.isDirect() != m_bDirect || buffer.isReadOnly())
+			return;
+
+		int capacity = buffer.capacity();
+		int sizeClass = sizeClass(capacity);
+		// only buffers allocated for a size class go back into it
+		if (sizeClass > MAX_CLASS || capacity != 1 << sizeClass)
+			return;
+
+		int index = sizeClass - MIN_CLASS;
+		if (m_classCounts.incrementAndGet(index) > m_maxPooledPerClass) {
+			m_classCounts.decrementAndGet(index);
+			return;
+		}
+
+		buffer.order(ByteOrder.nativeOrder());
+		m_classes[index].offer(buffer);
+	}
+
+	/**
+	 * Returns a new native order buffer of the given size.
+	 */
+	static ByteBuffer allocate(int size, boolean bDirect) {
+		ByteBuffer buffer = bDirect ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+		return buffer.order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * Returns the reusable buffer if it holds size bytes, otherwise a larger replacement for it. The returned buffer has
+	 * the position at 0 and the limit at size.
+	 */
+	static ByteBuffer reserve(ByteBuffer reusable, int size, boolean bDirect) {
+		if (reusable == null || reusable.capacity() < size) {
+			int capacity = reusable == null ? size : Math.max(size, reusable.capacity() + (reusable.capacity() >> 1));
+			reusable = allocate(capacity, bDirect);
+		}
+
+		reusable.clear();
+		reusable.limit(size);
+		return reusable;
+	}
+
+	private static int sizeClass(int size) {
+		if (size <= 1 << MIN_CLASS)
+			return MIN_CLASS;
+		return 32 - Integer.numberOfLeadingZeros(size - 1);
+	}
+}
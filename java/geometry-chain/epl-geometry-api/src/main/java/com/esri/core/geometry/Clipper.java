@@ -1161,37 +1161,9 @@ class Clipper {
 				return geometry.createInstance(); // return an empty geometry
 		}
 
-		// Test the geometry envelope
-		Envelope2D env_2D = new Envelope2D();
-		geometry.queryLooseEnvelope2D(env_2D);
-		if (extent.contains(env_2D))
-			return geometry;// completely inside of bounds
-		if (!extent.isIntersecting(env_2D))
-			return geometry.createInstance();// outside of bounds. return empty
-												// geometry.
-
-		MultiVertexGeometryImpl impl = (MultiVertexGeometryImpl) geometry
-				._getImpl();
-		GeometryAccelerators accel = impl._getAccelerators();
-		if (accel != null) {
-			RasterizedGeometry2D rgeom = accel.getRasterizedGeometry();
-			if (rgeom != null) {
-				RasterizedGeometry2D.HitType hit = rgeom
-						.queryEnvelopeInGeometry(extent);
-				if (hit == RasterizedGeometry2D.HitType.Inside) {
-					if (geomtype != Geometry.Type.Polygon.value())
-						throw GeometryException.GeometryInternalError();
-
-					Polygon poly = new Polygon(geometry.getDescription());
-					poly.addEnvelope(extent, false);
-					return poly;
-				} else if (hit == RasterizedGeometry2D.HitType.Outside) {
-					return geometry.createInstance();// outside of bounds.
-														// return empty
-														// geometry.
-				}
-			}
-		}
+		Geometry trivial = clipByEnvelope_(geometry, extent);
+		if (trivial != null)
+			return trivial;
 
 		switch (geomtype) {
 		case Geometry.GeometryType.MultiPoint: {
@@ -1246,6 +1218,74 @@ class Clipper {
 		}
 	}
 
+	/**
+	 * Clips a polygon or polyline to the extent by clipping only a part of it. The part is built by IntersectorIndex
+	 * for an envelope that contains the extent, and leaves out only rings, segments and vertices whose clip to any
+	 * extent inside of that envelope is deleted, so the result has the same vertices as the clip of the whole
+	 * geometry.
+	 */
+	static Geometry clip(MultiPath geometry, MultiPath part, Envelope2D extent,
+			double tolerance, double densify_dist) {
+		if (part == geometry)
+			return clip(geometry, extent, tolerance, densify_dist);
+
+		if (geometry.isEmpty())
+			return geometry;
+
+		if (extent.isEmpty())
+			return geometry.createInstance(); // return an empty geometry
+
+		// the tests of the whole geometry come first, as in the clip of the
+		// whole geometry
+		Geometry trivial = clipByEnvelope_(geometry, extent);
+		if (trivial != null)
+			return trivial;
+
+		Envelope2D part_env_2D = new Envelope2D();
+		part.queryLooseEnvelope2D(part_env_2D);
+		if (part.isEmpty() || !extent.isIntersecting(part_env_2D))
+			return geometry.createInstance();// nothing reaches the extent
+
+		return clipMultiPath_(part, extent, tolerance, densify_dist);
+	}
+
+	// Returns the clip of the geometry if the envelope or the rasterized
+	// geometry tell it without clipping, null otherwise.
+	private static Geometry clipByEnvelope_(Geometry geometry, Envelope2D extent) {
+		// Test the geometry envelope
+		Envelope2D env_2D = new Envelope2D();
+		geometry.queryLooseEnvelope2D(env_2D);
+		if (extent.contains(env_2D))
+			return geometry;// completely inside of bounds
+		if (!extent.isIntersecting(env_2D))
+			return geometry.createInstance();// outside of bounds. return empty
+												// geometry.
+
+		MultiVertexGeometryImpl impl = (MultiVertexGeometryImpl) geometry
+				._getImpl();
+		GeometryAccelerators accel = impl._getAccelerators();
+		if (accel != null) {
+			RasterizedGeometry2D rgeom = accel.getRasterizedGeometry();
+			if (rgeom != null) {
+				RasterizedGeometry2D.HitType hit = rgeom
+						.queryEnvelopeInGeometry(extent);
+				if (hit == RasterizedGeometry2D.HitType.Inside) {
+					if (geometry.getType() != Geometry.Type.Polygon)
+						throw GeometryException.GeometryInternalError();
+
+					Polygon poly = new Polygon(geometry.getDescription());
+					poly.addEnvelope(extent, false);
+					return poly;
+				} else if (hit == RasterizedGeometry2D.HitType.Outside) {
+					return geometry.createInstance();// outside of bounds.
+														// return empty
+														// geometry.
+				}
+			}
+		}
+		return null;
+	}
+
 	int compareVertices_(int v_1, int v_2) {
 		Point2D pt_1 = new Point2D();
 		m_shape.getXY(v_1, pt_1);
@@ -51,4 +51,9 @@ public interface GeoJsonExportFlags {
 	public static final int geoJsonExportPrecision1 = 0x20000;
 	public static final int geoJsonExportPrecision0 = 0x22000;
 	public static final int geoJsonExportPrecisionFixedPoint = 0x40000;
+	/**
+	 * Only for the UTF-8 export. Write doubles in the shortest form that parses back to the same double, instead of
+	 * the String.format form of the String export. Faster, but the numbers can be written differently.
+	 */
+	public static final int geoJsonExportShortestDoubles = 0x80000;
 }
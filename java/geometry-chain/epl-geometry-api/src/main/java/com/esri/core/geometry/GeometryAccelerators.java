@@ -28,6 +28,7 @@ class GeometryAccelerators {
 	private RasterizedGeometry2D m_rasterizedGeometry;
 	private QuadTreeImpl m_quad_tree;
     private QuadTreeImpl m_quad_tree_for_paths;
+	private PackedRTree m_packed_rtree;
 
 	public RasterizedGeometry2D getRasterizedGeometry() {
 		return m_rasterizedGeometry;
@@ -41,6 +42,14 @@ class GeometryAccelerators {
 		return m_quad_tree_for_paths;
 	}
 
+	/**
+	 * A packed R-tree of the segments, built instead of the quad tree for point in polygon queries on geometries that
+	 * do not change. It is bulk loaded in one sort, so it is cheaper to build than the quad tree.
+	 */
+	public PackedRTree getPackedRTree() {
+		return m_packed_rtree;
+	}
+
 	void _setRasterizedGeometry(RasterizedGeometry2D rg) {
 		m_rasterizedGeometry = rg;
 	}
@@ -51,6 +60,10 @@ class GeometryAccelerators {
 
 	void _setQuadTreeForPaths(QuadTreeImpl quad_tree) { m_quad_tree_for_paths = quad_tree; }
 
+	void _setPackedRTree(PackedRTree packed_rtree) {
+		m_packed_rtree = packed_rtree;
+	}
+
 	static boolean canUseRasterizedGeometry(Geometry geom) {
 		if (geom.isEmpty()
 				|| !(geom.getType() == Geometry.Type.Polyline || geom.getType() == Geometry.Type.Polygon)) {
@@ -87,6 +100,7 @@ class GeometryAccelerators {
 	{
 		return (m_rasterizedGeometry != null ? m_rasterizedGeometry.estimateMemorySize() : 0) +
 			(m_quad_tree != null ? m_quad_tree.estimateMemorySize() : 0) +
-			(m_quad_tree_for_paths != null ? m_quad_tree_for_paths.estimateMemorySize() : 0);
+			(m_quad_tree_for_paths != null ? m_quad_tree_for_paths.estimateMemorySize() : 0) +
+			(m_packed_rtree != null ? m_packed_rtree.estimateMemorySize() : 0);
 	}
 }
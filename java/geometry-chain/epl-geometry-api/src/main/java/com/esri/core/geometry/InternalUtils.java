@@ -269,6 +269,34 @@ public final class InternalUtils {
 		return quad_tree_impl;
 	}
 
+	/**
+	 * Bulk loads a packed R-tree of the segments. The elements are the start point indices of the segments, as in the
+	 * quad tree.
+	 */
+	static PackedRTree buildPackedRTree(MultiPathImpl multipathImpl) {
+		int segmentCount = multipathImpl.getSegmentCount();
+		int[] elements = new int[segmentCount];
+		double[] boundingBoxes = new double[4 * segmentCount];
+		SegmentIteratorImpl seg_iter = multipathImpl.querySegmentIterator();
+		Envelope2D boundingbox = new Envelope2D();
+		int count = 0;
+		while (seg_iter.nextPath()) {
+			while (seg_iter.hasNextSegment()) {
+				Segment segment = seg_iter.nextSegment();
+				segment.queryEnvelope2D(boundingbox);
+				elements[count] = seg_iter.getStartPointIndex();
+				boundingBoxes[4 * count] = boundingbox.xmin;
+				boundingBoxes[4 * count + 1] = boundingbox.ymin;
+				boundingBoxes[4 * count + 2] = boundingbox.xmax;
+				boundingBoxes[4 * count + 3] = boundingbox.ymax;
+				count++;
+			}
+		}
+
+		assert (count == segmentCount);
+		return new PackedRTree(elements, boundingBoxes);
+	}
+
 	static QuadTreeImpl buildQuadTree(MultiPathImpl multipathImpl,
 			Envelope2D extentOfInterest) {
 		Envelope2D extent = new Envelope2D();
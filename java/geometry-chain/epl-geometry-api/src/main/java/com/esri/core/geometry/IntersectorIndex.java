@@ -0,0 +1,269 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+/**
+ * A tile tree over a large polygon or polyline that is clipped to the extents of many other geometries.
+ *
+ * Every tile holds a part of the geometry that clips to the same vertices as the whole geometry for any extent inside
+ * of the tile extent (see Clipper.clip(MultiPath, MultiPath, ...)). A query descends to the smallest tile that
+ * contains the query extent and returns its part, so a clip takes time proportional to the part, not to the geometry.
+ *
+ * The part of a polyline holds the segments whose envelopes intersect the tile extent, unchanged and in their order.
+ * Clipper clips every segment of a polyline on its own, and the other segments don't reach the query extent.
+ *
+ * The part of a polygon drops the rings whose envelopes miss the tile extent, and shortens the other rings. Clipper
+ * clips a polygon by the xmin, ymin, xmax and ymax planes of the extent in turn, and deletes the vertices between the
+ * segments outside of a plane, so such a run of vertices only matters by its two ends. A run of vertices left of the
+ * tile, below right of it, or above right of it is outside of the same plane for any extent inside of the tile, and
+ * inside of the planes before it, so the part keeps the ends of the run and one vertex between them. The first vertex
+ * of every ring is kept, so the clipped rings start where they start in the clip of the whole polygon.
+ *
+ * Every tile covers a quadrant cell of its parent cell, and selects by the cell grown by a quarter of the cell size on
+ * every side, so small extents near the cell boundaries still fit a child tile. A tile is split on the first query
+ * that descends into it, so only the tiles near the queried extents are ever built.
+ */
+final class IntersectorIndex {
+	// parts with fewer vertices are clipped as they are
+	static final int MIN_SPLIT_POINT_COUNT = 256;
+	private static final int MAX_DEPTH = 16;
+
+	// the regions of the vertices of a ring that can be shortened, see shortenRing_
+	private static final int NONE = 0;
+	private static final int LEFT = 1;
+	private static final int BELOW_RIGHT = 2;
+	private static final int ABOVE_RIGHT = 3;
+
+	private final boolean m_bPolygon;
+	// runs of vertices of a polygon ring are shortened only if all segments are lines
+	private final boolean m_bShortenRings;
+	private final Tile m_root;
+
+	IntersectorIndex(MultiPath geometry) {
+		m_bPolygon = geometry.getType() == Geometry.Type.Polygon;
+		m_bShortenRings = m_bPolygon && !geometry.hasNonLinearSegments();
+		Envelope2D extent = new Envelope2D();
+		geometry.queryLooseEnvelope2D(extent);
+		m_root = new Tile(extent, extent, geometry, 0);
+	}
+
+	static boolean canIndex(Geometry geometry) {
+		int gt = geometry.getType().value();
+		return (gt == Geometry.GeometryType.Polygon || gt == Geometry.GeometryType.Polyline)
+				&& ((MultiPath) geometry).getPointCount() >= MIN_SPLIT_POINT_COUNT;
+	}
+
+	/**
+	 * Returns the part of the geometry of the smallest tile that contains the extent. That is the geometry itself if
+	 * no tile below the root contains the extent.
+	 */
+	MultiPath query(Envelope2D extent) {
+		// the geometry has no part outside of the root extent, so only the rest of the extent has to fit a tile
+		Envelope2D clamped = new Envelope2D();
+		clamped.setCoords(extent);
+		if (!clamped.intersect(m_root.m_extent))
+			return m_root.m_part;
+
+		Tile tile = m_root;
+		Tile child;
+		while ((child = tile.child_(clamped)) != null)
+			tile = child;
+		return tile.m_part;
+	}
+
+	/**
+	 * Returns the part of the geometry for the extent, or the geometry itself if nothing can be left out.
+	 */
+	private MultiPath select_(MultiPath geometry, Envelope2D extent) {
+		MultiPath part = (MultiPath) geometry.createInstance();
+		boolean bChanged;
+		if (m_bPolygon) {
+			((Polygon) part).setFillRule(((Polygon) geometry).getFillRule());
+			bChanged = selectRings_(geometry, extent, part);
+		} else {
+			bChanged = selectSegments_(geometry, extent, part);
+		}
+		return bChanged ? part : geometry;
+	}
+
+	private boolean selectSegments_(MultiPath polyline, Envelope2D extent, MultiPath part) {
+		SegmentIteratorImpl segIter = ((MultiPathImpl) polyline._getImpl()).querySegmentIterator();
+		Envelope2D env = new Envelope2D();
+		boolean bChanged = false;
+		while (segIter.nextPath()) {
+			// a segment that doesn't follow a selected segment starts a new path
+			boolean bStartNewPath = true;
+			while (segIter.hasNextSegment()) {
+				Segment segment = segIter.nextSegment();
+				segment.queryEnvelope2D(env);
+				if (env.isIntersecting(extent)) {
+					part.addSegment(segment, bStartNewPath);
+					bStartNewPath = false;
+				} else {
+					bStartNewPath = true;
+					bChanged = true;
+				}
+			}
+		}
+		return bChanged;
+	}
+
+	private boolean selectRings_(MultiPath polygon, Envelope2D extent, MultiPath part) {
+		Envelope2D env = new Envelope2D();
+		boolean bChanged = false;
+		for (int ipath = 0, npaths = polygon.getPathCount(); ipath < npaths; ipath++) {
+			polygon.queryPathEnvelope2D(ipath, env);
+			if (!env.isIntersecting(extent)) {
+				bChanged = true;
+				continue;
+			}
+
+			if (!m_bShortenRings || !shortenRing_(polygon, ipath, extent, part))
+				part.addPath(polygon, ipath, true);
+			else
+				bChanged = true;
+		}
+		return bChanged;
+	}
+
+	/**
+	 * Adds the ring to the part without the vertices inside of runs in one region, but the first of them. Returns
+	 * false and adds nothing if no vertex can be left out.
+	 *
+	 * For an extent inside of the tile extent, a segment left of the tile is outside of the xmin plane, a segment
+	 * below right of it is inside of the xmin plane and outside of the ymin plane, and a segment above right of it is
+	 * inside of the xmin and ymin planes and outside of the xmax plane. The regions are boxes, so a segment between
+	 * two vertices of a region is in the region as well.
+	 */
+	private static boolean shortenRing_(MultiPath polygon, int ipath, Envelope2D extent, MultiPath part) {
+		int start = polygon.getPathStart(ipath);
+		int count = polygon.getPathSize(ipath);
+		AttributeStreamOfDbl xy = (AttributeStreamOfDbl) ((MultiPathImpl) polygon._getImpl())
+				.getAttributeStreamRef(VertexDescription.Semantics.POSITION);
+		int[] regions = new int[count];
+		for (int i = 0; i < count; i++)
+			regions[i] = region_(xy.read(2 * (start + i)), xy.read(2 * (start + i) + 1), extent);
+
+		// the vertices other than the first whose neighbours are in their region
+		boolean[] inner = new boolean[count];
+		int innerCount = 0;
+		for (int i = 1; i < count; i++) {
+			int region = regions[i];
+			if (region != NONE && regions[i - 1] == region && regions[(i + 1) % count] == region) {
+				inner[i] = true;
+				innerCount++;
+			}
+		}
+
+		// the first vertex of every run of inner vertices is kept, so a ring keeps at least three vertices while
+		// the run is inside of the planes before its own. A run of all vertices but the first keeps its last vertex
+		// as well.
+		boolean[] keep = new boolean[count];
+		int keepCount = 0;
+		for (int i = 0; i < count; i++) {
+			keep[i] = !inner[i] || !inner[i - 1] || (i == count - 1 && innerCount == count - 1);
+			if (keep[i])
+				keepCount++;
+		}
+		if (keepCount == count)
+			return false;
+
+		// the first two vertices are always kept. They start the ring, and the runs of kept vertices after them are
+		// copied to its end.
+		Point point = new Point();
+		polygon.getPointByVal(start, point);
+		part.startPath(point);
+		polygon.getPointByVal(start + 1, point);
+		part.lineTo(point);
+		int partPath = part.getPathCount() - 1;
+		for (int i = 2; i < count;) {
+			while (i < count && !keep[i])
+				i++;
+			int from = i;
+			while (i < count && keep[i])
+				i++;
+			if (i > from)
+				part.insertPoints(partPath, -1, polygon, ipath, from, i - from, true);
+		}
+		return true;
+	}
+
+	private static int region_(double x, double y, Envelope2D extent) {
+		if (x < extent.xmin)
+			return LEFT;
+		if (x >= extent.xmax && y < extent.ymin)
+			return BELOW_RIGHT;
+		if (x > extent.xmax && y >= extent.ymax)
+			return ABOVE_RIGHT;
+		return NONE;
+	}
+
+	private final class Tile {
+		final Envelope2D m_cell;
+		// the part is selected by this extent
+		final Envelope2D m_extent;
+		final MultiPath m_part;
+		final int m_depth;
+		Tile[] m_children = null;
+
+		Tile(Envelope2D cell, Envelope2D extent, MultiPath part, int depth) {
+			m_cell = cell;
+			m_extent = extent;
+			m_part = part;
+			m_depth = depth;
+		}
+
+		/**
+		 * Returns the child tile that contains the extent, or null if no child contains it or the tile is not split.
+		 */
+		Tile child_(Envelope2D extent) {
+			if (m_depth >= MAX_DEPTH || m_part.getPointCount() < MIN_SPLIT_POINT_COUNT
+					|| m_cell.getWidth() == 0 || m_cell.getHeight() == 0)
+				return null;
+
+			double xmid = 0.5 * (m_cell.xmin + m_cell.xmax);
+			double ymid = 0.5 * (m_cell.ymin + m_cell.ymax);
+			Point2D center = extent.getCenter();
+			int quadrant = (center.x >= xmid ? 1 : 0) | (center.y >= ymid ? 2 : 0);
+			Envelope2D childCell = new Envelope2D();
+			childCell.xmin = (quadrant & 1) == 0 ? m_cell.xmin : xmid;
+			childCell.xmax = (quadrant & 1) == 0 ? xmid : m_cell.xmax;
+			childCell.ymin = (quadrant & 2) == 0 ? m_cell.ymin : ymid;
+			childCell.ymax = (quadrant & 2) == 0 ? ymid : m_cell.ymax;
+			Envelope2D childExtent = new Envelope2D();
+			childExtent.setCoords(childCell);
+			childExtent.inflate(0.25 * childCell.getWidth(), 0.25 * childCell.getHeight());
+			// the grown cell reaches past the root cell, where there are no parts
+			childExtent.intersect(m_extent);
+			if (!childExtent.contains(extent))
+				return null;
+
+			if (m_children == null)
+				m_children = new Tile[4];
+			if (m_children[quadrant] == null) {
+				// the child extent is inside of this extent, so the part of the child can be selected from this part
+				m_children[quadrant] = new Tile(childCell, childExtent, select_(m_part, childExtent),
+						m_depth + 1);
+			}
+			return m_children[quadrant];
+		}
+	}
+}
@@ -0,0 +1,468 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A JsonWriter that encodes the JSON as UTF-8 straight into a reusable byte array.
+ *
+ * By default doubles are formatted like the JsonStringWriter formats them, so both write the same bytes. With
+ * bShortestDoubles they are written in the shortest decimal form that parses back to the same double, without going
+ * through String.format. With a precision limit the value is then rounded to that many significant digits or, for
+ * fixed point, to that many decimals. Call {@link #reset()} to write the next document into the same array.
+ */
+final class JsonByteWriter extends JsonWriter {
+	private static final int INITIAL_CAPACITY = 256;
+	// integers below this bound are exact doubles, so their quotient by a power of ten is correctly rounded
+	private static final double MAX_EXACT_INTEGER = 9007199254740992.0;
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+	private final boolean m_bShortestDoubles;
+	// doubles formatted by StringUtils, when not m_bShortestDoubles
+	private final StringBuilder m_double = new StringBuilder();
+	private byte[] m_bytes;
+	private int m_size;
+
+	JsonByteWriter() {
+		this(false);
+	}
+
+	JsonByteWriter(boolean bShortestDoubles) {
+		m_bShortestDoubles = bShortestDoubles;
+		m_bytes = new byte[INITIAL_CAPACITY];
+		m_size = 0;
+	}
+
+	/**
+	 * Drops the written document and starts a new one in the same array.
+	 */
+	void reset() {
+		m_size = 0;
+		resetState_();
+	}
+
+	/**
+	 * Returns a ByteBuffer over the UTF-8 bytes of the document. It shares the writer's array, so it is only valid
+	 * until the next call to {@link #reset()}.
+	 */
+	@Override
+	Object getJson() {
+		next_(Action.accept);
+		return ByteBuffer.wrap(m_bytes, 0, m_size);
+	}
+
+	/**
+	 * Returns a copy of the UTF-8 bytes of the document.
+	 */
+	byte[] toByteArray() {
+		next_(Action.accept);
+		return Arrays.copyOf(m_bytes, m_size);
+	}
+
+	int size() {
+		return m_size;
+	}
+
+	@Override
+	void appendSeparator_(char separator) {
+		append_((byte) separator);
+	}
+
+	@Override
+	void startObject() {
+		next_(Action.addObject);
+		append_((byte) '{');
+		m_functionStack.add(State.objectStart);
+	}
+
+	@Override
+	void startArray() {
+		next_(Action.addArray);
+		append_((byte) '[');
+		m_functionStack.add(State.arrayStart);
+	}
+
+	@Override
+	void endObject() {
+		next_(Action.popObject);
+		append_((byte) '}');
+	}
+
+	@Override
+	void endArray() {
+		next_(Action.popArray);
+		append_((byte) ']');
+	}
+
+	@Override
+	void addFieldName(String fieldName) {
+		next_(Action.addKey);
+		appendQuote_(fieldName);
+	}
+
+	@Override
+	void addPairObject(String fieldName) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		addValueObject_();
+	}
+
+	@Override
+	void addPairArray(String fieldName) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		addValueArray_();
+	}
+
+	@Override
+	void addPairString(String fieldName, String v) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		appendQuote_(v);
+	}
+
+	@Override
+	void addPairDouble(String fieldName, double v) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		addValueDouble_(v, 17, false);
+	}
+
+	@Override
+	void addPairDouble(String fieldName, double v, int precision, boolean bFixedPoint) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		addValueDouble_(v, precision, bFixedPoint);
+	}
+
+	@Override
+	void addPairInt(String fieldName, int v) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		appendLong_(v);
+	}
+
+	@Override
+	void addPairBoolean(String fieldName, boolean v) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		appendAscii_(v ? "true" : "false");
+	}
+
+	@Override
+	void addPairNull(String fieldName) {
+		next_(Action.addPair);
+		appendKey_(fieldName);
+		appendAscii_("null");
+	}
+
+	@Override
+	void addValueObject() {
+		next_(Action.addObject);
+		addValueObject_();
+	}
+
+	@Override
+	void addValueArray() {
+		next_(Action.addArray);
+		addValueArray_();
+	}
+
+	@Override
+	void addValueString(String v) {
+		next_(Action.addTerminal);
+		appendQuote_(v);
+	}
+
+	@Override
+	void addValueDouble(double v) {
+		next_(Action.addTerminal);
+		addValueDouble_(v, 17, false);
+	}
+
+	@Override
+	void addValueDouble(double v, int precision, boolean bFixedPoint) {
+		next_(Action.addTerminal);
+		addValueDouble_(v, precision, bFixedPoint);
+	}
+
+	@Override
+	void addValueInt(int v) {
+		next_(Action.addTerminal);
+		appendLong_(v);
+	}
+
+	@Override
+	void addValueBoolean(boolean v) {
+		next_(Action.addTerminal);
+		appendAscii_(v ? "true" : "false");
+	}
+
+	@Override
+	void addValueNull() {
+		next_(Action.addTerminal);
+		appendAscii_("null");
+	}
+
+	private void addValueObject_() {
+		append_((byte) '{');
+		m_functionStack.add(State.objectStart);
+	}
+
+	private void addValueArray_() {
+		append_((byte) '[');
+		m_functionStack.add(State.arrayStart);
+	}
+
+	private void appendKey_(String fieldName) {
+		appendQuote_(fieldName);
+		append_((byte) ':');
+	}
+
+	/**
+	 * Writes a double with at most precision significant digits, or with at most precision decimals when
+	 * bFixedPoint. In the shortest form a precision of 17 or more significant digits writes the shortest form that
+	 * parses back to v.
+	 */
+	private void addValueDouble_(double v, int precision, boolean bFixedPoint) {
+		if (NumberUtils.isNaN(v)) {
+			appendAscii_("null");
+			return;
+		}
+
+		if (!m_bShortestDoubles) {
+			m_double.setLength(0);
+			if (bFixedPoint)
+				StringUtils.appendDoubleF(v, precision, m_double);
+			else
+				StringUtils.appendDouble(v, precision, m_double);
+			appendAscii_(m_double);
+			return;
+		}
+
+		if (Double.isInfinite(v)) {
+			// not valid JSON, same as the string writer
+			appendAscii_(Double.toString(v));
+			return;
+		}
+
+		if (Double.doubleToRawLongBits(v) < 0) {
+			append_((byte) '-');
+			v = -v;
+		}
+
+		if (v == 0.0) {
+			append_((byte) '0');
+			return;
+		}
+
+		if (bFixedPoint) {
+			int decimals = Math.max(0, Math.min(precision, 17));
+			if (decimals < POWERS_OF_TEN.length && v * POWERS_OF_TEN[decimals] < MAX_EXACT_INTEGER) {
+				appendScaled_(Math.round(v * POWERS_OF_TEN[decimals]), decimals);
+				return;
+			}
+		} else if (precision < 17) {
+			int significant = Math.max(1, precision);
+			int decimals = significant - 1 - (int) Math.floor(Math.log10(v));
+			if (decimals >= 0 && decimals < POWERS_OF_TEN.length && v * POWERS_OF_TEN[decimals] < MAX_EXACT_INTEGER) {
+				appendScaled_(Math.round(v * POWERS_OF_TEN[decimals]), decimals);
+				return;
+			}
+
+			if (decimals < 0 && -decimals < POWERS_OF_TEN.length) {
+				// round away the digits left of the point, for example 123456.7 to 123000
+				appendLong_(Math.round(v / POWERS_OF_TEN[-decimals]));
+				for (int i = decimals; i < 0; i++)
+					append_((byte) '0');
+				return;
+			}
+		}
+
+		appendShortest_(v);
+	}
+
+	/**
+	 * Writes the positive, finite v with the fewest decimals that parse back to v.
+	 */
+	private void appendShortest_(double v) {
+		// scaled is an exact double and so is the power of ten, so scaled / 10^decimals is the correctly rounded
+		// value of the decimal number. When it equals v, the decimal parses back to v.
+		for (int decimals = 0; decimals < POWERS_OF_TEN.length; decimals++) {
+			double scaled = v * POWERS_OF_TEN[decimals];
+			if (scaled >= MAX_EXACT_INTEGER)
+				break;
+
+			double rounded = Math.rint(scaled);
+			if (rounded / POWERS_OF_TEN[decimals] == v) {
+				appendScaled_((long) rounded, decimals);
+				return;
+			}
+		}
+
+		// very large, very small or 17 significant digits
+		appendAscii_(Double.toString(v));
+	}
+
+	/**
+	 * Writes scaled / 10^decimals without trailing zeros.
+	 */
+	private void appendScaled_(long scaled, int decimals) {
+		while (decimals > 0 && scaled % 10 == 0) {
+			scaled /= 10;
+			decimals--;
+		}
+
+		int start = m_size;
+		appendLong_(scaled);
+		if (decimals == 0)
+			return;
+
+		int digits = m_size - start;
+		if (digits > decimals) {
+			// move the decimals one byte to the right to make room for the point
+			ensureCapacity_(1);
+			int point = m_size - decimals;
+			System.arraycopy(m_bytes, point, m_bytes, point + 1, decimals);
+			m_bytes[point] = '.';
+			m_size++;
+		} else {
+			// prepend "0." and the leading zeros of the fraction
+			int zeros = decimals - digits;
+			ensureCapacity_(zeros + 2);
+			System.arraycopy(m_bytes, start, m_bytes, start + zeros + 2, digits);
+			m_bytes[start] = '0';
+			m_bytes[start + 1] = '.';
+			Arrays.fill(m_bytes, start + 2, start + 2 + zeros, (byte) '0');
+			m_size += zeros + 2;
+		}
+	}
+
+	private void appendLong_(long v) {
+		if (v < 0) {
+			if (v == Long.MIN_VALUE) {
+				appendAscii_(Long.toString(v));
+				return;
+			}
+
+			append_((byte) '-');
+			v = -v;
+		}
+
+		int digits = 1;
+		for (long t = v; t >= 10; t /= 10)
+			digits++;
+
+		ensureCapacity_(digits);
+		for (int i = m_size + digits - 1; i >= m_size; i--) {
+			m_bytes[i] = (byte) ('0' + (v % 10));
+			v /= 10;
+		}
+		m_size += digits;
+	}
+
+	private void appendAscii_(CharSequence s) {
+		int length = s.length();
+		ensureCapacity_(length);
+		for (int i = 0; i < length; i++)
+			m_bytes[m_size++] = (byte) s.charAt(i);
+	}
+
+	/**
+	 * Writes a quoted, escaped string as UTF-8. Escapes the same characters as the string writer.
+	 */
+	private void appendQuote_(String string) {
+		int length = string.length();
+		// worst case of 3 bytes per char, or 6 for an escaped control char, plus the quotes
+		ensureCapacity_(length * 6 + 2);
+		byte[] bytes = m_bytes;
+		int size = m_size;
+		bytes[size++] = '"';
+		for (int i = 0; i < length; i++) {
+			char c = string.charAt(i);
+			if (c >= 0x20 && c < 0x80) {
+				if (c == '"' || c == '\\' || (c == '/' && i > 0 && string.charAt(i - 1) == '<'))
+					bytes[size++] = '\\';
+				bytes[size++] = (byte) c;
+			} else if (c < 0x20) {
+				bytes[size++] = '\\';
+				switch (c) {
+				case '\b':
+					bytes[size++] = 'b';
+					break;
+				case '\f':
+					bytes[size++] = 'f';
+					break;
+				case '\n':
+					bytes[size++] = 'n';
+					break;
+				case '\r':
+					bytes[size++] = 'r';
+					break;
+				case '\t':
+					bytes[size++] = 't';
+					break;
+				default:
+					bytes[size++] = 'u';
+					bytes[size++] = '0';
+					bytes[size++] = '0';
+					bytes[size++] = HEX[c >> 4];
+					bytes[size++] = HEX[c & 0xF];
+					break;
+				}
+			} else if (c < 0x800) {
+				bytes[size++] = (byte) (0xC0 | (c >> 6));
+				bytes[size++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(string.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, string.charAt(++i));
+				bytes[size++] = (byte) (0xF0 | (codePoint >> 18));
+				bytes[size++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				bytes[size++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				bytes[size++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if (Character.isSurrogate(c)) {
+				// unpaired surrogate, replaced like String.getBytes does
+				bytes[size++] = '?';
+			} else {
+				bytes[size++] = (byte) (0xE0 | (c >> 12));
+				bytes[size++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[size++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		bytes[size++] = '"';
+		m_size = size;
+	}
+
+	private void append_(byte b) {
+		ensureCapacity_(1);
+		m_bytes[m_size++] = b;
+	}
+
+	private void ensureCapacity_(int count) {
+		if (m_size + count > m_bytes.length)
+			m_bytes = Arrays.copyOf(m_bytes, Math.max(m_bytes.length * 2, m_size + count));
+	}
+}
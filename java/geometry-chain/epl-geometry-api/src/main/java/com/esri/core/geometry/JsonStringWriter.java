@@ -177,13 +177,14 @@ final class JsonStringWriter extends JsonWriter {
 
 	JsonStringWriter() {
 		m_jsonString = new StringBuilder();
-		m_functionStack = new AttributeStreamOfInt32(0);
-		m_functionStack.add(State.accept);
-		m_functionStack.add(State.start);
 	}
 
 	private StringBuilder m_jsonString;
-	private AttributeStreamOfInt32 m_functionStack;
+
+	@Override
+	void appendSeparator_(char separator) {
+		m_jsonString.append(separator);
+	}
 
 	private void addValueObject_() {
 		m_jsonString.append('{');
@@ -236,104 +237,6 @@ final class JsonStringWriter extends JsonWriter {
 		m_jsonString.append("null");
 	}
 
-	private void next_(int action) {
-		switch (m_functionStack.getLast()) {
-		case State.accept:
-			accept_(action);
-			break;
-		case State.start:
-			start_(action);
-			break;
-		case State.objectStart:
-			objectStart_(action);
-			break;
-		case State.arrayStart:
-			arrayStart_(action);
-			break;
-		case State.pairEnd:
-			pairEnd_(action);
-			break;
-		case State.elementEnd:
-			elementEnd_(action);
-			break;
-		case State.fieldNameEnd:
-			fieldNameEnd_(action);
-			break;
-		default:
-			throw new GeometryException("internal error");
-		}
-	}
-
-	private void accept_(int action) {
-		if (action != Action.accept) {
-			throw new GeometryException("invalid call");
-		}
-	}
-
-	private void start_(int action) {
-		if ((action & Action.addContainer) != 0) {
-			m_functionStack.removeLast();
-		} else {
-			throw new GeometryException("invalid call");
-		}
-	}
-
-	private void objectStart_(int action) {
-		if (action != Action.popObject && action != Action.addPair && action != Action.addKey)
-			throw new GeometryException("invalid call");
-
-		m_functionStack.removeLast();
-
-		if (action == Action.addPair) {
-			m_functionStack.add(State.pairEnd);
-		} else if (action == Action.addKey) {
-			m_functionStack.add(State.pairEnd);
-			m_functionStack.add(State.fieldNameEnd);
-		}
-	}
-
-	private void pairEnd_(int action) {
-		if (action == Action.addPair) {
-			m_jsonString.append(',');
-		} else if (action == Action.addKey) {
-			m_jsonString.append(',');
-			m_functionStack.add(State.fieldNameEnd);
-		} else if (action == Action.popObject) {
-			m_functionStack.removeLast();
-		} else {
-			throw new GeometryException("invalid call");
-		}
-	}
-
-	private void arrayStart_(int action) {
-		if ((action & Action.addValue) == 0 && action != Action.popArray)
-			throw new GeometryException("invalid call");
-
-		m_functionStack.removeLast();
-
-		if ((action & Action.addValue) != 0) {
-			m_functionStack.add(State.elementEnd);
-		}
-	}
-
-	private void elementEnd_(int action) {
-		if ((action & Action.addValue) != 0) {
-			m_jsonString.append(',');
-		} else if (action == Action.popArray) {
-			m_functionStack.removeLast();
-		} else {
-			throw new GeometryException("invalid call");
-		}
-	}
-
-	private void fieldNameEnd_(int action) {
-		if ((action & Action.addValue) == 0)
-			throw new GeometryException("invalid call");
-
-		m_functionStack.removeLast();
-		m_jsonString.append(':');
-	}
-
 	private void appendQuote_(String string) {
 		int count = 0;
 		int start = 0;
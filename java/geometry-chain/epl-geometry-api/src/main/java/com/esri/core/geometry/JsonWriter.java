@@ -24,6 +24,12 @@
 package com.esri.core.geometry;
 
 abstract class JsonWriter {
+	// the state machine below checks the order of the calls and adds the separators between the tokens
+	protected final AttributeStreamOfInt32 m_functionStack = new AttributeStreamOfInt32(0);
+
+	JsonWriter() {
+		resetState_();
+	}
 
 	abstract Object getJson();
 
@@ -69,6 +75,118 @@ abstract class JsonWriter {
 
 	abstract void addValueNull();
 
+	/**
+	 * Appends the ',' or ':' that separates two tokens.
+	 */
+	abstract void appendSeparator_(char separator);
+
+	/**
+	 * Starts a new document.
+	 */
+	final void resetState_() {
+		m_functionStack.resizePreserveCapacity(0);
+		m_functionStack.add(State.accept);
+		m_functionStack.add(State.start);
+	}
+
+	final void next_(int action) {
+		switch (m_functionStack.getLast()) {
+		case State.accept:
+			accept_(action);
+			break;
+		case State.start:
+			start_(action);
+			break;
+		case State.objectStart:
+			objectStart_(action);
+			break;
+		case State.arrayStart:
+			arrayStart_(action);
+			break;
+		case State.pairEnd:
+			pairEnd_(action);
+			break;
+		case State.elementEnd:
+			elementEnd_(action);
+			break;
+		case State.fieldNameEnd:
+			fieldNameEnd_(action);
+			break;
+		default:
+			throw new GeometryException("internal error");
+		}
+	}
+
+	private void accept_(int action) {
+		if (action != Action.accept) {
+			throw new GeometryException("invalid call");
+		}
+	}
+
+	private void start_(int action) {
+		if ((action & Action.addContainer) != 0) {
+			m_functionStack.removeLast();
+		} else {
+			throw new GeometryException("invalid call");
+		}
+	}
+
+	private void objectStart_(int action) {
+		if (action != Action.popObject && action != Action.addPair && action != Action.addKey)
+			throw new GeometryException("invalid call");
+
+		m_functionStack.removeLast();
+
+		if (action == Action.addPair) {
+			m_functionStack.add(State.pairEnd);
+		} else if (action == Action.addKey) {
+			m_functionStack.add(State.pairEnd);
+			m_functionStack.add(State.fieldNameEnd);
+		}
+	}
+
+	private void pairEnd_(int action) {
+		if (action == Action.addPair) {
+			appendSeparator_(',');
+		} else if (action == Action.addKey) {
+			appendSeparator_(',');
+			m_functionStack.add(State.fieldNameEnd);
+		} else if (action == Action.popObject) {
+			m_functionStack.removeLast();
+		} else {
+			throw new GeometryException("invalid call");
+		}
+	}
+
+	private void arrayStart_(int action) {
+		if ((action & Action.addValue) == 0 && action != Action.popArray)
+			throw new GeometryException("invalid call");
+
+		m_functionStack.removeLast();
+
+		if ((action & Action.addValue) != 0) {
+			m_functionStack.add(State.elementEnd);
+		}
+	}
+
+	private void elementEnd_(int action) {
+		if ((action & Action.addValue) != 0) {
+			appendSeparator_(',');
+		} else if (action == Action.popArray) {
+			m_functionStack.removeLast();
+		} else {
+			throw new GeometryException("invalid call");
+		}
+	}
+
+	private void fieldNameEnd_(int action) {
+		if ((action & Action.addValue) == 0)
+			throw new GeometryException("invalid call");
+
+		m_functionStack.removeLast();
+		appendSeparator_(':');
+	}
+
 	protected interface Action {
 
 		static final int accept = 0;
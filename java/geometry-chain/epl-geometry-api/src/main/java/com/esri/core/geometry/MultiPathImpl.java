@@ -2593,6 +2593,22 @@ public final class MultiPathImpl extends MultiVertexGeometryImpl {
 		return true;
 	}
 
+	/**
+	 * Builds a packed R-tree of the segments for point in polygon queries. Returns false if a segment index is already
+	 * there or the geometry is too small to need one.
+	 */
+	boolean _buildPackedRTreeAccelerator() {
+		if (m_accelerators == null) {
+			m_accelerators = new GeometryAccelerators();
+		}
+
+		if (getPointCount() < 16 || m_accelerators.getQuadTree() != null || m_accelerators.getPackedRTree() != null)
+			return false;
+
+		m_accelerators._setPackedRTree(InternalUtils.buildPackedRTree(this));
+		return true;
+	}
+
 	boolean _buildQuadTreeForPathsAccelerator(GeometryAccelerationDegree degree) {
 		if (m_accelerators == null) {
 			m_accelerators = new GeometryAccelerators();
@@ -23,43 +23,211 @@
  */
 package com.esri.core.geometry;
 
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
-class ObjectCacheTable<K, T> {
-	private Map<K, T> m_hashTable = Collections
-			.synchronizedMap(new HashMap<K, T>());
-	private Object[] m_lru;
-	private boolean[] m_places;
-	private int m_index;
+/**
+ * Bounded, thread safe cache that drops its least recently used entries.
+ *
+ * The entries are split over segments by the hash of their key, and every segment is an access ordered map with a
+ * lock of its own, so threads that look up different keys rarely wait for each other. Every segment holds its share of
+ * the maximum size and drops its own least recently used entry. Caches of fewer than 32 entries have a single segment,
+ * so their eviction order is exact.
+ */
+public class ObjectCacheTable<K, T> {
+	private static final int MAX_SEGMENT_COUNT = 16;
+	private static final int MIN_SEGMENT_SIZE = 16;
+
+	// replaced as a whole when the maximum size changes
+	private volatile Segment<K, T>[] m_segments;
+	private volatile int m_maxSize;
+	private final LongAdder m_hits = new LongAdder();
+	private final LongAdder m_misses = new LongAdder();
+	private final LongAdder m_evictions = new LongAdder();
 
 	public ObjectCacheTable(int maxSize) {
-		m_lru = new Object[maxSize];
-		m_places = new boolean[maxSize];
-		m_index = 0;
-		for (int i = 0; i < maxSize; i++)
-			m_places[i] = false;
+		if (maxSize < 1)
+			throw new IllegalArgumentException("maxSize must be at least 1");
+
+		m_maxSize = maxSize;
+		m_segments = createSegments_(maxSize);
+	}
+
+	public boolean contains(K key) {
+		Segment<K, T> segment = segment_(key);
+		synchronized (segment) {
+			return segment.containsKey(key);
+		}
+	}
+
+	/**
+	 * Returns the cached value of the key, or null. Counts a hit or a miss.
+	 */
+	public T get(K key) {
+		Segment<K, T> segment = segment_(key);
+		T value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		if (value != null)
+			m_hits.increment();
+		else
+			m_misses.increment();
+		return value;
+	}
+
+	public void add(K key, T value) {
+		if (value == null)
+			throw new IllegalArgumentException();
+
+		Segment<K, T> segment = segment_(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
 	}
 
-	boolean contains(K key) {
-		return m_hashTable.containsKey(key);
+	/**
+	 * Returns the cached value of the key, or creates and caches it. The value is created outside of the lock, so a
+	 * slow factory does not block other keys. If two threads create the same key, the value of the first one is kept
+	 * and returned to both.
+	 */
+	public T getOrCreate(K key, Function<? super K, ? extends T> factory) {
+		T value = get(key);
+		if (value != null)
+			return value;
+
+		T created = factory.apply(key);
+		if (created == null)
+			throw new IllegalArgumentException("the factory returned null");
+
+		Segment<K, T> segment = segment_(key);
+		synchronized (segment) {
+			T existing = segment.putIfAbsent(key, created);
+			return existing != null ? existing : created;
+		}
 	}
 
-	T get(K key) {
-		return m_hashTable.get(key);
+	public void remove(K key) {
+		Segment<K, T> segment = segment_(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
 	}
 
-	void add(K key, T value) {
-		if (m_places[m_index]) {// remove existing element from the cache
-			m_places[m_index] = false;
-			m_hashTable.remove(m_lru[m_index]);
+	public int size() {
+		int size = 0;
+		for (Segment<K, T> segment : m_segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
 		}
+		return size;
+	}
+
+	public int getMaxSize() {
+		return m_maxSize;
+	}
 
-		m_hashTable.put(key, value);
-		m_lru[m_index] = key;
-		m_places[m_index] = true;
-		m_index = (m_index + 1) % m_lru.length;
+	/**
+	 * Changes the maximum size. The entries of every segment are moved to the new segments least recently used first,
+	 * so the most recently used ones are kept if the cache shrinks. Entries added by other threads while they are
+	 * moved may be lost.
+	 */
+	public synchronized void setMaxSize(int maxSize) {
+		if (maxSize < 1)
+			throw new IllegalArgumentException("maxSize must be at least 1");
+
+		Segment<K, T>[] segments = createSegments_(maxSize);
+		Segment<K, T>[] old = m_segments;
+		m_maxSize = maxSize;
+		m_segments = segments;
+		for (Segment<K, T> segment : old) {
+			List<Map.Entry<K, T>> entries;
+			synchronized (segment) {
+				entries = new ArrayList<>(segment.entrySet());
+			}
+			for (Map.Entry<K, T> entry : entries) {
+				Segment<K, T> target = segment_(entry.getKey());
+				synchronized (target) {
+					target.putIfAbsent(entry.getKey(), entry.getValue());
+				}
+			}
+		}
 	}
 
+	/**
+	 * Drops all entries and resets the statistics.
+	 */
+	public void clear() {
+		for (Segment<K, T> segment : m_segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+		m_hits.reset();
+		m_misses.reset();
+		m_evictions.reset();
+	}
+
+	public long getHits() {
+		return m_hits.sum();
+	}
+
+	public long getMisses() {
+		return m_misses.sum();
+	}
+
+	/**
+	 * The number of entries dropped to stay within the maximum size.
+	 */
+	public long getEvictions() {
+		return m_evictions.sum();
+	}
+
+	private Segment<K, T> segment_(K key) {
+		Segment<K, T>[] segments = m_segments;
+		int h = key.hashCode();
+		// spread the high bits, the segment count is a power of two
+		h ^= (h >>> 16);
+		return segments[h & (segments.length - 1)];
+	}
+
+	@SuppressWarnings("unchecked")
+	private Segment<K, T>[] createSegments_(int maxSize) {
+		int count = 1;
+		while (count < MAX_SEGMENT_COUNT && 2 * count * MIN_SEGMENT_SIZE <= maxSize)
+			count *= 2;
+
+		Segment<K, T>[] segments = new Segment[count];
+		for (int i = 0; i < count; i++) {
+			// the remainder goes to the first segments
+			int segmentSize = maxSize / count + (i < maxSize % count ? 1 : 0);
+			segments[i] = new Segment<>(segmentSize, m_evictions);
+		}
+		return segments;
+	}
+
+	private static final class Segment<K, T> extends LinkedHashMap<K, T> {
+		private final int m_maxSize;
+		private final LongAdder m_evictions;
+
+		Segment(int maxSize, LongAdder evictions) {
+			super(16, 0.75f, true);
+			m_maxSize = maxSize;
+			m_evictions = evictions;
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<K, T> eldest) {
+			if (size() <= m_maxSize)
+				return false;
+
+			m_evictions.increment();
+			return true;
+		}
+	}
 }
@@ -104,6 +104,7 @@ public abstract class Operator {
 			if (accel != null){
 				accel._setRasterizedGeometry(null);
 				accel._setQuadTree(null);
+				accel._setPackedRTree(null);
 			}
 		}
 	}
@@ -32,7 +32,6 @@ import java.nio.ByteOrder;
 public class OperatorExportToESRIShapeCursor extends ByteBufferCursor {
 	private GeometryCursor m_geometryCursor;
 	private int m_exportFlags;
-	private ByteBuffer m_shapeBuffer;
 	private SimpleStateEnum simpleStateEnum = SimpleStateEnum.SIMPLE_UNKNOWN;
 	private Envelope2D env2D = new Envelope2D();
 
@@ -42,7 +41,6 @@ public class OperatorExportToESRIShapeCursor extends ByteBufferCursor {
 
 		m_exportFlags = exportFlags;
 		m_geometryCursor = geometryCursor;
-		m_shapeBuffer = null;
 	}
 
 	@Override
@@ -58,10 +56,10 @@ public class OperatorExportToESRIShapeCursor extends ByteBufferCursor {
 			simpleStateEnum = geometry.getSimpleState();
 			geometry.queryEnvelope2D(env2D);
 			int size = exportToESRIShape(m_exportFlags, geometry, null);
-			if (m_shapeBuffer == null || size > m_shapeBuffer.capacity())
-				m_shapeBuffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
-			exportToESRIShape(m_exportFlags, geometry, m_shapeBuffer);
-			return m_shapeBuffer;
+			// a new buffer per geometry, so callers may keep the buffer after the next call
+			ByteBuffer shapeBuffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+			exportToESRIShape(m_exportFlags, geometry, shapeBuffer);
+			return shapeBuffer;
 		}
 		return null;
 	}
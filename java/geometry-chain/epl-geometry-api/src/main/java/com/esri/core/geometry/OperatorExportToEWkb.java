@@ -45,6 +45,29 @@ public abstract class OperatorExportToEWkb extends Operator {
 	 */
 	public abstract int execute(int exportFlags, Geometry geometry, SpatialReference spatialReference, ByteBuffer wkbBuffer, ProgressTracker progressTracker);
 
+	/**
+	 * Performs the Export To EWKB operation on cursor of geometries.
+	 * @param exportFlags Use the {@link WkbExportFlags} interface.
+	 * @param geometryCursor The geometries being exported.
+	 * @param spatialReference Spatial reference to assign in SRID (wkid) field of Extended WKB. Can be null.
+	 * @param bReuseBuffer When true the cursor returns the same growing buffer for every geometry. Its content is only
+	 *                     valid until the next call to next().
+	 * @param bDirect When true the buffers are direct buffers, otherwise heap buffers.
+	 * @return Returns a cursor over the geometries in EWKB format.
+	 */
+	public abstract ByteBufferCursor execute(int exportFlags, GeometryCursor geometryCursor, SpatialReference spatialReference, boolean bReuseBuffer, boolean bDirect);
+
+	/**
+	 * Performs the Export To EWKB operation into a buffer taken from a pool.
+	 * @param exportFlags Use the {@link WkbExportFlags} interface.
+	 * @param geometry The Geometry being exported.
+	 * @param spatialReference Spatial reference to assign in SRID (wkid) field of Extended WKB. Can be null.
+	 * @param bufferPool The pool the buffer is acquired from.
+	 * @return Returns a pooled ByteBuffer with the Geometry in EWKB format between position 0 and the limit. Release it
+	 * to the pool once it is consumed.
+	 */
+	public abstract ByteBuffer execute(int exportFlags, Geometry geometry, SpatialReference spatialReference, ByteBufferPool bufferPool, ProgressTracker progressTracker);
+
 	public static OperatorExportToEWkb local() {
 		return (OperatorExportToEWkb) OperatorFactoryLocal.getInstance()
 				.getOperator(Type.ExportToEWkb);
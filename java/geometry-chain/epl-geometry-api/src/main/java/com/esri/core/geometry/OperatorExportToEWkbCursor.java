@@ -1,21 +1,41 @@
 package com.esri.core.geometry;
 
 import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 
+/**
+ * Exports the geometries of a cursor to extended WKB.
+ *
+ * By default every call to next() returns a new buffer. In reuse mode the cursor keeps one buffer that grows to the
+ * largest geometry seen so far, and next() returns that same buffer with the position at 0 and the limit at the size
+ * of the exported geometry. Its content is only valid until the next call to next(), so a consumer has to write or
+ * copy it out first.
+ */
 public class OperatorExportToEWkbCursor extends ByteBufferCursor {
 	private GeometryCursor m_geometryCursor;
 	int m_exportFlags;
 	private SimpleStateEnum simpleStateEnum = SimpleStateEnum.SIMPLE_UNKNOWN;
 	private Envelope2D env2D = new Envelope2D();
+	private final boolean m_bReuseBuffer;
+	private final boolean m_bDirect;
+	private ByteBuffer m_buffer = null;
 	private int m_srid = 0;
 
 	public OperatorExportToEWkbCursor(int exportFlags, GeometryCursor geometryCursor, SpatialReference spatialReference) {
+		this(exportFlags, geometryCursor, spatialReference, false, false);
+	}
+
+	/**
+	 * @param bReuseBuffer when true next() returns the same buffer for every geometry.
+	 * @param bDirect when true the buffers are direct buffers, otherwise heap buffers.
+	 */
+	public OperatorExportToEWkbCursor(int exportFlags, GeometryCursor geometryCursor, SpatialReference spatialReference, boolean bReuseBuffer, boolean bDirect) {
 		if (geometryCursor == null)
 			throw new GeometryException("invalid argument");
 
 		m_exportFlags = exportFlags | WkbExportFlags.wkbExportAsExtendedWkb;
 		m_geometryCursor = geometryCursor;
+		m_bReuseBuffer = bReuseBuffer;
+		m_bDirect = bDirect;
 		m_srid = OperatorExportToEWkbLocal.getSrid(spatialReference);
 	}
 
@@ -31,8 +51,14 @@ public class OperatorExportToEWkbCursor extends ByteBufferCursor {
 			geometry = m_geometryCursor.next();
 			geometry.queryEnvelope2D(env2D);
 			simpleStateEnum = geometry.getSimpleState();
-			int size = OperatorExportToWkbLocal.exportToWKB(m_exportFlags, geometry,null, m_srid);
-			ByteBuffer wkbBuffer = ByteBuffer.allocate(size).order(ByteOrder.nativeOrder());
+			int size = OperatorExportToWkbLocal.exportToWKB(m_exportFlags, geometry, null, m_srid);
+			ByteBuffer wkbBuffer;
+			if (m_bReuseBuffer) {
+				m_buffer = ByteBufferPool.reserve(m_buffer, size, m_bDirect);
+				wkbBuffer = m_buffer;
+			} else {
+				wkbBuffer = ByteBufferPool.allocate(size, m_bDirect);
+			}
 			OperatorExportToWkbLocal.exportToWKB(m_exportFlags, geometry, wkbBuffer, m_srid);
 			return wkbBuffer;
 		}
@@ -11,6 +11,11 @@ public class OperatorExportToEWkbLocal extends OperatorExportToEWkb {
 		return new OperatorExportToEWkbCursor(exportFlags, geometryCursor, spatialReference);
 	}
 
+	@Override
+	public ByteBufferCursor execute(int exportFlags, GeometryCursor geometryCursor, SpatialReference spatialReference, boolean bReuseBuffer, boolean bDirect) {
+		return new OperatorExportToEWkbCursor(exportFlags, geometryCursor, spatialReference, bReuseBuffer, bDirect);
+	}
+
 	@Override
 	public ByteBuffer execute(int exportFlags, Geometry geometry, SpatialReference spatialReference, ProgressTracker progressTracker) {
 		int srid = getSrid(spatialReference);
@@ -28,6 +33,13 @@ public class OperatorExportToEWkbLocal extends OperatorExportToEWkb {
 		return exportToEWKB(exportFlags, geometry, wkbBuffer, srid);
 	}
 
+	@Override
+	public ByteBuffer execute(int exportFlags, Geometry geometry, SpatialReference spatialReference, ByteBufferPool bufferPool, ProgressTracker progressTracker) {
+		int srid = getSrid(spatialReference);
+
+		return OperatorExportToWkbLocal.exportToPooledWKB(exportFlags | WkbExportFlags.wkbExportAsExtendedWkb, geometry, bufferPool, srid);
+	}
+
 	protected static int getSrid(SpatialReference spatialReference) {
 		if (spatialReference != null && spatialReference.getText() != null) {
 			throw new GeometryException("spatial reference for extended wkb export must be an integer id, wkt not permitted");
@@ -69,6 +69,29 @@ public abstract class OperatorExportToGeoJson extends Operator {
 	 */
 	public abstract String execute(Geometry geometry);
 
+	/**
+	 * Performs the ExportToGeoJson operation straight to UTF-8 bytes, without building a String. The bytes are the
+	 * UTF-8 encoding of the String export, unless the export flags have geoJsonExportShortestDoubles.
+	 *
+	 * @param exportFlags      Use the {@link GeoJsonExportFlags} interface.
+	 * @param spatialReference The SpatialReference of the Geometry. Will be written as "crs":null if the spatialReference is null.
+	 * @param geometryCursor   The cursor of geometries to write as GeoJson.
+	 * @param bReuseBuffer     When true the cursor writes every geometry into the same growing buffer and returns a
+	 *                         view of it, which is only valid until the next call to next().
+	 * @return Returns a cursor over the UTF-8 encoded GeoJson of the geometries.
+	 */
+	public abstract ByteBufferCursor executeUtf8(int exportFlags, SpatialReference spatialReference, GeometryCursor geometryCursor, boolean bReuseBuffer);
+
+	/**
+	 * Performs the ExportToGeoJson operation straight to UTF-8 bytes, without building a String.
+	 *
+	 * @param exportFlags      Use the {@link GeoJsonExportFlags} interface.
+	 * @param spatialReference The SpatialReference of the Geometry. Will be written as "crs":null if the spatialReference is null.
+	 * @param geometry         The Geometry to write as GeoJson.
+	 * @return Returns the UTF-8 encoded GeoJson.
+	 */
+	public abstract byte[] executeUtf8(int exportFlags, SpatialReference spatialReference, Geometry geometry);
+
 	/**
 	 * Performs the ExportToGeoJson operation on a spatial reference.
 	 *
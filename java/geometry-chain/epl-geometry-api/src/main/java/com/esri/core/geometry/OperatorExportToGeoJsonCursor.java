@@ -101,12 +101,15 @@ public class OperatorExportToGeoJsonCursor extends StringCursor {
 
 	// Mirrors wkt
 	static String exportToGeoJson(int export_flags, Geometry geometry, SpatialReference spatial_reference) {
+		JsonWriter json_writer = new JsonStringWriter();
+		exportToGeoJson(export_flags, geometry, spatial_reference, json_writer);
+		return (String) json_writer.getJson();
+	}
 
+	static void exportToGeoJson(int export_flags, Geometry geometry, SpatialReference spatial_reference, JsonWriter json_writer) {
 		if (geometry == null)
 			throw new IllegalArgumentException("");
 
-		JsonWriter json_writer = new JsonStringWriter();
-
 		json_writer.startObject();
 
 		exportGeometryToGeoJson_(export_flags, geometry, json_writer);
@@ -117,8 +120,6 @@ public class OperatorExportToGeoJsonCursor extends StringCursor {
 		}
 
 		json_writer.endObject();
-
-		return (String) json_writer.getJson();
 	}
 
 	static String exportSpatialReference(int export_flags, SpatialReference spatial_reference) {
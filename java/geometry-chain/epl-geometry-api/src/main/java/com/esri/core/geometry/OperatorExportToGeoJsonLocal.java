@@ -43,6 +43,18 @@ class OperatorExportToGeoJsonLocal extends OperatorExportToGeoJson {
         return OperatorExportToGeoJsonCursor.exportToGeoJson(GeoJsonExportFlags.geoJsonExportSkipCRS, geometry, null);
     }
 
+    @Override
+    public ByteBufferCursor executeUtf8(int exportFlags, SpatialReference spatialReference, GeometryCursor geometryCursor, boolean bReuseBuffer) {
+        return new OperatorExportToGeoJsonUtf8Cursor(exportFlags, spatialReference, geometryCursor, bReuseBuffer);
+    }
+
+    @Override
+    public byte[] executeUtf8(int exportFlags, SpatialReference spatialReference, Geometry geometry) {
+        JsonByteWriter json_writer = new JsonByteWriter((exportFlags & GeoJsonExportFlags.geoJsonExportShortestDoubles) != 0);
+        OperatorExportToGeoJsonCursor.exportToGeoJson(exportFlags, geometry, spatialReference, json_writer);
+        return json_writer.toByteArray();
+    }
+
     @Override
     public String exportSpatialReference(int export_flags, SpatialReference spatial_reference) {
         return OperatorExportToGeoJsonCursor.exportSpatialReference(export_flags, spatial_reference);
@@ -0,0 +1,92 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Exports the geometries of a cursor to UTF-8 encoded GeoJson, without building a String for each geometry.
+ *
+ * By default every call to next() returns a new buffer. In reuse mode every geometry is written into the same
+ * growing array, and next() returns a view of it that is only valid until the next call to next().
+ */
+public class OperatorExportToGeoJsonUtf8Cursor extends ByteBufferCursor {
+	private GeometryCursor m_geometryCursor;
+	private SpatialReference m_spatialReference;
+	private int m_export_flags;
+	private SimpleStateEnum simpleStateEnum = SimpleStateEnum.SIMPLE_UNKNOWN;
+	private Envelope2D env2D = new Envelope2D();
+	private final boolean m_bReuseBuffer;
+	private final JsonByteWriter m_jsonWriter;
+
+	public OperatorExportToGeoJsonUtf8Cursor(int export_flags, SpatialReference spatialReference,
+	                                         GeometryCursor geometryCursor, boolean bReuseBuffer) {
+		if (geometryCursor == null)
+			throw new IllegalArgumentException();
+
+		m_export_flags = export_flags;
+		m_spatialReference = spatialReference;
+		m_geometryCursor = geometryCursor;
+		m_bReuseBuffer = bReuseBuffer;
+		m_jsonWriter = new JsonByteWriter((export_flags & GeoJsonExportFlags.geoJsonExportShortestDoubles) != 0);
+	}
+
+	@Override
+	public boolean hasNext() {
+		return m_geometryCursor != null && m_geometryCursor.hasNext();
+	}
+
+	@Override
+	public ByteBuffer next() {
+		Geometry geometry;
+		if (hasNext()) {
+			geometry = m_geometryCursor.next();
+			geometry.queryEnvelope2D(env2D);
+			simpleStateEnum = geometry.getSimpleState();
+			m_jsonWriter.reset();
+			OperatorExportToGeoJsonCursor.exportToGeoJson(m_export_flags, geometry, m_spatialReference, m_jsonWriter);
+			if (m_bReuseBuffer)
+				return (ByteBuffer) m_jsonWriter.getJson();
+			return ByteBuffer.wrap(m_jsonWriter.toByteArray());
+		}
+		return null;
+	}
+
+	@Override
+	public int getByteBufferID() {
+		return m_geometryCursor.getGeometryID();
+	}
+
+	@Override
+	public SimpleStateEnum getSimpleState() {
+		return simpleStateEnum;
+	}
+
+	@Override
+	public Envelope2D getEnvelope2D() {
+		return env2D;
+	}
+
+	@Override
+	public String getFeatureID() {
+		return m_geometryCursor.getFeatureID();
+	}
+}
@@ -65,6 +65,27 @@ public abstract class OperatorExportToWkb extends Operator {
 	public abstract int execute(int exportFlags, Geometry geometry,
 			ByteBuffer wkbBuffer, ProgressTracker progressTracker);
 
+	/**
+	 * Performs the ExportToWKB operation on cursor of geometries.
+	 * @param exportFlags Use the {@link WkbExportFlags} interface.
+	 * @param geometryCursor The geometries being exported.
+	 * @param bReuseBuffer When true the cursor returns the same growing buffer for every geometry. Its content is only
+	 *                     valid until the next call to next().
+	 * @param bDirect When true the buffers are direct buffers, otherwise heap buffers.
+	 * @return Returns a cursor over the geometries in WKB format.
+	 */
+	public abstract ByteBufferCursor execute(int exportFlags, GeometryCursor geometryCursor, boolean bReuseBuffer, boolean bDirect);
+
+	/**
+	 * Performs the ExportToWKB operation into a buffer taken from a pool.
+	 * @param exportFlags Use the {@link WkbExportFlags} interface.
+	 * @param geometry The Geometry being exported.
+	 * @param bufferPool The pool the buffer is acquired from.
+	 * @return Returns a pooled ByteBuffer with the Geometry in WKB format between position 0 and the limit. Release it
+	 * to the pool once it is consumed.
+	 */
+	public abstract ByteBuffer execute(int exportFlags, Geometry geometry, ByteBufferPool bufferPool, ProgressTracker progressTracker);
+
 	public static OperatorExportToWkb local() {
 		return (OperatorExportToWkb) OperatorFactoryLocal.getInstance()
 				.getOperator(Type.ExportToWkb);
@@ -34,6 +34,11 @@ class OperatorExportToWkbLocal extends OperatorExportToWkb {
 		return new OperatorExportToWkbCursor(exportFlags, geometryCursor);
 	}
 
+	@Override
+	public ByteBufferCursor execute(int exportFlags, GeometryCursor geometryCursor, boolean bReuseBuffer, boolean bDirect) {
+		return new OperatorExportToWkbCursor(exportFlags, geometryCursor, bReuseBuffer, bDirect);
+	}
+
 	@Override
 	public ByteBuffer execute(int exportFlags, Geometry geometry,
 	                          ProgressTracker progressTracker) {
@@ -50,6 +55,23 @@ class OperatorExportToWkbLocal extends OperatorExportToWkb {
 		return exportToWKB(exportFlags, geometry, wkbBuffer, 0);
 	}
 
+	@Override
+	public ByteBuffer execute(int exportFlags, Geometry geometry, ByteBufferPool bufferPool, ProgressTracker progressTracker) {
+		return exportToPooledWKB(exportFlags, geometry, bufferPool, 0);
+	}
+
+	static ByteBuffer exportToPooledWKB(int exportFlags, Geometry geometry, ByteBufferPool bufferPool, int srid) {
+		int size = exportToWKB(exportFlags, geometry, null, srid);
+		ByteBuffer wkbBuffer = bufferPool.acquire(size);
+		try {
+			exportToWKB(exportFlags, geometry, wkbBuffer, srid);
+		} catch (RuntimeException e) {
+			bufferPool.release(wkbBuffer);
+			throw e;
+		}
+		return wkbBuffer;
+	}
+
 	protected static int exportToWKB(int exportFlags, Geometry geometry, ByteBuffer wkbBuffer, int srid) {
 		if (geometry == null)
 			return 0;
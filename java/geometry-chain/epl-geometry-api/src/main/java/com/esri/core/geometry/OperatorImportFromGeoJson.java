@@ -23,6 +23,9 @@
  */
 package com.esri.core.geometry;
 
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
 public abstract class OperatorImportFromGeoJson extends Operator {
 
 	@Override
@@ -65,6 +68,27 @@ public abstract class OperatorImportFromGeoJson extends Operator {
 	 */
 	public abstract MapOGCStructure executeOGC(int import_flags, String geoJsonString, ProgressTracker progress_tracker);
 
+	/**
+	 * Imports the features of a GeoJson FeatureCollection one at a time, without reading the whole collection into
+	 * memory. The cursor returns a MapGeometry for every feature with a geometry, and its getFeatureID() returns the
+	 * feature "id". The stream is closed once the last feature has been read.
+	 *
+	 * @param import_flags Use the {@link GeoJsonImportFlags} interface.
+	 * @param featureCollection The UTF-8 encoded FeatureCollection.
+	 * @return Returns a cursor over the imported features.
+	 */
+	public abstract MapGeometryCursor executeFeatureCollection(int import_flags, InputStream featureCollection, ProgressTracker progress_tracker);
+
+	/**
+	 * Imports the features of a GeoJson FeatureCollection one at a time. The bytes between the position and the limit
+	 * of the buffer are read, and the buffer itself is not modified.
+	 *
+	 * @param import_flags Use the {@link GeoJsonImportFlags} interface.
+	 * @param featureCollection The UTF-8 encoded FeatureCollection.
+	 * @return Returns a cursor over the imported features.
+	 */
+	public abstract MapGeometryCursor executeFeatureCollection(int import_flags, ByteBuffer featureCollection, ProgressTracker progress_tracker);
+
 	public static OperatorImportFromGeoJson local() {
 		return (OperatorImportFromGeoJson) OperatorFactoryLocal.getInstance().getOperator(Type.ImportFromGeoJson);
 	}
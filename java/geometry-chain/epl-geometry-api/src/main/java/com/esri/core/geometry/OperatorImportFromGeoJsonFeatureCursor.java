@@ -0,0 +1,301 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Imports the features of a GeoJson FeatureCollection one at a time, as they are read from an InputStream or a
+ * ByteBuffer.
+ *
+ * The collection is walked with the Jackson streaming parser, and every feature geometry is imported straight from the
+ * parser, so only the feature that is returned next is held in memory. The "id" of a feature is returned by
+ * getFeatureID() and its position in the "features" array by getGeometryID(). The "properties" of a feature are
+ * skipped, and so are features with a null geometry.
+ *
+ * A "crs" of the collection that precedes its "features" is the spatial reference of every feature geometry without a
+ * crs of its own. The parser and the stream are closed once the last feature has been read.
+ */
+public class OperatorImportFromGeoJsonFeatureCursor extends MapGeometryCursor {
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+	private final int m_import_flags;
+	private final ProgressTracker m_progressTracker;
+	private JsonParser m_jsonParser;
+	private JsonReader m_jsonReader;
+	private boolean m_bInFeatures = false;
+	private SpatialReference m_collectionSpatialReference = null;
+	private boolean m_bCollectionCrsFound = false;
+
+	// the feature returned by the next call to next()
+	private MapGeometry m_nextMapGeometry = null;
+	private String m_nextFeatureID = "";
+	private int m_nextIndex = -1;
+
+	private String m_currentFeatureID = "";
+	private int m_currentID = -1;
+	private SimpleStateEnum m_simpleState = SimpleStateEnum.SIMPLE_UNKNOWN;
+
+	public OperatorImportFromGeoJsonFeatureCursor(int import_flags, InputStream featureCollection,
+	                                              ProgressTracker progressTracker) {
+		if (featureCollection == null)
+			throw new IllegalArgumentException();
+
+		m_import_flags = import_flags;
+		m_progressTracker = progressTracker;
+		try {
+			init_(JSON_FACTORY.createParser(featureCollection));
+		} catch (IOException ex) {
+			throw new JsonGeometryException(ex);
+		}
+	}
+
+	public OperatorImportFromGeoJsonFeatureCursor(int import_flags, ByteBuffer featureCollection,
+	                                              ProgressTracker progressTracker) {
+		if (featureCollection == null)
+			throw new IllegalArgumentException();
+
+		m_import_flags = import_flags;
+		m_progressTracker = progressTracker;
+		try {
+			if (featureCollection.hasArray()) {
+				init_(JSON_FACTORY.createParser(featureCollection.array(),
+						featureCollection.arrayOffset() + featureCollection.position(), featureCollection.remaining()));
+			} else {
+				init_(JSON_FACTORY.createParser(new ByteBufferInputStream(featureCollection.duplicate())));
+			}
+		} catch (IOException ex) {
+			throw new JsonGeometryException(ex);
+		}
+	}
+
+	private void init_(JsonParser jsonParser) {
+		m_jsonParser = jsonParser;
+		m_jsonReader = new JsonParserReader(jsonParser);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (m_nextMapGeometry == null && m_jsonParser != null) {
+			try {
+				readNextFeature_();
+			} catch (IOException ex) {
+				close_();
+				throw new JsonGeometryException(ex);
+			} catch (RuntimeException ex) {
+				close_();
+				throw ex;
+			}
+		}
+		return m_nextMapGeometry != null;
+	}
+
+	@Override
+	public MapGeometry next() {
+		if (!hasNext())
+			return null;
+
+		MapGeometry mapGeometry = m_nextMapGeometry;
+		m_nextMapGeometry = null;
+		m_currentFeatureID = m_nextFeatureID;
+		m_currentID = m_nextIndex;
+		m_simpleState = mapGeometry.getGeometry().getSimpleState();
+		return mapGeometry;
+	}
+
+	@Override
+	public int getGeometryID() {
+		return m_currentID;
+	}
+
+	@Override
+	public String getFeatureID() {
+		return m_currentFeatureID;
+	}
+
+	@Override
+	public SimpleStateEnum getSimpleState() {
+		return m_simpleState;
+	}
+
+	/**
+	 * Reads features until one with a geometry is found or the end of the "features" array is reached.
+	 */
+	private void readNextFeature_() throws IOException {
+		if (!m_bInFeatures && !readToFeatures_()) {
+			close_();
+			return;
+		}
+
+		JsonToken token;
+		while ((token = m_jsonParser.nextToken()) != JsonToken.END_ARRAY) {
+			if (token != JsonToken.START_OBJECT)
+				throw new JsonGeometryException("parsing error");
+
+			m_nextIndex++;
+			if (readFeature_())
+				return;
+		}
+
+		close_();
+	}
+
+	/**
+	 * Reads the members of the FeatureCollection that precede its "features" and positions the parser on the start of
+	 * the array. Returns false if the collection has no features.
+	 */
+	private boolean readToFeatures_() throws IOException {
+		if (m_jsonParser.nextToken() != JsonToken.START_OBJECT)
+			throw new JsonGeometryException("parsing error");
+
+		while (m_jsonParser.nextToken() != JsonToken.END_OBJECT) {
+			String field_name = m_jsonParser.getCurrentName();
+			JsonToken token = m_jsonParser.nextToken();
+			if (field_name.equals("type")) {
+				if (token != JsonToken.VALUE_STRING || !m_jsonParser.getText().equals("FeatureCollection"))
+					throw new JsonGeometryException("parsing error");
+			} else if (field_name.equals("crs")) {
+				if ((m_import_flags & GeoJsonImportFlags.geoJsonImportSkipCRS) == 0) {
+					m_collectionSpatialReference = OperatorImportFromGeoJsonLocal.OperatorImportFromGeoJsonHelper
+							.importSpatialReferenceFromCrs(m_jsonReader, m_progressTracker);
+					m_bCollectionCrsFound = true;
+				} else {
+					m_jsonParser.skipChildren();
+				}
+			} else if (field_name.equals("features")) {
+				if (token == JsonToken.VALUE_NULL)
+					return false;
+				if (token != JsonToken.START_ARRAY)
+					throw new JsonGeometryException("parsing error");
+
+				m_bInFeatures = true;
+				return true;
+			} else {
+				m_jsonParser.skipChildren();
+			}
+		}
+
+		return false;
+	}
+
+	/**
+	 * Reads the feature object the parser is positioned on. Returns true if the feature has a geometry.
+	 */
+	private boolean readFeature_() throws IOException {
+		MapGeometry mapGeometry = null;
+		String featureID = "";
+		while (m_jsonParser.nextToken() != JsonToken.END_OBJECT) {
+			String field_name = m_jsonParser.getCurrentName();
+			JsonToken token = m_jsonParser.nextToken();
+			if (field_name.equals("type")) {
+				if (token != JsonToken.VALUE_STRING || !m_jsonParser.getText().equals("Feature"))
+					throw new JsonGeometryException("parsing error");
+			} else if (field_name.equals("id")) {
+				// the spec allows a string or a number
+				if (token == JsonToken.VALUE_STRING || token == JsonToken.VALUE_NUMBER_INT
+						|| token == JsonToken.VALUE_NUMBER_FLOAT)
+					featureID = m_jsonParser.getText();
+				else if (token != JsonToken.VALUE_NULL)
+					throw new JsonGeometryException("parsing error");
+			} else if (field_name.equals("geometry")) {
+				if (token == JsonToken.START_OBJECT) {
+					mapGeometry = importGeometry_();
+				} else if (token != JsonToken.VALUE_NULL) {
+					throw new JsonGeometryException("parsing error");
+				}
+			} else {
+				m_jsonParser.skipChildren();
+			}
+		}
+
+		if (mapGeometry == null)
+			return false;
+
+		m_nextMapGeometry = mapGeometry;
+		m_nextFeatureID = featureID;
+		return true;
+	}
+
+	private MapGeometry importGeometry_() {
+		// the default spatial reference is resolved here, so the crs of the collection can take its place
+		MapGeometry mapGeometry = OperatorImportFromGeoJsonLocal.OperatorImportFromGeoJsonHelper.importFromGeoJson(
+				m_import_flags | GeoJsonImportFlags.geoJsonImportNoWGS84Default, Geometry.Type.Unknown, m_jsonReader,
+				m_progressTracker, false);
+
+		if (mapGeometry.getSpatialReference() == null && (m_import_flags & GeoJsonImportFlags.geoJsonImportSkipCRS) == 0) {
+			if (m_bCollectionCrsFound)
+				mapGeometry.setSpatialReference(m_collectionSpatialReference);
+			else if ((m_import_flags & GeoJsonImportFlags.geoJsonImportNoWGS84Default) == 0)
+				mapGeometry.setSpatialReference(SpatialReference.create(4326));
+		}
+
+		return mapGeometry;
+	}
+
+	private void close_() {
+		if (m_jsonParser == null)
+			return;
+
+		try {
+			m_jsonParser.close();
+		} catch (IOException ex) {
+			// nothing is left to read
+		}
+		m_jsonParser = null;
+		m_jsonReader = null;
+	}
+
+	private static final class ByteBufferInputStream extends InputStream {
+		private final ByteBuffer m_buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			m_buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return m_buffer.hasRemaining() ? m_buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0)
+				return 0;
+			if (!m_buffer.hasRemaining())
+				return -1;
+
+			int count = Math.min(length, m_buffer.remaining());
+			m_buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return m_buffer.remaining();
+		}
+	}
+}
@@ -24,6 +24,9 @@
 package com.esri.core.geometry;
 
 import com.esri.core.geometry.VertexDescription.Semantics;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 
 class OperatorImportFromGeoJsonLocal extends OperatorImportFromGeoJson {
@@ -53,6 +56,18 @@ class OperatorImportFromGeoJsonLocal extends OperatorImportFromGeoJson {
 		return new OperatorImportFromGeoJsonCursor(import_flags, stringCursor, progressTracker);
 	}
 
+	@Override
+	public MapGeometryCursor executeFeatureCollection(int import_flags, InputStream featureCollection,
+			ProgressTracker progress_tracker) {
+		return new OperatorImportFromGeoJsonFeatureCursor(import_flags, featureCollection, progress_tracker);
+	}
+
+	@Override
+	public MapGeometryCursor executeFeatureCollection(int import_flags, ByteBuffer featureCollection,
+			ProgressTracker progress_tracker) {
+		return new OperatorImportFromGeoJsonFeatureCursor(import_flags, featureCollection, progress_tracker);
+	}
+
 	@Override
 	public MapGeometry execute(int importFlags, Geometry.Type type,
 			String geoJsonString, ProgressTracker progressTracker)
@@ -31,8 +31,14 @@ public abstract class OperatorImportFromWkt extends Operator {
 		return Type.ImportFromWkb;
 	}
 
+	/**
+	 * Performs the ImportFromWkt operation on a cursor of WKT strings. One parser is reused for the whole cursor.
+	 * @param import_flags Use the {@link WktImportFlags} interface.
+	 * @param wkt_stringCursor The strings holding the Geometries in wkt format.
+	 * @return Returns a cursor over the imported Geometries.
+	 */
 	public abstract GeometryCursor execute(int import_flags,
-	                                       SimpleStringCursor wkt_stringCursor,
+	                                       StringCursor wkt_stringCursor,
 	                                       ProgressTracker progress_tracker);
 
 	/**
@@ -45,6 +51,28 @@ public abstract class OperatorImportFromWkt extends Operator {
 	public abstract Geometry execute(int import_flags, Geometry.Type type,
 			String wkt_string, ProgressTracker progress_tracker);
 
+	/**
+	 * Performs the ImportFromWkt operation.
+	 * @param import_flags Use the {@link WktImportFlags} interface.
+	 * @param type Use the {@link Geometry.Type} enum.
+	 * @param wkt The text holding the Geometry in wkt format, for example a StringBuilder or a CharBuffer.
+	 * @return Returns the imported Geometry.
+	 */
+	public abstract Geometry execute(int import_flags, Geometry.Type type,
+			CharSequence wkt, ProgressTracker progress_tracker);
+
+	/**
+	 * Performs the ImportFromWkt operation on wkt encoded as ASCII or UTF-8 bytes, without decoding it to a String.
+	 * @param import_flags Use the {@link WktImportFlags} interface.
+	 * @param type Use the {@link Geometry.Type} enum.
+	 * @param wkt The bytes holding the Geometry in wkt format.
+	 * @param offset The index of the first byte of the wkt.
+	 * @param length The number of bytes of the wkt.
+	 * @return Returns the imported Geometry.
+	 */
+	public abstract Geometry execute(int import_flags, Geometry.Type type,
+			byte[] wkt, int offset, int length, ProgressTracker progress_tracker);
+
 	/**
 	 * Performs the ImportFromWkt operation.
 	 * @param import_flags Use the {@link WktImportFlags} interface.
@@ -3,6 +3,8 @@ package com.esri.core.geometry;
 public class OperatorImportFromWktCursor extends GeometryCursor {
 	private StringCursor m_wktStringCursor;
 	private int m_importFlags;
+	// one parser is reset for every string, so its state stack is only allocated once per cursor
+	private final WktParser m_wktParser = new WktParser();
 
 	public OperatorImportFromWktCursor(int import_flags, StringCursor stringCursor) {
 		if (stringCursor == null)
@@ -20,11 +22,9 @@ public class OperatorImportFromWktCursor extends GeometryCursor {
 	@Override
 	public Geometry next() {
 		if (hasNext()) {
-			return OperatorImportFromWkt.local().execute(
-					m_importFlags,
-					Geometry.Type.Unknown,
-					m_wktStringCursor.next(),
-					null);
+			m_wktParser.resetParser(m_wktStringCursor.next());
+			m_wktParser.nextToken();
+			return OperatorImportFromWktLocal.importFromWkt(m_importFlags, Geometry.Type.Unknown, m_wktParser);
 		}
 		return null;
 	}
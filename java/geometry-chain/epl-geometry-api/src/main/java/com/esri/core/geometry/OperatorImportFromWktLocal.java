@@ -27,7 +27,7 @@ import java.util.ArrayList;
 
 class OperatorImportFromWktLocal extends OperatorImportFromWkt {
 	@Override
-	public GeometryCursor execute(int import_flags, SimpleStringCursor wkt_stringCursor, ProgressTracker progress_tracker) {
+	public GeometryCursor execute(int import_flags, StringCursor wkt_stringCursor, ProgressTracker progress_tracker) {
 		return new OperatorImportFromWktCursor(import_flags, wkt_stringCursor);
 	}
 
@@ -39,6 +39,22 @@ class OperatorImportFromWktLocal extends OperatorImportFromWkt {
 		return importFromWkt(import_flags, type, wkt_parser);
 	}
 
+	@Override
+	public Geometry execute(int import_flags, Geometry.Type type,
+			CharSequence wkt, ProgressTracker progress_tracker) {
+		WktParser wkt_parser = new WktParser(wkt);
+		wkt_parser.nextToken();
+		return importFromWkt(import_flags, type, wkt_parser);
+	}
+
+	@Override
+	public Geometry execute(int import_flags, Geometry.Type type,
+			byte[] wkt, int offset, int length, ProgressTracker progress_tracker) {
+		WktParser wkt_parser = new WktParser(wkt, offset, length);
+		wkt_parser.nextToken();
+		return importFromWkt(import_flags, type, wkt_parser);
+	}
+
 	@Override
 	public OGCStructure executeOGC(int import_flags, String wkt_string,
 			ProgressTracker progress_tracker) {
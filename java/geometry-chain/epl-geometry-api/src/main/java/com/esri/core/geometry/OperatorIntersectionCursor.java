@@ -36,6 +36,9 @@ public class OperatorIntersectionCursor extends GeometryCursor {
 	int m_currentGeomType;
 	int m_dimensionMask;
 	boolean m_bEmpty;
+	// holds the parts of a large intersector by tile, built once a second geometry is clipped
+	IntersectorIndex m_intersectorIndex;
+	boolean m_bIntersectorClipped;
 
 	OperatorIntersectionCursor(GeometryCursor inputGeoms,
 	                           GeometryCursor geomIntersector,
@@ -120,14 +123,31 @@ public class OperatorIntersectionCursor extends GeometryCursor {
 		assert (!env.isEmpty());
 		env.inflate(100 * t, 100 * t);
 		double tol = 0;
-		Geometry clippedIntersector = Clipper.clip(m_geomIntersector, env, tol,
-				0.0);
+		Geometry clippedIntersector = clipIntersector_(env);
 		Geometry clippedInputGeom = Clipper.clip(input_geom, env, tol, 0.0);
 		// perform the clip
 		return TopologicalOperations.intersection(clippedInputGeom,
 				clippedIntersector, m_spatial_reference, m_progress_tracker);
 	}
 
+	// Clips the intersector to the extent. When the cursor intersects more than
+	// one geometry, a large polygon or polyline intersector is clipped by
+	// clipping only the part of the smallest index tile that contains the
+	// extent. The result is the same as the clip of the whole intersector.
+	Geometry clipIntersector_(Envelope2D env) {
+		if (m_intersectorIndex == null && m_bIntersectorClipped
+				&& IntersectorIndex.canIndex(m_geomIntersector))
+			m_intersectorIndex = new IntersectorIndex(
+					(MultiPath) m_geomIntersector);
+		m_bIntersectorClipped = true;
+
+		if (m_intersectorIndex == null)
+			return Clipper.clip(m_geomIntersector, env, 0, 0.0);
+
+		return Clipper.clip((MultiPath) m_geomIntersector,
+				m_intersectorIndex.query(env), env, 0, 0.0);
+	}
+
 	// Parses the input vector to ensure the out result contains only geometries
 	// as indicated with the dimensionMask
 	GeometryCursor prepareVector_(VertexDescription descr, int dimensionMask,
@@ -198,8 +218,7 @@ public class OperatorIntersectionCursor extends GeometryCursor {
 		assert (!env.isEmpty());
 		env.inflate(100 * t, 100 * t);
 		double tol = 0;
-		Geometry clippedIntersector = Clipper.clip(m_geomIntersector, env, tol,
-				0.0);
+		Geometry clippedIntersector = clipIntersector_(env);
 		Geometry clippedInputGeom = Clipper.clip(input_geom, env, tol, 0.0);
 		// perform the clip
 		Geometry[] res_vec;
@@ -445,8 +464,8 @@ public class OperatorIntersectionCursor extends GeometryCursor {
 
 		if (polygon.getPointCount() > 5) {
 			double tol = 0;
-			Geometry clippedPolygon = Clipper.clip(polygon, clipEnvelope, tol,
-					0.0);
+			Geometry clippedPolygon = polygon == m_geomIntersector ? clipIntersector_(clipEnvelope)
+					: Clipper.clip(polygon, clipEnvelope, tol, 0.0);
 
 			polygon = (Polygon) clippedPolygon;
 			polygonImpl = (MultiPathImpl) polygon._getImpl();
@@ -26,6 +26,8 @@ package com.esri.core.geometry;
 
 import com.esri.core.geometry.Geometry.GeometryAccelerationDegree;
 
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * A base class for simple relation operators.
  */
@@ -39,6 +41,35 @@ public abstract class OperatorSimpleRelation extends Operator {
 	public abstract boolean execute(Geometry inputGeom1, Geometry inputGeom2,
 			SpatialReference sr, ProgressTracker progressTracker);
 
+	/**
+	 * Performs the given relation operation between every geometry of
+	 * leftGeometries and every geometry of rightGeometries. Only the pairs
+	 * with intersecting envelopes are tested.
+	 * 
+	 * @return Returns the pairs of geometries the relation holds for.
+	 */
+	public RelationMatrix execute(GeometryCursor leftGeometries,
+			GeometryCursor rightGeometries, SpatialReference sr,
+			ProgressTracker progressTracker) {
+		return execute(leftGeometries, rightGeometries, sr,
+				ForkJoinPool.commonPool(), progressTracker);
+	}
+
+	/**
+	 * Performs the given relation operation between every geometry of
+	 * leftGeometries and every geometry of rightGeometries. Only the pairs
+	 * with intersecting envelopes are tested, and the left geometries are
+	 * tested in parallel on the pool.
+	 * 
+	 * @return Returns the pairs of geometries the relation holds for.
+	 */
+	public RelationMatrix execute(GeometryCursor leftGeometries,
+			GeometryCursor rightGeometries, SpatialReference sr,
+			ForkJoinPool pool, ProgressTracker progressTracker) {
+		return RelationMatrix.execute(this, leftGeometries, rightGeometries,
+				sr, pool, progressTracker);
+	}
+
 	@Override
 	public boolean canAccelerateGeometry(Geometry geometry) {
 		return RelationalOperations.Accelerate_helper
@@ -45,6 +45,19 @@ public abstract class OperatorUnion extends Operator implements CombineOperator{
 	public abstract GeometryCursor execute(GeometryCursor inputGeometries,
 			SpatialReference sr, ProgressTracker progressTracker);
 
+	/**
+	 *Performs the Topological Union operation on the geometry set.
+	 *@param inputGeometries is the set of Geometry instances to be unioned.
+	 *@param bParallel When True, the independent bin batches of each union level are
+	 *dissolved concurrently on the common ForkJoinPool, and their results are dissolved
+	 *together as the serial execution dissolves the batches. The result is topologically
+	 *equal to the serial result and the same on every run. Its vertices are the serial ones,
+	 *except that the crossings of segments can differ in the last bits.
+	 *
+	 */
+	public abstract GeometryCursor execute(GeometryCursor inputGeometries,
+			SpatialReference sr, ProgressTracker progressTracker, boolean bParallel);
+
 	/**
 	 *Performs the Topological Union operation on two geometries.
 	 *@param geom1 and geom2 are the geometry instances to be unioned.
@@ -28,6 +28,8 @@ import java.util.ArrayList;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 public final class OperatorUnionCursor extends GeometryCursor {
 	private ProgressTracker m_progress_tracker;
@@ -39,6 +41,7 @@ public final class OperatorUnionCursor extends GeometryCursor {
 	private int m_max_dimension = -1;
 	private int m_added_geoms = 0;
 	private int m_current_dim = -1;
+	private boolean m_b_parallel = false;
 
 	private final static class Geom_pair {
 		void init() {
@@ -85,6 +88,32 @@ public final class OperatorUnionCursor extends GeometryCursor {
 		m_progress_tracker = progress_tracker;
 	}
 
+	OperatorUnionCursor(GeometryCursor inputGeoms, SpatialReference sr,
+	                    ProgressTracker progress_tracker, boolean b_parallel) {
+		this(inputGeoms, sr, progress_tracker);
+		m_b_parallel = b_parallel;
+	}
+
+	//dissolves a single bin batch. Each batch owns its geometries, so the tasks share no mutable state.
+	private final static class Dissolve_task extends RecursiveTask<Geometry> {
+		private final ArrayList<Geometry> m_batch;
+		private final SpatialReference m_sr;
+		private final ProgressTracker m_progress_tracker;
+
+		Dissolve_task(ArrayList<Geometry> batch, SpatialReference sr,
+		              ProgressTracker progress_tracker) {
+			m_batch = batch;
+			m_sr = sr;
+			m_progress_tracker = progress_tracker;
+		}
+
+		@Override
+		protected Geometry compute() {
+			return TopologicalOperations.dissolveDirty(m_batch, m_sr,
+					m_progress_tracker);
+		}
+	}
+
 	private Geometry get_result_geometry(int dim) {
 		assert (m_dim_geom_counts[dim] > 0);
 		java.util.TreeMap<Integer, Bin_type> map = m_union_bins.get(dim);
@@ -178,9 +207,9 @@ public final class OperatorUnionCursor extends GeometryCursor {
 		if (m_added_geoms > 0) {
 			for (int dim = 0; dim <= m_max_dimension; dim++) {
 				while (m_dim_geom_counts[dim] > 1) {
-					ArrayList<Geometry> batch_to_union = collect_geometries_to_union(dim);
-					boolean serial_execution = true;
+					boolean serial_execution = !m_b_parallel;
 					if (serial_execution) {
+						ArrayList<Geometry> batch_to_union = collect_geometries_to_union(dim);
 						if (batch_to_union.size() != 0) {
 							Geometry geomRes = TopologicalOperations
 									.dissolveDirty(batch_to_union,
@@ -190,6 +219,30 @@ public final class OperatorUnionCursor extends GeometryCursor {
 						} else {
 							break;
 						}
+					} else {
+						ArrayList<ArrayList<Geometry>> batches = collect_batches_to_union(dim);
+						if (batches.size() != 0) {
+							ArrayList<Dissolve_task> tasks = new ArrayList<Dissolve_task>(batches.size());
+							for (ArrayList<Geometry> batch : batches) {
+								if (batch.size() > 1)
+									tasks.add(new Dissolve_task(batch, m_spatial_reference, m_progress_tracker));
+							}
+
+							ForkJoinTask.invokeAll(tasks);
+							// the results and the single geometries are dissolved once more in the bin order, so
+							// every level adds one geometry as in the serial execution.
+							ArrayList<Geometry> results = new ArrayList<Geometry>(batches.size());
+							int itask = 0;
+							for (ArrayList<Geometry> batch : batches)
+								results.add(batch.size() > 1 ? tasks.get(itask++).join() : batch.get(0));
+
+							Geometry geomRes = results.size() == 1 ? results.get(0)
+									: TopologicalOperations.dissolveDirty(results,
+											m_spatial_reference, m_progress_tracker);
+							add_geom(dim, true, geomRes);
+						} else {
+							break;
+						}
 					}
 				}
 			}
@@ -228,6 +281,38 @@ public final class OperatorUnionCursor extends GeometryCursor {
 		return batch_to_union;
 	}
 
+	//same selection as collect_geometries_to_union, but keeps one batch per bin so the batches can be dissolved independently.
+	ArrayList<ArrayList<Geometry>> collect_batches_to_union(int dim) {
+		ArrayList<ArrayList<Geometry>> batches = new ArrayList<ArrayList<Geometry>>();
+		ArrayList<Map.Entry<Integer, Bin_type>> entriesToRemove = new ArrayList<Map.Entry<Integer, Bin_type>>();
+		Set<Map.Entry<Integer, Bin_type>> set = m_union_bins.get(dim)
+				.entrySet();
+		for (Map.Entry<Integer, Bin_type> e : set) {
+			Bin_type bin = e.getValue();
+
+			final int binVertexThreshold = 10000;
+
+			if (m_b_done
+					|| (bin.bin_vertex_count > binVertexThreshold && bin
+					.geom_count() > 1)) {
+				m_dim_geom_counts[dim] -= bin.geom_count();
+				m_added_geoms -= bin.geom_count();
+				ArrayList<Geometry> batch = new ArrayList<Geometry>();
+				while (bin.geometries.size() > 0) {
+					// empty geometries will be unioned too.
+					batch.add(bin.back_pair().geom);
+					bin.pop_pair();
+				}
+
+				batches.add(batch);
+				entriesToRemove.add(e);
+			}
+		}
+
+		set.removeAll(entriesToRemove);
+		return batches;
+	}
+
 	private void remove_all_bins_with_lower_dimension(int dim) {
 		// this geometry has higher dimension than the previously processed one
 		for (int i = 0; i < dim; i++) {
@@ -290,4 +375,13 @@ public final class OperatorUnionCursor extends GeometryCursor {
 	public boolean tock() {
 		return step_();
 	}
+
+	@Override
+	public boolean hasNext() {
+		if (m_b_done)
+			return m_current_dim < m_max_dimension;
+
+		// with tick/tock the input can be drained while the bins still hold the partial union
+		return m_added_geoms > 0 || (m_inputGeoms != null && m_inputGeoms.hasNext());
+	}
 }
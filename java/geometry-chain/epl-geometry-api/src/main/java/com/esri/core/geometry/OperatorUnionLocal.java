@@ -32,6 +32,12 @@ class OperatorUnionLocal extends OperatorUnion {
 		return new OperatorUnionCursor(inputGeometries, sr, progressTracker);
 	}
 
+	@Override
+	public GeometryCursor execute(GeometryCursor inputGeometries,
+			SpatialReference sr, ProgressTracker progressTracker, boolean bParallel) {
+		return new OperatorUnionCursor(inputGeometries, sr, progressTracker, bParallel);
+	}
+
 	@Override
 	public Geometry execute(Geometry geom1, Geometry geom2,
 			SpatialReference sr, ProgressTracker progressTracker) {
@@ -0,0 +1,515 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+import static com.esri.core.geometry.SizeOf.SIZE_OF_PACKED_R_TREE;
+import static com.esri.core.geometry.SizeOf.sizeOfDoubleArray;
+import static com.esri.core.geometry.SizeOf.sizeOfIntArray;
+
+/**
+ * A static R-tree that is bulk loaded from all of its elements at once.
+ *
+ * The elements are sorted by the Hilbert curve index of the centers of their bounding boxes and packed into leaves of
+ * NODE_SIZE elements, and every level above packs NODE_SIZE nodes of the level below. The bounding boxes of all nodes
+ * are kept in one array of doubles and the elements in one array of ints, so building the tree takes one sort, and the
+ * tree takes a fraction of the memory of a QuadTree with the same elements. Elements cannot be added or removed.
+ *
+ * An element handle is the position of the element in the leaves, from 0 to getElementCount() - 1.
+ */
+public class PackedRTree {
+	public static final int NODE_SIZE = 16;
+
+	private final int m_count;
+	// xmin, ymin, xmax, ymax of the leaves in Hilbert order, then of the nodes of every level above
+	private final double[] m_boxes;
+	// the element of a leaf, or the first child of a node
+	private final int[] m_indices;
+	// the end of the nodes of every level, from the leaves up to the root
+	private final int[] m_levelBounds;
+	private final Envelope2D m_dataExtent = new Envelope2D();
+
+	public static final class PackedRTreeIterator {
+		private final PackedRTree m_tree;
+		private final Envelope2D m_queryBox = new Envelope2D();
+		private boolean m_bLinear = false;
+		private final Point2D m_queryStart = new Point2D();
+		private final Point2D m_queryEnd = new Point2D();
+		private double m_tolerance = 0;
+
+		// the nodes of the current level that are still to be tested, and the ranges of the levels above
+		private int m_position = 0;
+		private int m_end = 0;
+		private int m_level = 0;
+		private final int[] m_stack;
+		private int m_stackSize = 0;
+
+		private final Envelope2D m_extentInf = new Envelope2D();
+		private final Point2D m_clipStart = new Point2D();
+		private final Point2D m_clipEnd = new Point2D();
+
+		private PackedRTreeIterator(PackedRTree tree) {
+			m_tree = tree;
+			m_stack = new int[3 * tree.m_levelBounds.length];
+		}
+
+		/**
+		 * Resets the iterator to a starting state on the tree. If the input Geometry is a segment, then the query will
+		 * be the segment. Otherwise the query will be the Envelope2D bounding the Geometry.
+		 */
+		public void resetIterator(Geometry query, double tolerance) {
+			Envelope2D queryBox = new Envelope2D();
+			query.queryLooseEnvelope2D(queryBox);
+			reset_(queryBox, tolerance);
+			m_bLinear = Geometry.isSegment(query.getType().value());
+			if (m_bLinear) {
+				Segment segment = (Segment) query;
+				m_queryStart.setCoords(segment.getStartXY());
+				m_queryEnd.setCoords(segment.getEndXY());
+			}
+		}
+
+		/**
+		 * Resets the iterator to a starting state on the tree using the input Envelope2D as the query.
+		 */
+		public void resetIterator(Envelope2D query, double tolerance) {
+			reset_(query, tolerance);
+			m_bLinear = false;
+		}
+
+		/**
+		 * Moves the iterator to the next element handle and returns it, or -1 if no element is left.
+		 */
+		public int next() {
+			while (true) {
+				if (m_position < m_end) {
+					int node = m_position++;
+					if (!intersects_(node))
+						continue;
+
+					if (m_level == 0)
+						return node;
+
+					m_stack[m_stackSize++] = m_position;
+					m_stack[m_stackSize++] = m_end;
+					m_stack[m_stackSize++] = m_level;
+					m_level--;
+					m_position = m_tree.m_indices[node];
+					m_end = Math.min(m_position + NODE_SIZE, m_tree.m_levelBounds[m_level]);
+					continue;
+				}
+
+				if (m_stackSize == 0)
+					return -1;
+
+				m_level = m_stack[--m_stackSize];
+				m_end = m_stack[--m_stackSize];
+				m_position = m_stack[--m_stackSize];
+			}
+		}
+
+		private void reset_(Envelope2D query, double tolerance) {
+			m_queryBox.setCoords(query);
+			m_queryBox.inflate(tolerance, tolerance);
+			m_tolerance = tolerance;
+			m_stackSize = 0;
+			int levelCount = m_tree.m_levelBounds.length;
+			if (m_tree.m_count == 0 || !m_queryBox.isIntersecting(m_tree.m_dataExtent)) {
+				m_position = m_end = 0;
+				return;
+			}
+
+			// the root is the last node
+			m_level = levelCount - 1;
+			m_end = m_tree.m_levelBounds[m_level];
+			m_position = m_end - 1;
+		}
+
+		private boolean intersects_(int node) {
+			double[] boxes = m_tree.m_boxes;
+			int i = 4 * node;
+			if (boxes[i] > m_queryBox.xmax || boxes[i + 2] < m_queryBox.xmin || boxes[i + 1] > m_queryBox.ymax
+					|| boxes[i + 3] < m_queryBox.ymin)
+				return false;
+
+			if (!m_bLinear)
+				return true;
+
+			m_clipStart.setCoords(m_queryStart);
+			m_clipEnd.setCoords(m_queryEnd);
+			m_extentInf.setCoords(boxes[i], boxes[i + 1], boxes[i + 2], boxes[i + 3]);
+			m_extentInf.inflate(m_tolerance, m_tolerance);
+			return m_extentInf.clipLine(m_clipStart, m_clipEnd) > 0;
+		}
+	}
+
+	/**
+	 * Builds the tree.
+	 *
+	 * @param elements the elements, returned by getElement.
+	 * @param boundingBoxes xmin, ymin, xmax, ymax of the bounding box of every element.
+	 */
+	public PackedRTree(int[] elements, double[] boundingBoxes) {
+		if (elements == null || boundingBoxes == null || boundingBoxes.length != 4 * elements.length)
+			throw new IllegalArgumentException();
+
+		m_count = elements.length;
+		int levelCount = 1;
+		int nodeCount = m_count;
+		for (int n = m_count; n > 1; levelCount++) {
+			n = (n + NODE_SIZE - 1) / NODE_SIZE;
+			nodeCount += n;
+		}
+
+		m_levelBounds = new int[levelCount];
+		m_boxes = new double[4 * nodeCount];
+		m_indices = new int[nodeCount];
+		m_dataExtent.setEmpty();
+		for (int i = 0; i < m_count; i++) {
+			int b = 4 * i;
+			m_dataExtent.merge(boundingBoxes[b], boundingBoxes[b + 1]);
+			m_dataExtent.merge(boundingBoxes[b + 2], boundingBoxes[b + 3]);
+		}
+
+		sortLeaves_(elements, boundingBoxes);
+		packLevels_();
+	}
+
+	/**
+	 * Builds the tree.
+	 *
+	 * @param elements the elements, returned by getElement.
+	 * @param boundingBoxes the bounding box of every element.
+	 */
+	public PackedRTree(int[] elements, Envelope2D[] boundingBoxes) {
+		this(elements, toArray_(boundingBoxes));
+	}
+
+	private static double[] toArray_(Envelope2D[] boundingBoxes) {
+		double[] boxes = new double[4 * boundingBoxes.length];
+		for (int i = 0; i < boundingBoxes.length; i++) {
+			Envelope2D box = boundingBoxes[i];
+			boxes[4 * i] = box.xmin;
+			boxes[4 * i + 1] = box.ymin;
+			boxes[4 * i + 2] = box.xmax;
+			boxes[4 * i + 3] = box.ymax;
+		}
+		return boxes;
+	}
+
+	private void sortLeaves_(int[] elements, double[] boundingBoxes) {
+		double width = m_dataExtent.getWidth();
+		double height = m_dataExtent.getHeight();
+		double scaleX = width > 0 ? 0xFFFF / width : 0;
+		double scaleY = height > 0 ? 0xFFFF / height : 0;
+		long[] keys = new long[m_count];
+		for (int i = 0; i < m_count; i++) {
+			int b = 4 * i;
+			int x = (int) ((0.5 * (boundingBoxes[b] + boundingBoxes[b + 2]) - m_dataExtent.xmin) * scaleX);
+			int y = (int) ((0.5 * (boundingBoxes[b + 1] + boundingBoxes[b + 3]) - m_dataExtent.ymin) * scaleY);
+			// the sign bit is flipped so that the signed sort orders the unsigned Hilbert index
+			keys[i] = ((((long) hilbert_(x, y)) << 32) ^ Long.MIN_VALUE) | i;
+		}
+		Arrays.sort(keys);
+
+		for (int leaf = 0; leaf < m_count; leaf++) {
+			int i = (int) keys[leaf];
+			System.arraycopy(boundingBoxes, 4 * i, m_boxes, 4 * leaf, 4);
+			m_indices[leaf] = elements[i];
+		}
+	}
+
+	private void packLevels_() {
+		int start = 0;
+		int end = m_count;
+		m_levelBounds[0] = end;
+		for (int level = 1; level < m_levelBounds.length; level++) {
+			int node = end;
+			for (int child = start; child < end; child += NODE_SIZE, node++) {
+				int b = 4 * node;
+				m_boxes[b] = Double.POSITIVE_INFINITY;
+				m_boxes[b + 1] = Double.POSITIVE_INFINITY;
+				m_boxes[b + 2] = Double.NEGATIVE_INFINITY;
+				m_boxes[b + 3] = Double.NEGATIVE_INFINITY;
+				for (int c = child, last = Math.min(child + NODE_SIZE, end); c < last; c++) {
+					int cb = 4 * c;
+					m_boxes[b] = Math.min(m_boxes[b], m_boxes[cb]);
+					m_boxes[b + 1] = Math.min(m_boxes[b + 1], m_boxes[cb + 1]);
+					m_boxes[b + 2] = Math.max(m_boxes[b + 2], m_boxes[cb + 2]);
+					m_boxes[b + 3] = Math.max(m_boxes[b + 3], m_boxes[cb + 3]);
+				}
+				m_indices[node] = child;
+			}
+			start = end;
+			end = node;
+			m_levelBounds[level] = end;
+		}
+	}
+
+	/**
+	 * The index of the point (x, y) on the Hilbert curve through a 65536 by 65536 grid, as an unsigned int.
+	 */
+	private static int hilbert_(int x, int y) {
+		int a = x ^ y;
+		int b = 0xFFFF ^ a;
+		int c = 0xFFFF ^ (x | y);
+		int d = x & (y ^ 0xFFFF);
+
+		int A = a | (b >>> 1);
+		int B = (a >>> 1) ^ a;
+		int C = ((c >>> 1) ^ (b & (d >>> 1))) ^ c;
+		int D = ((a & (c >>> 1)) ^ (d >>> 1)) ^ d;
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = (a & (a >>> 2)) ^ (b & (b >>> 2));
+		B = (a & (b >>> 2)) ^ (b & ((a ^ b) >>> 2));
+		C ^= (a & (c >>> 2)) ^ (b & (d >>> 2));
+		D ^= (b & (c >>> 2)) ^ ((a ^ b) & (d >>> 2));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		A = (a & (a >>> 4)) ^ (b & (b >>> 4));
+		B = (a & (b >>> 4)) ^ (b & ((a ^ b) >>> 4));
+		C ^= (a & (c >>> 4)) ^ (b & (d >>> 4));
+		D ^= (b & (c >>> 4)) ^ ((a ^ b) & (d >>> 4));
+
+		a = A;
+		b = B;
+		c = C;
+		d = D;
+		C ^= (a & (c >>> 8)) ^ (b & (d >>> 8));
+		D ^= (b & (c >>> 8)) ^ ((a ^ b) & (d >>> 8));
+
+		a = C ^ (C >>> 1);
+		b = D ^ (D >>> 1);
+
+		int i0 = x ^ y;
+		int i1 = b | (0xFFFF ^ (i0 | a));
+
+		return (interleave_(i1) << 1) | interleave_(i0);
+	}
+
+	// spreads the 16 low bits of v to the even bits
+	private static int interleave_(int v) {
+		v = (v | (v << 8)) & 0x00FF00FF;
+		v = (v | (v << 4)) & 0x0F0F0F0F;
+		v = (v | (v << 2)) & 0x33333333;
+		v = (v | (v << 1)) & 0x55555555;
+		return v;
+	}
+
+	public int getElementCount() {
+		return m_count;
+	}
+
+	/**
+	 * Returns the element of the element handle.
+	 */
+	public int getElement(int elementHandle) {
+		return m_indices[elementHandle];
+	}
+
+	/**
+	 * Returns the bounding box of the element handle.
+	 */
+	public Envelope2D getElementExtent(int elementHandle) {
+		int b = 4 * elementHandle;
+		return Envelope2D.construct(m_boxes[b], m_boxes[b + 1], m_boxes[b + 2], m_boxes[b + 3]);
+	}
+
+	/**
+	 * Returns the extent of all elements.
+	 */
+	public Envelope2D getDataExtent() {
+		Envelope2D extent = new Envelope2D();
+		extent.setCoords(m_dataExtent);
+		return extent;
+	}
+
+	/**
+	 * Returns true if an element bounding box intersects the query.
+	 */
+	public boolean hasData(Envelope2D query, double tolerance) {
+		return getIterator(query, tolerance).next() != -1;
+	}
+
+	/**
+	 * Returns the number of elements whose bounding box intersects the query, up to maxCount. A maxCount of -1 counts
+	 * all of them.
+	 */
+	public int getIntersectionCount(Envelope2D query, double tolerance, int maxCount) {
+		PackedRTreeIterator iterator = getIterator(query, tolerance);
+		int count = 0;
+		while ((maxCount < 0 || count < maxCount) && iterator.next() != -1)
+			count++;
+		return count;
+	}
+
+	/**
+	 * Returns an iterator over the elements whose bounding box intersects the query. If the query is a segment, only
+	 * the elements whose bounding box intersects the segment are returned.
+	 */
+	public PackedRTreeIterator getIterator(Geometry query, double tolerance) {
+		PackedRTreeIterator iterator = new PackedRTreeIterator(this);
+		iterator.resetIterator(query, tolerance);
+		return iterator;
+	}
+
+	/**
+	 * Returns an iterator over the elements whose bounding box intersects the query.
+	 */
+	public PackedRTreeIterator getIterator(Envelope2D query, double tolerance) {
+		PackedRTreeIterator iterator = new PackedRTreeIterator(this);
+		iterator.resetIterator(query, tolerance);
+		return iterator;
+	}
+
+	/**
+	 * Returns an iterator that has to be reset before it returns elements.
+	 */
+	public PackedRTreeIterator getIterator() {
+		return new PackedRTreeIterator(this);
+	}
+
+	/**
+	 * Returns the handles of the up to maxCount elements nearest to the query, nearest first.
+	 *
+	 * The tree is searched best first, by the distance from the query to the bounding boxes of the nodes, and the
+	 * distance of an element is only calculated when no node or element with a smaller bounding box distance is left.
+	 * The distance of an element is given by the distance function of its handle, for example the distance from the
+	 * query to the geometry of the element, and must not be smaller than the distance from the query to the bounding
+	 * box of the element.
+	 *
+	 * @param maxDistance elements farther than this are not returned.
+	 * @param distances receives the distance of every returned handle, if not null.
+	 */
+	public int[] getNearest(Envelope2D query, int maxCount, double maxDistance, IntToDoubleFunction distance,
+	                        double[] distances) {
+		if (m_count == 0 || maxCount <= 0)
+			return new int[0];
+
+		int[] nearest = new int[Math.min(maxCount, m_count)];
+		int found = 0;
+		NodeHeap heap = new NodeHeap();
+		int root = m_levelBounds[m_levelBounds.length - 1] - 1;
+		heap.push(boxDistance_(query, root), root, m_levelBounds.length - 1);
+		while (found < nearest.length && heap.m_size > 0) {
+			double d = heap.m_keys[0];
+			int node = heap.m_nodes[0];
+			int level = heap.m_levels[0];
+			heap.pop();
+			if (d > maxDistance)
+				break;
+
+			if (level == NodeHeap.EXACT) {
+				if (distances != null)
+					distances[found] = d;
+				nearest[found++] = node;
+			} else if (level == 0) {
+				double exact = distance.applyAsDouble(node);
+				if (exact <= maxDistance)
+					heap.push(exact, node, NodeHeap.EXACT);
+			} else {
+				int end = Math.min(m_indices[node] + NODE_SIZE, m_levelBounds[level - 1]);
+				for (int child = m_indices[node]; child < end; child++)
+					heap.push(boxDistance_(query, child), child, level - 1);
+			}
+		}
+
+		return found == nearest.length ? nearest : Arrays.copyOf(nearest, found);
+	}
+
+	private double boxDistance_(Envelope2D query, int node) {
+		int b = 4 * node;
+		double dx = Math.max(0, Math.max(m_boxes[b] - query.xmax, query.xmin - m_boxes[b + 2]));
+		double dy = Math.max(0, Math.max(m_boxes[b + 1] - query.ymax, query.ymin - m_boxes[b + 3]));
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+
+	// a binary min heap of nodes by distance, in parallel arrays
+	private static final class NodeHeap {
+		// the level of an element whose distance is calculated
+		static final int EXACT = -1;
+
+		double[] m_keys = new double[64];
+		int[] m_nodes = new int[64];
+		int[] m_levels = new int[64];
+		int m_size = 0;
+
+		void push(double key, int node, int level) {
+			if (m_size == m_keys.length) {
+				m_keys = Arrays.copyOf(m_keys, 2 * m_size);
+				m_nodes = Arrays.copyOf(m_nodes, 2 * m_size);
+				m_levels = Arrays.copyOf(m_levels, 2 * m_size);
+			}
+
+			int i = m_size++;
+			while (i > 0) {
+				int parent = (i - 1) >> 1;
+				if (m_keys[parent] <= key)
+					break;
+				set_(i, parent);
+				i = parent;
+			}
+			m_keys[i] = key;
+			m_nodes[i] = node;
+			m_levels[i] = level;
+		}
+
+		void pop() {
+			int last = --m_size;
+			double key = m_keys[last];
+			int i = 0;
+			while (true) {
+				int child = 2 * i + 1;
+				if (child >= m_size)
+					break;
+				if (child + 1 < m_size && m_keys[child + 1] < m_keys[child])
+					child++;
+				if (key <= m_keys[child])
+					break;
+				set_(i, child);
+				i = child;
+			}
+			m_keys[i] = key;
+			m_nodes[i] = m_nodes[last];
+			m_levels[i] = m_levels[last];
+		}
+
+		private void set_(int to, int from) {
+			m_keys[to] = m_keys[from];
+			m_nodes[to] = m_nodes[from];
+			m_levels[to] = m_levels[from];
+		}
+	}
+
+	public long estimateMemorySize() {
+		return SIZE_OF_PACKED_R_TREE + m_dataExtent.estimateMemorySize() + sizeOfDoubleArray(m_boxes.length)
+				+ sizeOfIntArray(m_indices.length) + sizeOfIntArray(m_levelBounds.length);
+	}
+}
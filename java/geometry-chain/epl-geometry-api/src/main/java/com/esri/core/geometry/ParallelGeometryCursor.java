@@ -0,0 +1,209 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**
+ * Evaluates a per geometry operation for the geometries of a cursor in parallel, and returns the results in input
+ * order.
+ *
+ * The operation receives a cursor over a single input geometry and returns the cursor of the operator, for example
+ * {@code cursor -> OperatorSimplify.local().execute(cursor, sr, true, null)}. It must return exactly one geometry for
+ * every input geometry, and the result must not depend on the other geometries, so a buffer with union or with a
+ * distance per geometry, or a merged convex hull, cannot be evaluated this way.
+ *
+ * The input cursor is only read by the thread that calls next(). Batches of up to batchSize input geometries are
+ * prefetched and evaluated on the ForkJoinPool, and the next batch is evaluated while the current one is returned.
+ * getGeometryID(), getFeatureID() and getSimpleState() return the values the input cursor returned for the input
+ * geometry of the current result.
+ */
+public class ParallelGeometryCursor extends GeometryCursor {
+	private final Function<GeometryCursor, GeometryCursor> m_operation;
+	private final ForkJoinPool m_pool;
+	private final int m_batchSize;
+
+	// the batch that next() returns from, and the batch evaluated ahead of it
+	private Batch m_current = null;
+	private Batch m_pending = null;
+	private int m_index = 0;
+
+	private int m_geometryID = -1;
+	private String m_featureID = "";
+	private SimpleStateEnum m_simpleState = SimpleStateEnum.SIMPLE_UNKNOWN;
+
+	/**
+	 * Evaluates batches of four input geometries per thread of the common ForkJoinPool.
+	 */
+	public ParallelGeometryCursor(GeometryCursor inputGeoms, Function<GeometryCursor, GeometryCursor> operation) {
+		this(inputGeoms, operation, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Evaluates batches of four input geometries per thread of the pool.
+	 */
+	public ParallelGeometryCursor(GeometryCursor inputGeoms, Function<GeometryCursor, GeometryCursor> operation,
+	                              ForkJoinPool pool) {
+		this(inputGeoms, operation, 4 * pool.getParallelism(), pool);
+	}
+
+	/**
+	 * @param batchSize the number of input geometries that are prefetched and evaluated together.
+	 * @param pool the pool the batches are evaluated on.
+	 */
+	public ParallelGeometryCursor(GeometryCursor inputGeoms, Function<GeometryCursor, GeometryCursor> operation,
+	                              int batchSize, ForkJoinPool pool) {
+		if (inputGeoms == null || operation == null || pool == null || batchSize < 1)
+			throw new IllegalArgumentException();
+
+		m_inputGeoms = inputGeoms;
+		m_operation = operation;
+		m_batchSize = batchSize;
+		m_pool = pool;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return (m_current != null && m_index < m_current.m_count) || m_pending != null || m_inputGeoms.hasNext();
+	}
+
+	@Override
+	public Geometry next() {
+		if (m_current == null || m_index == m_current.m_count) {
+			Batch batch = m_pending != null ? m_pending : fetch_();
+			m_pending = null;
+			m_current = batch;
+			m_index = 0;
+			if (batch == null)
+				return null;
+
+			if (batch.m_task != null) {
+				batch.m_task.join();
+			} else if (batch.m_count == 1) {
+				batch.evaluate(0);
+			} else {
+				m_pool.invoke(new EvaluateTask(batch, 0, batch.m_count));
+			}
+
+			// evaluate the next batch while this one is returned
+			m_pending = fetch_();
+			if (m_pending != null)
+				m_pending.m_task = m_pool.submit(new EvaluateTask(m_pending, 0, m_pending.m_count));
+		}
+
+		int i = m_index++;
+		m_geometryID = m_current.m_geometryIDs[i];
+		m_featureID = m_current.m_featureIDs[i];
+		m_simpleState = m_current.m_simpleStates[i];
+		Geometry result = m_current.m_geometries[i];
+		m_current.m_geometries[i] = null;
+		return result;
+	}
+
+	/**
+	 * Reads the next batch of input geometries. Returns null if the input cursor has no geometry.
+	 */
+	private Batch fetch_() {
+		if (!m_inputGeoms.hasNext())
+			return null;
+
+		Batch batch = new Batch(m_batchSize);
+		while (batch.m_count < m_batchSize && m_inputGeoms.hasNext()) {
+			Geometry geometry = m_inputGeoms.next();
+			if (geometry == null)
+				break;
+
+			int i = batch.m_count++;
+			batch.m_geometries[i] = geometry;
+			batch.m_geometryIDs[i] = m_inputGeoms.getGeometryID();
+			batch.m_featureIDs[i] = m_inputGeoms.getFeatureID();
+			batch.m_simpleStates[i] = m_inputGeoms.getSimpleState();
+		}
+
+		return batch.m_count > 0 ? batch : null;
+	}
+
+	@Override
+	public int getGeometryID() {
+		return m_geometryID;
+	}
+
+	@Override
+	public String getFeatureID() {
+		return m_featureID;
+	}
+
+	@Override
+	public SimpleStateEnum getSimpleState() {
+		return m_simpleState;
+	}
+
+	private final class Batch {
+		// the input geometries, replaced by the results once they are evaluated
+		final Geometry[] m_geometries;
+		final int[] m_geometryIDs;
+		final String[] m_featureIDs;
+		final SimpleStateEnum[] m_simpleStates;
+		int m_count = 0;
+		ForkJoinTask<?> m_task = null;
+
+		Batch(int size) {
+			m_geometries = new Geometry[size];
+			m_geometryIDs = new int[size];
+			m_featureIDs = new String[size];
+			m_simpleStates = new SimpleStateEnum[size];
+		}
+
+		void evaluate(int i) {
+			GeometryCursor result = m_operation.apply(new SimpleGeometryCursor(m_geometries[i]));
+			Geometry geometry = result.next();
+			if (geometry == null)
+				throw new GeometryException("the operation returned no geometry");
+			m_geometries[i] = geometry;
+		}
+	}
+
+	private static final class EvaluateTask extends RecursiveAction {
+		private final Batch m_batch;
+		private final int m_from;
+		private final int m_to;
+
+		EvaluateTask(Batch batch, int from, int to) {
+			m_batch = batch;
+			m_from = from;
+			m_to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_to - m_from == 1) {
+				m_batch.evaluate(m_from);
+				return;
+			}
+
+			int mid = (m_from + m_to) >>> 1;
+			invokeAll(new EvaluateTask(m_batch, m_from, mid), new EvaluateTask(m_batch, mid, m_to));
+		}
+	}
+}
@@ -161,6 +161,18 @@ final class PointInPolygonHelper {
 		return false;
 	}
 
+	/**
+	 * Processes the segment that starts at the vertex. Returns true if the
+	 * point is on the boundary.
+	 */
+	private boolean processSegmentAt(SegmentIteratorImpl iter, int vertex) {
+		iter.resetToVertex(vertex);
+		if (!iter.hasNextSegment())
+			return false;
+
+		return processSegment(iter.nextSegment());
+	}
+
 	private static int _isPointInPolygonInternal(Polygon inputPolygon,
 			Point2D inputPoint, double tolerance) {
 
@@ -180,9 +192,14 @@ final class PointInPolygonHelper {
 		return helper.result();
 	}
 
-	private static int _isPointInPolygonInternalWithQuadTree(
-			Polygon inputPolygon, QuadTreeImpl quadTree, Point2D inputPoint,
-			double tolerance) {
+	/**
+	 * Tests the point against the segments that the spatial index of the
+	 * polygon returns for a ray from the point to the left of the polygon.
+	 * Exactly one of quadTree and rtree is not null.
+	 */
+	private static int _isPointInPolygonInternalWithIndex(
+			Polygon inputPolygon, QuadTreeImpl quadTree, PackedRTree rtree,
+			Point2D inputPoint, double tolerance) {
 		Envelope2D envPoly = new Envelope2D();
 		inputPolygon.queryLooseEnvelope(envPoly);
 		envPoly.inflate(tolerance, tolerance);
@@ -201,13 +218,18 @@ final class PointInPolygonHelper {
 													// matter.
 		queryEnv.ymin = inputPoint.y - tolerance;
 		queryEnv.ymax = inputPoint.y + tolerance;
-		QuadTreeImpl.QuadTreeIteratorImpl qiter = quadTree.getIterator(
-				queryEnv, tolerance);
-		for (int qhandle = qiter.next(); qhandle != -1; qhandle = qiter.next()) {
-			iter.resetToVertex(quadTree.getElement(qhandle));
-			if (iter.hasNextSegment()) {
-				Segment segment = iter.nextSegment();
-				if (helper.processSegment(segment))
+		if (quadTree != null) {
+			QuadTreeImpl.QuadTreeIteratorImpl qiter = quadTree.getIterator(
+					queryEnv, tolerance);
+			for (int qhandle = qiter.next(); qhandle != -1; qhandle = qiter.next()) {
+				if (helper.processSegmentAt(iter, quadTree.getElement(qhandle)))
+					return -1; // point on boundary
+			}
+		} else {
+			PackedRTree.PackedRTreeIterator riter = rtree.getIterator(queryEnv,
+					tolerance);
+			for (int handle = riter.next(); handle != -1; handle = riter.next()) {
+				if (helper.processSegmentAt(iter, rtree.getElement(handle)))
 					return -1; // point on boundary
 			}
 		}
@@ -242,8 +264,14 @@ final class PointInPolygonHelper {
 
 			QuadTreeImpl qtree = accel.getQuadTree();
 			if (qtree != null) {
-				return _isPointInPolygonInternalWithQuadTree(inputPolygon,
-						qtree, inputPoint, tolerance);
+				return _isPointInPolygonInternalWithIndex(inputPolygon,
+						qtree, null, inputPoint, tolerance);
+			}
+
+			PackedRTree rtree = accel.getPackedRTree();
+			if (rtree != null) {
+				return _isPointInPolygonInternalWithIndex(inputPolygon,
+						null, rtree, inputPoint, tolerance);
 			}
 		}
 
@@ -0,0 +1,301 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * The result of a simple relation between every geometry of a left cursor and every geometry of a right cursor.
+ *
+ * The pairs for which the relation holds are stored by left geometry, as sorted runs of right geometry indices in one
+ * int array, so the matrix takes four bytes per matching pair and none for the pairs that do not match. Geometries are
+ * addressed by their position in their cursor, and getLeftID and getRightID return the geometry ids the cursors
+ * returned for them.
+ */
+public final class RelationMatrix {
+	// relations with more candidate pairs per left geometry are tested on an accelerated copy of the left geometry
+	private static final int ACCELERATE_CANDIDATE_COUNT = 2;
+
+	private final int[] m_leftIDs;
+	private final int[] m_rightIDs;
+	// the matches of left geometry i are m_rightIndices[m_rowStarts[i]] to m_rightIndices[m_rowStarts[i + 1] - 1]
+	private final int[] m_rowStarts;
+	private final int[] m_rightIndices;
+
+	private RelationMatrix(int[] leftIDs, int[] rightIDs, int[][] rows) {
+		m_leftIDs = leftIDs;
+		m_rightIDs = rightIDs;
+		m_rowStarts = new int[rows.length + 1];
+		for (int i = 0; i < rows.length; i++)
+			m_rowStarts[i + 1] = m_rowStarts[i] + rows[i].length;
+
+		m_rightIndices = new int[m_rowStarts[rows.length]];
+		for (int i = 0; i < rows.length; i++)
+			System.arraycopy(rows[i], 0, m_rightIndices, m_rowStarts[i], rows[i].length);
+	}
+
+	/**
+	 * Tests the relation of every left geometry with every right geometry. The pairs are found by intersecting the
+	 * envelopes of both sides, and only pairs with intersecting envelopes are tested, except for disjoint, which holds
+	 * for every other pair. The pairs of one left geometry are tested together, and the rows of different left
+	 * geometries are tested in parallel on the pool.
+	 */
+	static RelationMatrix execute(OperatorSimpleRelation operator, GeometryCursor leftGeometries,
+	                              GeometryCursor rightGeometries, SpatialReference sr, ForkJoinPool pool,
+	                              ProgressTracker progressTracker) {
+		List<Geometry> left = new ArrayList<>();
+		int[] leftIDs = read_(leftGeometries, left);
+		List<Geometry> right = new ArrayList<>();
+		int[] rightIDs = read_(rightGeometries, right);
+
+		int[][] candidates = candidates_(left, right, sr);
+		boolean bDisjoint = operator.getType() == Operator.Type.Disjoint;
+		OperatorSimpleRelation test = bDisjoint
+				? (OperatorSimpleRelation) OperatorFactoryLocal.getInstance().getOperator(Operator.Type.Intersects)
+				: operator;
+
+		int[][] rows = new int[left.size()][];
+		if (!left.isEmpty()) {
+			pool.invoke(new RowsTask(0, left.size(), i -> {
+				if (progressTracker != null && !progressTracker.progress(-1, -1))
+					throw new UserCancelException();
+
+				int[] row = candidates[i];
+				Geometry leftGeometry = left.get(i);
+				if (row.length >= ACCELERATE_CANDIDATE_COUNT && test.canAccelerateGeometry(leftGeometry)) {
+					leftGeometry = leftGeometry.copy();
+					test.accelerateGeometry(leftGeometry, sr, Geometry.GeometryAccelerationDegree.enumMedium);
+				}
+
+				int count = 0;
+				int[] matches = new int[row.length];
+				for (int j : row) {
+					if (test.execute(leftGeometry, right.get(j), sr, null))
+						matches[count++] = j;
+				}
+				matches = Arrays.copyOf(matches, count);
+				rows[i] = bDisjoint ? complement_(matches, right.size()) : matches;
+			}));
+		}
+
+		return new RelationMatrix(leftIDs, rightIDs, rows);
+	}
+
+	private static int[] read_(GeometryCursor cursor, List<Geometry> geometries) {
+		int[] ids = new int[16];
+		Geometry geometry;
+		while ((geometry = cursor.next()) != null) {
+			if (geometries.size() == ids.length)
+				ids = Arrays.copyOf(ids, 2 * ids.length);
+			ids[geometries.size()] = cursor.getGeometryID();
+			geometries.add(geometry);
+		}
+		return Arrays.copyOf(ids, geometries.size());
+	}
+
+	/**
+	 * The right geometries whose envelope intersects the envelope of every left geometry, sorted.
+	 */
+	private static int[][] candidates_(List<Geometry> left, List<Geometry> right, SpatialReference sr) {
+		int[][] rows = new int[left.size()][];
+		Envelope2D extent = new Envelope2D();
+		extent.setEmpty();
+		Envelope2D env = new Envelope2D();
+		for (Geometry geometry : left) {
+			geometry.queryLooseEnvelope2D(env);
+			extent.merge(env);
+		}
+		for (Geometry geometry : right) {
+			geometry.queryLooseEnvelope2D(env);
+			extent.merge(env);
+		}
+
+		Envelope2DIntersectorImpl intersector = new Envelope2DIntersectorImpl();
+		intersector.setTolerance(extent.isEmpty() ? 0 : InternalUtils.calculateToleranceFromGeometry(sr, extent, true));
+		boolean bFoundRed = addEnvelopes_(intersector, left, true);
+		boolean bFoundBlue = addEnvelopes_(intersector, right, false);
+
+		int[] counts = new int[left.size()];
+		long[] pairs = new long[16];
+		int pairCount = 0;
+		while (bFoundRed && bFoundBlue && intersector.next()) {
+			int i = intersector.getRedElement(intersector.getHandleA());
+			int j = intersector.getBlueElement(intersector.getHandleB());
+			if (pairCount == pairs.length)
+				pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+			pairs[pairCount++] = ((long) i << 32) | j;
+			counts[i]++;
+		}
+
+		Arrays.sort(pairs, 0, pairCount);
+		for (int i = 0; i < rows.length; i++)
+			rows[i] = new int[counts[i]];
+		for (int k = 0, i = -1, n = 0; k < pairCount; k++) {
+			int row = (int) (pairs[k] >>> 32);
+			if (row != i) {
+				i = row;
+				n = 0;
+			}
+			rows[i][n++] = (int) pairs[k];
+		}
+
+		return rows;
+	}
+
+	private static boolean addEnvelopes_(Envelope2DIntersectorImpl intersector, List<Geometry> geometries,
+	                                     boolean bRed) {
+		boolean bFound = false;
+		Envelope2D env = new Envelope2D();
+		if (bRed)
+			intersector.startRedConstruction();
+		else
+			intersector.startBlueConstruction();
+
+		for (int i = 0; i < geometries.size(); i++) {
+			// an empty geometry has no relation but disjoint with any other
+			if (geometries.get(i).isEmpty())
+				continue;
+
+			geometries.get(i).queryLooseEnvelope2D(env);
+			if (bRed)
+				intersector.addRedEnvelope(i, env);
+			else
+				intersector.addBlueEnvelope(i, env);
+			bFound = true;
+		}
+
+		if (bRed)
+			intersector.endRedConstruction();
+		else
+			intersector.endBlueConstruction();
+		return bFound;
+	}
+
+	private static int[] complement_(int[] sorted, int count) {
+		int[] complement = new int[count - sorted.length];
+		for (int j = 0, k = 0, n = 0; j < count; j++) {
+			if (k < sorted.length && sorted[k] == j)
+				k++;
+			else
+				complement[n++] = j;
+		}
+		return complement;
+	}
+
+	public int getLeftCount() {
+		return m_leftIDs.length;
+	}
+
+	public int getRightCount() {
+		return m_rightIDs.length;
+	}
+
+	/**
+	 * The geometry id of the left geometry at the index.
+	 */
+	public int getLeftID(int leftIndex) {
+		return m_leftIDs[leftIndex];
+	}
+
+	/**
+	 * The geometry id of the right geometry at the index.
+	 */
+	public int getRightID(int rightIndex) {
+		return m_rightIDs[rightIndex];
+	}
+
+	/**
+	 * The number of pairs for which the relation holds.
+	 */
+	public int getPairCount() {
+		return m_rightIndices.length;
+	}
+
+	/**
+	 * Returns true if the relation holds between the left and the right geometry.
+	 */
+	public boolean get(int leftIndex, int rightIndex) {
+		return Arrays.binarySearch(m_rightIndices, m_rowStarts[leftIndex], m_rowStarts[leftIndex + 1], rightIndex) >= 0;
+	}
+
+	/**
+	 * The indices of the right geometries the relation holds for with the left geometry, in ascending order.
+	 */
+	public int[] getRightIndices(int leftIndex) {
+		return Arrays.copyOfRange(m_rightIndices, m_rowStarts[leftIndex], m_rowStarts[leftIndex + 1]);
+	}
+
+	/**
+	 * The row of the left geometry as a bit set with a bit per right geometry.
+	 */
+	public BitSet getRow(int leftIndex) {
+		BitSet row = new BitSet(getRightCount());
+		for (int k = m_rowStarts[leftIndex]; k < m_rowStarts[leftIndex + 1]; k++)
+			row.set(m_rightIndices[k]);
+		return row;
+	}
+
+	/**
+	 * The matching pairs as left and right index, one pair after the other, ordered by left and then right index.
+	 */
+	public int[] getPairs() {
+		int[] pairs = new int[2 * m_rightIndices.length];
+		for (int i = 0, k = 0; i < m_leftIDs.length; i++) {
+			for (; k < m_rowStarts[i + 1]; k++) {
+				pairs[2 * k] = i;
+				pairs[2 * k + 1] = m_rightIndices[k];
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Tests the rows from to to - 1, splitting the range in halves down to single rows.
+	 */
+	private static final class RowsTask extends RecursiveAction {
+		private final int m_from;
+		private final int m_to;
+		private final IntConsumer m_row;
+
+		RowsTask(int from, int to, IntConsumer row) {
+			m_from = from;
+			m_to = to;
+			m_row = row;
+		}
+
+		@Override
+		protected void compute() {
+			if (m_to - m_from == 1) {
+				m_row.accept(m_from);
+				return;
+			}
+
+			int mid = (m_from + m_to) >>> 1;
+			invokeAll(new RowsTask(m_from, mid, m_row), new RowsTask(mid, m_to, m_row));
+		}
+	}
+}
@@ -1168,10 +1168,10 @@ class RelationalOperations {
             }
 
             if (!b_checked_polygon_a_quad_tree) {
-                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipoint_b.getPointCount() - 1) && (polygon_a_impl._getAccelerators() == null || polygon_a_impl._getAccelerators().getQuadTree() == null)) {
+                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipoint_b.getPointCount() - 1) && (polygon_a_impl._getAccelerators() == null || (polygon_a_impl._getAccelerators().getQuadTree() == null && polygon_a_impl._getAccelerators().getPackedRTree() == null))) {
                     pa = new Polygon();
                     polygon_a.copyTo(pa);
-                    ((MultiPathImpl) pa._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                    ((MultiPathImpl) pa._getImpl())._buildPackedRTreeAccelerator();
                     p_polygon_a = pa;
                 } else {
                     p_polygon_a = polygon_a;
@@ -1238,10 +1238,10 @@ class RelationalOperations {
                 return true;
 
             if (!b_checked_polygon_a_quad_tree) {
-                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipoint_b.getPointCount() - 1) && (polygon_a_impl._getAccelerators() == null || polygon_a_impl._getAccelerators().getQuadTree() == null)) {
+                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipoint_b.getPointCount() - 1) && (polygon_a_impl._getAccelerators() == null || (polygon_a_impl._getAccelerators().getQuadTree() == null && polygon_a_impl._getAccelerators().getPackedRTree() == null))) {
                     pa = new Polygon();
                     polygon_a.copyTo(pa);
-                    ((MultiPathImpl) pa._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                    ((MultiPathImpl) pa._getImpl())._buildPackedRTreeAccelerator();
                     p_polygon_a = pa;
                 } else {
                     p_polygon_a = polygon_a;
@@ -1302,10 +1302,10 @@ class RelationalOperations {
                 return false;
 
             if (!b_checked_polygon_a_quad_tree) {
-                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipoint_b.getPointCount() - 1) && (polygon_a_impl._getAccelerators() == null || polygon_a_impl._getAccelerators().getQuadTree() == null)) {
+                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipoint_b.getPointCount() - 1) && (polygon_a_impl._getAccelerators() == null || (polygon_a_impl._getAccelerators().getQuadTree() == null && polygon_a_impl._getAccelerators().getPackedRTree() == null))) {
                     pa = new Polygon();
                     polygon_a.copyTo(pa);
-                    ((MultiPathImpl) pa._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                    ((MultiPathImpl) pa._getImpl())._buildPackedRTreeAccelerator();
                     p_polygon_a = pa;
                 } else {
                     p_polygon_a = polygon_a;
@@ -3233,10 +3233,10 @@ class RelationalOperations {
             }
 
             if (!b_checked_polygon_a_quad_tree) {
-                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipath_b.getPathCount() - 1) && (multi_path_impl_a._getAccelerators() == null || multi_path_impl_a._getAccelerators().getQuadTree() == null)) {
+                if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multipath_b.getPathCount() - 1) && (multi_path_impl_a._getAccelerators() == null || (multi_path_impl_a._getAccelerators().getQuadTree() == null && multi_path_impl_a._getAccelerators().getPackedRTree() == null))) {
                     pa = new Polygon();
                     polygon_a.copyTo(pa);
-                    ((MultiPathImpl) pa._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                    ((MultiPathImpl) pa._getImpl())._buildPackedRTreeAccelerator();
                     p_polygon_a = pa;
                 } else {
                     p_polygon_a = polygon_a;
@@ -3249,10 +3249,10 @@ class RelationalOperations {
             {
                 if (!b_checked_polygon_b_quad_tree) {
                     Polygon polygon_b = (Polygon) multipath_b;
-                    if (PointInPolygonHelper.quadTreeWillHelp(polygon_b, polygon_a.getPathCount() - 1) && (multi_path_impl_b._getAccelerators() == null || multi_path_impl_b._getAccelerators().getQuadTree() == null)) {
+                    if (PointInPolygonHelper.quadTreeWillHelp(polygon_b, polygon_a.getPathCount() - 1) && (multi_path_impl_b._getAccelerators() == null || (multi_path_impl_b._getAccelerators().getQuadTree() == null && multi_path_impl_b._getAccelerators().getPackedRTree() == null))) {
                         pb = new Polygon();
                         polygon_b.copyTo(pb);
-                        ((MultiPathImpl) pb._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                        ((MultiPathImpl) pb._getImpl())._buildPackedRTreeAccelerator();
                         p_polygon_b = pb;
                     } else {
                         p_polygon_b = (Polygon) multipath_b;
@@ -4821,10 +4821,10 @@ class RelationalOperations {
                     }
 
                     if (!b_checked_polygon_a_quad_tree) {
-                        if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multi_path_b.getPathCount() - 1) && (polygon_impl_a._getAccelerators() == null || polygon_impl_a._getAccelerators().getQuadTree() == null)) {
+                        if (PointInPolygonHelper.quadTreeWillHelp(polygon_a, multi_path_b.getPathCount() - 1) && (polygon_impl_a._getAccelerators() == null || (polygon_impl_a._getAccelerators().getQuadTree() == null && polygon_impl_a._getAccelerators().getPackedRTree() == null))) {
                             pa = new Polygon();
                             polygon_a.copyTo(pa);
-                            ((MultiPathImpl) pa._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                            ((MultiPathImpl) pa._getImpl())._buildPackedRTreeAccelerator();
                             p_polygon_a = pa;
                         } else {
                             p_polygon_a = polygon_a;
@@ -4868,10 +4868,10 @@ class RelationalOperations {
                     }
 
                     if (!b_checked_polygon_b_quad_tree) {
-                        if (PointInPolygonHelper.quadTreeWillHelp(polygon_b, polygon_a.getPathCount() - 1) && (multi_path_impl_b._getAccelerators() == null || multi_path_impl_b._getAccelerators().getQuadTree() == null)) {
+                        if (PointInPolygonHelper.quadTreeWillHelp(polygon_b, polygon_a.getPathCount() - 1) && (multi_path_impl_b._getAccelerators() == null || (multi_path_impl_b._getAccelerators().getQuadTree() == null && multi_path_impl_b._getAccelerators().getPackedRTree() == null))) {
                             pb = new Polygon();
                             polygon_b.copyTo(pb);
-                            ((MultiPathImpl) pb._getImpl())._buildQuadTreeAccelerator(Geometry.GeometryAccelerationDegree.enumMedium);
+                            ((MultiPathImpl) pb._getImpl())._buildPackedRTreeAccelerator();
                             p_polygon_b = pb;
                         } else {
                             p_polygon_b = polygon_b;
@@ -104,6 +104,8 @@ public final class SizeOf {
 
 	public static final int SIZE_OF_DATA = 24;
 
+	public static final int SIZE_OF_PACKED_R_TREE = 32;
+
 	public static final int SIZE_OF_STRIDED_INDEX_TYPE_COLLECTION = 48;
 
 	public static long sizeOfByteArray(int length) {
@@ -0,0 +1,85 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+/**
+ * Marks the geometries of a cursor with the simple state the input cursor declares for them, without testing them.
+ *
+ * Use it for geometries that were simplified before, for example by an earlier step of the same pipeline. Simplify
+ * returns a geometry marked strong simple as it is, and the relational operators skip cracking the geometries marked
+ * simple. The state holds for the tolerance it was declared with: simplify and isSimple only trust it if the tolerance
+ * of their spatial reference is not greater, and the relational operators only if it is declared at all. The states
+ * that declare a geometry non simple are ignored, so the geometry is tested when needed. A geometry that is modified
+ * or projected loses the state.
+ *
+ * The state is not verified, so a geometry marked simple that is not simple gives wrong results.
+ */
+public class TrustedSimpleStateCursor extends GeometryCursor {
+	private final double m_tolerance;
+
+	/**
+	 * @param tolerance the tolerance the geometries were simplified with.
+	 */
+	public TrustedSimpleStateCursor(GeometryCursor inputGeoms, double tolerance) {
+		if (inputGeoms == null || !(tolerance >= 0))
+			throw new IllegalArgumentException();
+
+		m_inputGeoms = inputGeoms;
+		m_tolerance = tolerance;
+	}
+
+	@Override
+	public Geometry next() {
+		Geometry geometry = m_inputGeoms.next();
+		if (geometry != null)
+			applySimpleState(geometry, m_inputGeoms.getSimpleState(), m_tolerance);
+		return geometry;
+	}
+
+	/**
+	 * Marks the geometry with the simple state for the tolerance. Does nothing for an unknown or non simple state, or
+	 * for geometries that are not multi vertex geometries.
+	 *
+	 * @return the geometry.
+	 */
+	public static Geometry applySimpleState(Geometry geometry, SimpleStateEnum simpleState, double tolerance) {
+		if (!Geometry.isMultiVertex(geometry.getType().value()))
+			return geometry;
+
+		MultiVertexGeometryImpl impl = (MultiVertexGeometryImpl) geometry._getImpl();
+		switch (simpleState) {
+			case WEAK_SIMPLE:
+				impl.setIsSimple(MultiVertexGeometryImpl.GeometryXSimple.Weak, tolerance, false);
+				break;
+			case STRONG_SIMPLE:
+				impl.setIsSimple(MultiVertexGeometryImpl.GeometryXSimple.Strong, tolerance, false);
+				// strong simple includes the OGC ring order, which only polygons have
+				if (geometry.getType() == Geometry.Type.Polygon)
+					((MultiPathImpl) impl)._updateOGCFlags();
+				else
+					impl._setDirtyFlag(MultiVertexGeometryImpl.DirtyFlags.DirtyOGCFlags, false);
+				break;
+			default:
+				break;
+		}
+		return geometry;
+	}
+}
@@ -23,6 +23,8 @@
  */
 package com.esri.core.geometry;
 
+import java.nio.charset.StandardCharsets;
+
 final class WktParser {
 	interface WktToken {
 		static final int not_available = 0;
@@ -52,12 +54,40 @@ final class WktParser {
 		resetParser(string);
 	}
 
+	WktParser(CharSequence wkt) {
+		resetParser(wkt);
+	}
+
+	WktParser(byte[] wkt, int offset, int length) {
+		resetParser(wkt, offset, length);
+	}
+
 	void resetParser(String string) {
+		resetParser((CharSequence) string);
+	}
+
+	/**
+	 * Starts parsing the given text. A parser can be reset any number of times and keeps its state stack.
+	 */
+	void resetParser(CharSequence wkt) {
 		if (m_function_stack == null)
 			m_function_stack = new AttributeStreamOfInt32(0);
 
+		m_function_stack.resizePreserveCapacity(0);
 		reset_();
-		m_wkt_string = string;
+		m_wkt_string = wkt;
+		m_wkt_length = wkt.length();
+	}
+
+	/**
+	 * Starts parsing WKT encoded as ASCII or UTF-8 bytes, without decoding them to a String first.
+	 */
+	void resetParser(byte[] wkt, int offset, int length) {
+		if (m_ascii_wkt == null)
+			m_ascii_wkt = new AsciiSequence();
+
+		m_ascii_wkt.reset(wkt, offset, length);
+		resetParser(m_ascii_wkt);
 	}
 
 	int nextToken() {
@@ -140,9 +170,7 @@ final class WktParser {
 		if (m_b_nan)
 			return NumberUtils.TheNaN;
 
-		double value = Double.parseDouble(m_wkt_string.substring(m_start_token,
-				m_end_token));
-		return value;
+		return parseNumericLiteral_(m_start_token, m_end_token);
 	}
 
 	int currentToken() {
@@ -157,7 +185,9 @@ final class WktParser {
 		return m_b_has_ms;
 	}
 
-	private String m_wkt_string;
+	private CharSequence m_wkt_string;
+	private int m_wkt_length;
+	private AsciiSequence m_ascii_wkt;
 	private int m_start_token;
 	private int m_end_token;
 	private int m_current_token_type;
@@ -221,45 +251,31 @@ final class WktParser {
 		m_start_token = m_end_token;
 		m_function_stack.removeLast();
 
-		if (m_start_token + 5 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token, "point", 0,
-						5)) {
+		if (matches_("point")) {
 			m_end_token = m_start_token + 5;
 			m_current_token_type = WktToken.point;
 			m_function_stack.add(State.pointStart);
-		} else if (m_start_token + 10 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token,
-						"linestring", 0, 10)) {
+		} else if (matches_("linestring")) {
 			m_end_token = m_start_token + 10;
 			m_current_token_type = WktToken.linestring;
 			m_function_stack.add(State.lineStringStart);
-		} else if (m_start_token + 10 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token,
-						"multipoint", 0, 10)) {
+		} else if (matches_("multipoint")) {
 			m_end_token = m_start_token + 10;
 			m_current_token_type = WktToken.multipoint;
 			m_function_stack.add(State.multiPointStart);
-		} else if (m_start_token + 7 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token, "polygon",
-						0, 7)) {
+		} else if (matches_("polygon")) {
 			m_end_token = m_start_token + 7;
 			m_current_token_type = WktToken.polygon;
 			m_function_stack.add(State.polygonStart);
-		} else if (m_start_token + 15 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token,
-						"multilinestring", 0, 15)) {
+		} else if (matches_("multilinestring")) {
 			m_end_token = m_start_token + 15;
 			m_current_token_type = WktToken.multilinestring;
 			m_function_stack.add(State.multiLineStringStart);
-		} else if (m_start_token + 12 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token,
-						"multipolygon", 0, 12)) {
+		} else if (matches_("multipolygon")) {
 			m_end_token = m_start_token + 12;
 			m_current_token_type = WktToken.multipolygon;
 			m_function_stack.add(State.multiPolygonStart);
-		} else if (m_start_token + 18 <= m_wkt_string.length()
-				&& m_wkt_string.regionMatches(true, m_start_token,
-						"geometrycollection", 0, 18)) {
+		} else if (matches_("geometrycollection")) {
 			m_end_token = m_start_token + 18;
 			m_current_token_type = WktToken.geometrycollection;
 			m_function_stack.add(State.geometryCollectionStart);
@@ -287,7 +303,7 @@ final class WktParser {
 				|| m_wkt_string.charAt(m_end_token) == 'Z') {
 			b_has_zs = true;
 
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 		}
 
@@ -295,7 +311,7 @@ final class WktParser {
 				|| m_wkt_string.charAt(m_end_token) == 'M') {
 			b_has_ms = true;
 
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 		}
 
@@ -573,7 +589,7 @@ final class WktParser {
 	}
 
 	private boolean nan_() {
-		if (m_wkt_string.regionMatches(true, m_start_token, "nan", 0, 3)) {
+		if (matches_("nan")) {
 			m_end_token += 3;
 			m_b_nan = true;
 			return true;
@@ -587,7 +603,7 @@ final class WktParser {
 		// Optional - or + sign
 		if (m_wkt_string.charAt(m_end_token) == '-'
 				|| m_wkt_string.charAt(m_end_token) == '+') {
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 		}
 	}
@@ -614,7 +630,7 @@ final class WktParser {
 
 			// Optional
 			if (m_wkt_string.charAt(m_end_token) == '.') {
-				if (++m_end_token >= m_wkt_string.length())
+				if (++m_end_token >= m_wkt_length)
 					throw new IllegalArgumentException();
 
 				// Optional
@@ -622,7 +638,7 @@ final class WktParser {
 					digits_();
 			}
 		} else if (m_wkt_string.charAt(m_end_token) == '.') {
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 
 			if (!Character.isDigit(m_wkt_string.charAt(m_end_token)))
@@ -636,7 +652,7 @@ final class WktParser {
 
 	private void digits_() {
 		do {
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 
 		} while (Character.isDigit(m_wkt_string.charAt(m_end_token)));
@@ -646,7 +662,7 @@ final class WktParser {
 		// This is an optional state
 		if (m_wkt_string.charAt(m_end_token) == 'e'
 				|| m_wkt_string.charAt(m_end_token) == 'E') {
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 
 			sign_(); // optional
@@ -659,17 +675,17 @@ final class WktParser {
 	}
 
 	private void skipWhiteSpace_() {
-		if (m_end_token >= m_wkt_string.length())
+		if (m_end_token >= m_wkt_length)
 			throw new IllegalArgumentException();
 
 		while (Character.isWhitespace(m_wkt_string.charAt(m_end_token))) {
-			if (++m_end_token >= m_wkt_string.length())
+			if (++m_end_token >= m_wkt_length)
 				throw new IllegalArgumentException();
 		}
 	}
 
 	private boolean empty_() {
-		if (m_wkt_string.regionMatches(true, m_start_token, "empty", 0, 5)) {
+		if (matches_("empty")) {
 			m_end_token += 5;
 			m_current_token_type = WktToken.empty;
 			return true;
@@ -707,4 +723,146 @@ final class WktParser {
 		return false;
 	}
 
+	/**
+	 * Case insensitive match of a lower case keyword at the start of the current token.
+	 */
+	private boolean matches_(String keyword) {
+		int length = keyword.length();
+		if (m_start_token < 0 || m_start_token + length > m_wkt_length)
+			return false;
+
+		for (int i = 0; i < length; i++) {
+			char c = m_wkt_string.charAt(m_start_token + i);
+			if (c != keyword.charAt(i) && Character.toLowerCase(c) != keyword.charAt(i))
+				return false;
+		}
+
+		return true;
+	}
+
+	private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4,
+			1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+			1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	/**
+	 * Parses the numeric literal between start and end, which the tokenizer has already validated.
+	 *
+	 * When the significant digits fit in the 53 bit mantissa of a double and the decimal exponent is at most 22, which
+	 * covers nearly all coordinates, the literal is converted with a single correctly rounded multiplication or
+	 * division. That gives the same double as Double.parseDouble. Anything else falls back to Double.parseDouble.
+	 */
+	private double parseNumericLiteral_(int start, int end) {
+		int i = start;
+		boolean b_negative = false;
+		char c = m_wkt_string.charAt(i);
+		if (c == '-' || c == '+') {
+			b_negative = c == '-';
+			i++;
+		}
+
+		long mantissa = 0;
+		int significant_digits = 0;
+		int scale = 0;
+		boolean b_fraction = false;
+		for (; i < end; i++) {
+			c = m_wkt_string.charAt(i);
+			if (c == '.') {
+				b_fraction = true;
+				continue;
+			}
+
+			if (c < '0' || c > '9')
+				break;
+
+			if (mantissa != 0 || c != '0') {
+				if (++significant_digits > 18)
+					return parseNumericLiteralSlow_(start, end);
+
+				mantissa = mantissa * 10 + (c - '0');
+			}
+
+			if (b_fraction)
+				scale--;
+		}
+
+		if (i < end) {
+			// exponent
+			i++;
+			boolean b_negative_exponent = false;
+			c = m_wkt_string.charAt(i);
+			if (c == '-' || c == '+') {
+				b_negative_exponent = c == '-';
+				i++;
+			}
+
+			int exponent = 0;
+			for (; i < end; i++) {
+				exponent = exponent * 10 + (m_wkt_string.charAt(i) - '0');
+				if (exponent > 1000)
+					return parseNumericLiteralSlow_(start, end);
+			}
+
+			scale += b_negative_exponent ? -exponent : exponent;
+		}
+
+		if (mantissa > MAX_EXACT_MANTISSA)
+			return parseNumericLiteralSlow_(start, end);
+
+		double value;
+		if (mantissa == 0)
+			value = 0.0;
+		else if (scale == 0)
+			value = mantissa;
+		else if (scale > 0 && scale < POWERS_OF_TEN.length)
+			value = mantissa * POWERS_OF_TEN[scale];
+		else if (scale < 0 && -scale < POWERS_OF_TEN.length)
+			value = mantissa / POWERS_OF_TEN[-scale];
+		else
+			return parseNumericLiteralSlow_(start, end);
+
+		return b_negative ? -value : value;
+	}
+
+	private double parseNumericLiteralSlow_(int start, int end) {
+		return Double.parseDouble(m_wkt_string.subSequence(start, end).toString());
+	}
+
+	/**
+	 * A CharSequence view of ASCII or UTF-8 encoded WKT. The WKT grammar is ASCII only, so every byte is one char.
+	 */
+	private static final class AsciiSequence implements CharSequence {
+		private byte[] m_bytes;
+		private int m_offset;
+		private int m_length;
+
+		void reset(byte[] bytes, int offset, int length) {
+			if (offset < 0 || length < 0 || offset + length > bytes.length)
+				throw new IllegalArgumentException();
+
+			m_bytes = bytes;
+			m_offset = offset;
+			m_length = length;
+		}
+
+		@Override
+		public int length() {
+			return m_length;
+		}
+
+		@Override
+		public char charAt(int index) {
+			return (char) (m_bytes[m_offset + index] & 0xFF);
+		}
+
+		@Override
+		public CharSequence subSequence(int start, int end) {
+			return new String(m_bytes, m_offset + start, end - start, StandardCharsets.ISO_8859_1);
+		}
+
+		@Override
+		public String toString() {
+			return new String(m_bytes, m_offset, m_length, StandardCharsets.ISO_8859_1);
+		}
+	}
 }
@@ -27,6 +27,11 @@ package com.esri.core.geometry;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
 import com.esri.core.geometry.ogc.OGCGeometry;
 
 public class TestBuffer extends TestCase {
@@ -413,5 +418,90 @@ public class TestBuffer extends TestCase {
 		}
 		
 		
-	}		
+	}
+
+	@Test
+	public void testParallelBufferCursor() {
+		final SpatialReference sr = SpatialReference.create(3857);
+		List<Geometry> inputs = new ArrayList<Geometry>();
+		for (int i = 0; i < 100; i++) {
+			if (i % 2 == 0) {
+				inputs.add(new Point(i * 10, -i));
+			} else {
+				Polyline polyline = new Polyline();
+				polyline.startPath(i, 0);
+				polyline.lineTo(i + 5, 7);
+				polyline.lineTo(i, 14);
+				inputs.add(polyline);
+			}
+		}
+
+		final double[] distances = {2.5};
+		GeometryCursor serial = OperatorBuffer.local().execute(new SimpleGeometryCursor(inputs), sr, distances, false, null);
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			GeometryCursor parallel = new ParallelGeometryCursor(new SimpleGeometryCursor(inputs),
+					cursor -> OperatorBuffer.local().execute(cursor, sr, distances, false, null), 7, pool);
+			int count = 0;
+			while (parallel.hasNext()) {
+				Geometry result = parallel.next();
+				serial.next();
+				assertEquals(serial.getGeometryID(), parallel.getGeometryID());
+				assertEquals(count, parallel.getGeometryID());
+				// the serial cursor reuses its bufferer, so compare with the buffer of the single geometry
+				assertTrue(result.equals(OperatorBuffer.local().execute(inputs.get(count), sr, 2.5, null)));
+				count++;
+			}
+			assertEquals(inputs.size(), count);
+			assertNull(parallel.next());
+
+			// an input cursor that only has geometries once they arrive, like a stream
+			final ArrayDeque<Geometry> arrived = new ArrayDeque<Geometry>();
+			GeometryCursor stream = new GeometryCursor() {
+				int m_id = -1;
+
+				@Override
+				public Geometry next() {
+					m_id++;
+					return arrived.poll();
+				}
+
+				@Override
+				public int getGeometryID() {
+					return m_id;
+				}
+
+				@Override
+				public String getFeatureID() {
+					return "feature " + m_id;
+				}
+
+				@Override
+				public SimpleStateEnum getSimpleState() {
+					return SimpleStateEnum.SIMPLE_UNKNOWN;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return !arrived.isEmpty();
+				}
+			};
+			parallel = new ParallelGeometryCursor(stream,
+					cursor -> OperatorBuffer.local().execute(cursor, sr, distances, false, null), 2, pool);
+			assertFalse(parallel.hasNext());
+			arrived.addAll(inputs.subList(0, 3));
+			for (int i = 0; i < 3; i++) {
+				assertTrue(parallel.next().equals(OperatorBuffer.local().execute(inputs.get(i), sr, 2.5, null)));
+				assertEquals("feature " + i, parallel.getFeatureID());
+			}
+			assertFalse(parallel.hasNext());
+			arrived.add(inputs.get(3));
+			assertTrue(parallel.hasNext());
+			assertTrue(parallel.next().equals(OperatorBuffer.local().execute(inputs.get(3), sr, 2.5, null)));
+			assertEquals(3, parallel.getGeometryID());
+			assertFalse(parallel.hasNext());
+		} finally {
+			pool.shutdown();
+		}
+	}
 }
@@ -74,6 +74,7 @@ public class TestEstimateMemorySize {
 		assertEquals(getInstanceSize(SimpleRasterizer.Edge.class), SizeOf.SIZE_OF_EDGE);
 		assertEquals(getInstanceSize(QuadTreeImpl.class), SizeOf.SIZE_OF_QUAD_TREE_IMPL);
 		assertEquals(getInstanceSize(QuadTreeImpl.Data.class), SizeOf.SIZE_OF_DATA);
+		assertEquals(getInstanceSize(PackedRTree.class), SizeOf.SIZE_OF_PACKED_R_TREE);
 		assertEquals(getInstanceSize(StridedIndexTypeCollection.class), SizeOf.SIZE_OF_STRIDED_INDEX_TYPE_COLLECTION);
 	}
 
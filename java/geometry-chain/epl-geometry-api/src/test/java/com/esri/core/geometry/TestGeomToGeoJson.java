@@ -33,9 +33,13 @@ import com.esri.core.geometry.ogc.OGCConcreteGeometryCollection;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 public class TestGeomToGeoJson extends TestCase {
 	OperatorFactoryLocal factory = OperatorFactoryLocal.getInstance();
@@ -455,4 +459,188 @@ public class TestGeomToGeoJson extends TestCase {
 	//        assertEquals("{\"bbox\":[-180.0,-90.0,180.0,90.0]}", result);
 	//    }
 
+	@Test
+	public void testExportUtf8RoundTrip() {
+		Polygon polygon = new Polygon();
+		polygon.startPath(-122.41941550000001, 37.7749295);
+		polygon.lineTo(-122.4, 37.8);
+		polygon.lineTo(0.1, 1e-7);
+		polygon.lineTo(123456789012345680000.0, -0.0);
+		polygon.startPath(1, 1);
+		polygon.lineTo(1, 2);
+		polygon.lineTo(2, 2);
+		Geometry[] geometries = {polygon, new Point(1.5, -2.25, 3), new Point(), new Envelope(1, 2, 3, 4)};
+
+		OperatorExportToGeoJson exporter = OperatorExportToGeoJson.local();
+		OperatorImportFromGeoJson importer = OperatorImportFromGeoJson.local();
+		ByteBufferCursor cursor = exporter.executeUtf8(0, SpatialReference.create(4326), new SimpleGeometryCursor(geometries), true);
+		for (Geometry geometry : geometries) {
+			ByteBuffer buffer = cursor.next();
+			String geoJson = new String(buffer.array(), buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+			assertEquals(geoJson, new String(exporter.executeUtf8(0, SpatialReference.create(4326), geometry), StandardCharsets.UTF_8));
+			assertEquals(exporter.execute(0, SpatialReference.create(4326), geometry), geoJson);
+
+			MapGeometry imported = importer.execute(0, Geometry.Type.Unknown, geoJson, null);
+			MapGeometry expected = importer.execute(0, Geometry.Type.Unknown, exporter.execute(0, SpatialReference.create(4326), geometry), null);
+			assertTrue(expected.getGeometry().equals(imported.getGeometry()));
+			assertEquals(4326, imported.getSpatialReference().getID());
+		}
+		assertNull(cursor.next());
+
+		String geoJson = new String(exporter.executeUtf8(GeoJsonExportFlags.geoJsonExportSkipCRS
+				| GeoJsonExportFlags.geoJsonExportShortestDoubles, null, polygon), StandardCharsets.UTF_8);
+		assertEquals("{\"type\":\"Polygon\",\"coordinates\":[[[-122.41941550000001,37.7749295],[1.2345678901234568E20,-0],[0.1,0.0000001],[-122.4,37.8],[-122.41941550000001,37.7749295]],[[1,1],[2,2],[1,2],[1,1]]]}", geoJson);
+	}
+
+	@Test
+	public void testExportUtf8Doubles() {
+		Random random = new Random(1973);
+		for (int i = 0; i < 5000; i++) {
+			double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+			if (i % 2 == 0)
+				value = Math.round(value * 1e7) / 1e7;
+
+			JsonByteWriter writer = new JsonByteWriter(true);
+			writer.startArray();
+			writer.addValueDouble(value);
+			writer.endArray();
+			String json = new String(writer.toByteArray(), StandardCharsets.UTF_8);
+			assertEquals(json, value, Double.parseDouble(json.substring(1, json.length() - 1)));
+		}
+
+		JsonByteWriter writer = new JsonByteWriter(true);
+		writer.startArray();
+		writer.addValueDouble(-122.419415549, 6, true);
+		writer.addValueDouble(0.000123456, 3, false);
+		writer.addValueDouble(123456.7, 3, false);
+		writer.addValueDouble(2.5, 0, true);
+		writer.addValueDouble(NumberUtils.NaN());
+		writer.endArray();
+		assertEquals("[-122.419416,0.000123,123000,3,null]", new String(writer.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testExportUtf8DoublesLikeStringWriter() {
+		// by default the byte writer formats doubles like the string writer, including the exponent forms
+		Random random = new Random(1974);
+		double[] values = new double[3000];
+		for (int i = 0; i < values.length; i++)
+			values[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(40) - 20);
+		System.arraycopy(new double[]{0, -0.0, 1e-5, 1.5e-7, 1e17, 2.675, 0.125, -179.99999999999997,
+				Double.POSITIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, NumberUtils.NaN()}, 0, values, 0, 12);
+
+		int[] precisions = {17, 15, 6, 3, 1, 0};
+		JsonStringWriter stringWriter = new JsonStringWriter();
+		JsonByteWriter byteWriter = new JsonByteWriter();
+		stringWriter.startArray();
+		byteWriter.startArray();
+		for (double value : values) {
+			stringWriter.addValueDouble(value);
+			byteWriter.addValueDouble(value);
+			for (int precision : precisions) {
+				stringWriter.addValueDouble(value, precision, false);
+				byteWriter.addValueDouble(value, precision, false);
+				stringWriter.addValueDouble(value, precision, true);
+				byteWriter.addValueDouble(value, precision, true);
+			}
+		}
+		stringWriter.endArray();
+		byteWriter.endArray();
+		assertEquals(stringWriter.getJson(), new String(byteWriter.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testExportUtf8Strings() {
+		String[] values = {"plain", "quote \" and \\ and </tag>", "\b\f\n\r\t\u0001", "caf\u00e9 \u6771\u4eac \ud83c\udf0d"};
+		JsonByteWriter byteWriter = new JsonByteWriter();
+		for (String value : values) {
+			JsonStringWriter stringWriter = new JsonStringWriter();
+			stringWriter.startObject();
+			stringWriter.addPairString("name", value);
+			stringWriter.addPairBoolean("flag", true);
+			stringWriter.addPairInt("count", -42);
+			stringWriter.endObject();
+
+			byteWriter.reset();
+			byteWriter.startObject();
+			byteWriter.addPairString("name", value);
+			byteWriter.addPairBoolean("flag", true);
+			byteWriter.addPairInt("count", -42);
+			byteWriter.endObject();
+
+			String expected = (String) stringWriter.getJson();
+			// the string writer leaves other control characters unescaped, which is not valid JSON
+			expected = expected.replace("\u0001", "\\u0001");
+			assertEquals(expected, new String(byteWriter.toByteArray(), StandardCharsets.UTF_8));
+		}
+	}
+
+	@Test
+	public void testImportFeatureCollection() {
+		String featureCollection = "{\"type\":\"FeatureCollection\",\"crs\":{\"type\":\"name\",\"properties\":{\"name\":\"EPSG:3857\"}},\"features\":["
+				+ "{\"type\":\"Feature\",\"id\":\"a\",\"properties\":{\"name\":\"first\",\"tags\":[1,{\"x\":2}]},\"geometry\":{\"type\":\"Point\",\"coordinates\":[1,2]}},"
+				+ "{\"type\":\"Feature\",\"id\":\"skipped\",\"properties\":null,\"geometry\":null},"
+				+ "{\"geometry\":{\"type\":\"LineString\",\"coordinates\":[[0,0],[3,4]],\"crs\":\"EPSG:4326\"},\"type\":\"Feature\",\"id\":7}"
+				+ "],\"bbox\":[0,0,3,4]}";
+
+		MapGeometryCursor cursor = OperatorImportFromGeoJson.local().executeFeatureCollection(0,
+				new ByteArrayInputStream(featureCollection.getBytes(StandardCharsets.UTF_8)), null);
+
+		assertTrue(cursor.hasNext());
+		MapGeometry first = cursor.next();
+		assertEquals("a", cursor.getFeatureID());
+		assertEquals(0, cursor.getGeometryID());
+		assertTrue(first.getGeometry().equals(new Point(1, 2)));
+		assertEquals(3857, first.getSpatialReference().getID());
+
+		MapGeometry second = cursor.next();
+		assertEquals("7", cursor.getFeatureID());
+		assertEquals(2, cursor.getGeometryID());
+		assertEquals(5.0, second.getGeometry().calculateLength2D());
+		assertEquals(4326, second.getSpatialReference().getID());
+
+		assertFalse(cursor.hasNext());
+		assertNull(cursor.next());
+	}
+
+	@Test
+	public void testImportFeatureCollectionByteBuffer() {
+		StringBuilder builder = new StringBuilder("{\"features\":[");
+		for (int i = 0; i < 1000; i++) {
+			if (i > 0)
+				builder.append(',');
+			builder.append("{\"type\":\"Feature\",\"id\":\"f").append(i).append("\",\"geometry\":{\"type\":\"Point\",\"coordinates\":[")
+					.append(i).append(",-").append(i).append("]}}");
+		}
+		builder.append("],\"type\":\"FeatureCollection\"}");
+		byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+
+		ByteBuffer heap = ByteBuffer.wrap(bytes);
+		ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+		direct.put(bytes).flip();
+		for (ByteBuffer buffer : new ByteBuffer[] {heap, direct}) {
+			MapGeometryCursor cursor = OperatorImportFromGeoJson.local().executeFeatureCollection(
+					GeoJsonImportFlags.geoJsonImportNoWGS84Default, buffer, null);
+			int count = 0;
+			while (cursor.hasNext()) {
+				MapGeometry mapGeometry = cursor.next();
+				assertEquals("f" + count, cursor.getFeatureID());
+				assertEquals(count, cursor.getGeometryID());
+				assertTrue(mapGeometry.getGeometry().equals(new Point(count, -count)));
+				assertNull(mapGeometry.getSpatialReference());
+				count++;
+			}
+			assertEquals(1000, count);
+			assertEquals(0, buffer.position());
+		}
+
+		try {
+			OperatorImportFromGeoJson.local().executeFeatureCollection(0,
+					ByteBuffer.wrap("{\"type\":\"Feature\"}".getBytes(StandardCharsets.UTF_8)), null).hasNext();
+			fail();
+		} catch (JsonGeometryException ex) {
+			// not a FeatureCollection
+		}
+	}
+
 }
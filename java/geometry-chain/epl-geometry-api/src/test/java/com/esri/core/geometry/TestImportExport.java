@@ -1336,6 +1336,71 @@ public class TestImportExport extends TestCase {
 		assertTrue(polygon.isEmpty());
 	}
 
+	@Test
+	public static void testExportWkbReusedBuffer() {
+		Geometry[] geometries = new Geometry[]{makePolygon(), makePoint(), makePolyline(), makeMultiPoint()};
+		OperatorExportToWkb exporterWKB = OperatorExportToWkb.local();
+		OperatorExportToEWkb exporterEWKB = OperatorExportToEWkb.local();
+		SpatialReference spatialReference = SpatialReference.create(4326);
+
+		for (boolean bDirect : new boolean[]{false, true}) {
+			ByteBufferCursor wkbCursor = exporterWKB.execute(0, new SimpleGeometryCursor(geometries), true, bDirect);
+			ByteBufferCursor ewkbCursor = exporterEWKB.execute(0, new SimpleGeometryCursor(geometries), spatialReference, true, bDirect);
+			ByteBuffer first = null;
+			for (Geometry geometry : geometries) {
+				ByteBuffer wkbBuffer = wkbCursor.next();
+				assertEquals(bDirect, wkbBuffer.isDirect());
+				// the polygon is the largest geometry, so its buffer is reused for all of the others
+				if (first == null)
+					first = wkbBuffer;
+				assertTrue(first == wkbBuffer);
+				assertEquals(0, wkbBuffer.position());
+				assertEquals(exporterWKB.execute(0, geometry, null), wkbBuffer);
+
+				ByteBuffer ewkbBuffer = ewkbCursor.next();
+				assertEquals(exporterEWKB.execute(0, geometry, spatialReference, null), ewkbBuffer);
+			}
+			assertNull(wkbCursor.next());
+			assertNull(ewkbCursor.next());
+		}
+	}
+
+	@Test
+	public static void testExportWkbPooledBuffer() {
+		OperatorExportToWkb exporterWKB = OperatorExportToWkb.local();
+		OperatorExportToEWkb exporterEWKB = OperatorExportToEWkb.local();
+		Polygon polygon = makePolygon();
+
+		for (boolean bDirect : new boolean[]{false, true}) {
+			ByteBufferPool pool = new ByteBufferPool(bDirect, 2);
+			ByteBuffer wkbBuffer = exporterWKB.execute(0, polygon, pool, null);
+			assertEquals(bDirect, wkbBuffer.isDirect());
+			assertEquals(ByteOrder.nativeOrder(), wkbBuffer.order());
+			assertEquals(exporterWKB.execute(0, polygon, null), wkbBuffer);
+			pool.release(wkbBuffer);
+
+			ByteBuffer ewkbBuffer = exporterEWKB.execute(0, polygon, SpatialReference.create(4326), pool, null);
+			assertTrue(wkbBuffer == ewkbBuffer);
+			assertEquals(exporterEWKB.execute(0, polygon, SpatialReference.create(4326), null), ewkbBuffer);
+
+			Geometry imported = OperatorImportFromWkb.local().execute(0, Geometry.Type.Unknown, exporterWKB.execute(0, polygon, pool, null), null);
+			assertTrue(imported.equals(polygon));
+		}
+
+		// buffers of a size class beyond the pool limit are dropped
+		ByteBufferPool pool = new ByteBufferPool(false, 1);
+		ByteBuffer a = pool.acquire(100);
+		ByteBuffer b = pool.acquire(100);
+		assertEquals(100, a.limit());
+		assertEquals(128, a.capacity());
+		pool.release(a);
+		pool.release(b);
+		assertTrue(pool.acquire(70) == a);
+		assertTrue(pool.acquire(70) != b);
+		pool.release(ByteBuffer.allocate(100));
+		assertTrue(pool.acquire(100).capacity() == 128);
+	}
+
 	@Test
 	public static void testImportExportWktGeometryCollection() {
 		OperatorImportFromWkt importerWKT = (OperatorImportFromWkt) OperatorFactoryLocal.getInstance().getOperator(Operator.Type.ImportFromWkt);
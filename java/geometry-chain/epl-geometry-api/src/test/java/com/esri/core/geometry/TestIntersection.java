@@ -24,6 +24,10 @@
 
 package com.esri.core.geometry;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 import junit.framework.TestCase;
 
 import org.junit.Test;
@@ -1066,6 +1070,116 @@ public class TestIntersection extends TestCase {
             assertTrue(eq);
         }
 
+	@Test
+	public void testIndexedIntersector() {
+		// a wavy polygon with a round hole and small islands around it
+		Polygon polygon = new Polygon();
+		addCircle_(polygon, 0, 0, 90, 5, 4000, false);
+		addCircle_(polygon, 0, 0, 20, 0, 1000, true);
+		for (int i = 0; i < 200; i++) {
+			double angle = 2 * Math.PI * i / 200;
+			addCircle_(polygon, 100 * Math.cos(angle), 100 * Math.sin(angle), 1.5, 0, 16, false);
+		}
+		assertIndexedIntersector_(polygon);
+
+		// a single jagged ring, as the border of a country, with vertices on the corners of the squares below
+		Polygon country = new Polygon();
+		Random random = new Random(1);
+		for (int i = 0; i < 4000; i++) {
+			double angle = -2 * Math.PI * i / 4000;
+			double radius = 60 + 40 * Math.sin(7 * angle) + 5 * random.nextDouble();
+			double x = radius * Math.cos(angle);
+			double y = radius * Math.sin(angle);
+			if (i % 10 == 0) {
+				x = -110 + 7.3 * Math.round((x + 110) / 7.3);
+				y = -110 + 7.3 * Math.round((y + 110) / 7.3);
+			}
+			if (i == 0)
+				country.startPath(x, y);
+			else
+				country.lineTo(x, y);
+		}
+		assertIndexedIntersector_(country);
+
+		// a wavy spiral
+		Polyline polyline = new Polyline();
+		int pointCount = 5000;
+		for (int i = 0; i < pointCount; i++) {
+			double angle = 12 * Math.PI * i / pointCount;
+			double radius = 5 + 95.0 * i / pointCount + 2 * Math.sin(50 * angle);
+			if (i == 0)
+				polyline.startPath(radius * Math.cos(angle), radius * Math.sin(angle));
+			else
+				polyline.lineTo(radius * Math.cos(angle), radius * Math.sin(angle));
+		}
+		assertIndexedIntersector_(polyline);
+	}
+
+	private static void addCircle_(Polygon polygon, double x, double y, double radius, double wave, int pointCount,
+	                               boolean bHole) {
+		for (int i = 0; i < pointCount; i++) {
+			double angle = (bHole ? 2 : -2) * Math.PI * i / pointCount;
+			double r = radius + wave * Math.sin(40 * angle);
+			if (i == 0)
+				polygon.startPath(x + r * Math.cos(angle), y + r * Math.sin(angle));
+			else
+				polygon.lineTo(x + r * Math.cos(angle), y + r * Math.sin(angle));
+		}
+	}
+
+	// intersects small squares and lines all over the intersector, and checks
+	// that the indexed results have exactly the vertices of the unindexed ones
+	private static void assertIndexedIntersector_(MultiPath intersector) {
+		List<Geometry> inputs = new ArrayList<Geometry>();
+		for (int i = 0; i < 31; i += 2) {
+			for (int j = 0; j < 31; j += 2) {
+				double x = -110 + 7.3 * i;
+				double y = -110 + 7.3 * j;
+				Polygon square = new Polygon();
+				square.addEnvelope(new Envelope2D(x, y, x + 3, y + 3), false);
+				inputs.add(square);
+				Polyline line = new Polyline();
+				line.startPath(x, y + 3);
+				line.lineTo(x + 4, y + 5);
+				inputs.add(line);
+			}
+		}
+
+		SpatialReference sr = SpatialReference.create(4326);
+		OperatorIntersection intersection = OperatorIntersection.local();
+		OperatorIntersectionCursor cursor = (OperatorIntersectionCursor) intersection.execute(
+				new SimpleGeometryCursor(inputs), new SimpleGeometryCursor(intersector), sr, null);
+		int nonEmpty = 0;
+		for (Geometry input : inputs) {
+			Geometry indexed = cursor.next();
+			Geometry expected = intersection.execute(input, intersector, sr, null);
+			assertEquals(expected.getType(), indexed.getType());
+			assertEquals(expected.isEmpty(), indexed.isEmpty());
+			if (!expected.isEmpty()) {
+				nonEmpty++;
+				MultiVertexGeometry expectedVertices = (MultiVertexGeometry) expected;
+				MultiVertexGeometry indexedVertices = (MultiVertexGeometry) indexed;
+				assertEquals(expectedVertices.getPointCount(), indexedVertices.getPointCount());
+				for (int i = 0; i < expectedVertices.getPointCount(); i++)
+					assertEquals(expectedVertices.getXY(i), indexedVertices.getXY(i));
+				if (expected instanceof MultiPath) {
+					MultiPath expectedPaths = (MultiPath) expected;
+					MultiPath indexedPaths = (MultiPath) indexed;
+					assertEquals(expectedPaths.getPathCount(), indexedPaths.getPathCount());
+					for (int i = 0; i < expectedPaths.getPathCount(); i++)
+						assertEquals(expectedPaths.getPathStart(i), indexedPaths.getPathStart(i));
+				}
+			}
+		}
+		assertNull(cursor.next());
+		assertTrue(nonEmpty > 0);
+
+		// the small extents were clipped from parts of the intersector
+		assertNotNull(cursor.m_intersectorIndex);
+		MultiPath part = cursor.m_intersectorIndex.query(new Envelope2D(60, 60, 63, 63));
+		assertTrue(part.getPointCount() * 4 < intersector.getPointCount());
+	}
+
         /*
         Point2D uniqueIntersectionPointOfNonDisjointGeometries(Geometry g1, Geometry g2, SpatialReference sr) {
         	Geometry g1Test = g1;
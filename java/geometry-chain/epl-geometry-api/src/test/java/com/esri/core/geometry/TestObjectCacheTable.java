@@ -0,0 +1,100 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+public class TestObjectCacheTable extends TestCase {
+	@Test
+	public void testLeastRecentlyUsed() {
+		ObjectCacheTable<Integer, String> cache = new ObjectCacheTable<>(3);
+		cache.add(1, "1");
+		cache.add(2, "2");
+		cache.add(3, "3");
+		assertEquals("1", cache.get(1));
+		cache.add(4, "4");
+
+		// 2 was used least recently
+		assertFalse(cache.contains(2));
+		assertTrue(cache.contains(1));
+		assertTrue(cache.contains(3));
+		assertTrue(cache.contains(4));
+		assertEquals(3, cache.size());
+		assertEquals(1, cache.getEvictions());
+
+		assertNull(cache.get(2));
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+
+		AtomicInteger created = new AtomicInteger();
+		assertEquals("5", cache.getOrCreate(5, key -> {
+			created.incrementAndGet();
+			return key.toString();
+		}));
+		assertEquals("5", cache.getOrCreate(5, key -> {
+			created.incrementAndGet();
+			return key.toString();
+		}));
+		assertEquals(1, created.get());
+		assertEquals(2, cache.getEvictions());
+
+		// the most recently used entries are kept
+		cache.setMaxSize(1);
+		assertEquals(1, cache.size());
+		assertTrue(cache.contains(5));
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+		assertEquals(0, cache.getEvictions());
+	}
+
+	@Test
+	public void testConcurrentAccess() throws InterruptedException {
+		final int maxSize = 256;
+		final ObjectCacheTable<Integer, Integer> cache = new ObjectCacheTable<>(maxSize);
+		List<Thread> threads = new ArrayList<>();
+		final AtomicInteger failures = new AtomicInteger();
+		for (int t = 0; t < 8; t++) {
+			final int seed = t;
+			Thread thread = new Thread(() -> {
+				for (int i = 0; i < 20000; i++) {
+					int key = (i * 31 + seed * 7) % 1024;
+					if (cache.getOrCreate(key, k -> k * 2) != key * 2)
+						failures.incrementAndGet();
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+
+		assertEquals(0, failures.get());
+		assertTrue(cache.size() <= maxSize);
+		assertEquals(8 * 20000, cache.getHits() + cache.getMisses());
+		assertTrue(cache.getEvictions() > 0);
+	}
+}
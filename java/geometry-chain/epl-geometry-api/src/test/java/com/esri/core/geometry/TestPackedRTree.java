@@ -0,0 +1,209 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: davidraleigh@gmail.com
+*/
+
+package com.esri.core.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.junit.Test;
+
+public class TestPackedRTree extends TestCase {
+	@Test
+	public void testEnvelopeQuery() {
+		Random random = new Random(7);
+		int count = 5000;
+		int[] elements = new int[count];
+		Envelope2D[] boxes = new Envelope2D[count];
+		for (int i = 0; i < count; i++) {
+			elements[i] = 3 * i;
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 1000;
+			boxes[i] = Envelope2D.construct(x, y, x + random.nextDouble() * 10, y + random.nextDouble() * 10);
+		}
+
+		PackedRTree tree = new PackedRTree(elements, boxes);
+		assertEquals(count, tree.getElementCount());
+		PackedRTree.PackedRTreeIterator iterator = tree.getIterator();
+		for (int q = 0; q < 200; q++) {
+			double x = random.nextDouble() * 1000;
+			double y = random.nextDouble() * 1000;
+			Envelope2D query = Envelope2D.construct(x, y, x + random.nextDouble() * 50, y + random.nextDouble() * 50);
+			double tolerance = q % 2 == 0 ? 0 : 1;
+
+			Envelope2D inflated = Envelope2D.construct(query);
+			inflated.inflate(tolerance, tolerance);
+			List<Integer> expected = new ArrayList<>();
+			for (int i = 0; i < count; i++) {
+				if (boxes[i].isIntersecting(inflated))
+					expected.add(elements[i]);
+			}
+
+			List<Integer> found = new ArrayList<>();
+			iterator.resetIterator(query, tolerance);
+			for (int handle = iterator.next(); handle != -1; handle = iterator.next()) {
+				found.add(tree.getElement(handle));
+				assertTrue(tree.getElementExtent(handle).isIntersecting(inflated));
+			}
+
+			Collections.sort(found);
+			assertEquals(expected, found);
+			assertEquals(expected.size(), tree.getIntersectionCount(query, tolerance, -1));
+			assertEquals(!expected.isEmpty(), tree.hasData(query, tolerance));
+		}
+	}
+
+	@Test
+	public void testSegmentQuery() {
+		Random random = new Random(11);
+		int count = 2000;
+		int[] elements = new int[count];
+		Envelope2D[] boxes = new Envelope2D[count];
+		for (int i = 0; i < count; i++) {
+			elements[i] = i;
+			double x = random.nextDouble() * 100;
+			double y = random.nextDouble() * 100;
+			boxes[i] = Envelope2D.construct(x, y, x + 1, y + 1);
+		}
+
+		PackedRTree tree = new PackedRTree(elements, boxes);
+		Line line = new Line(0, 0, 100, 70);
+		List<Integer> expected = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Point2D start = Point2D.construct(0, 0);
+			Point2D end = Point2D.construct(100, 70);
+			if (Envelope2D.construct(boxes[i]).clipLine(start, end) > 0)
+				expected.add(i);
+		}
+
+		List<Integer> found = new ArrayList<>();
+		PackedRTree.PackedRTreeIterator iterator = tree.getIterator(line, 0);
+		for (int handle = iterator.next(); handle != -1; handle = iterator.next())
+			found.add(tree.getElement(handle));
+
+		Collections.sort(found);
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, found);
+	}
+
+	@Test
+	public void testNearest() {
+		Random random = new Random(5);
+		int count = 3000;
+		int[] elements = new int[count];
+		Point2D[] points = new Point2D[count];
+		Envelope2D[] boxes = new Envelope2D[count];
+		for (int i = 0; i < count; i++) {
+			elements[i] = i;
+			points[i] = Point2D.construct(random.nextDouble() * 1000, random.nextDouble() * 1000);
+			boxes[i] = Envelope2D.construct(points[i].x, points[i].y, points[i].x, points[i].y);
+		}
+
+		PackedRTree tree = new PackedRTree(elements, boxes);
+		for (int q = 0; q < 100; q++) {
+			Point2D query = Point2D.construct(random.nextDouble() * 1200 - 100, random.nextDouble() * 1200 - 100);
+			double[] expected = new double[count];
+			for (int i = 0; i < count; i++)
+				expected[i] = Point2D.distance(query, points[i]);
+			Arrays.sort(expected);
+
+			int k = 1 + q % 10;
+			double maxDistance = q % 3 == 0 ? expected[k / 2] : NumberUtils.doubleMax();
+			double[] distances = new double[k];
+			int[] nearest = tree.getNearest(Envelope2D.construct(query.x, query.y, query.x, query.y), k, maxDistance,
+					handle -> Point2D.distance(query, points[tree.getElement(handle)]), distances);
+			assertEquals(q % 3 == 0 ? k / 2 + 1 : k, nearest.length);
+			for (int i = 0; i < nearest.length; i++) {
+				assertEquals(expected[i], distances[i]);
+				assertEquals(expected[i], Point2D.distance(query, points[tree.getElement(nearest[i])]));
+			}
+		}
+
+		PackedRTree empty = new PackedRTree(new int[0], new double[0]);
+		assertEquals(0, empty.getNearest(Envelope2D.construct(0, 0, 0, 0), 3, 1, handle -> 0, null).length);
+	}
+
+	@Test
+	public void testSmallTrees() {
+		PackedRTree empty = new PackedRTree(new int[0], new double[0]);
+		assertEquals(-1, empty.getIterator(Envelope2D.construct(0, 0, 1, 1), 0).next());
+		assertFalse(empty.hasData(Envelope2D.construct(0, 0, 1, 1), 0));
+
+		PackedRTree single = new PackedRTree(new int[] { 42 }, new double[] { 0, 0, 1, 1 });
+		PackedRTree.PackedRTreeIterator iterator = single.getIterator(Envelope2D.construct(0.5, 0.5, 2, 2), 0);
+		int handle = iterator.next();
+		assertEquals(42, single.getElement(handle));
+		assertEquals(-1, iterator.next());
+		assertFalse(single.hasData(Envelope2D.construct(1.5, 1.5, 2, 2), 0));
+		assertTrue(single.hasData(Envelope2D.construct(1.5, 1.5, 2, 2), 0.5));
+
+		try {
+			new PackedRTree(new int[] { 1 }, new double[] { 0, 0, 1 });
+			fail();
+		} catch (IllegalArgumentException ex) {
+		}
+	}
+
+	@Test
+	public void testPointInPolygon() {
+		// a ring with many vertices and a hole
+		Polygon polygon = new Polygon();
+		int n = 500;
+		for (int i = 0; i < n; i++) {
+			double angle = 2 * Math.PI * i / n;
+			double radius = 100 + 20 * Math.sin(12 * angle);
+			if (i == 0)
+				polygon.startPath(radius * Math.cos(angle), radius * Math.sin(angle));
+			else
+				polygon.lineTo(radius * Math.cos(angle), radius * Math.sin(angle));
+		}
+		polygon.startPath(-20, -20);
+		polygon.lineTo(-20, 20);
+		polygon.lineTo(20, 20);
+		polygon.lineTo(20, -20);
+
+		Polygon accelerated = (Polygon) polygon.copy();
+		assertTrue(((MultiPathImpl) accelerated._getImpl())._buildPackedRTreeAccelerator());
+		PackedRTree rtree = ((MultiPathImpl) accelerated._getImpl())._getAccelerators().getPackedRTree();
+		assertEquals(polygon.getSegmentCount(), rtree.getElementCount());
+
+		Random random = new Random(3);
+		for (int i = 0; i < 2000; i++) {
+			Point2D point = Point2D.construct(random.nextDouble() * 260 - 130, random.nextDouble() * 260 - 130);
+			assertEquals(PointInPolygonHelper.isPointInPolygon(polygon, point, 0),
+					PointInPolygonHelper.isPointInPolygon(accelerated, point, 0));
+		}
+
+		// a vertex is on the boundary
+		Point2D vertex = accelerated.getXY(17);
+		assertEquals(-1, PointInPolygonHelper.isPointInPolygon(accelerated, vertex, 0));
+
+		// multipoint relations build the packed R-tree on a copy of the polygon
+		MultiPoint multiPoint = new MultiPoint();
+		for (int i = 0; i < 200; i++)
+			multiPoint.add(30 + random.nextDouble() * 40, random.nextDouble() * 10);
+		assertTrue(OperatorContains.local().execute(polygon, multiPoint, null, null));
+		multiPoint.add(0, 0);
+		assertFalse(OperatorContains.local().execute(polygon, multiPoint, null, null));
+	}
+}
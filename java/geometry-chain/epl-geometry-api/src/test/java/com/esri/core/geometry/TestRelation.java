@@ -25,6 +25,13 @@
 package com.esri.core.geometry;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
 
 import junit.framework.TestCase;
 
@@ -5528,4 +5535,93 @@ public class TestRelation extends TestCase {
 		boolean res = OperatorDisjoint.local().execute(geometry1.getGeometry(), geometry2.getGeometry(), geometry1.getSpatialReference(), null);
 		assertTrue(!res);
 	}
+
+	@Test
+	public void testRelationMatrix() {
+		// squares on a grid on the left, points and small polygons on the right
+		List<Geometry> left = new ArrayList<Geometry>();
+		for (int i = 0; i < 10; i++) {
+			for (int j = 0; j < 10; j++) {
+				left.add(new Envelope(i * 10, j * 10, i * 10 + 12, j * 10 + 12));
+			}
+		}
+		left.add(new Polygon());
+
+		Random random = new Random(5);
+		List<Geometry> right = new ArrayList<Geometry>();
+		for (int i = 0; i < 300; i++) {
+			double x = random.nextDouble() * 110;
+			double y = random.nextDouble() * 110;
+			if (i % 2 == 0) {
+				right.add(new Point(x, y));
+			} else {
+				Polygon polygon = new Polygon();
+				polygon.startPath(x, y);
+				polygon.lineTo(x + 3, y);
+				polygon.lineTo(x + 3, y + 3);
+				right.add(polygon);
+			}
+		}
+
+		SpatialReference sr = SpatialReference.create(3857);
+		Operator.Type[] types = { Operator.Type.Contains, Operator.Type.Intersects, Operator.Type.Disjoint,
+				Operator.Type.Touches };
+		for (Operator.Type type : types) {
+			OperatorSimpleRelation operator = (OperatorSimpleRelation) OperatorFactoryLocal.getInstance().getOperator(type);
+			RelationMatrix matrix = operator.execute(new SimpleGeometryCursor(left), new SimpleGeometryCursor(right), sr,
+					null);
+			assertEquals(left.size(), matrix.getLeftCount());
+			assertEquals(right.size(), matrix.getRightCount());
+
+			int pairCount = 0;
+			for (int i = 0; i < left.size(); i++) {
+				BitSet row = matrix.getRow(i);
+				for (int j = 0; j < right.size(); j++) {
+					boolean expected = operator.execute(left.get(i), right.get(j), sr, null);
+					assertEquals(type + " " + i + " " + j, expected, matrix.get(i, j));
+					assertEquals(expected, row.get(j));
+					if (expected)
+						pairCount++;
+				}
+			}
+			assertEquals(pairCount, matrix.getPairCount());
+			assertTrue(pairCount > 0);
+
+			int[] pairs = matrix.getPairs();
+			assertEquals(2 * pairCount, pairs.length);
+			for (int k = 0; k < pairCount; k++)
+				assertTrue(matrix.get(pairs[2 * k], pairs[2 * k + 1]));
+		}
+	}
+
+	@Test
+	public void testRelationMatrixPool() {
+		List<Geometry> left = new ArrayList<Geometry>();
+		List<Geometry> right = new ArrayList<Geometry>();
+		for (int i = 0; i < 20; i++) {
+			left.add(new Envelope(i * 10, 0, i * 10 + 12, 12));
+			right.add(new Point(i * 10 + 5, 5));
+		}
+
+		OperatorSimpleRelation operator = (OperatorSimpleRelation) OperatorFactoryLocal.getInstance()
+				.getOperator(Operator.Type.Contains);
+		RelationMatrix expected = operator.execute(new SimpleGeometryCursor(left), new SimpleGeometryCursor(right),
+				null, null);
+		ForkJoinPool pool = new ForkJoinPool(2);
+		try {
+			RelationMatrix matrix = operator.execute(new SimpleGeometryCursor(left), new SimpleGeometryCursor(right),
+					null, pool, null);
+			assertTrue(Arrays.equals(expected.getPairs(), matrix.getPairs()));
+		} finally {
+			pool.shutdown();
+		}
+
+		// the rows are tested on the given pool, so a pool that was shut down rejects them
+		try {
+			operator.execute(new SimpleGeometryCursor(left), new SimpleGeometryCursor(right), null, pool, null);
+			fail("expected RejectedExecutionException");
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
 }
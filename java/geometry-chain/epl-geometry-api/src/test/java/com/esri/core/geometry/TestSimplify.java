@@ -1365,4 +1365,43 @@ public class TestSimplify extends TestCase {
 		assertTrue(equals);
 	}
 
+	@Test
+	public void testTrustedSimpleState() {
+		double tolerance = InternalUtils.calculateToleranceFromGeometry(sr3857, new Envelope(0, 0, 10, 10), false);
+		String square = "POLYGON ((0 0, 0 10, 10 10, 10 0, 0 0))";
+		GeometryCursor cursor = new TrustedSimpleStateCursor(new OperatorImportFromWktCursor(0,
+				new SimpleStringCursor(square, 1, SimpleStateEnum.STRONG_SIMPLE, "")), tolerance);
+		Geometry polygon = cursor.next();
+		assertEquals(MultiVertexGeometryImpl.GeometryXSimple.Strong,
+				((MultiVertexGeometryImpl) polygon._getImpl()).getIsSimple(tolerance));
+		// the state is trusted, so the polygon is returned as it is
+		assertSame(polygon, simplifyOp.execute(polygon, sr3857, false, null));
+		assertTrue(simplifyOp.isSimpleAsFeature(polygon, sr3857, false, null, null));
+
+		// the state is not verified, so a self intersecting polygon marked simple is returned as it is
+		String bowtie = "POLYGON ((0 0, 0 10, 10 0, 10 10, 0 0))";
+		Geometry trusted = new TrustedSimpleStateCursor(new OperatorImportFromWktCursor(0,
+				new SimpleStringCursor(bowtie, 2, SimpleStateEnum.STRONG_SIMPLE, "")), tolerance).next();
+		assertSame(trusted, simplifyOp.execute(trusted, sr3857, false, null));
+		// unless it is forced
+		assertFalse(simplifyOp.isSimpleAsFeature(trusted, sr3857, true, null, null));
+
+		// a state declared with a smaller tolerance than the one of the spatial reference is not trusted
+		Geometry smallTolerance = new TrustedSimpleStateCursor(new OperatorImportFromWktCursor(0,
+				new SimpleStringCursor(bowtie, 3, SimpleStateEnum.STRONG_SIMPLE, "")), tolerance / 10).next();
+		Geometry simplified = simplifyOp.execute(smallTolerance, sr3857, false, null);
+		assertNotSame(smallTolerance, simplified);
+		assertEquals(2, ((Polygon) simplified).getPathCount());
+
+		// non simple states are ignored
+		Geometry nonSimple = new TrustedSimpleStateCursor(new OperatorImportFromWktCursor(0,
+				new SimpleStringCursor(bowtie, 4, SimpleStateEnum.CROSS_OVER, "")), tolerance).next();
+		assertEquals(MultiVertexGeometryImpl.GeometryXSimple.Unknown,
+				((MultiVertexGeometryImpl) nonSimple._getImpl()).getIsSimple(tolerance));
+
+		// a modified geometry loses the state
+		((Polygon) polygon).setXY(1, 0, 11);
+		assertEquals(MultiVertexGeometryImpl.GeometryXSimple.Unknown,
+				((MultiVertexGeometryImpl) polygon._getImpl()).getIsSimple(tolerance));
+	}
 }
@@ -177,4 +177,126 @@ public class TestUnion extends TestCase {
 		assertEquals(new Point2D(3, 4), path.getXY(2));
 		assertEquals(new Point2D(3, 2), path.getXY(3));
 	}
+	@Test
+	public static void testUnionParallelMatchesSerial() {
+		SpatialReference sr = SpatialReference.create(4326);
+		java.util.Random random = new java.util.Random(7);
+		// disjoint stars of many sizes, so the bins of several levels are dissolved together
+		Geometry[] geomArray = new Geometry[240];
+		for (int i = 0; i < geomArray.length; i++) {
+			Polygon polygon = new Polygon();
+			double cx = (i % 20) * 3;
+			double cy = (i / 20) * 3;
+			int pointCount = 4 + random.nextInt(i % 4 == 0 ? 800 : 60);
+			for (int j = 0; j < pointCount; j++) {
+				double a = -2 * Math.PI * j / pointCount;// clockwise exterior rings
+				double r = 0.5 + random.nextDouble();
+				if (j == 0)
+					polygon.startPath(cx + r * Math.cos(a), cy + r * Math.sin(a));
+				else
+					polygon.lineTo(cx + r * Math.cos(a), cy + r * Math.sin(a));
+			}
+			geomArray[i] = polygon;
+		}
+		Geometry parallel = unionParallel(geomArray, sr);
+		assertEquals(Geometry.Type.Polygon, parallel.getType());
+		assertTrue(unionSerial(geomArray, sr).equals(parallel));
+
+		// disjoint polylines
+		geomArray = new Geometry[200];
+		for (int i = 0; i < geomArray.length; i++) {
+			Polyline polyline = new Polyline();
+			polyline.startPath(0, i * 0.5);
+			for (int j = 1, n = 1 + random.nextInt(300); j <= n; j++)
+				polyline.lineTo(j * 0.1, i * 0.5 + random.nextDouble() * 0.4);
+			geomArray[i] = polyline;
+		}
+		assertTrue(unionSerial(geomArray, sr).equals(unionParallel(geomArray, sr)));
+
+		// points and multipoints, with duplicates
+		geomArray = new Geometry[2000];
+		for (int i = 0; i < geomArray.length; i++) {
+			if (i % 2 == 0) {
+				geomArray[i] = new Point(random.nextInt(100), random.nextInt(100));
+			} else {
+				MultiPoint multiPoint = new MultiPoint();
+				for (int j = 0, n = random.nextInt(50); j < n; j++)
+					multiPoint.add(random.nextInt(100), random.nextInt(100));
+				geomArray[i] = multiPoint;
+			}
+		}
+		assertTrue(unionSerial(geomArray, sr).equals(unionParallel(geomArray, sr)));
+	}
+
+	@Test
+	public static void testUnionParallelCrossing() {
+		// overlapping circles. Their crossings are computed from the dissolved bins, so the result is the serial
+		// result up to the last bits of the crossings, and the same on every run.
+		Geometry[] geomArray = new Geometry[400];
+		for (int i = 0; i < geomArray.length; i++) {
+			Polygon polygon = new Polygon();
+			double cx = (i % 20) * 1.5;
+			double cy = (i / 20) * 1.5;
+			for (int j = 0; j < 128; j++) {
+				double a = -2 * Math.PI * j / 128;// clockwise exterior rings
+				if (j == 0)
+					polygon.startPath(cx + Math.cos(a), cy + Math.sin(a));
+				else
+					polygon.lineTo(cx + Math.cos(a), cy + Math.sin(a));
+			}
+			geomArray[i] = polygon;
+		}
+
+		SpatialReference sr = SpatialReference.create(4326);
+		Geometry serial = unionSerial(geomArray, sr);
+		Geometry parallel = unionParallel(geomArray, sr);
+		assertEquals(((Polygon) serial).getPathCount(), ((Polygon) parallel).getPathCount());
+		assertEquals(serial.calculateArea2D(), parallel.calculateArea2D(), 1e-9);
+		assertTrue(OperatorEquals.local().execute(serial, parallel, sr, null));
+		assertTrue(parallel.equals(unionParallel(geomArray, sr)));
+	}
+
+	private static Geometry unionSerial(Geometry[] geomArray, SpatialReference sr) {
+		return OperatorUnion.local().execute(new SimpleGeometryCursor(geomArray), sr, null, false).next();
+	}
+
+	private static Geometry unionParallel(Geometry[] geomArray, SpatialReference sr) {
+		return OperatorUnion.local().execute(new SimpleGeometryCursor(geomArray), sr, null, true).next();
+	}
+
+	@Test
+	public static void testUnionParallelEmptyAndSingle() {
+		GeometryCursor empty = OperatorUnion.local().execute(
+				new SimpleGeometryCursor(new Geometry[0]), null, null, true);
+		assertNull(empty.next());
+
+		Envelope env = new Envelope(10, 10, 30, 50);
+		Geometry result = OperatorUnion.local().execute(
+				new SimpleGeometryCursor(new Geometry[] { env }), null, null, true).next();
+		assertEquals(env.calculateArea2D(), result.calculateArea2D(), 0.0);
+	}
+
+	@Test
+	public static void testUnionTickTock() {
+		ListeningGeometryCursor listening = new ListeningGeometryCursor();
+		GeometryCursor union = OperatorUnion.local().execute(listening, null, null);
+		assertFalse(union.hasNext());
+		for (int i = 0; i < 300; i++) {
+			// clockwise exterior ring with enough vertices for the bins to be dissolved while ticking
+			Polygon polygon = new Polygon();
+			polygon.startPath(i, 0);
+			polygon.lineTo(i, 1);
+			polygon.lineTo(i + 2, 1);
+			for (int j = 100; j > 0; j--)
+				polygon.lineTo(i + j * 0.02, 0);
+			listening.tick(polygon);
+			assertFalse(union.tock());
+			// the input is drained by every tock, the partial union is still to come
+			assertTrue(union.hasNext());
+		}
+
+		Geometry result = union.next();
+		assertEquals(301, result.calculateArea2D(), 1e-9);
+		assertFalse(union.hasNext());
+	}
 }
@@ -29,6 +29,11 @@ import junit.framework.TestCase;
 
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public class TestWktParser extends TestCase {
 
 	@Test
@@ -1115,4 +1120,64 @@ public class TestWktParser extends TestCase {
 		wktParser.nextToken();
 	}
 
+	@Test
+	public void testNumericLiterals() {
+		List<String> literals = new ArrayList<String>();
+		String[] fixed = {"0", "-0", "+0.0", "0.5", ".5", "5.", "-.25e-3", "1e22", "1e23", "9007199254740993",
+				"123456789012345678901234567890", "4.9e-324", "1.7976931348623157e308", "1e400", "-122.41941550000001",
+				"37.77492950000000", "0.1", "0.3", "1E+0004", "00000000000000000000001.5"};
+		for (String literal : fixed)
+			literals.add(literal);
+
+		Random random = new Random(1973);
+		for (int i = 0; i < 2000; i++) {
+			double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 4);
+			literals.add(Double.toString(value));
+			literals.add(String.format("%." + random.nextInt(12) + "f", value));
+		}
+
+		WktParser wktParser = new WktParser();
+		for (String literal : literals) {
+			wktParser.resetParser("point (" + literal + " " + literal + ")");
+			wktParser.nextToken();
+			wktParser.nextToken();
+			assertEquals(WktParser.WktToken.x_literal, wktParser.nextToken());
+			double expected = Double.parseDouble(literal);
+			assertEquals(literal, Double.doubleToRawLongBits(expected), Double.doubleToRawLongBits(wktParser.currentNumericLiteral()));
+		}
+	}
+
+	@Test
+	public void testImportCharSequenceAndBytes() {
+		String wkt = "MULTIPOLYGON Z (((0 0 1, 0 10.5 2, 10.25 10 3, 10 0 4, 0 0 1)), ((20 20 5, 20 30 6, 30 30 7, 20 20 5)))";
+		OperatorImportFromWkt importer = OperatorImportFromWkt.local();
+		Geometry expected = importer.execute(0, Geometry.Type.Unknown, wkt, null);
+
+		Geometry fromBuilder = importer.execute(0, Geometry.Type.Unknown, new StringBuilder(wkt), null);
+		assertTrue(expected.equals(fromBuilder));
+
+		byte[] bytes = ("garbage" + wkt + "garbage").getBytes(StandardCharsets.UTF_8);
+		Geometry fromBytes = importer.execute(0, Geometry.Type.Unknown, bytes, 7, wkt.length(), null);
+		assertTrue(expected.equals(fromBytes));
+
+		try {
+			importer.execute(0, Geometry.Type.Unknown, bytes, 0, wkt.length(), null);
+			fail();
+		} catch (IllegalArgumentException e) {
+		}
+	}
+
+	@Test
+	public void testImportCursor() {
+		String[] wkts = {"POINT (1 2)", "LINESTRING (0 0, 1e3 -2.5)", "POLYGON EMPTY", "MULTIPOINT M ((1 2 3), (4 5 6))",
+				"POLYGON ((0 0, 0 1, 1 1, 0 0))"};
+		OperatorImportFromWkt importer = OperatorImportFromWkt.local();
+		GeometryCursor cursor = importer.execute(0, new SimpleStringCursor(wkts), null);
+		for (String wkt : wkts) {
+			Geometry geometry = cursor.next();
+			assertTrue(importer.execute(0, Geometry.Type.Unknown, wkt, null).equals(geometry));
+		}
+		assertNull(cursor.next());
+	}
+
 }
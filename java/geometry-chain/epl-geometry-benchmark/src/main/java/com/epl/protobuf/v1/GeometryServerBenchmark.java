@@ -0,0 +1,101 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.esri.core.geometry.*;
+import com.google.protobuf.ByteString;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A buffer request round-trip through a GeometryServer, for a star shaped polygon from the BenchmarkGeometries.
+ *
+ * The in-process transport hands the messages over without serializing them, so it measures the service itself. The
+ * netty transport adds the protobuf encoding and the loopback socket.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class GeometryServerBenchmark {
+    @Param({"inprocess", "netty"})
+    public String transport;
+
+    @Param({"WKB", "WKT"})
+    public Encoding encoding;
+
+    @Param({"100", "1000"})
+    public int pointCount;
+
+    private GeometryServer server;
+    private ManagedChannel channel;
+    private GeometryServiceGrpc.GeometryServiceBlockingStub stub;
+    private GeometryRequest request;
+
+    @Setup
+    public void setup() throws IOException {
+        if ("netty".equals(transport)) {
+            server = new GeometryServer(new GeometryServerOptions().setPort(0));
+            server.start();
+            channel = NettyChannelBuilder.forAddress("localhost", server.getPort()).usePlaintext().build();
+        } else {
+            String serverName = "geometry server benchmark";
+            server = new GeometryServer(InProcessServerBuilder.forName(serverName).directExecutor(), 0);
+            server.start();
+            channel = InProcessChannelBuilder.forName(serverName).directExecutor().build();
+        }
+        stub = GeometryServiceGrpc.newBlockingStub(channel).withMaxInboundMessageSize(Integer.MAX_VALUE);
+
+        Polygon polygon = BenchmarkGeometries.starPolygon(pointCount, BenchmarkGeometries.EXTENT);
+
+        GeometryData.Builder geometryData = GeometryData.newBuilder();
+        if (encoding == Encoding.WKB) {
+            geometryData.setWkb(ByteString.copyFrom(OperatorExportToWkb.local().execute(0, polygon, null)));
+        } else {
+            geometryData.setWkt(OperatorExportToWkt.local().execute(0, polygon, null));
+        }
+        request = GeometryRequest.newBuilder()
+                .setGeometry(geometryData)
+                .setOperator(OperatorType.BUFFER)
+                .setBufferParams(Params.Buffer.newBuilder().setDistance(1))
+                .setResultEncoding(encoding)
+                .build();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        channel.shutdownNow().awaitTermination(5, TimeUnit.SECONDS);
+        server.stop();
+    }
+
+    @Benchmark
+    public GeometryResponse operate() {
+        return stub.operate(request);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.esri.core.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Synthetic inputs for the benchmarks. The RandomCoordinateGenerator has a fixed seed, so every run and every fork
+ * benchmarks the same geometries.
+ */
+public final class BenchmarkGeometries {
+	public static final Envelope EXTENT = new Envelope(0, 0, 1000, 1000);
+
+	private BenchmarkGeometries() {
+	}
+
+	/**
+	 * A simple polygon of pointCount random vertices. The vertices are ordered clockwise by their angle around the
+	 * center of the extent, so the ring is star shaped and does not cross itself.
+	 */
+	public static Polygon starPolygon(int pointCount, Envelope extent) {
+		return (Polygon) OperatorSimplify.local().execute(starRing(pointCount, extent, false), null, true, null);
+	}
+
+	/**
+	 * The ring of starPolygon with every tenth pair of neighboring vertices swapped. Every swap makes the ring cross
+	 * itself, so the polygon is not simple.
+	 */
+	public static Polygon crossingPolygon(int pointCount, Envelope extent) {
+		return starRing(pointCount, extent, true);
+	}
+
+	/**
+	 * A simple polygon of pointCount vertices around the center of the extent, as the border of a country. The
+	 * distance of the vertices from the center waves at a few frequencies, so the ring winds around the center without
+	 * crossing itself.
+	 */
+	public static Polygon countryPolygon(int pointCount, Envelope extent) {
+		Point center = extent.getCenter();
+		double radius = 0.5 * Math.min(extent.getWidth(), extent.getHeight());
+		Polygon polygon = new Polygon();
+		for (int i = 0; i < pointCount; i++) {
+			double angle = -2 * Math.PI * i / pointCount;
+			double r = radius * (0.7 + 0.15 * Math.sin(7 * angle) + 0.05 * Math.sin(31 * angle)
+					+ 0.02 * Math.sin(113 * angle));
+			double x = center.getX() + r * Math.cos(angle);
+			double y = center.getY() + r * Math.sin(angle);
+			if (i == 0)
+				polygon.startPath(x, y);
+			else
+				polygon.lineTo(x, y);
+		}
+		return polygon;
+	}
+
+	private static Polygon starRing(int pointCount, Envelope extent, boolean bSwapNeighbors) {
+		RandomCoordinateGenerator generator = new RandomCoordinateGenerator(pointCount, extent, 0.001);
+		Point center = extent.getCenter();
+		double[] angles = new double[pointCount];
+		Point[] points = new Point[pointCount];
+		Integer[] order = new Integer[pointCount];
+		for (int i = 0; i < pointCount; i++) {
+			// the generator moves its previous point, so the coordinates are copied
+			Point point = generator.GetRandomCoord();
+			points[i] = new Point(point.getX(), point.getY());
+			angles[i] = Math.atan2(points[i].getY() - center.getY(), points[i].getX() - center.getX());
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(angles[b], angles[a]));
+
+		if (bSwapNeighbors) {
+			for (int i = 0; i + 1 < pointCount; i += 10) {
+				Integer swap = order[i];
+				order[i] = order[i + 1];
+				order[i + 1] = swap;
+			}
+		}
+
+		Polygon polygon = new Polygon();
+		for (int i = 0; i < pointCount; i++) {
+			if (i == 0)
+				polygon.startPath(points[order[i]]);
+			else
+				polygon.lineTo(points[order[i]]);
+		}
+		return polygon;
+	}
+
+	/**
+	 * count envelopes of up to maxSize by maxSize whose corners come from the RandomCoordinateGenerator.
+	 */
+	public static Envelope2D[] randomEnvelopes(int count, Envelope extent, double maxSize) {
+		RandomCoordinateGenerator generator = new RandomCoordinateGenerator(count, extent, 0.001);
+		Envelope2D[] envelopes = new Envelope2D[count];
+		for (int i = 0; i < count; i++) {
+			Point point = generator.GetRandomCoord();
+			double size = maxSize * ((i % 7) + 1) / 7;
+			envelopes[i] = Envelope2D.construct(point.getX(), point.getY(), point.getX() + size, point.getY() + size);
+		}
+		return envelopes;
+	}
+}
@@ -0,0 +1,112 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.esri.core.geometry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Import and export of a polygon in the WKB, WKT and GeoJSON encodings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class CodecBenchmark {
+	@Param({"100", "10000"})
+	public int pointCount;
+
+	private Polygon polygon;
+	private ByteBuffer wkb;
+	private String wkt;
+	private byte[] wktBytes;
+	private String geoJson;
+	private ByteBufferPool bufferPool;
+
+	@Setup
+	public void setup() {
+		polygon = BenchmarkGeometries.starPolygon(pointCount, BenchmarkGeometries.EXTENT);
+		wkb = OperatorExportToWkb.local().execute(0, polygon, null);
+		wkt = OperatorExportToWkt.local().execute(0, polygon, null);
+		wktBytes = wkt.getBytes(StandardCharsets.US_ASCII);
+		geoJson = OperatorExportToGeoJson.local().execute(polygon);
+		bufferPool = new ByteBufferPool(false, 4);
+	}
+
+	@Benchmark
+	public Geometry importFromWkb() {
+		return OperatorImportFromWkb.local().execute(0, Geometry.Type.Unknown, wkb.duplicate(), null);
+	}
+
+	@Benchmark
+	public Geometry importFromWkt() {
+		return OperatorImportFromWkt.local().execute(0, Geometry.Type.Unknown, wkt, null);
+	}
+
+	@Benchmark
+	public Geometry importFromWktBytes() {
+		return OperatorImportFromWkt.local().execute(0, Geometry.Type.Unknown, wktBytes, 0, wktBytes.length, null);
+	}
+
+	@Benchmark
+	public MapGeometry importFromGeoJson() {
+		return OperatorImportFromGeoJson.local().execute(0, Geometry.Type.Unknown, geoJson, null);
+	}
+
+	@Benchmark
+	public ByteBuffer exportToWkb() {
+		return OperatorExportToWkb.local().execute(0, polygon, null);
+	}
+
+	@Benchmark
+	public int exportToPooledWkb() {
+		ByteBuffer buffer = OperatorExportToWkb.local().execute(0, polygon, bufferPool, null);
+		int size = buffer.limit();
+		bufferPool.release(buffer);
+		return size;
+	}
+
+	@Benchmark
+	public String exportToWkt() {
+		return OperatorExportToWkt.local().execute(0, polygon, null);
+	}
+
+	@Benchmark
+	public String exportToGeoJson() {
+		return OperatorExportToGeoJson.local().execute(polygon);
+	}
+
+	@Benchmark
+	public byte[] exportToGeoJsonUtf8() {
+		return OperatorExportToGeoJson.local().executeUtf8(GeoJsonExportFlags.geoJsonExportSkipCRS, null, polygon);
+	}
+
+	@Benchmark
+	public byte[] exportToGeoJsonUtf8ShortestDoubles() {
+		return OperatorExportToGeoJson.local().executeUtf8(GeoJsonExportFlags.geoJsonExportSkipCRS
+				| GeoJsonExportFlags.geoJsonExportShortestDoubles, null, polygon);
+	}
+}
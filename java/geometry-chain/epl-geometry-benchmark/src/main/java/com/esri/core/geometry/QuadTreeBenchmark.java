@@ -0,0 +1,102 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.esri.core.geometry;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building a QuadTree and a PackedRTree of random envelopes and querying them with random envelopes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class QuadTreeBenchmark {
+	private static final int QUERY_COUNT = 100;
+	private static final int HEIGHT = 8;
+
+	@Param({"1000", "100000"})
+	public int elementCount;
+
+	private Envelope2D extent;
+	private Envelope2D[] envelopes;
+	private Envelope2D[] queries;
+	private int[] elements;
+	private QuadTree quadTree;
+	private PackedRTree packedRTree;
+
+	@Setup
+	public void setup() {
+		extent = new Envelope2D();
+		BenchmarkGeometries.EXTENT.queryEnvelope2D(extent);
+		envelopes = BenchmarkGeometries.randomEnvelopes(elementCount, BenchmarkGeometries.EXTENT, 5);
+		queries = BenchmarkGeometries.randomEnvelopes(QUERY_COUNT, BenchmarkGeometries.EXTENT, 50);
+		elements = new int[elementCount];
+		for (int i = 0; i < elementCount; i++) {
+			elements[i] = i;
+		}
+		quadTree = build();
+		packedRTree = buildPacked();
+	}
+
+	@Benchmark
+	public QuadTree build() {
+		QuadTree tree = new QuadTree(extent, HEIGHT);
+		for (int i = 0; i < envelopes.length; i++) {
+			tree.insert(i, envelopes[i]);
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public PackedRTree buildPacked() {
+		return new PackedRTree(elements, envelopes);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERY_COUNT)
+	public void query(Blackhole blackhole) {
+		QuadTree.QuadTreeIterator iterator = quadTree.getIterator();
+		for (Envelope2D query : queries) {
+			iterator.resetIterator(query, 0);
+			for (int handle = iterator.next(); handle != -1; handle = iterator.next()) {
+				blackhole.consume(quadTree.getElement(handle));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(QUERY_COUNT)
+	public void queryPacked(Blackhole blackhole) {
+		PackedRTree.PackedRTreeIterator iterator = packedRTree.getIterator();
+		for (Envelope2D query : queries) {
+			iterator.resetIterator(query, 0);
+			for (int handle = iterator.next(); handle != -1; handle = iterator.next()) {
+				blackhole.consume(packedRTree.getElement(handle));
+			}
+		}
+	}
+}
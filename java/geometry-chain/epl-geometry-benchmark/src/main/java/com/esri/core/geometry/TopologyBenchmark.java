@@ -0,0 +1,114 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.esri.core.geometry;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Union, intersection, buffer and relate of two overlapping star shaped polygons, simplify of a polygon whose ring
+ * crosses itself, and the intersection of a polygon shaped as a country, with a hundred times as many vertices, with
+ * many small squares. The squares are intersected in one call, where the country is clipped from its intersector
+ * index, and one by one, where every square clips the whole country.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class TopologyBenchmark {
+	@Param({"100", "1000"})
+	public int pointCount;
+
+	private SpatialReference spatialReference;
+	private Polygon crossingPolygon;
+	private Polygon left;
+	private Polygon right;
+	private Polygon country;
+	private List<Geometry> squares;
+
+	@Setup
+	public void setup() {
+		spatialReference = SpatialReference.create(3857);
+		crossingPolygon = BenchmarkGeometries.crossingPolygon(pointCount, BenchmarkGeometries.EXTENT);
+		left = BenchmarkGeometries.starPolygon(pointCount, BenchmarkGeometries.EXTENT);
+		// the same vertices shifted by a quarter of the extent, so the two polygons partly overlap
+		right = BenchmarkGeometries.starPolygon(pointCount, new Envelope(250, 250, 1250, 1250));
+		country = BenchmarkGeometries.countryPolygon(100 * pointCount, BenchmarkGeometries.EXTENT);
+		squares = new ArrayList<Geometry>();
+		for (Envelope2D envelope : BenchmarkGeometries.randomEnvelopes(1000, BenchmarkGeometries.EXTENT, 10)) {
+			Polygon square = new Polygon();
+			square.addEnvelope(envelope, false);
+			squares.add(square);
+		}
+	}
+
+	@Benchmark
+	public Geometry union() {
+		return OperatorUnion.local().execute(left, right, spatialReference, null);
+	}
+
+	@Benchmark
+	public Geometry intersection() {
+		return OperatorIntersection.local().execute(left, right, spatialReference, null);
+	}
+
+	@Benchmark
+	public int intersectionWithSquares() {
+		GeometryCursor cursor = OperatorIntersection.local().execute(new SimpleGeometryCursor(squares),
+				new SimpleGeometryCursor(country), spatialReference, null);
+		int count = 0;
+		while (cursor.next() != null)
+			count++;
+		return count;
+	}
+
+	@Benchmark
+	public int intersectionWithSquaresOneByOne() {
+		OperatorIntersection intersection = OperatorIntersection.local();
+		int count = 0;
+		for (Geometry square : squares) {
+			if (intersection.execute(square, country, spatialReference, null) != null)
+				count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public Geometry buffer() {
+		return OperatorBuffer.local().execute(left, spatialReference, 10, null);
+	}
+
+	@Benchmark
+	public Geometry simplify() {
+		return OperatorSimplify.local().execute(crossingPolygon, spatialReference, true, null);
+	}
+
+	@Benchmark
+	public boolean relate() {
+		// intersects
+		return OperatorRelate.local().execute(left, right, spatialReference, "T********", null);
+	}
+}
@@ -0,0 +1,143 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import com.google.protobuf.UnsafeByteOperations;
+import io.grpc.KnownLength;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerMethodDefinition;
+import io.grpc.ServerServiceDefinition;
+import io.grpc.ServiceDescriptor;
+import io.grpc.Status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Parses request messages with an aliasing CodedInputStream.
+ *
+ * The default protobuf marshaller copies every bytes field (wkb, ewkb, esri_shape, file chunk data) out of the
+ * message buffer into an array of its own. Here the message is read into one buffer and the bytes fields of the
+ * parsed message are views into that buffer, so a large WKB payload is held in memory once. Serializing responses
+ * is left to the original marshaller.
+ */
+class AliasingMarshaller<T> implements MethodDescriptor.PrototypeMarshaller<T> {
+    private final MethodDescriptor.PrototypeMarshaller<T> delegate;
+    private final Parser<T> parser;
+
+    AliasingMarshaller(MethodDescriptor.PrototypeMarshaller<T> delegate, Parser<T> parser) {
+        this.delegate = delegate;
+        this.parser = parser;
+    }
+
+    /**
+     * Copy of {@code definition} where the requests of every protobuf method are parsed by an AliasingMarshaller.
+     */
+    static ServerServiceDefinition aliasRequests(ServerServiceDefinition definition) {
+        ServiceDescriptor serviceDescriptor = definition.getServiceDescriptor();
+        List<ServerMethodDefinition<?, ?>> methods = new ArrayList<>();
+        for (ServerMethodDefinition<?, ?> method : definition.getMethods()) {
+            methods.add(aliasRequest(method));
+        }
+
+        ServiceDescriptor.Builder serviceBuilder = ServiceDescriptor
+                .newBuilder(serviceDescriptor.getName())
+                .setSchemaDescriptor(serviceDescriptor.getSchemaDescriptor());
+        for (ServerMethodDefinition<?, ?> method : methods) {
+            serviceBuilder.addMethod(method.getMethodDescriptor());
+        }
+
+        ServerServiceDefinition.Builder builder = ServerServiceDefinition.builder(serviceBuilder.build());
+        for (ServerMethodDefinition<?, ?> method : methods) {
+            builder.addMethod(method);
+        }
+        return builder.build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <ReqT, RespT> ServerMethodDefinition<ReqT, RespT> aliasRequest(ServerMethodDefinition<ReqT, RespT> method) {
+        MethodDescriptor<ReqT, RespT> methodDescriptor = method.getMethodDescriptor();
+        if (!(methodDescriptor.getRequestMarshaller() instanceof MethodDescriptor.PrototypeMarshaller)) {
+            return method;
+        }
+
+        MethodDescriptor.PrototypeMarshaller<ReqT> requestMarshaller = (MethodDescriptor.PrototypeMarshaller<ReqT>) methodDescriptor.getRequestMarshaller();
+        if (!(requestMarshaller.getMessagePrototype() instanceof MessageLite)) {
+            return method;
+        }
+
+        Parser<ReqT> parser = (Parser<ReqT>) ((MessageLite) requestMarshaller.getMessagePrototype()).getParserForType();
+        MethodDescriptor<ReqT, RespT> aliasedDescriptor = methodDescriptor
+                .toBuilder(new AliasingMarshaller<>(requestMarshaller, parser), methodDescriptor.getResponseMarshaller())
+                .build();
+        return ServerMethodDefinition.create(aliasedDescriptor, method.getServerCallHandler());
+    }
+
+    @Override
+    public InputStream stream(T value) {
+        return delegate.stream(value);
+    }
+
+    @Override
+    public T parse(InputStream stream) {
+        try {
+            byte[] buffer;
+            if (stream instanceof KnownLength) {
+                buffer = new byte[stream.available()];
+                int offset = 0;
+                while (offset < buffer.length) {
+                    int count = stream.read(buffer, offset, buffer.length - offset);
+                    if (count == -1) {
+                        throw new IOException("stream ended after " + offset + " of " + buffer.length + " bytes");
+                    }
+                    offset += count;
+                }
+            } else {
+                buffer = stream.readAllBytes();
+            }
+
+            // protobuf only aliases buffers it knows to be immutable, the buffer is never written after this point
+            CodedInputStream codedInputStream = UnsafeByteOperations.unsafeWrap(buffer).newCodedInput();
+            codedInputStream.enableAliasing(true);
+            // the size is limited by the maxInboundMessageSize of the server
+            codedInputStream.setSizeLimit(Integer.MAX_VALUE);
+            return parser.parseFrom(codedInputStream, ExtensionRegistryLite.getEmptyRegistry());
+        } catch (IOException e) {
+            throw Status.INTERNAL.withDescription("Invalid protobuf byte sequence").withCause(e).asRuntimeException();
+        }
+    }
+
+    @Override
+    public Class<T> getMessageClass() {
+        return delegate.getMessageClass();
+    }
+
+    @Override
+    public T getMessagePrototype() {
+        return delegate.getMessagePrototype();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * A reusable buffer for a file that arrives in chunks.
+ *
+ * The bytes that have not been parsed yet are between the position and the limit of {@link #buffer()}. Parsers read
+ * from the buffer and move its position forward. Before the next chunk is appended the parsed bytes are dropped by
+ * compacting the buffer, so the buffer only grows when a single record is larger than it.
+ */
+class ChunkBuffer {
+    private ByteBuffer m_buffer;
+
+    ChunkBuffer(int initialCapacity) {
+        m_buffer = ByteBuffer.allocate(initialCapacity);
+        m_buffer.limit(0);
+    }
+
+    ByteBuffer buffer() {
+        return m_buffer;
+    }
+
+    void append(ByteString chunk) {
+        int start = reserve(chunk.size());
+        ByteBuffer target = m_buffer.duplicate();
+        target.position(start);
+        chunk.copyTo(target);
+    }
+
+    /**
+     * Append the next chunk_size bytes or less of the stream. Returns false once the stream is at its end.
+     */
+    boolean append(InputStream in, int chunk_size) throws IOException {
+        int start = reserve(chunk_size);
+        int read = in.read(m_buffer.array(), m_buffer.arrayOffset() + start, m_buffer.limit() - start);
+        m_buffer.limit(start + Math.max(read, 0));
+        return read != -1;
+    }
+
+    /**
+     * Make room for count bytes after the unparsed bytes and extend the limit over them. Returns where they start.
+     */
+    private int reserve(int count) {
+        int remaining = m_buffer.remaining();
+        if (m_buffer.capacity() - m_buffer.limit() < count) {
+            if (m_buffer.capacity() >= remaining + count) {
+                m_buffer.compact();
+                m_buffer.flip();
+            } else {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(m_buffer.capacity() * 2, remaining + count));
+                grown.put(m_buffer);
+                grown.flip();
+                m_buffer = grown;
+            }
+        }
+
+        int start = m_buffer.limit();
+        m_buffer.limit(start + count);
+        return start;
+    }
+}
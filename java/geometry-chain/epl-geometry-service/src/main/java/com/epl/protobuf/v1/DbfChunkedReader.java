@@ -0,0 +1,213 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.google.protobuf.ByteString;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decodes the records of the .dbf attribute table of a shapefile as its chunks arrive.
+ *
+ * The dBASE header is followed by fixed length records, so every complete record is parsed into a map from field
+ * name to trimmed field value as soon as its bytes are buffered. The records are kept in file order until they are
+ * polled by the {@link ShapefileChunkedReader} for the .shp record with the same record number.
+ *
+ * A reader is fed and read by one thread at a time.
+ */
+class DbfChunkedReader {
+    private static final int HEADER_PREFIX_SIZE = 32;
+    private static final int FIELD_DESCRIPTOR_SIZE = 32;
+    private static final byte HEADER_TERMINATOR = 0x0D;
+    private static final int INITIAL_CAPACITY = 1 << 14;
+
+    private final ChunkBuffer m_chunkBuffer = new ChunkBuffer(INITIAL_CAPACITY);
+    private final ArrayDeque<Map<String, String>> m_records = new ArrayDeque<>();
+    private final String m_featureIdField;
+    private final Charset m_charset;
+
+    private boolean m_bHeaderRead = false;
+    private int recordCount;
+    private int headerLengthBytes;
+    private int recordLengthBytes;
+    private int recordsRead = 0;
+    private final List<String> fieldNames = new ArrayList<>();
+    private int[] fieldOffsets;
+    private int[] fieldLengths;
+    private int featureIdFieldIndex = 0;
+
+    /**
+     * @param featureIdField name of the field that holds the feature id. if null or empty the first field is used
+     */
+    DbfChunkedReader(String featureIdField) {
+        this(featureIdField, StandardCharsets.UTF_8);
+    }
+
+    DbfChunkedReader(String featureIdField, Charset charset) {
+        m_featureIdField = featureIdField;
+        m_charset = charset;
+    }
+
+    /**
+     * Append the next chunk of the .dbf file and parse every record it completes.
+     *
+     * @throws IOException if the header is not a dBASE table header or the feature id field is not one of its fields
+     */
+    void addChunk(ByteString chunk) throws IOException {
+        m_chunkBuffer.append(chunk);
+        ByteBuffer buffer = m_chunkBuffer.buffer();
+        if (!m_bHeaderRead && !readHeaderIfComplete(buffer)) {
+            return;
+        }
+
+        while (recordsRead < recordCount && buffer.remaining() >= recordLengthBytes) {
+            ByteBuffer record = buffer.slice();
+            record.limit(recordLengthBytes);
+            buffer.position(buffer.position() + recordLengthBytes);
+            recordsRead++;
+            m_records.add(readRecord(record));
+        }
+    }
+
+    private boolean readHeaderIfComplete(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_PREFIX_SIZE) {
+            return false;
+        }
+
+        ByteBuffer header = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        /*
+            Byte 0 Version, the low 3 bits are the dBASE level
+            Byte 1 - 3 Date of last update YYMMDD
+            Byte 4 Number of records Integer Little
+            Byte 8 Number of bytes in the header Short Little
+            Byte 10 Number of bytes in a record Short Little
+            Byte 12 - 31 Reserved
+         */
+        int version = header.get(0) & 0x07;
+        if (version != 3 && version != 4) {
+            throw new IOException("dBASE version " + version + " is not supported.");
+        }
+        recordCount = header.getInt(4);
+        headerLengthBytes = header.getShort(8) & 0xFFFF;
+        recordLengthBytes = header.getShort(10) & 0xFFFF;
+        if (buffer.remaining() < headerLengthBytes) {
+            return false;
+        }
+
+        /*
+            Byte 32 - n Field descriptors of 32 bytes, terminated by 0x0D
+            Byte 0 - 10 Field name, padded with 0
+            Byte 11 Field type
+            Byte 16 Field length
+            Byte 17 Decimal count
+         */
+        List<Integer> lengths = new ArrayList<>();
+        for (int descriptor = HEADER_PREFIX_SIZE;
+             descriptor + FIELD_DESCRIPTOR_SIZE <= headerLengthBytes && header.get(descriptor) != HEADER_TERMINATOR;
+             descriptor += FIELD_DESCRIPTOR_SIZE) {
+            int nameLength = 0;
+            while (nameLength < 11 && header.get(descriptor + nameLength) != 0) {
+                nameLength++;
+            }
+            byte[] name = new byte[nameLength];
+            ByteBuffer nameBuffer = header.duplicate();
+            nameBuffer.position(descriptor);
+            nameBuffer.get(name);
+            fieldNames.add(new String(name, StandardCharsets.US_ASCII).trim());
+            lengths.add(header.get(descriptor + 16) & 0xFF);
+        }
+
+        fieldLengths = new int[lengths.size()];
+        fieldOffsets = new int[lengths.size()];
+        // every record starts with the deletion flag
+        int offset = 1;
+        for (int i = 0; i < fieldLengths.length; i++) {
+            fieldLengths[i] = lengths.get(i);
+            fieldOffsets[i] = offset;
+            offset += fieldLengths[i];
+        }
+
+        if (m_featureIdField != null && !m_featureIdField.isEmpty()) {
+            featureIdFieldIndex = fieldNames.indexOf(m_featureIdField);
+            if (featureIdFieldIndex < 0) {
+                throw new IOException("feature id field " + m_featureIdField + " is not a field of the dBASE table.");
+            }
+        }
+
+        buffer.position(buffer.position() + headerLengthBytes);
+        m_bHeaderRead = true;
+        return true;
+    }
+
+    private Map<String, String> readRecord(ByteBuffer record) {
+        Map<String, String> attributes = new LinkedHashMap<>(fieldNames.size() * 2);
+        byte[] bytes = new byte[recordLengthBytes];
+        record.get(bytes);
+        for (int i = 0; i < fieldLengths.length; i++) {
+            attributes.put(fieldNames.get(i), new String(bytes, fieldOffsets[i], fieldLengths[i], m_charset).trim());
+        }
+        return attributes;
+    }
+
+    /**
+     * Whether the attributes of the next record have arrived.
+     */
+    boolean hasRecord() {
+        return !m_records.isEmpty();
+    }
+
+    /**
+     * Whether more records can arrive: the header is incomplete, or fewer records than it declares have been read.
+     */
+    boolean expectsRecords() {
+        return !m_bHeaderRead || recordsRead < recordCount;
+    }
+
+    /**
+     * Remove and return the attributes of the next record.
+     */
+    Map<String, String> pollRecord() {
+        return m_records.poll();
+    }
+
+    /**
+     * The feature id of a record returned by {@link #pollRecord()}.
+     */
+    String getFeatureID(Map<String, String> attributes) {
+        if (fieldNames.isEmpty()) {
+            return "";
+        }
+        return attributes.get(fieldNames.get(featureIdFieldIndex));
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+}
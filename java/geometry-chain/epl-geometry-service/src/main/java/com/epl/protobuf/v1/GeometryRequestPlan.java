@@ -0,0 +1,421 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.esri.core.geometry.Envelope2D;
+import com.google.protobuf.Descriptors;
+import com.google.protobuf.Message;
+import com.google.protobuf.TextFormat;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The plan of a nested GeometryRequest: the request tree rewritten so that it evaluates to the same geometries with
+ * less work, before GeometryServiceUtil evaluates it.
+ *
+ * Every nested request projects its input to its operation spatial reference and its result to its result spatial
+ * reference, so a chain of requests can project the same geometries back and forth. The plan
+ * <ul>
+ * <li>folds a PROJECT of a PROJECT into one projection from the inner input,</li>
+ * <li>folds a PROJECT of another operation into the result spatial reference of that operation,</li>
+ * <li>drops nested PROJECT requests to the spatial reference their input is in already,</li>
+ * <li>folds a CLIP of a CLIP into one clip by the intersection of the envelopes and</li>
+ * <li>clips the input of a BUFFER that is clipped afterwards, by the clip envelope inflated by twice the buffer
+ * distance, so that only the input near the envelope is buffered.</li>
+ * </ul>
+ * Spatial references are compared by their ProjectionData, so the rewrites only apply where a spatial reference is
+ * given the same way, and requests whose spatial references are not known are left as they are. A plan without
+ * rewrites returns the request itself.
+ *
+ * {@link #explain()} prints the planned request tree, and the rewrites are logged at level FINE.
+ */
+public class GeometryRequestPlan {
+    private static final Logger logger = Logger.getLogger(GeometryRequestPlan.class.getName());
+
+    // a chain of requests is rewritten until none of the rules applies, at most this many times per request
+    private static final int MAX_REWRITES_PER_REQUEST = 16;
+
+    // the operators evaluated by GeometryServiceUtil.cursorFromRequest, other than PROJECT
+    private static final EnumSet<OperatorType> CURSOR_OPERATORS = EnumSet.of(
+            OperatorType.GEODESIC_BUFFER,
+            OperatorType.GEODETIC_DENSIFY_BY_LENGTH,
+            OperatorType.GENERALIZE_BY_AREA,
+            OperatorType.UNION,
+            OperatorType.DIFFERENCE,
+            OperatorType.BUFFER,
+            OperatorType.INTERSECTION,
+            OperatorType.CLIP,
+            OperatorType.CUT,
+            OperatorType.DENSIFY_BY_LENGTH,
+            OperatorType.SIMPLIFY,
+            OperatorType.SIMPLIFY_OGC,
+            OperatorType.OFFSET,
+            OperatorType.GENERALIZE,
+            OperatorType.SYMMETRIC_DIFFERENCE,
+            OperatorType.CONVEX_HULL,
+            OperatorType.BOUNDARY,
+            OperatorType.ENCLOSING_CIRCLE,
+            OperatorType.RANDOM_POINTS,
+            OperatorType.AFFINE_TRANSFORM);
+
+    private static final Descriptors.OneofDescriptor PARAMS_ONEOF = GeometryRequest.getDescriptor().getOneofs().stream()
+            .filter(oneof -> oneof.getName().equals("params"))
+            .findFirst()
+            .orElseThrow(IllegalStateException::new);
+
+    private final GeometryRequest request;
+    private final List<String> rewrites = new ArrayList<>();
+
+    private GeometryRequestPlan(GeometryRequest request) {
+        this.request = plan(request);
+        if (!rewrites.isEmpty() && logger.isLoggable(Level.FINE)) {
+            logger.fine(String.format("planned request with %d rewrites: %s%n%s", rewrites.size(), rewrites, explain()));
+        }
+    }
+
+    /**
+     * Plans the request tree.
+     */
+    public static GeometryRequestPlan compile(GeometryRequest request) {
+        return new GeometryRequestPlan(request);
+    }
+
+    /**
+     * The planned request, the input request if no rewrite applied.
+     */
+    public GeometryRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * A description of every rewrite, in the order they were applied.
+     */
+    public List<String> getRewrites() {
+        return Collections.unmodifiableList(rewrites);
+    }
+
+    /**
+     * The planned request tree, one request or geometry per line, with the inputs indented below the request.
+     */
+    public String explain() {
+        StringBuilder stringBuilder = new StringBuilder();
+        explain(request, "", 0, stringBuilder);
+        return stringBuilder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return explain();
+    }
+
+    private GeometryRequest plan(GeometryRequest request) {
+        GeometryRequest.Builder builder = null;
+        switch (request.getLeftCase()) {
+            case GEOMETRY_REQUEST: {
+                GeometryRequest planned = planInput(request.getGeometryRequest());
+                if (planned != request.getGeometryRequest()) {
+                    builder = request.toBuilder().setGeometryRequest(planned);
+                }
+                break;
+            }
+            case LEFT_GEOMETRY_REQUEST: {
+                GeometryRequest planned = planInput(request.getLeftGeometryRequest());
+                if (planned != request.getLeftGeometryRequest()) {
+                    builder = request.toBuilder().setLeftGeometryRequest(planned);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+        if (request.hasRightGeometryRequest()) {
+            GeometryRequest planned = planInput(request.getRightGeometryRequest());
+            if (planned != request.getRightGeometryRequest()) {
+                builder = (builder == null ? request.toBuilder() : builder).setRightGeometryRequest(planned);
+            }
+        }
+        if (builder != null) {
+            request = builder.build();
+        }
+
+        for (int i = 0; i < MAX_REWRITES_PER_REQUEST; i++) {
+            GeometryRequest rewritten = rewrite(request);
+            if (rewritten == request) {
+                break;
+            }
+            request = rewritten;
+        }
+        return request;
+    }
+
+    /**
+     * Plans a nested request, and drops it if it is a PROJECT to the spatial reference its input request is in.
+     */
+    private GeometryRequest planInput(GeometryRequest request) {
+        request = plan(request);
+        while (request.getOperator() == OperatorType.PROJECT && isPlainProject(request) && hasLeftRequest(request)
+                && request.getResultProj().equals(declaredInputProj(request))) {
+            rewrites.add(String.format("dropped PROJECT to %s of an input in that spatial reference", describe(request.getResultProj())));
+            request = getLeftRequest(request);
+        }
+        return request;
+    }
+
+    /**
+     * Applies the first rule that matches the request. Returns the request itself if none does.
+     */
+    private GeometryRequest rewrite(GeometryRequest request) {
+        if (request.getOperator() == OperatorType.PROJECT && isPlainProject(request) && hasLeftRequest(request)) {
+            GeometryRequest input = getLeftRequest(request);
+            if (input.getOperator() == OperatorType.PROJECT && isPlainProject(input) && declaredInputProj(input) != null) {
+                rewrites.add(String.format("folded PROJECT to %s into PROJECT to %s",
+                        describe(input.getResultProj()), describe(request.getResultProj())));
+                return copyLeft(input, request.toBuilder()).build();
+            }
+
+            // the input keeps its operation spatial reference, so its result can be projected to ours directly
+            if (CURSOR_OPERATORS.contains(input.getOperator())
+                    && (declaredInputProj(input) != null || input.hasOperationProj())
+                    && (input.getRightCase() == GeometryRequest.RightCase.RIGHT_NOT_SET || input.hasOperationProj())) {
+                rewrites.add(String.format("folded PROJECT to %s into the result of %s",
+                        describe(request.getResultProj()), input.getOperator().name()));
+                return input.toBuilder()
+                        .setResultProj(request.getResultProj())
+                        .setResultEncoding(request.getResultEncoding())
+                        .build();
+            }
+        }
+
+        if (request.getOperator() == OperatorType.CLIP && isPlanar(request) && hasLeftRequest(request)) {
+            GeometryRequest input = getLeftRequest(request);
+            Envelope2D clipEnvelope = toEnvelope2D(request.getClipParams().getEnvelope());
+            if (input.getOperator() == OperatorType.CLIP && isPlanar(input)) {
+                Envelope2D intersection = Envelope2D.construct(clipEnvelope);
+                if (intersection.intersect(toEnvelope2D(input.getClipParams().getEnvelope()))) {
+                    rewrites.add(String.format("folded CLIP to %s into CLIP to %s", describe(input.getClipParams().getEnvelope()), describe(request.getClipParams().getEnvelope())));
+                    GeometryRequest.Builder builder = copyLeft(input, request.toBuilder());
+                    builder.getClipParamsBuilder().setEnvelope(toEnvelopeData(intersection, request.getClipParams().getEnvelope()));
+                    return builder.build();
+                }
+            }
+
+            // the buffer of the input within twice the distance covers the buffer within the clip envelope
+            if (input.getOperator() == OperatorType.BUFFER && isPlanar(input) && input.hasBufferParams()
+                    && !(hasLeftRequest(input) && getLeftRequest(input).getOperator() == OperatorType.CLIP)) {
+                double margin = 2 * Math.abs(input.getBufferParams().getDistance());
+                Envelope2D inputEnvelope = Envelope2D.construct(clipEnvelope);
+                inputEnvelope.inflate(margin, margin);
+                GeometryRequest.Builder inputClip = GeometryRequest.newBuilder()
+                        .setOperator(OperatorType.CLIP)
+                        .setClipParams(Params.Clip.newBuilder().setEnvelope(toEnvelopeData(inputEnvelope, request.getClipParams().getEnvelope())));
+                copyLeft(input, inputClip);
+                GeometryRequest.Builder buffer = input.toBuilder();
+                if (input.getLeftCase() == GeometryRequest.LeftCase.LEFT_GEOMETRY_REQUEST) {
+                    buffer.setLeftGeometryRequest(inputClip);
+                } else {
+                    buffer.setGeometryRequest(inputClip);
+                }
+                rewrites.add(String.format("clipped the input of BUFFER to %s", describe(inputClip.getClipParams().getEnvelope())));
+                return request.toBuilder().setGeometryRequest(buffer).build();
+            }
+        }
+
+        return request;
+    }
+
+    /**
+     * A PROJECT that projects its input to the result spatial reference and nothing else.
+     */
+    private static boolean isPlainProject(GeometryRequest request) {
+        return !isEmpty(request.getResultProj())
+                && (!request.hasOperationProj() || request.getOperationProj().equals(request.getResultProj()));
+    }
+
+    /**
+     * A request that operates on its input in the spatial reference of the input.
+     */
+    private static boolean isPlanar(GeometryRequest request) {
+        return !request.hasOperationProj() && !request.hasResultProj()
+                && request.getRightCase() == GeometryRequest.RightCase.RIGHT_NOT_SET;
+    }
+
+    private static boolean hasLeftRequest(GeometryRequest request) {
+        return request.getLeftCase() == GeometryRequest.LeftCase.GEOMETRY_REQUEST
+                || request.getLeftCase() == GeometryRequest.LeftCase.LEFT_GEOMETRY_REQUEST;
+    }
+
+    private static GeometryRequest getLeftRequest(GeometryRequest request) {
+        return request.getLeftCase() == GeometryRequest.LeftCase.GEOMETRY_REQUEST
+                ? request.getGeometryRequest()
+                : request.getLeftGeometryRequest();
+    }
+
+    /**
+     * Sets the left input of the builder to the left input of the request. Geometries go to left_geometry, which the
+     * spatial reference of a nested request is read from.
+     */
+    private static GeometryRequest.Builder copyLeft(GeometryRequest request, GeometryRequest.Builder builder) {
+        switch (request.getLeftCase()) {
+            case GEOMETRY:
+                return builder.setLeftGeometry(request.getGeometry());
+            case LEFT_GEOMETRY:
+                return builder.setLeftGeometry(request.getLeftGeometry());
+            case GEOMETRY_REQUEST:
+                return builder.setGeometryRequest(request.getGeometryRequest());
+            case LEFT_GEOMETRY_REQUEST:
+                return builder.setLeftGeometryRequest(request.getLeftGeometryRequest());
+            default:
+                return builder;
+        }
+    }
+
+    /**
+     * The spatial reference SpatialReferenceGroup takes the left input of the request to be in, null if unknown.
+     */
+    private static ProjectionData declaredInputProj(GeometryRequest request) {
+        if (request.hasLeftGeometry() && request.getLeftGeometry().hasProj()) {
+            return nullIfEmpty(request.getLeftGeometry().getProj());
+        } else if (request.hasGeometry() && request.getGeometry().hasProj()) {
+            return nullIfEmpty(request.getGeometry().getProj());
+        } else if (request.hasLeftGeometryRequest()) {
+            return declaredOutputProj(request.getLeftGeometryRequest());
+        } else if (request.hasGeometryRequest()) {
+            return declaredOutputProj(request.getGeometryRequest());
+        }
+        return null;
+    }
+
+    /**
+     * The spatial reference a request that uses the result of this request takes it to be in, the same as
+     * GeometryServiceUtil.extractSpatialReference(GeometryRequest). Null if unknown.
+     */
+    private static ProjectionData declaredOutputProj(GeometryRequest request) {
+        if (request.hasResultProj()) {
+            return nullIfEmpty(request.getResultProj());
+        } else if (request.hasOperationProj()) {
+            return nullIfEmpty(request.getOperationProj());
+        } else if (request.hasLeftGeometryRequest()) {
+            return declaredOutputProj(request.getLeftGeometryRequest());
+        } else if (request.hasLeftGeometry()) {
+            return nullIfEmpty(request.getLeftGeometry().getProj());
+        } else if (request.hasGeometryRequest()) {
+            return declaredOutputProj(request.getGeometryRequest());
+        } else if (request.hasRightGeometry()) {
+            return nullIfEmpty(request.getRightGeometry().getProj());
+        }
+        return null;
+    }
+
+    private static boolean isEmpty(ProjectionData projectionData) {
+        return projectionData.getDefinitionCase() == ProjectionData.DefinitionCase.DEFINITION_NOT_SET;
+    }
+
+    private static ProjectionData nullIfEmpty(ProjectionData projectionData) {
+        return isEmpty(projectionData) ? null : projectionData;
+    }
+
+    private static Envelope2D toEnvelope2D(EnvelopeData envelopeData) {
+        return Envelope2D.construct(envelopeData.getXmin(), envelopeData.getYmin(), envelopeData.getXmax(), envelopeData.getYmax());
+    }
+
+    private static EnvelopeData toEnvelopeData(Envelope2D envelope2D, EnvelopeData template) {
+        return template.toBuilder()
+                .setXmin(envelope2D.xmin)
+                .setYmin(envelope2D.ymin)
+                .setXmax(envelope2D.xmax)
+                .setYmax(envelope2D.ymax)
+                .build();
+    }
+
+    private static String describe(ProjectionData projectionData) {
+        return projectionData.getEpsg() != 0 ? "epsg:" + projectionData.getEpsg() : TextFormat.shortDebugString(projectionData);
+    }
+
+    private static String describe(EnvelopeData envelopeData) {
+        return String.format("(%s %s, %s %s)", envelopeData.getXmin(), envelopeData.getYmin(), envelopeData.getXmax(), envelopeData.getYmax());
+    }
+
+    private static void explain(GeometryRequest request, String role, int depth, StringBuilder stringBuilder) {
+        indent(role, depth, stringBuilder).append(request.getOperator().name());
+        if (request.hasOperationProj()) {
+            stringBuilder.append(" operation_proj=").append(describe(request.getOperationProj()));
+        }
+        if (request.hasResultProj()) {
+            stringBuilder.append(" result_proj=").append(describe(request.getResultProj()));
+        }
+        Descriptors.FieldDescriptor paramsField = request.getOneofFieldDescriptor(PARAMS_ONEOF);
+        if (paramsField != null) {
+            stringBuilder.append(" ").append(paramsField.getName())
+                    .append("={").append(TextFormat.shortDebugString((Message) request.getField(paramsField))).append("}");
+        }
+        stringBuilder.append('\n');
+
+        switch (request.getLeftCase()) {
+            case GEOMETRY:
+                explain(request.getGeometry(), "geometry", depth + 1, stringBuilder);
+                break;
+            case LEFT_GEOMETRY:
+                explain(request.getLeftGeometry(), "left_geometry", depth + 1, stringBuilder);
+                break;
+            case GEOMETRY_REQUEST:
+                explain(request.getGeometryRequest(), "geometry_request", depth + 1, stringBuilder);
+                break;
+            case LEFT_GEOMETRY_REQUEST:
+                explain(request.getLeftGeometryRequest(), "left_geometry_request", depth + 1, stringBuilder);
+                break;
+            default:
+                break;
+        }
+        switch (request.getRightCase()) {
+            case RIGHT_GEOMETRY:
+                explain(request.getRightGeometry(), "right_geometry", depth + 1, stringBuilder);
+                break;
+            case RIGHT_GEOMETRY_REQUEST:
+                explain(request.getRightGeometryRequest(), "right_geometry_request", depth + 1, stringBuilder);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static void explain(GeometryData geometryData, String role, int depth, StringBuilder stringBuilder) {
+        indent(role, depth, stringBuilder).append("geometry id=").append(geometryData.getGeometryId());
+        if (geometryData.hasProj()) {
+            stringBuilder.append(" proj=").append(describe(geometryData.getProj()));
+        }
+        stringBuilder.append('\n');
+    }
+
+    private static StringBuilder indent(String role, int depth, StringBuilder stringBuilder) {
+        for (int i = 0; i < depth; i++) {
+            stringBuilder.append("  ");
+        }
+        if (!role.isEmpty()) {
+            stringBuilder.append(role).append(": ");
+        }
+        return stringBuilder;
+    }
+}
@@ -21,16 +21,31 @@ email: info@echoparklabs.io
 package com.epl.protobuf.v1;
 
 import com.esri.core.geometry.*;
+import org.epl.geometry.ProjectionCache;
 import io.grpc.*;
 import io.grpc.ServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyServerBuilder;
+import io.grpc.netty.shaded.io.netty.channel.EventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.nio.NioEventLoopGroup;
+import io.grpc.netty.shaded.io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.grpc.stub.ServerCallStreamObserver;
 import io.grpc.stub.StreamObserver;
 
 import java.io.*;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -40,33 +55,83 @@ import java.util.logging.Logger;
 public class GeometryServer {
     private static final Logger logger = Logger.getLogger(GeometryServer.class.getName());
 
+    /**
+     * Request header a client sets to "unordered" to allow the worker pool to return bi-directional stream responses
+     * as soon as they are ready instead of in request order. Responses are matched up by geometry_id.
+     */
+    public static final Metadata.Key<String> STREAM_ORDER_HEADER =
+            Metadata.Key.of("epl-stream-order", Metadata.ASCII_STRING_MARSHALLER);
+    public static final String STREAM_ORDER_UNORDERED = "unordered";
+
+    private static final Context.Key<Boolean> ALLOW_REORDER = Context.key("epl-allow-reorder");
+
     private final int port;
 
     // io.grpc.Server
     private final Server server;
 
+    // executors and event loops created by the server from GeometryServerOptions, released on stop
+    private List<Object> ownedResources = new ArrayList<>();
+
     private final LinkedList<ManagedChannel> fakeOobChannels = new LinkedList<ManagedChannel>();
 
     /**
      * Create a GeometryService server listening on {@code port} using {@code featureFile} database.
      */
     public GeometryServer(int port) throws IOException {
-        // changed max message size to match tensorflow
-        // https://github.com/tensorflow/serving/issues/288
-        // https://github.com/tensorflow/tensorflow/blob/d0d975f8c3330b5402263b2356b038bc8af919a2/tensorflow/core/platform/types.h#L52
-        // TODO add a test to check data size can handle 2 gigs
-        // maxInboundMessageSize
-        // https://github.com/grpc/grpc-java/blob/master/SECURITY.md
-        this(ServerBuilder
-                .forPort(port)
-                .executor(Executors.newFixedThreadPool(8))
-                .maxInboundMessageSize(2147483647), port);
+        this(new GeometryServerOptions().setPort(port));
+    }
+
+    /**
+     * Create a GeometryService server on Netty with the executor, event loops and flow control window of
+     * {@code options}.
+     */
+    public GeometryServer(GeometryServerOptions options) {
+        this(options, new ArrayList<>());
+    }
+
+    private GeometryServer(GeometryServerOptions options, List<Object> ownedResources) {
+        this(createServerBuilder(options, ownedResources),
+                options.getPort(),
+                createStreamExecutor(options, ownedResources),
+                options.getMaxStreamRequestsInFlight() > 0 ? options.getMaxStreamRequestsInFlight() : options.getStreamWorkerThreads(),
+                options.getExecutorType() == GeometryServerOptions.ExecutorType.BOUNDED ? options.getThreads() + options.getQueueLimit() : 0,
+                createComputePool(options, ownedResources));
+        this.ownedResources = ownedResources;
+        if (options.getProjectionCacheSize() > 0) {
+            ProjectionCache.getInstance().setMaxSize(options.getProjectionCacheSize());
+        }
     }
 
     /**
      * Create a GeometryService server using serverBuilder as a base and features as data.
      */
     public GeometryServer(ServerBuilder<?> serverBuilder, int port) {
+        this(serverBuilder, port, null, 0);
+    }
+
+    /**
+     * Create a GeometryService server that evaluates the requests of OperateBiStream and OperateBiStreamFlow on
+     * {@code streamExecutor}, with at most {@code maxStreamRequestsInFlight} requests of a single stream running at
+     * once. If {@code streamExecutor} is null the requests are evaluated one at a time inside onNext.
+     */
+    public GeometryServer(ServerBuilder<?> serverBuilder, int port, Executor streamExecutor, int maxStreamRequestsInFlight) {
+        this(serverBuilder, port, streamExecutor, maxStreamRequestsInFlight, 0);
+    }
+
+    /**
+     * Same as above, but once {@code maxConcurrentCalls} calls are in progress new calls are closed with
+     * RESOURCE_EXHAUSTED. A {@code maxConcurrentCalls} of 0 accepts every call.
+     */
+    public GeometryServer(ServerBuilder<?> serverBuilder, int port, Executor streamExecutor, int maxStreamRequestsInFlight, int maxConcurrentCalls) {
+        this(serverBuilder, port, streamExecutor, maxStreamRequestsInFlight, maxConcurrentCalls, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Same as above, but the parallel parts of a request, like the geometries of a simplify or the rows of a relate
+     * batch, are evaluated on {@code computePool}.
+     */
+    public GeometryServer(ServerBuilder<?> serverBuilder, int port, Executor streamExecutor, int maxStreamRequestsInFlight, int maxConcurrentCalls, ForkJoinPool computePool) {
         this.port = port;
 
         // try adding security
@@ -81,7 +146,106 @@ public class GeometryServer {
             }
         }
 
-        server = serverBuilder.addService(new GeometryService()).build();
+        GeometryService geometryService = new GeometryService(streamExecutor, maxStreamRequestsInFlight, computePool);
+        ServerServiceDefinition serviceDefinition = ServerInterceptors.intercept(
+                AliasingMarshaller.aliasRequests(geometryService.bindService()),
+                new StreamOrderInterceptor());
+        if (maxConcurrentCalls > 0) {
+            serviceDefinition = ServerInterceptors.intercept(serviceDefinition, new CallAdmissionInterceptor(maxConcurrentCalls));
+        }
+        server = serverBuilder.addService(serviceDefinition).build();
+    }
+
+    private static ServerBuilder<?> createServerBuilder(GeometryServerOptions options, List<Object> ownedResources) {
+        ExecutorService executor = createExecutor(options);
+        ownedResources.add(executor);
+
+        // changed max message size to match tensorflow
+        // https://github.com/tensorflow/serving/issues/288
+        // https://github.com/tensorflow/tensorflow/blob/d0d975f8c3330b5402263b2356b038bc8af919a2/tensorflow/core/platform/types.h#L52
+        // TODO add a test to check data size can handle 2 gigs
+        // maxInboundMessageSize
+        // https://github.com/grpc/grpc-java/blob/master/SECURITY.md
+        NettyServerBuilder serverBuilder = NettyServerBuilder
+                .forPort(options.getPort())
+                .executor(executor)
+                .maxInboundMessageSize(2147483647);
+
+        if (options.getBossEventLoopThreads() > 0 || options.getWorkerEventLoopThreads() > 0) {
+            // netty needs the boss group, the worker group and the channel type together. 0 worker threads lets
+            // netty pick twice the number of CPUs
+            EventLoopGroup bossGroup = new NioEventLoopGroup(Math.max(1, options.getBossEventLoopThreads()));
+            EventLoopGroup workerGroup = new NioEventLoopGroup(options.getWorkerEventLoopThreads());
+            ownedResources.add(bossGroup);
+            ownedResources.add(workerGroup);
+            serverBuilder.bossEventLoopGroup(bossGroup)
+                    .workerEventLoopGroup(workerGroup)
+                    .channelType(NioServerSocketChannel.class);
+        }
+
+        if (options.getFlowControlWindow() > 0) {
+            serverBuilder.flowControlWindow(options.getFlowControlWindow());
+        }
+
+        if (options.isInMemoryStac()) {
+            serverBuilder.addService(new InMemoryStacService());
+        }
+
+        return serverBuilder;
+    }
+
+    static ExecutorService createExecutor(GeometryServerOptions options) {
+        int threads = options.getThreads() > 0 ? options.getThreads() : Runtime.getRuntime().availableProcessors();
+        switch (options.getExecutorType()) {
+            case WORK_STEALING:
+                return Executors.newWorkStealingPool(threads);
+            case VIRTUAL:
+                try {
+                    // looked up at runtime, the service is built for Java 9
+                    Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                    return (ExecutorService) method.invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    logger.warning("virtual threads need Java 21 or later, using a work-stealing pool instead");
+                    return Executors.newWorkStealingPool(threads);
+                }
+            case BOUNDED:
+                // the queue itself is unbounded, CallAdmissionInterceptor caps the calls that can be queued
+                return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+            case FIXED:
+            default:
+                return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * The pool the parallel parts of the requests are evaluated on. A work-stealing request executor is a ForkJoinPool
+     * and is used for them as well, otherwise a pool with the parallelism of the request executor is created.
+     */
+    private static ForkJoinPool createComputePool(GeometryServerOptions options, List<Object> ownedResources) {
+        for (Object resource : ownedResources) {
+            if (resource instanceof ForkJoinPool) {
+                return (ForkJoinPool) resource;
+            }
+        }
+        ForkJoinPool computePool = new ForkJoinPool(options.getThreads() > 0 ? options.getThreads() : Runtime.getRuntime().availableProcessors());
+        ownedResources.add(computePool);
+        return computePool;
+    }
+
+    private static Executor createStreamExecutor(GeometryServerOptions options, List<Object> ownedResources) {
+        if (options.getStreamWorkerThreads() <= 0) {
+            return null;
+        }
+        ExecutorService streamExecutor = Executors.newFixedThreadPool(options.getStreamWorkerThreads());
+        ownedResources.add(streamExecutor);
+        return streamExecutor;
+    }
+
+    /**
+     * The port the server is listening on, useful when it was created for port 0.
+     */
+    public int getPort() {
+        return server.getPort();
     }
 
     /**
@@ -109,7 +273,29 @@ public class GeometryServer {
     public void stop() {
         if (server != null) {
             server.shutdown();
+            try {
+                server.awaitTermination(30, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        releaseOwnedResources();
+
+        ProjectionCache projectionCache = ProjectionCache.getInstance();
+        logger.info(String.format("projection cache: %d hits, %d misses, %d evictions, %d of %d entries",
+                projectionCache.getHits(), projectionCache.getMisses(), projectionCache.getEvictions(),
+                projectionCache.size(), projectionCache.getMaxSize()));
+    }
+
+    private synchronized void releaseOwnedResources() {
+        for (Object resource : ownedResources) {
+            if (resource instanceof ExecutorService) {
+                ((ExecutorService) resource).shutdown();
+            } else if (resource instanceof EventLoopGroup) {
+                ((EventLoopGroup) resource).shutdownGracefully();
+            }
         }
+        ownedResources.clear();
     }
 
     /**
@@ -125,36 +311,153 @@ public class GeometryServer {
      * Main method.  This comment makes the linter happy.
      */
     public static void main(String[] args) throws Exception {
-        GeometryServer server = new GeometryServer(8980);
+        GeometryServer server = new GeometryServer(GeometryServerOptions.fromEnvironment());
         server.start();
         server.blockUntilShutdown();
     }
 
+    /**
+     * Closes new calls with RESOURCE_EXHAUSTED while maxConcurrentCalls calls are in progress.
+     */
+    private static class CallAdmissionInterceptor implements ServerInterceptor {
+        private final Semaphore permits;
+
+        CallAdmissionInterceptor(int maxConcurrentCalls) {
+            permits = new Semaphore(maxConcurrentCalls);
+        }
+
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                     Metadata headers,
+                                                                     ServerCallHandler<ReqT, RespT> next) {
+            if (!permits.tryAcquire()) {
+                call.close(Status.RESOURCE_EXHAUSTED.withDescription("Geometry server call queue is full"), new Metadata());
+                return new ServerCall.Listener<ReqT>() {};
+            }
+
+            AtomicBoolean released = new AtomicBoolean(false);
+            Runnable release = () -> {
+                if (released.compareAndSet(false, true)) {
+                    permits.release();
+                }
+            };
+
+            ServerCall.Listener<ReqT> listener;
+            try {
+                listener = next.startCall(call, headers);
+            } catch (RuntimeException e) {
+                release.run();
+                throw e;
+            }
+
+            return new ForwardingServerCallListener.SimpleForwardingServerCallListener<ReqT>(listener) {
+                @Override
+                public void onComplete() {
+                    release.run();
+                    super.onComplete();
+                }
+
+                @Override
+                public void onCancel() {
+                    release.run();
+                    super.onCancel();
+                }
+            };
+        }
+    }
+
+    /**
+     * Copies the stream order header of a call into its Context.
+     */
+    private static class StreamOrderInterceptor implements ServerInterceptor {
+        @Override
+        public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(ServerCall<ReqT, RespT> call,
+                                                                     Metadata headers,
+                                                                     ServerCallHandler<ReqT, RespT> next) {
+            if (!STREAM_ORDER_UNORDERED.equals(headers.get(STREAM_ORDER_HEADER))) {
+                return next.startCall(call, headers);
+            }
+            return Contexts.interceptCall(Context.current().withValue(ALLOW_REORDER, true), call, headers, next);
+        }
+    }
+
     /**
      * Our implementation of GeometryService service.
      */
     private static class GeometryService extends GeometryServiceGrpc.GeometryServiceImplBase {
+        private final Executor streamExecutor;
+        private final int maxStreamRequestsInFlight;
+        private final ForkJoinPool computePool;
+
+        GeometryService(Executor streamExecutor, int maxStreamRequestsInFlight, ForkJoinPool computePool) {
+            this.streamExecutor = streamExecutor;
+            this.maxStreamRequestsInFlight = maxStreamRequestsInFlight;
+            this.computePool = computePool;
+        }
+
+        private StreamObserver<GeometryRequest> workerPoolStream(String nameofCurrMethod, StreamObserver<GeometryResponse> responseObserver) {
+            boolean ordered = !Boolean.TRUE.equals(ALLOW_REORDER.get());
+            StreamRequestProcessor processor = new StreamRequestProcessor(
+                    (ServerCallStreamObserver<GeometryResponse>) responseObserver,
+                    streamExecutor,
+                    computePool,
+                    maxStreamRequestsInFlight,
+                    ordered);
+
+            return new StreamObserver<>() {
+                @Override
+                public void onNext(GeometryRequest geometryRequest) {
+                    String requestDetails = String.format("grpc operator type: %s, geometry request type: %s",
+                            nameofCurrMethod, geometryRequest.getOperator().name());
+                    logger.log(Level.INFO, requestDetails);
+
+                    processor.submit(geometryRequest);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    logger.info("ERROR");
+                    processor.cancel();
+                }
+
+                @Override
+                public void onCompleted() {
+                    // Signal the end of work once the requests in flight are done.
+                    logger.info("COMPLETED");
+                    processor.halfClose();
+                }
+            };
+        }
+
         @Override
         public io.grpc.stub.StreamObserver<com.epl.protobuf.v1.GeometryRequest> operateClientStream(io.grpc.stub.StreamObserver<com.epl.protobuf.v1.GeometryResponse> responseObserver) {
             String nameofCurrMethod = new Object() {}.getClass().getEnclosingMethod().getName();
             return new StreamObserver<>() {
                 GeometryRequest lastRequest = null;
                 ListeningGeometryCursor listeningGeometryCursor = new ListeningGeometryCursor();
-                AtomicInteger count = new AtomicInteger(0);
-                int interval = 25;
+                // the union bins the geometries by vertex count and dissolves a bin once it holds enough vertices, so
+                // the partial dissolves run as the geometries arrive and only the partial results are kept
                 GeometryCursor operationCursor = OperatorUnion.local().execute(listeningGeometryCursor, null,null);
+                boolean failed = false;
                 // todo assumes all same spatial reference
                 @Override
                 public void onNext(GeometryRequest geometryRequest) {
+                    if (failed) {
+                        return;
+                    }
                     String requestDetails = String.format("grpc operator type: %s, geometry request type: %s",
                             nameofCurrMethod, geometryRequest.getOperator().name());
                     logger.log(Level.INFO, requestDetails);
 
-                    lastRequest = geometryRequest;
-                    Geometry geometry = GeometryServiceUtil.extractGeometry(geometryRequest.getGeometry());
-                    listeningGeometryCursor.tick(geometry);
-                    if (count.incrementAndGet() % interval == 0) {
-                        listeningGeometryCursor.tock();
+                    try {
+                        lastRequest = geometryRequest;
+                        Geometry geometry = GeometryServiceUtil.extractGeometry(geometryRequest.getGeometry());
+                        // every tick must be followed by one tock, the tock pulls the geometry into the union
+                        listeningGeometryCursor.tick(geometry);
+                        operationCursor.tock();
+                    } catch (Throwable throwable) {
+                        failed = true;
+                        responseObserver.onError(Status.UNKNOWN.withDescription("Error handling request").withCause(throwable).asException());
                     }
                 }
 
@@ -166,6 +469,14 @@ public class GeometryServer {
 
                 @Override
                 public void onCompleted() {
+                    if (failed) {
+                        return;
+                    }
+                    if (lastRequest == null) {
+                        responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("No geometries were sent").asException());
+                        return;
+                    }
+                    // only the remaining bins are dissolved here
                     GeometryResponsesIterator geometryResponsesIterator = new GeometryResponsesIterator(operationCursor, lastRequest, Encoding.WKB, true);
                     responseObserver.onNext(geometryResponsesIterator.next());
                     responseObserver.onCompleted();
@@ -173,6 +484,26 @@ public class GeometryServer {
             };
         }
 
+        @Override
+        public void relateBatchServerStream(RelateBatchRequest relateRequest, StreamObserver<RelateBatchResponse> responseObserver) {
+            try {
+                String nameofCurrMethod = new Object() {}.getClass().getEnclosingMethod().getName();
+                String requestDetails = String.format("grpc operator type: %s, relate type: %s, %d left and %d right geometries",
+                        nameofCurrMethod, relateRequest.getOperator().name(), relateRequest.getLeftGeometriesCount(), relateRequest.getRightGeometriesCount());
+                logger.log(Level.INFO, requestDetails);
+
+                Iterator<RelateBatchResponse> relateResponses = GeometryServiceUtil.relateBatch(relateRequest, computePool);
+                while (relateResponses.hasNext()) {
+                    responseObserver.onNext(relateResponses.next());
+                }
+                responseObserver.onCompleted();
+            } catch (GeometryException geometryException) {
+                responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(geometryException.getMessage()).asException());
+            } catch (Throwable throwable) {
+                responseObserver.onError(Status.UNKNOWN.withDescription("Error handling request").withCause(throwable).asException());
+            }
+        }
+
         @Override
         public void operateServerStream(GeometryRequest geometryRequest, StreamObserver<GeometryResponse> responseObserver)  {
             try {
@@ -181,7 +512,7 @@ public class GeometryServer {
                         nameofCurrMethod, geometryRequest.getOperator().name());
                 logger.log(Level.INFO, requestDetails);
 
-                GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false);
+                GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false, computePool);
                 while (operatorResultsIterator.hasNext()) {
                     responseObserver.onNext(operatorResultsIterator.next());
                 }
@@ -194,6 +525,9 @@ public class GeometryServer {
         @Override
         public StreamObserver<GeometryRequest> operateBiStream(StreamObserver<GeometryResponse> responseObserver) {
             String nameofCurrMethod = new Object() {}.getClass().getEnclosingMethod().getName();
+            if (streamExecutor != null) {
+                return workerPoolStream(nameofCurrMethod, responseObserver);
+            }
             return new StreamObserver<>() {
                 @Override
                 public void onNext(GeometryRequest geometryRequest) {
@@ -202,7 +536,7 @@ public class GeometryServer {
                                 nameofCurrMethod, geometryRequest.getOperator().name());
                         logger.log(Level.INFO, requestDetails);
 
-                        GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false);
+                        GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false, computePool);
                         while (operatorResultsIterator.hasNext()) {
                             responseObserver.onNext(operatorResultsIterator.next());
                         }
@@ -231,6 +565,10 @@ public class GeometryServer {
         @Override
         public StreamObserver<GeometryRequest> operateBiStreamFlow(StreamObserver<GeometryResponse> responseObserver) {
             String nameofCurrMethod = new Object() {}.getClass().getEnclosingMethod().getName();
+            if (streamExecutor != null) {
+                // the worker pool keeps manual flow control, requesting a message for every free slot
+                return workerPoolStream(nameofCurrMethod, responseObserver);
+            }
             // Set up manual flow control for the request stream. It feels backwards to configure the request
             // stream's flow control using the response stream's observer, but this is the way it is.
             final ServerCallStreamObserver<GeometryResponse> serverCallStreamObserver =
@@ -263,7 +601,7 @@ public class GeometryServer {
                         logger.log(Level.INFO, requestDetails);
 
                         // Accept and enqueue the request.
-                        GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false);
+                        GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false, computePool);
                         while (operatorResultsIterator.hasNext()) {
                             responseObserver.onNext(operatorResultsIterator.next());
                         }
@@ -332,24 +670,31 @@ public class GeometryServer {
 
             return new StreamObserver<>() {
                 ShapefileChunkedReader shapefileChunkedReader = null;
+                GeometryRequest nestedRequest = GeometryRequest.getDefaultInstance();
                 @Override
                 public void onNext(FileRequestChunk value) {
-                    InputStream inputStream = value.getData().newInput();
                     // Process the request and send a response or an error.
                     try {
                         // Accept and enqueue the request.
                         if (shapefileChunkedReader == null) {
-                            shapefileChunkedReader = new ShapefileChunkedReader(inputStream, (int)value.getSize());
-                        } else {
-                            shapefileChunkedReader.addStream(inputStream, (int)value.getSize());
+                            shapefileChunkedReader = new ShapefileChunkedReader(computePool);
                         }
-
-                        if (shapefileChunkedReader.hasNext()) {
-                            GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(value.getNestedRequest(), shapefileChunkedReader, true);
-                            while (operatorResultsIterator.hasNext()) {
-                                responseObserver.onNext(operatorResultsIterator.next());
-                            }
+                        if (value.hasNestedRequest()) {
+                            nestedRequest = value.getNestedRequest();
                         }
+                        switch (value.getFileType()) {
+                            case SHAPEFILE_INDEX:
+                                shapefileChunkedReader.addIndexChunk(value.getData());
+                                break;
+                            case SHAPEFILE_DBASE:
+                                shapefileChunkedReader.addAttributeChunk(value.getData(), value.getFeatureIdField());
+                                break;
+                            default:
+                                shapefileChunkedReader.addChunk(value.getData());
+                                break;
+                        }
+
+                        sendResults();
 
                         // Check the provided ServerCallStreamObserver to see if it is still ready to accept more messages.
                         if (serverCallStreamObserver.isReady()) {
@@ -383,7 +728,37 @@ public class GeometryServer {
                 public void onCompleted() {
                     // Signal the end of work when the client ends the request stream.
                     logger.info("COMPLETED");
-                    responseObserver.onCompleted();
+                    try {
+                        if (shapefileChunkedReader != null) {
+                            // no more .dbf chunks arrive, the geometries still waiting for records are sent without attributes
+                            shapefileChunkedReader.finish();
+                            sendResults();
+                            int unattributedCount = shapefileChunkedReader.getUnattributedCount();
+                            if (unattributedCount > 0) {
+                                responseObserver.onError(Status.INVALID_ARGUMENT
+                                        .withDescription(unattributedCount + " geometries have no .dbf record, the .dbf has fewer records than the .shp or ended early")
+                                        .asException());
+                                return;
+                            }
+                        }
+                        responseObserver.onCompleted();
+                    } catch (Throwable throwable) {
+                        throwable.printStackTrace();
+                        responseObserver.onError(
+                                Status.UNKNOWN.withDescription("Error handling request").withCause(throwable).asException());
+                    }
+                }
+
+                private void sendResults() throws IOException {
+                    if (shapefileChunkedReader.hasNext()) {
+                        // one response per geometry, so that every geometry keeps its feature id and attributes
+                        GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil
+                                .buildResultsIterable(nestedRequest, shapefileChunkedReader, false, computePool)
+                                .withAttributes(shapefileChunkedReader::getAttributes);
+                        while (operatorResultsIterator.hasNext()) {
+                            responseObserver.onNext(operatorResultsIterator.next());
+                        }
+                    }
                 }
             };
         }
@@ -411,7 +786,7 @@ public class GeometryServer {
                         nameofCurrMethod, geometryRequest.getOperator().name());
                 logger.log(Level.INFO, requestDetails);
 
-                GeometryResponsesIterator operatorResults = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, true);
+                GeometryResponsesIterator operatorResults = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, true, computePool);
                 while (operatorResults.hasNext()) {
                     responseObserver.onNext(operatorResults.next());
                 }
@@ -0,0 +1,212 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+/**
+ * Threading and transport settings for a {@link GeometryServer}. The defaults match the historic server: port 8980,
+ * a fixed pool of 8 threads and the gRPC defaults for the Netty event loops and the flow control window.
+ *
+ * {@link #fromEnvironment()} reads every setting from an environment variable so a deployment can tune the server
+ * without a rebuild.
+ */
+public class GeometryServerOptions {
+    /**
+     * How the gRPC calls are executed.
+     */
+    public enum ExecutorType {
+        // fixed pool of {@code threads} threads with an unbounded queue
+        FIXED,
+        // work-stealing ForkJoinPool, {@code threads} sets the parallelism (0 uses the number of CPUs)
+        WORK_STEALING,
+        // a new virtual thread per task. Needs Java 21+, older runtimes fall back to WORK_STEALING
+        VIRTUAL,
+        // fixed pool of {@code threads} threads. Once {@code threads + queueLimit} calls are in progress, new calls
+        // are rejected with RESOURCE_EXHAUSTED
+        BOUNDED
+    }
+
+    private int port = 8980;
+    private ExecutorType executorType = ExecutorType.FIXED;
+    private int threads = 8;
+    private int queueLimit = 0;
+    private int bossEventLoopThreads = 0;
+    private int workerEventLoopThreads = 0;
+    private int flowControlWindow = 0;
+    private int streamWorkerThreads = 0;
+    private int maxStreamRequestsInFlight = 0;
+    private int projectionCacheSize = 0;
+    private boolean inMemoryStac = false;
+
+    public static GeometryServerOptions fromEnvironment() {
+        GeometryServerOptions options = new GeometryServerOptions();
+        options.port = getEnvInt("GEOMETRY_SERVER_PORT", options.port);
+        String executorType = System.getenv("GEOMETRY_SERVER_EXECUTOR");
+        if (executorType != null && executorType.length() > 0) {
+            options.executorType = ExecutorType.valueOf(executorType.toUpperCase().replace('-', '_'));
+        }
+        options.threads = getEnvInt("GEOMETRY_SERVER_THREADS", options.threads);
+        options.queueLimit = getEnvInt("GEOMETRY_SERVER_QUEUE_LIMIT", options.queueLimit);
+        options.bossEventLoopThreads = getEnvInt("GEOMETRY_SERVER_BOSS_THREADS", options.bossEventLoopThreads);
+        options.workerEventLoopThreads = getEnvInt("GEOMETRY_SERVER_WORKER_THREADS", options.workerEventLoopThreads);
+        options.flowControlWindow = getEnvInt("GEOMETRY_SERVER_FLOW_CONTROL_WINDOW", options.flowControlWindow);
+        options.streamWorkerThreads = getEnvInt("GEOMETRY_SERVER_STREAM_WORKERS", options.streamWorkerThreads);
+        options.maxStreamRequestsInFlight = getEnvInt("GEOMETRY_SERVER_STREAM_IN_FLIGHT", options.maxStreamRequestsInFlight);
+        options.projectionCacheSize = getEnvInt("GEOMETRY_SERVER_PROJECTION_CACHE_SIZE", options.projectionCacheSize);
+        options.inMemoryStac = Boolean.parseBoolean(System.getenv("GEOMETRY_SERVER_IN_MEMORY_STAC"));
+        return options;
+    }
+
+    private static int getEnvInt(String name, int defaultValue) {
+        String value = System.getenv(name);
+        if (value == null || value.length() == 0) {
+            return defaultValue;
+        }
+        return Integer.parseInt(value);
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    public GeometryServerOptions setPort(int port) {
+        this.port = port;
+        return this;
+    }
+
+    public ExecutorType getExecutorType() {
+        return executorType;
+    }
+
+    public GeometryServerOptions setExecutorType(ExecutorType executorType) {
+        this.executorType = executorType;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Number of call executor threads. For WORK_STEALING and VIRTUAL 0 means the number of CPUs.
+     */
+    public GeometryServerOptions setThreads(int threads) {
+        this.threads = threads;
+        return this;
+    }
+
+    public int getQueueLimit() {
+        return queueLimit;
+    }
+
+    /**
+     * Number of calls that may wait for a BOUNDED executor thread before calls are rejected.
+     */
+    public GeometryServerOptions setQueueLimit(int queueLimit) {
+        this.queueLimit = queueLimit;
+        return this;
+    }
+
+    public int getBossEventLoopThreads() {
+        return bossEventLoopThreads;
+    }
+
+    /**
+     * Number of Netty threads accepting connections. 0 leaves the gRPC default.
+     */
+    public GeometryServerOptions setBossEventLoopThreads(int bossEventLoopThreads) {
+        this.bossEventLoopThreads = bossEventLoopThreads;
+        return this;
+    }
+
+    public int getWorkerEventLoopThreads() {
+        return workerEventLoopThreads;
+    }
+
+    /**
+     * Number of Netty threads serving connections. 0 leaves the gRPC default.
+     */
+    public GeometryServerOptions setWorkerEventLoopThreads(int workerEventLoopThreads) {
+        this.workerEventLoopThreads = workerEventLoopThreads;
+        return this;
+    }
+
+    public int getFlowControlWindow() {
+        return flowControlWindow;
+    }
+
+    /**
+     * HTTP/2 flow control window in bytes. 0 leaves the gRPC default.
+     */
+    public GeometryServerOptions setFlowControlWindow(int flowControlWindow) {
+        this.flowControlWindow = flowControlWindow;
+        return this;
+    }
+
+    public int getStreamWorkerThreads() {
+        return streamWorkerThreads;
+    }
+
+    /**
+     * Number of threads evaluating bi-directional stream requests. 0 evaluates them inside onNext.
+     */
+    public GeometryServerOptions setStreamWorkerThreads(int streamWorkerThreads) {
+        this.streamWorkerThreads = streamWorkerThreads;
+        return this;
+    }
+
+    public int getMaxStreamRequestsInFlight() {
+        return maxStreamRequestsInFlight;
+    }
+
+    /**
+     * Number of requests of one bi-directional stream evaluated at once. 0 uses the number of stream worker threads.
+     */
+    public GeometryServerOptions setMaxStreamRequestsInFlight(int maxStreamRequestsInFlight) {
+        this.maxStreamRequestsInFlight = maxStreamRequestsInFlight;
+        return this;
+    }
+
+    public int getProjectionCacheSize() {
+        return projectionCacheSize;
+    }
+
+    /**
+     * Number of spatial references and projection transformations kept by the ProjectionCache. 0 leaves the cache
+     * size as it is.
+     */
+    public GeometryServerOptions setProjectionCacheSize(int projectionCacheSize) {
+        this.projectionCacheSize = projectionCacheSize;
+        return this;
+    }
+
+    public boolean isInMemoryStac() {
+        return inMemoryStac;
+    }
+
+    /**
+     * Also serve the StacService from an {@link InMemoryStacService}, a stand-in for a STAC database in development
+     * and tests. Items are lost when the server stops.
+     */
+    public GeometryServerOptions setInMemoryStac(boolean inMemoryStac) {
+        this.inMemoryStac = inMemoryStac;
+        return this;
+    }
+}
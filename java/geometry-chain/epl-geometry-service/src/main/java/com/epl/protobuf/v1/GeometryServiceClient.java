@@ -34,6 +34,7 @@ import io.grpc.stub.ClientResponseObserver;
 import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Random;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
@@ -147,7 +148,23 @@ public class GeometryServiceClient {
 
     public void shapefileChunked(File inFile) throws FileNotFoundException, InterruptedException {
         CountDownLatch done = new CountDownLatch(1);
-        InputStream inputStream = new FileInputStream(inFile);
+        // the .shx and the .dbf next to the .shp are sent first, so the server can locate the records by offset and
+        // fill in their feature ids and attributes
+        String basePath = inFile.getAbsolutePath().substring(0, inFile.getAbsolutePath().lastIndexOf('.'));
+        ArrayDeque<FileRequestChunk.FileType> fileTypes = new ArrayDeque<>();
+        ArrayDeque<InputStream> inputStreams = new ArrayDeque<>();
+        File indexFile = new File(basePath + ".shx");
+        if (indexFile.exists()) {
+            fileTypes.add(FileRequestChunk.FileType.SHAPEFILE_INDEX);
+            inputStreams.add(new FileInputStream(indexFile));
+        }
+        File dbaseFile = new File(basePath + ".dbf");
+        if (dbaseFile.exists()) {
+            fileTypes.add(FileRequestChunk.FileType.SHAPEFILE_DBASE);
+            inputStreams.add(new FileInputStream(dbaseFile));
+        }
+        fileTypes.add(FileRequestChunk.FileType.SHAPEFILE);
+        inputStreams.add(new FileInputStream(inFile));
         int offsetSize = 262144;
         byte[] bytes = new byte[offsetSize];
 
@@ -179,25 +196,35 @@ public class GeometryServiceClient {
                         this.requestStream = requestStream;
                         requestStream.disableAutoInboundFlowControl();
                         requestStream.setOnReadyHandler(() -> {
-                            while (requestStream.isReady()) {
+                            while (requestStream.isReady() && !inputStreams.isEmpty()) {
+                                InputStream inputStream = inputStreams.peek();
                                 try {
                                     int resultSize = inputStream.read(bytes, 0, offsetSize);
-                                    if (resultSize < offsetSize) {
-                                        requestStream.onCompleted();
-                                        inputStream.close();
-                                        break;
+                                    if (resultSize > 0) {
+                                        fileChunkBuilder
+                                                .setFileType(fileTypes.peek())
+                                                .setSize(resultSize)
+                                                .setData(ByteString.copyFrom(bytes, 0, resultSize));
+                                        requestStream.onNext(fileChunkBuilder.build());
+                                    }
+                                    if (resultSize == -1) {
+                                        inputStreams.poll().close();
+                                        fileTypes.poll();
+                                        if (inputStreams.isEmpty()) {
+                                            requestStream.onCompleted();
+                                        }
                                     }
-                                    fileChunkBuilder.setSize(resultSize).setData(ByteString.copyFrom(bytes, 0, resultSize));
-                                    requestStream.onNext(fileChunkBuilder.build());
                                 } catch (EOFException e2) {
-                                    requestStream.onCompleted();
                                     try {
                                         // this is stupid
-                                        inputStream.close();
+                                        inputStreams.poll().close();
                                     } catch (IOException e) {
                                         e.printStackTrace();
                                     }
-                                    break;
+                                    fileTypes.poll();
+                                    if (inputStreams.isEmpty()) {
+                                        requestStream.onCompleted();
+                                    }
                                 } catch (IOException eio) {
                                     logger.severe(eio.getLocalizedMessage());
                                     break;
@@ -23,9 +23,14 @@ package com.epl.protobuf.v1;
 import com.esri.core.geometry.*;
 import org.epl.geometry.*;
 import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.LongFunction;
 
 enum Side {
     Left,
@@ -237,11 +242,19 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
 
     private GeometryResponse m_precookedResult = null;
     private boolean m_bPrecookedRetrieved = false;
+    // responses computed by the caller one at a time, null if the responses are exported from a cursor
+    private Iterator<GeometryResponse> m_responses = null;
+    // attributes of the returned geometries by geometry id, null if there are none
+    private LongFunction<Map<String, String>> m_attributeLookup = null;
 
     GeometryResponsesIterator(GeometryResponse operatorResult) {
         m_precookedResult = operatorResult;
     }
 
+    GeometryResponsesIterator(Iterator<GeometryResponse> responses) {
+        m_responses = responses;
+    }
+
     protected GeometryResponsesIterator(GeometryCursor geometryCursor,
                                         GeometryRequest operatorRequest,
                                         Encoding geometryEncodingType,
@@ -268,7 +281,9 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
                 m_stringCursor = new OperatorExportToWktCursor(0, geometryCursor, null);
                 break;
             case GEOJSON:
-                m_stringCursor = new OperatorExportToGeoJsonCursor(GeoJsonExportFlags.geoJsonExportSkipCRS, null, geometryCursor);
+                // written as UTF-8 into one reused buffer that is copied into the response, instead of a String that
+                // protobuf encodes again
+                m_byteBufferCursor = OperatorExportToGeoJson.local().executeUtf8(GeoJsonExportFlags.geoJsonExportSkipCRS, null, geometryCursor, true);
                 break;
             case ESRI_SHAPE:
                 m_byteBufferCursor = new OperatorExportToESRIShapeCursor(0, geometryCursor);
@@ -287,12 +302,24 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
     }
 
 
+    /**
+     * Fill the attributes of every returned geometry with the attributes looked up by its geometry id.
+     */
+    GeometryResponsesIterator withAttributes(LongFunction<Map<String, String>> attributeLookup) {
+        m_attributeLookup = attributeLookup;
+        return this;
+    }
+
     @Override
     public boolean hasNext() {
         if (m_precookedResult != null && !m_bPrecookedRetrieved) {
             return true;
         }
 
+        if (m_responses != null) {
+            return m_responses.hasNext();
+        }
+
         return (m_byteBufferCursor != null && m_byteBufferCursor.hasNext()) || (m_stringCursor != null && m_stringCursor.hasNext()) || (m_geometryCursor != null && m_geometryCursor.hasNext());
     }
 
@@ -305,6 +332,10 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
             return tempResults;
         }
 
+        if (m_responses != null) {
+            return m_responses.next();
+        }
+
         GeometryData.Builder geometryBuilder = GeometryData.newBuilder();
         if (m_spatialReferenceData != null) {
             geometryBuilder.setProj(m_spatialReferenceData);
@@ -313,17 +344,19 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
         while (hasNext()) {
             Envelope2D envelope2D = new Envelope2D();
 
+            // the binary export cursors allocate a new buffer for every geometry, so the buffers are handed to
+            // protobuf without another copy
             switch (m_encodingType) {
                 case UNKNOWN_ENCODING:
                 case EWKB:
-                    geometryBuilder.setEwkb(ByteString.copyFrom(m_byteBufferCursor.next()));
+                    geometryBuilder.setEwkb(UnsafeByteOperations.unsafeWrap(m_byteBufferCursor.next()));
                     geometryBuilder.setGeometryId(m_byteBufferCursor.getByteBufferID());
                     geometryBuilder.setSimpleValue(m_byteBufferCursor.getSimpleState().ordinal());
                     geometryBuilder.setFeatureId(m_byteBufferCursor.getFeatureID());
                     envelope2D = m_byteBufferCursor.getEnvelope2D();
                     break;
                 case WKB:
-                    geometryBuilder.setWkb(ByteString.copyFrom(m_byteBufferCursor.next()));
+                    geometryBuilder.setWkb(UnsafeByteOperations.unsafeWrap(m_byteBufferCursor.next()));
                     geometryBuilder.setGeometryId(m_byteBufferCursor.getByteBufferID());
                     geometryBuilder.setSimpleValue(m_byteBufferCursor.getSimpleState().ordinal());
                     geometryBuilder.setFeatureId(m_byteBufferCursor.getFeatureID());
@@ -337,14 +370,14 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
                     envelope2D = m_stringCursor.getEnvelope2D();
                     break;
                 case GEOJSON:
-                    geometryBuilder.setGeojson(m_stringCursor.next());
-                    geometryBuilder.setGeometryId(m_stringCursor.getID());
-                    geometryBuilder.setSimpleValue(m_stringCursor.getSimpleState().ordinal());
-                    geometryBuilder.setFeatureId(m_stringCursor.getFeatureID());
-                    envelope2D = m_stringCursor.getEnvelope2D();
+                    geometryBuilder.setGeojsonBytes(ByteString.copyFrom(m_byteBufferCursor.next()));
+                    geometryBuilder.setGeometryId(m_byteBufferCursor.getByteBufferID());
+                    geometryBuilder.setSimpleValue(m_byteBufferCursor.getSimpleState().ordinal());
+                    geometryBuilder.setFeatureId(m_byteBufferCursor.getFeatureID());
+                    envelope2D = m_byteBufferCursor.getEnvelope2D();
                     break;
                 case ESRI_SHAPE:
-                    geometryBuilder.setEsriShape(ByteString.copyFrom(m_byteBufferCursor.next()));
+                    geometryBuilder.setEsriShape(UnsafeByteOperations.unsafeWrap(m_byteBufferCursor.next()));
                     geometryBuilder.setGeometryId(m_byteBufferCursor.getByteBufferID());
                     geometryBuilder.setSimpleValue(m_byteBufferCursor.getSimpleState().ordinal());
                     geometryBuilder.setFeatureId(m_byteBufferCursor.getFeatureID());
@@ -365,6 +398,9 @@ class GeometryResponsesIterator implements Iterator<GeometryResponse> {
                 envBuilder.setProj(m_spatialReferenceData);
             }
             geometryBuilder.setEnvelope(envBuilder);
+            if (m_attributeLookup != null) {
+                geometryBuilder.clearAttributes().putAllAttributes(m_attributeLookup.apply(geometryBuilder.getGeometryId()));
+            }
             // the while loop will continue if all geometries are to be compact into one bag
             if (!m_bForceCompact) {
                 break;
@@ -386,7 +422,11 @@ public class GeometryServiceUtil {
     }
 
     private static Operator.Type getOp(GeometryRequest operatorRequest) {
-        String key = operatorRequest.getOperator().toString().toLowerCase().replaceAll("[_]", "");
+        return getOp(operatorRequest.getOperator());
+    }
+
+    private static Operator.Type getOp(OperatorType operatorType) {
+        String key = operatorType.toString().toLowerCase().replaceAll("[_]", "");
         Operator.Type opType = m_operatorTypeMap.get(key);
         if (opType == null) {
             return Operator.Type.Project;
@@ -397,20 +437,21 @@ public class GeometryServiceUtil {
     private static GeometryCursor getLeftGeometryRequestFromRequest(
             GeometryRequest operatorRequest,
             GeometryCursor leftCursor,
-            SpatialReferenceGroup srGroup) throws IOException {
+            SpatialReferenceGroup srGroup,
+            ForkJoinPool pool) throws IOException {
         if (leftCursor == null) {
             leftCursor = createGeometryCursor(operatorRequest, Side.Left);
             if (leftCursor == null && operatorRequest.hasLeftGeometryRequest()) {
-                leftCursor = cursorFromRequest(operatorRequest.getLeftGeometryRequest(), null, null);
+                leftCursor = cursorFromRequest(operatorRequest.getLeftGeometryRequest(), null, null, pool);
             } else if (leftCursor == null && operatorRequest.hasGeometryRequest()) {
                 // assumes there is always a nested request if none of the above worked
-                leftCursor = cursorFromRequest(operatorRequest.getGeometryRequest(), null, null);
+                leftCursor = cursorFromRequest(operatorRequest.getGeometryRequest(), null, null, pool);
             }
         } else {
             if (operatorRequest.hasLeftGeometryRequest()) {
-                leftCursor = cursorFromRequest(operatorRequest.getLeftGeometryRequest(), leftCursor, null);
+                leftCursor = cursorFromRequest(operatorRequest.getLeftGeometryRequest(), leftCursor, null, pool);
             } else if (operatorRequest.hasGeometryRequest()) {
-                leftCursor = cursorFromRequest(operatorRequest.getGeometryRequest(), leftCursor, null);
+                leftCursor = cursorFromRequest(operatorRequest.getGeometryRequest(), leftCursor, null, pool);
             }
         }
 
@@ -418,10 +459,10 @@ public class GeometryServiceUtil {
             throw new IOException("Geometry / operator request not defined for operation.");
         }
 
-        // project left if needed
+        // project left if needed. large geometries are projected in parallel chunks
         if (srGroup.operatorSR != null && !srGroup.operatorSR.equals(srGroup.leftSR)) {
-            ProjectionTransformation projTransformation = new ProjectionTransformation(srGroup.leftSR, srGroup.operatorSR);
-            leftCursor = OperatorProject.local().execute(leftCursor, projTransformation, null);
+            ProjectionTransformation projTransformation = ProjectionCache.getInstance().getTransformation(srGroup.leftSR, srGroup.operatorSR);
+            leftCursor = perGeometry(leftCursor, pool, cursor -> OperatorProject.local().execute(cursor, projTransformation, null, true));
         }
 
         return leftCursor;
@@ -431,33 +472,246 @@ public class GeometryServiceUtil {
             GeometryRequest operatorRequest,
             GeometryCursor leftCursor,
             GeometryCursor rightCursor,
-            SpatialReferenceGroup srGroup) throws GeometryException, IOException {
+            SpatialReferenceGroup srGroup,
+            ForkJoinPool pool) throws GeometryException, IOException {
         if (leftCursor != null && rightCursor == null) {
             rightCursor = createGeometryCursor(operatorRequest, Side.Right);
             if (rightCursor == null && operatorRequest.hasRightGeometryRequest()) {
-                rightCursor = cursorFromRequest(operatorRequest.getRightGeometryRequest(), null, null);
+                rightCursor = cursorFromRequest(operatorRequest.getRightGeometryRequest(), null, null, pool);
             }
         }
 
         if (rightCursor != null && srGroup.operatorSR != null && !srGroup.operatorSR.equals(srGroup.rightSR)) {
-            ProjectionTransformation projTransformation = new ProjectionTransformation(srGroup.rightSR, srGroup.operatorSR);
-            rightCursor = OperatorProject.local().execute(rightCursor, projTransformation, null);
+            ProjectionTransformation projTransformation = ProjectionCache.getInstance().getTransformation(srGroup.rightSR, srGroup.operatorSR);
+            rightCursor = OperatorProject.local().execute(rightCursor, projTransformation, null, true);
         }
         return rightCursor;
     }
 
+    /**
+     * Evaluates an operation that returns one geometry per input geometry for the input geometries in parallel on
+     * {@code pool}. The results keep the input order and ids.
+     */
+    private static GeometryCursor perGeometry(GeometryCursor inputCursor,
+                                              ForkJoinPool pool,
+                                              Function<GeometryCursor, GeometryCursor> operation) {
+        return new ParallelGeometryCursor(inputCursor, operation, pool);
+    }
+
+    /**
+     * Tests the relation of a RelateBatchRequest between every left and every right geometry. The geometries of both
+     * sides are indexed by their envelopes, so only pairs with intersecting envelopes are tested. Every call to next()
+     * returns the matches of the next left geometry. The left geometries are tested in parallel on {@code pool}.
+     */
+    public static Iterator<RelateBatchResponse> relateBatch(RelateBatchRequest relateRequest, ForkJoinPool pool) throws GeometryException {
+        switch (relateRequest.getOperator()) {
+            case EQUALS:
+            case DISJOINT:
+            case INTERSECTS:
+            case WITHIN:
+            case CONTAINS:
+            case CROSSES:
+            case TOUCHES:
+            case OVERLAPS:
+                break;
+            default:
+                throw new GeometryException("relate batch requests only support simple relations, not " + relateRequest.getOperator().name());
+        }
+
+        SpatialReferenceEx operatorSR = null;
+        if (relateRequest.hasOperationProj()) {
+            operatorSR = extractSpatialReference(relateRequest.getOperationProj());
+        } else if (relateRequest.getLeftGeometriesCount() > 0) {
+            operatorSR = extractSpatialReference(relateRequest.getLeftGeometries(0));
+        }
+
+        List<Geometry> leftGeometries = extractGeometries(relateRequest.getLeftGeometriesList(), operatorSR);
+        List<Geometry> rightGeometries = extractGeometries(relateRequest.getRightGeometriesList(), operatorSR);
+        RelationMatrix relationMatrix = ((OperatorSimpleRelationEx) OperatorFactoryLocalEx.getInstance().getOperator(OperatorEx.Type.SimpleRelation))
+                .execute(new SimpleGeometryCursor(leftGeometries), new SimpleGeometryCursor(rightGeometries),
+                        operatorSR != null ? operatorSR.toSpatialReference() : null, pool, null, getOp(relateRequest.getOperator()));
+
+        return new Iterator<>() {
+            int leftIndex = 0;
+
+            @Override
+            public boolean hasNext() {
+                return leftIndex < relationMatrix.getLeftCount();
+            }
+
+            @Override
+            public RelateBatchResponse next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                RelateBatchResponse.Builder responseBuilder = RelateBatchResponse.newBuilder()
+                        .setLeftGeometryId(relateRequest.getLeftGeometries(leftIndex).getGeometryId());
+                if (relateRequest.getBitsetResult()) {
+                    // BitSet bytes are little endian, bit i is bit i % 8 of byte i / 8
+                    responseBuilder.setRightBits(UnsafeByteOperations.unsafeWrap(relationMatrix.getRow(leftIndex).toByteArray()));
+                } else {
+                    for (int rightIndex : relationMatrix.getRightIndices(leftIndex)) {
+                        responseBuilder.addRightGeometryIds(relateRequest.getRightGeometries(rightIndex).getGeometryId());
+                    }
+                }
+                leftIndex++;
+                return responseBuilder.build();
+            }
+        };
+    }
+
+    /**
+     * Imports the geometries and projects the ones with a spatial reference other than the operator spatial reference.
+     */
+    private static List<Geometry> extractGeometries(List<GeometryData> geometryDataList, SpatialReferenceEx operatorSR) {
+        List<Geometry> geometries = new ArrayList<>(geometryDataList.size());
+        for (GeometryData geometryData : geometryDataList) {
+            Geometry geometry = extractGeometry(geometryData);
+            if (geometryData.getTrustSimple()) {
+                TrustedSimpleStateCursor.applySimpleState(geometry, SimpleStateEnum.valueOf(geometryData.getSimple().name()), geometryData.getSimpleTolerance());
+            }
+            SpatialReferenceEx geometrySR = extractSpatialReference(geometryData);
+            if (operatorSR != null && geometrySR != null && !geometrySR.equals(operatorSR)) {
+                geometry = OperatorProject.local().execute(geometry, ProjectionCache.getInstance().getTransformation(geometrySR, operatorSR), null);
+            }
+            geometries.add(geometry);
+        }
+        return geometries;
+    }
+
+    /**
+     * Finds the right geometries nearest to every left geometry. The right geometries are read once and indexed by
+     * their envelopes, and the index is searched nearest first, so the distance is only calculated for the right
+     * geometries that are candidates. Every call to next() returns the results of the next left geometry, nearest
+     * first.
+     *
+     * NEAREST_COORDINATE and NEAREST_VERTEX measure from a left point to the nearest coordinate or vertex of every right
+     * geometry, NEAREST_GEOMETRY measures the distance between the left and the right geometry.
+     */
+    public static Iterator<GeometryResponse> proximityFromRequest(
+            GeometryRequest operatorRequest,
+            GeometryCursor leftCursor,
+            ForkJoinPool pool) throws GeometryException, IOException {
+        SpatialReferenceGroup srGroup = new SpatialReferenceGroup(operatorRequest);
+        GeometryCursor proximityLeftCursor = getLeftGeometryRequestFromRequest(operatorRequest, leftCursor, srGroup, pool);
+        GeometryCursor rightCursor = getRightGeometryRequestFromRequest(operatorRequest, proximityLeftCursor, null, srGroup, pool);
+        if (rightCursor == null) {
+            throw new GeometryException("proximity requires right geometries");
+        }
+        if (!srGroup.checkLeftRightTopoOperation()) {
+            throw new GeometryException("for spatial operations the left and right spatial reference must equal one another if the operation and the result spatial reference aren't defined");
+        }
+
+        Params.Proximity proximityParams = operatorRequest.getProximityParams();
+        Params.Proximity.ProximityType proximityType = proximityParams.getProximityType();
+        int maxCount = proximityParams.getMaxCount() > 0 ? proximityParams.getMaxCount() : 1;
+        double maxDistance = proximityParams.getMaxDistance() > 0 ? proximityParams.getMaxDistance() : Double.POSITIVE_INFINITY;
+
+        // empty right geometries have no distance and are left out of the index
+        List<Geometry> rightGeometries = new ArrayList<>();
+        List<Integer> rightIDs = new ArrayList<>();
+        List<Envelope2D> rightEnvelopes = new ArrayList<>();
+        Geometry rightGeometry;
+        while ((rightGeometry = rightCursor.next()) != null) {
+            if (rightGeometry.isEmpty()) {
+                continue;
+            }
+            Envelope2D envelope2D = new Envelope2D();
+            rightGeometry.queryLooseEnvelope2D(envelope2D);
+            rightGeometries.add(rightGeometry);
+            rightIDs.add(rightCursor.getGeometryID());
+            rightEnvelopes.add(envelope2D);
+        }
+        int[] elements = new int[rightGeometries.size()];
+        for (int i = 0; i < elements.length; i++) {
+            elements[i] = i;
+        }
+        PackedRTree rtree = new PackedRTree(elements, rightEnvelopes.toArray(new Envelope2D[0]));
+        // max_count comes from the client, so the result buffer is sized by the right geometries there are
+        int nearestCount = Math.min(maxCount, rightGeometries.size());
+        double[] distances = new double[nearestCount];
+
+        return new Iterator<>() {
+            Geometry leftGeometry = proximityLeftCursor.next();
+
+            @Override
+            public boolean hasNext() {
+                return leftGeometry != null;
+            }
+
+            @Override
+            public GeometryResponse next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                long leftID = proximityLeftCursor.getGeometryID();
+                GeometryResponse.Builder responseBuilder = GeometryResponse.newBuilder();
+                if (!leftGeometry.isEmpty()) {
+                    if (proximityType != Params.Proximity.ProximityType.NEAREST_GEOMETRY && leftGeometry.getType() != Geometry.Type.Point) {
+                        throw new GeometryException(proximityType.name() + " requires left point geometries, not " + leftGeometry.getType().name());
+                    }
+
+                    // the nearest coordinates or vertices of the candidates, by index handle
+                    Map<Integer, Proximity2DResult> proximityResults = new HashMap<>();
+                    Envelope2D query = new Envelope2D();
+                    leftGeometry.queryLooseEnvelope2D(query);
+                    int[] nearest = rtree.getNearest(query, nearestCount, maxDistance, handle -> {
+                        Geometry candidate = rightGeometries.get(rtree.getElement(handle));
+                        Proximity2DResult proximityResult;
+                        switch (proximityType) {
+                            case NEAREST_COORDINATE:
+                                proximityResult = OperatorProximity2D.local().getNearestCoordinate(
+                                        candidate,
+                                        (Point) leftGeometry,
+                                        proximityParams.getTestPolygonInterior(),
+                                        proximityParams.getCalculateLeftRightSide());
+                                break;
+                            case NEAREST_VERTEX:
+                                proximityResult = OperatorProximity2D.local().getNearestVertex(candidate, (Point) leftGeometry);
+                                break;
+                            default:
+                                return OperatorDistance.local().execute(leftGeometry, candidate, null);
+                        }
+                        proximityResults.put(handle, proximityResult);
+                        return proximityResult.getDistance();
+                    }, distances);
+
+                    for (int i = 0; i < nearest.length; i++) {
+                        int rightIndex = rtree.getElement(nearest[i]);
+                        ProximityResult.Builder resultBuilder = ProximityResult.newBuilder()
+                                .setLeftGeometryId(leftID)
+                                .setRightGeometryId(rightIDs.get(rightIndex))
+                                .setDistance(distances[i]);
+                        Proximity2DResult proximityResult = proximityResults.get(nearest[i]);
+                        if (proximityResult != null) {
+                            resultBuilder.setX(proximityResult.getCoordinate().getX())
+                                    .setY(proximityResult.getCoordinate().getY())
+                                    .setVertexIndex(proximityResult.getVertexIndex())
+                                    .setRightSide(proximityResult.isRightSide());
+                        }
+                        responseBuilder.addProximityResults(resultBuilder);
+                    }
+                }
+
+                leftGeometry = proximityLeftCursor.next();
+                return responseBuilder.build();
+            }
+        };
+    }
+
     public static GeometryResponse nonCursorFromRequest(
             GeometryRequest operatorRequest,
             GeometryCursor leftCursor,
-            GeometryCursor rightCursor) throws GeometryException, IOException {
+            GeometryCursor rightCursor,
+            ForkJoinPool pool) throws GeometryException, IOException {
         SpatialReferenceGroup srGroup = new SpatialReferenceGroup(operatorRequest);
-        leftCursor = getLeftGeometryRequestFromRequest(operatorRequest, leftCursor, srGroup);
-        rightCursor = getRightGeometryRequestFromRequest(operatorRequest, leftCursor, rightCursor, srGroup);
+        leftCursor = getLeftGeometryRequestFromRequest(operatorRequest, leftCursor, srGroup, pool);
+        rightCursor = getRightGeometryRequestFromRequest(operatorRequest, leftCursor, rightCursor, srGroup, pool);
 
         GeometryResponse.Builder operatorResultBuilder = GeometryResponse.newBuilder();
         switch (operatorRequest.getOperator()) {
-            case PROXIMITY_2D:
-                break;
             case RELATE:
                 if (!srGroup.checkLeftRightSpatialOperation()) {
                     throw new GeometryException("for spatial operations the left and right spatial reference must equal one another if the operation spatial reference isn't defined");
@@ -494,9 +748,7 @@ public class GeometryServiceUtil {
                 operatorResultBuilder.setMeasure(OperatorDistance.local().execute(leftCursor.next(), rightCursor.next(), null));
                 break;
             case GEODETIC_AREA:
-                Geometry geometry = leftCursor.next();
-                ProjectionTransformation forwardProjectionTransformation = ProjectionTransformation.getEqualArea(geometry, srGroup.leftSR);
-                double geodeticArea = OperatorProject.local().execute(geometry, forwardProjectionTransformation, null).calculateArea2D();
+                double geodeticArea = OperatorGeodeticArea.local().execute(leftCursor.next(), srGroup.leftSR, GeodeticCurveType.Geodesic, null);
                 operatorResultBuilder.setMeasure(geodeticArea);
                 break;
             case GEODETIC_LENGTH:
@@ -524,13 +776,29 @@ public class GeometryServiceUtil {
         return operatorResultBuilder.build();
     }
 
+    /**
+     * Evaluates a cursor operator request with its parallel parts on the common ForkJoinPool, for callers that are
+     * not given the pool of a GeometryServer.
+     */
     public static GeometryCursor cursorFromRequest(
             GeometryRequest operatorRequest,
             GeometryCursor leftCursor,
             GeometryCursor rightCursor) throws IOException {
+        return cursorFromRequest(operatorRequest, leftCursor, rightCursor, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluates a cursor operator request. Operations that return one geometry per input geometry, and projections,
+     * are evaluated in parallel on {@code pool}.
+     */
+    public static GeometryCursor cursorFromRequest(
+            GeometryRequest operatorRequest,
+            GeometryCursor leftCursor,
+            GeometryCursor rightCursor,
+            ForkJoinPool pool) throws IOException {
         SpatialReferenceGroup srGroup = new SpatialReferenceGroup(operatorRequest);
-        leftCursor = getLeftGeometryRequestFromRequest(operatorRequest, leftCursor, srGroup);
-        rightCursor = getRightGeometryRequestFromRequest(operatorRequest, leftCursor, rightCursor, srGroup);
+        leftCursor = getLeftGeometryRequestFromRequest(operatorRequest, leftCursor, srGroup, pool);
+        rightCursor = getRightGeometryRequestFromRequest(operatorRequest, leftCursor, rightCursor, srGroup, pool);
 
         GeometryCursor resultCursor = null;
         switch (operatorRequest.getOperator()) {
@@ -553,15 +821,28 @@ public class GeometryServiceUtil {
                 }
 
 
-                resultCursor = OperatorGeodesicBuffer.local().execute(
-                        leftCursor,
-                        srGroup.operatorSR,
-                        0,
-                        distanceList,
-                        maxDeviation,
-                        false,
-                        operatorRequest.getBufferParams().getUnionResult(),
-                        null);
+                if (operatorRequest.getBufferParams().getUnionResult()) {
+                    resultCursor = OperatorGeodesicBuffer.local().execute(
+                            leftCursor,
+                            srGroup.operatorSR,
+                            0,
+                            distanceList,
+                            maxDeviation,
+                            false,
+                            true,
+                            null);
+                } else {
+                    double geodesicMaxDeviation = maxDeviation;
+                    resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorGeodesicBuffer.local().execute(
+                            cursor,
+                            srGroup.operatorSR,
+                            0,
+                            distanceList,
+                            geodesicMaxDeviation,
+                            false,
+                            false,
+                            null));
+                }
                 break;
             case GEODETIC_DENSIFY_BY_LENGTH:
                 if (!operatorRequest.hasDensifyParams()) {
@@ -569,12 +850,12 @@ public class GeometryServiceUtil {
                             operatorRequest.getOperator().name(),
                             Params.Densify.class.toString()));
                 }
-                resultCursor = OperatorGeodeticDensifyByLength.local().execute(
-                        leftCursor,
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorGeodeticDensifyByLength.local().execute(
+                        cursor,
                         srGroup.operatorSR,
                         operatorRequest.getDensifyParams().getMaxLength(),
                         0,
-                        null);
+                        null));
                 break;
             case GENERALIZE_BY_AREA:
                 if (!operatorRequest.hasGeneralizeByAreaParams()) {
@@ -585,21 +866,21 @@ public class GeometryServiceUtil {
 
                 Params.GeneralizeByArea generalizeByAreaParams = operatorRequest.getGeneralizeByAreaParams();
                 if (generalizeByAreaParams.getPercentReduction() > 0) {
-                    resultCursor = OperatorGeneralizeByArea.local().execute(
-                            leftCursor,
+                    resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorGeneralizeByArea.local().execute(
+                            cursor,
                             generalizeByAreaParams.getPercentReduction(),
                             generalizeByAreaParams.getRemoveDegenerates(),
                             GeneralizeType.Neither,
                             srGroup.operatorSR,
-                            null);
+                            null));
                 } else if (generalizeByAreaParams.getMaxPointCount() > 0) {
-                    resultCursor = OperatorGeneralizeByArea.local().execute(
-                            leftCursor,
+                    resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorGeneralizeByArea.local().execute(
+                            cursor,
                             generalizeByAreaParams.getRemoveDegenerates(),
                             generalizeByAreaParams.getMaxPointCount(),
                             GeneralizeType.Neither,
                             srGroup.operatorSR,
-                            null);
+                            null));
                 } else {
                     // maybe a user passes a 0 for maxPoint count, which is impossible or 0 for percent reduced
                     // which means not reduced at all. so we just pass back the input
@@ -648,19 +929,26 @@ public class GeometryServiceUtil {
                 //                boolean b_union,
                 //                ProgressTracker progressTracker
                 //
-                int maxverticesFullCircle = operatorRequest.getBufferParams().getMaxVerticesInFullCircle();
-                if (maxverticesFullCircle == 0) {
-                    maxverticesFullCircle = 96;
-                }
+                int maxverticesFullCircle = operatorRequest.getBufferParams().getMaxVerticesInFullCircle() == 0 ?
+                        96 : operatorRequest.getBufferParams().getMaxVerticesInFullCircle();
 
                 double[] d = new double[] {operatorRequest.getBufferParams().getDistance()};
 
-                resultCursor = OperatorBufferEx.local().execute(leftCursor, srGroup.operatorSR,
-                                                              d,
-                                                              Double.NaN,
-                                                              maxverticesFullCircle,
-                                                              operatorRequest.getBufferParams().getUnionResult(),
-                                                              null);
+                if (operatorRequest.getBufferParams().getUnionResult()) {
+                    resultCursor = OperatorBufferEx.local().execute(leftCursor, srGroup.operatorSR,
+                                                                  d,
+                                                                  Double.NaN,
+                                                                  maxverticesFullCircle,
+                                                                  true,
+                                                                  null);
+                } else {
+                    resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorBufferEx.local().execute(cursor, srGroup.operatorSR,
+                                                                                                    d,
+                                                                                                    Double.NaN,
+                                                                                                    maxverticesFullCircle,
+                                                                                                    false,
+                                                                                                    null));
+                }
 
                 break;
             case INTERSECTION:
@@ -682,7 +970,7 @@ public class GeometryServiceUtil {
                 break;
             case CLIP:
                 Envelope2D envelope2D = extractEnvelope2D(operatorRequest.getClipParams().getEnvelope());
-                resultCursor = OperatorClip.local().execute(leftCursor, envelope2D, srGroup.getOperatorSR(), null);
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorClip.local().execute(cursor, envelope2D, srGroup.getOperatorSR(), null));
                 break;
             case CUT:
                 if (!srGroup.checkLeftRightTopoOperation()) {
@@ -701,17 +989,18 @@ public class GeometryServiceUtil {
                             operatorRequest.getOperator().name(),
                             Params.Densify.class.toString()));
                 }
-                resultCursor = OperatorDensifyByLength.local().execute(
-                        leftCursor,
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorDensifyByLength.local().execute(
+                        cursor,
                         operatorRequest.getDensifyParams().getMaxLength(),
-                        null);
+                        null));
                 break;
             case SIMPLIFY:
-                resultCursor = OperatorSimplify.local().execute(
-                        leftCursor,
+                // geometries with a trusted simple state are only simplified again if forced
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorSimplify.local().execute(
+                        cursor,
                         srGroup.getOperatorSR(),
-                        true,
-                        null);
+                        !operatorRequest.hasSimplifyParams() || operatorRequest.getSimplifyParams().getForce(),
+                        null));
                 break;
             case SIMPLIFY_OGC:
                 if (!operatorRequest.hasSimplifyParams()) {
@@ -719,11 +1008,11 @@ public class GeometryServiceUtil {
                             operatorRequest.getOperator().name(),
                             Params.Simplify.class.toString()));
                 }
-                resultCursor = OperatorSimplifyOGC.local().execute(
-                        leftCursor,
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorSimplifyOGC.local().execute(
+                        cursor,
                         srGroup.getOperatorSR(),
                         operatorRequest.getSimplifyParams().getForce(),
-                        null);
+                        null));
                 break;
             case OFFSET:
                 if (!operatorRequest.hasOffsetParams()) {
@@ -731,13 +1020,13 @@ public class GeometryServiceUtil {
                             operatorRequest.getOperator().name(),
                             Params.Offset.class.toString()));
                 }
-                resultCursor = OperatorOffset.local().execute(
-                        leftCursor,
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorOffset.local().execute(
+                        cursor,
                         srGroup.getOperatorSR(),
                         operatorRequest.getOffsetParams().getDistance(),
                         OperatorOffset.JoinType.valueOf(operatorRequest.getOffsetParams().getJoinType().toString()),
                         operatorRequest.getOffsetParams().getBevelRatio(),
-                        operatorRequest.getOffsetParams().getFlattenError(), null);
+                        operatorRequest.getOffsetParams().getFlattenError(), null));
                 break;
             case GENERALIZE:
                 if (!operatorRequest.hasGeneralizeParams()) {
@@ -745,11 +1034,11 @@ public class GeometryServiceUtil {
                             operatorRequest.getOperator().name(),
                             Params.Generalize.class.toString()));
                 }
-                resultCursor = OperatorGeneralize.local().execute(
-                        leftCursor,
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorGeneralize.local().execute(
+                        cursor,
                         operatorRequest.getGeneralizeParams().getMaxDeviation(),
                         operatorRequest.getGeneralizeParams().getRemoveDegenerates(),
-                        null);
+                        null));
                 break;
             case SYMMETRIC_DIFFERENCE:
                 if (!srGroup.checkLeftRightTopoOperation()) {
@@ -763,13 +1052,14 @@ public class GeometryServiceUtil {
                 break;
             case CONVEX_HULL:
 
-                resultCursor = OperatorConvexHull.local().execute(
-                        leftCursor,
-                        operatorRequest.getConvexParams().getMerge(),
-                        null);
+                if (operatorRequest.getConvexParams().getMerge()) {
+                    resultCursor = OperatorConvexHull.local().execute(leftCursor, true, null);
+                } else {
+                    resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorConvexHull.local().execute(cursor, false, null));
+                }
                 break;
             case BOUNDARY:
-                resultCursor = OperatorBoundary.local().execute(leftCursor, null);
+                resultCursor = perGeometry(leftCursor, pool, cursor -> OperatorBoundary.local().execute(cursor, null));
                 break;
             case ENCLOSING_CIRCLE:
                 resultCursor = new OperatorEnclosingCircleCursor(leftCursor, srGroup.operatorSR, null);
@@ -808,9 +1098,10 @@ public class GeometryServiceUtil {
                 Geometry geometry = leftCursor.next();
                 // TODO do better than this. this is terrible.
                 if (operatorRequest.getAffineTransformParams().getGeodetic()) {
-                    geometry = GeometryEngineEx.project(geometry, srGroup.leftSR, SpatialReferenceEx.create(3857));
+                    SpatialReferenceEx webMercator = ProjectionCache.getInstance().get(3857);
+                    geometry = OperatorProject.local().execute(geometry, ProjectionCache.getInstance().getTransformation(srGroup.leftSR, webMercator), null);
                     geometry.applyTransformation(transformation2D);
-                    geometry = GeometryEngineEx.project(geometry, SpatialReferenceEx.create(3857), srGroup.leftSR);
+                    geometry = OperatorProject.local().execute(geometry, ProjectionCache.getInstance().getTransformation(webMercator, srGroup.leftSR), null);
 
                 } else {
                     geometry.applyTransformation(transformation2D);
@@ -823,8 +1114,8 @@ public class GeometryServiceUtil {
         }
 
         if (srGroup.resultSR != null && !srGroup.resultSR.equals(srGroup.operatorSR)) {
-            ProjectionTransformation projTransformation = new ProjectionTransformation(srGroup.operatorSR, srGroup.resultSR);
-            resultCursor = OperatorProject.local().execute(resultCursor, projTransformation, null);
+            ProjectionTransformation projTransformation = ProjectionCache.getInstance().getTransformation(srGroup.operatorSR, srGroup.resultSR);
+            resultCursor = perGeometry(resultCursor, pool, cursor -> OperatorProject.local().execute(cursor, projTransformation, null, true));
         }
 
         return resultCursor;
@@ -832,12 +1123,16 @@ public class GeometryServiceUtil {
 
     public static GeometryResponsesIterator buildResultsIterable(GeometryRequest operatorRequest,
                                                                  GeometryCursor leftCursor,
-                                                                 boolean bForceCompact) throws IOException {
+                                                                 boolean bForceCompact,
+                                                                 ForkJoinPool pool) throws IOException {
+        // fold projections and clips of nested requests before any of them is evaluated
+        operatorRequest = GeometryRequestPlan.compile(operatorRequest).getRequest();
         Encoding encodingType = Encoding.UNKNOWN_ENCODING;
         GeometryCursor resultCursor = null;
         switch (operatorRequest.getOperator()) {
             // results
             case PROXIMITY_2D:
+                return new GeometryResponsesIterator(proximityFromRequest(operatorRequest, leftCursor, pool));
             case RELATE:
             case EQUALS:
             case DISJOINT:
@@ -851,7 +1146,7 @@ public class GeometryServiceUtil {
             case GEODETIC_AREA:
             case GEODETIC_LENGTH:
             case GEODETIC_INVERSE:
-                return new GeometryResponsesIterator(nonCursorFromRequest(operatorRequest, leftCursor, null));
+                return new GeometryResponsesIterator(nonCursorFromRequest(operatorRequest, leftCursor, null, pool));
 
             // cursors
             case PROJECT:
@@ -875,7 +1170,7 @@ public class GeometryServiceUtil {
             case RANDOM_POINTS:
             case ENCLOSING_CIRCLE:
             case AFFINE_TRANSFORM:
-                resultCursor = cursorFromRequest(operatorRequest, leftCursor, null);
+                resultCursor = cursorFromRequest(operatorRequest, leftCursor, null, pool);
                 break;
             case EXPORT_TO_ESRI_SHAPE:
                 encodingType = Encoding.ESRI_SHAPE;
@@ -949,15 +1244,17 @@ public class GeometryServiceUtil {
 
 
     protected static SpatialReferenceEx extractSpatialReference(ProjectionData serviceSpatialReference) {
+        // spatial references are shared between requests so the proj4 text is only parsed once
+        ProjectionCache projectionCache = ProjectionCache.getInstance();
         // TODO there seems to be a bug where hasWkid() is not getting generated. check back later
         if (serviceSpatialReference.getEpsg() != 0)
-            return SpatialReferenceEx.create(serviceSpatialReference.getEpsg());
+            return projectionCache.get(serviceSpatialReference.getEpsg());
         else if (serviceSpatialReference.getWkt().length() > 0)
-            return SpatialReferenceEx.create(serviceSpatialReference.getWkt());
+            return projectionCache.getFromWkt(serviceSpatialReference.getWkt());
         else if (serviceSpatialReference.getProj4().length() > 0)
-            return SpatialReferenceEx.createFromProj4(serviceSpatialReference.getProj4());
+            return projectionCache.getFromProj4(serviceSpatialReference.getProj4());
         else if (serviceSpatialReference.hasCustom() && serviceSpatialReference.getCustom().getCsType() == ProjectionData.CSType.LAMBERT_AZI)
-            return SpatialReferenceEx.createEqualArea(serviceSpatialReference.getCustom().getLon0(), serviceSpatialReference.getCustom().getLat0());
+            return projectionCache.getEqualArea(serviceSpatialReference.getCustom().getLon0(), serviceSpatialReference.getCustom().getLat0());
         else
             return null;
     }
@@ -968,17 +1265,26 @@ public class GeometryServiceUtil {
     }
 
 
+    /**
+     * View the bytes of a ByteString without copying them. The import operators read with absolute offsets from 0,
+     * so the view is sliced in case the ByteString is a bounded view into a larger message buffer.
+     */
+    static ByteBuffer asByteBuffer(ByteString byteString) {
+        return byteString.asReadOnlyByteBuffer().slice();
+    }
+
+
     protected static Geometry extractGeometry(GeometryData geometryData) {
         OperatorFactoryLocal factory = OperatorFactoryLocal.getInstance();
         if (geometryData.getWkb().size() > 0) {
             OperatorImportFromWkb operatorImport = (OperatorImportFromWkb) factory.getOperator(Operator.Type.ImportFromWkb);
-            return operatorImport.execute(0, Geometry.Type.Unknown, geometryData.getWkb().asReadOnlyByteBuffer(), null);
+            return operatorImport.execute(0, Geometry.Type.Unknown, asByteBuffer(geometryData.getWkb()), null);
         } else if (geometryData.getEwkb().size() > 0) {
             OperatorImportFromEWkb operatorImport = (OperatorImportFromEWkb) factory.getOperator(Operator.Type.ImportFromEWkb);
-            return operatorImport.execute(0, Geometry.Type.Unknown, geometryData.getEwkb().asReadOnlyByteBuffer(), null).getGeometry();
+            return operatorImport.execute(0, Geometry.Type.Unknown, asByteBuffer(geometryData.getEwkb()), null).getGeometry();
         } else if (geometryData.getEsriShape().size() > 0) {
             OperatorImportFromESRIShape operatorImport = (OperatorImportFromESRIShape) factory.getOperator(Operator.Type.ImportFromESRIShape);
-            return operatorImport.execute(0, Geometry.Type.Unknown, geometryData.getEsriShape().asReadOnlyByteBuffer());
+            return operatorImport.execute(0, Geometry.Type.Unknown, asByteBuffer(geometryData.getEsriShape()));
         } else if (geometryData.getWkt().length() > 0) {
             OperatorImportFromWkt operatorImport = (OperatorImportFromWkt) factory.getOperator(Operator.Type.ImportFromWkt);
             return operatorImport.execute(0, Geometry.Type.Unknown, geometryData.getWkt(), null);
@@ -996,14 +1302,14 @@ public class GeometryServiceUtil {
 
         if (geometryData.getWkb().size() > 0) {
             SimpleByteBufferCursor simpleByteBufferCursor = new SimpleByteBufferCursor(
-                    geometryData.getWkb().asReadOnlyByteBuffer(),
+                    asByteBuffer(geometryData.getWkb()),
                     (int) geometryData.getGeometryId(),
                     SimpleStateEnum.valueOf(geometryData.getSimple().name()),
                     geometryData.getFeatureId());
             geometryCursor = new OperatorImportFromWkbCursor(0, simpleByteBufferCursor);
         } else if (geometryData.getEwkb().size() > 0) {
             SimpleByteBufferCursor simpleByteBufferCursor = new SimpleByteBufferCursor(
-                    geometryData.getEwkb().asReadOnlyByteBuffer(),
+                    asByteBuffer(geometryData.getEwkb()),
                     (int) geometryData.getGeometryId(),
                     SimpleStateEnum.valueOf(geometryData.getSimple().name()),
                     geometryData.getFeatureId());
@@ -1013,7 +1319,7 @@ public class GeometryServiceUtil {
             geometryCursor = new SimpleGeometryCursor(mapGeometryCursor);
         } else if (geometryData.getEsriShape().size() > 0) {
             SimpleByteBufferCursor simpleByteBufferCursor = new SimpleByteBufferCursor(
-                    geometryData.getEsriShape().asReadOnlyByteBuffer(),
+                    asByteBuffer(geometryData.getEsriShape()),
                     (int)geometryData.getGeometryId(),
                     SimpleStateEnum.valueOf(geometryData.getSimple().name()),
                     geometryData.getFeatureId());
@@ -1039,6 +1345,10 @@ public class GeometryServiceUtil {
         } else {
             throw new GeometryException("No geometry data found");
         }
+
+        if (geometryData.getTrustSimple()) {
+            geometryCursor = new TrustedSimpleStateCursor(geometryCursor, geometryData.getSimpleTolerance());
+        }
         return geometryCursor;
     }
 
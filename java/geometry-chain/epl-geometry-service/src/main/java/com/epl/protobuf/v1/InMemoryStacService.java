@@ -0,0 +1,293 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.esri.core.geometry.Geometry;
+import com.esri.core.geometry.GeometryException;
+import com.esri.core.geometry.OperatorDisjoint;
+import com.esri.core.geometry.SpatialReference;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A StacService that keeps the items and collections in memory, for local development and integration tests without
+ * a database.
+ *
+ * Items are indexed by StacItemIndex. Searches read a consistent snapshot of the items, while inserts, updates and
+ * deletes wait for the searches in progress. The responses use HTTP status codes: 201 for an inserted item or
+ * collection, 200 for an update or delete, 400 for an item without an id, 404 if there is nothing to update or delete
+ * and 409 for an insert of an id that exists.
+ */
+public class InMemoryStacService extends StacServiceGrpc.StacServiceImplBase {
+    private static final Logger logger = Logger.getLogger(InMemoryStacService.class.getName());
+
+    private final StacItemIndex itemIndex = new StacItemIndex();
+    private final TreeMap<String, Collection> collections = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Streams the matches of the request, skipping the first offset matches. A limit of 0 streams all of the
+     * remaining matches.
+     */
+    @Override
+    public void searchItems(StacRequest request, StreamObserver<StacItem> responseObserver) {
+        List<StacItem> items;
+        try {
+            items = search(request, request.getLimit());
+        } catch (GeometryException geometryException) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(geometryException.getMessage()).asException());
+            return;
+        }
+
+        for (StacItem item : items) {
+            responseObserver.onNext(item);
+        }
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void searchOneItem(StacRequest request, StreamObserver<StacItem> responseObserver) {
+        List<StacItem> items;
+        try {
+            items = search(request, 1);
+        } catch (GeometryException geometryException) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(geometryException.getMessage()).asException());
+            return;
+        }
+
+        if (items.isEmpty()) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription("no item matches the request").asException());
+            return;
+        }
+        responseObserver.onNext(items.get(0));
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Counts all of the matches of the request, regardless of its offset and limit.
+     */
+    @Override
+    public void countItems(StacRequest request, StreamObserver<StacDbResponse> responseObserver) {
+        long count;
+        try {
+            Geometry searchArea = StacItemIndex.searchArea(request);
+            lock.readLock().lock();
+            try {
+                count = itemIndex.count(request, searchArea);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (GeometryException geometryException) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(geometryException.getMessage()).asException());
+            return;
+        }
+
+        responseObserver.onNext(response(200, "ok", "", count));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public StreamObserver<StacItem> insertItems(StreamObserver<StacDbResponse> responseObserver) {
+        return itemStream(responseObserver, false);
+    }
+
+    @Override
+    public StreamObserver<StacItem> updateItems(StreamObserver<StacDbResponse> responseObserver) {
+        return itemStream(responseObserver, true);
+    }
+
+    @Override
+    public void insertOneItem(StacItem item, StreamObserver<StacDbResponse> responseObserver) {
+        responseObserver.onNext(putItem(item, false));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void updateOneItem(StacItem item, StreamObserver<StacDbResponse> responseObserver) {
+        responseObserver.onNext(putItem(item, true));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void deleteOneItem(StacItem item, StreamObserver<StacDbResponse> responseObserver) {
+        boolean bRemoved;
+        lock.writeLock().lock();
+        try {
+            bRemoved = itemIndex.remove(item.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        responseObserver.onNext(bRemoved
+                ? response(200, "deleted", item.getId(), 1)
+                : response(404, "not found", item.getId(), 0));
+        responseObserver.onCompleted();
+    }
+
+    /**
+     * Streams the collections with the id of the request, or all of them if the request has no id, whose extent
+     * intersects the bbox or the geometry of the request.
+     */
+    @Override
+    public void searchCollections(CollectionRequest request, StreamObserver<Collection> responseObserver) {
+        List<Collection> matches = new ArrayList<>();
+        try {
+            Geometry searchArea = null;
+            if (request.hasBbox()) {
+                searchArea = StacItemIndex.searchArea(StacRequest.newBuilder().setBbox(request.getBbox()).build());
+            } else if (request.hasIntersects()) {
+                searchArea = StacItemIndex.searchArea(StacRequest.newBuilder().setIntersects(request.getIntersects()).build());
+            }
+
+            lock.readLock().lock();
+            try {
+                for (Collection collection : collections.values()) {
+                    if ((request.getId().isEmpty() || request.getId().equals(collection.getId()))
+                            && (searchArea == null || intersectsExtent(collection.getExtent(), searchArea))) {
+                        matches.add(collection);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (GeometryException geometryException) {
+            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription(geometryException.getMessage()).asException());
+            return;
+        }
+
+        for (Collection collection : matches) {
+            responseObserver.onNext(collection);
+        }
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void insertOneCollection(Collection collection, StreamObserver<StacDbResponse> responseObserver) {
+        responseObserver.onNext(putCollection(collection, false));
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void updateCollection(Collection collection, StreamObserver<StacDbResponse> responseObserver) {
+        responseObserver.onNext(putCollection(collection, true));
+        responseObserver.onCompleted();
+    }
+
+    private List<StacItem> search(StacRequest request, long limit) {
+        Geometry searchArea = StacItemIndex.searchArea(request);
+        lock.readLock().lock();
+        try {
+            return itemIndex.search(request, searchArea, request.getOffset(), limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Inserts or updates every item of the stream and responds to every item in order.
+     */
+    private StreamObserver<StacItem> itemStream(StreamObserver<StacDbResponse> responseObserver, boolean bUpdate) {
+        return new StreamObserver<StacItem>() {
+            @Override
+            public void onNext(StacItem item) {
+                responseObserver.onNext(putItem(item, bUpdate));
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                logger.log(Level.WARNING, "item stream cancelled", throwable);
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    private StacDbResponse putItem(StacItem item, boolean bUpdate) {
+        if (item.getId().isEmpty()) {
+            return response(400, "item id required", "", 0);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (itemIndex.contains(item.getId()) != bUpdate) {
+                return bUpdate ? response(404, "not found", item.getId(), 0) : response(409, "already exists", item.getId(), 0);
+            }
+            itemIndex.put(item);
+        } catch (GeometryException geometryException) {
+            return response(400, geometryException.getMessage(), item.getId(), 0);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return bUpdate ? response(200, "updated", item.getId(), 1) : response(201, "created", item.getId(), 1);
+    }
+
+    private StacDbResponse putCollection(Collection collection, boolean bUpdate) {
+        if (collection.getId().isEmpty()) {
+            return response(400, "collection id required", "", 0);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (collections.containsKey(collection.getId()) != bUpdate) {
+                return bUpdate ? response(404, "not found", collection.getId(), 0) : response(409, "already exists", collection.getId(), 0);
+            }
+            collections.put(collection.getId(), collection);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return bUpdate ? response(200, "updated", collection.getId(), 1) : response(201, "created", collection.getId(), 1);
+    }
+
+    private static boolean intersectsExtent(Extent extent, Geometry searchArea) {
+        SpatialReference wgs84 = SpatialReference.create(4326);
+        if (extent.hasFootprint()) {
+            Geometry footprint = StacItemIndex.searchArea(StacRequest.newBuilder().setIntersects(extent.getFootprint()).build());
+            return !OperatorDisjoint.local().execute(footprint, searchArea, wgs84, null);
+        }
+        for (EnvelopeData envelopeData : extent.getSpatialList()) {
+            Geometry envelope = StacItemIndex.searchArea(StacRequest.newBuilder().setBbox(envelopeData).build());
+            if (!OperatorDisjoint.local().execute(envelope, searchArea, wgs84, null)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static StacDbResponse response(int statusCode, String status, String dataId, long count) {
+        return StacDbResponse.newBuilder()
+                .setStatusCode(statusCode)
+                .setStatus(status)
+                .setDataId(dataId)
+                .setCount(count)
+                .build();
+    }
+}
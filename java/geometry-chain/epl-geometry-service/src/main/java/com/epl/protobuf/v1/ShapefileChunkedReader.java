@@ -1,235 +1,445 @@
 package com.epl.protobuf.v1;
 
 import com.esri.core.geometry.*;
+import com.google.protobuf.ByteString;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayDeque;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.List;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 import static com.epl.protobuf.v1.ShapefileByteReader.geometryTypeFromShpType;
 
+/**
+ * Decodes the records of a .shp file as its chunks arrive.
+ *
+ * The chunks are appended to one reusable buffer. The file header and the record headers are parsed from the buffer
+ * as soon as enough bytes are there, and every complete record is imported straight from the buffer. Consumed bytes
+ * are dropped by compacting the buffer before the next chunk is appended.
+ *
+ * When the matching .shx index is added before the .shp, the records are located by their index offsets instead of
+ * walking the record headers, and large runs of buffered records are imported in parallel. When the matching .dbf is
+ * added, every geometry takes its feature id and attributes from the .dbf record with the same record number, and a
+ * geometry is only returned once that record has arrived, or once no more .dbf records are expected: after the records
+ * the .dbf header declares, or after finish(). Those geometries are returned without attributes and are counted by
+ * getUnattributedCount().
+ *
+ * A reader is fed and read by one thread at a time, for example by the onNext of one request stream.
+ */
 public class ShapefileChunkedReader extends GeometryCursor {
-    private final List<MixedEndianDataInputStream> inputStreamList;
-    private ArrayDeque<ByteBuffer> m_byteBufferDeque;
-    private SimpleByteBufferCursor m_byteBufferCursor;
-    private OperatorImportFromESRIShapeCursor m_operatorImport;
+    private static final int HEADER_SIZE = 100;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int INDEX_RECORD_SIZE = 8;
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    // runs of at least this many indexed records are imported in parallel
+    static final int PARALLEL_RECORD_THRESHOLD = 64;
+    // records imported by one task of a parallel import
+    private static final int IMPORT_TASK_RECORDS = 16;
+    // attributes of at most this many returned records are kept until they are looked up
+    private static final int MAX_RETURNED_ATTRIBUTES = 4096;
+
+    private final ChunkBuffer m_chunkBuffer = new ChunkBuffer(INITIAL_CAPACITY);
+    // the pool large runs of indexed records are imported on
+    private final ForkJoinPool m_pool;
+    // imported geometries and their record numbers, waiting to be returned by next()
+    private final ArrayDeque<Geometry> m_geometries = new ArrayDeque<>();
+    private final ArrayDeque<Integer> m_recordNumbers = new ArrayDeque<>();
+    private boolean m_bHeaderRead = false;
     private long fileLengthBytes;
-    private final Envelope2D envelope2D;
-    private int position; //keeps track of where inputstream is
+    private Envelope2D envelope2D;
+    private Geometry.Type geomType;
+    // shape type of the .shp header
+    private int shapeType;
+    private long position; //keeps track of how many bytes of the file are parsed
     private int currentRecordNumber;
     private int nextRecordNumber;
-    private int recordVertexCount;
-    private int partsPerVertex;
-    private final Geometry.Type geomType;
-
-    ShapefileChunkedReader(InputStream in, int chunk_size) throws IOException {
-        if (chunk_size < 108) {
-            throw new IllegalArgumentException("An InputStream must have more than 100 bytes to initialize ShapefileChunkedReader");
+    // size of the next record's content, -1 until its record header is parsed
+    private int recordSizeBytes = -1;
+
+    // .shx index: offset and content length in bytes of the records indexed so far
+    private ChunkBuffer m_indexBuffer = null;
+    private boolean m_bIndexHeaderRead = false;
+    private int indexShapeType;
+    private long[] indexOffsets = new long[0];
+    private int[] indexLengths = new int[0];
+    private int indexCount = 0;
+    // number of indexed records that have been imported
+    private int indexedImportCount = 0;
+
+    // .dbf attributes of the records returned by next(), by record number, until they are looked up. A cursor that
+    // reads ahead of its consumer, like a ParallelGeometryCursor, looks them up after later records are returned.
+    private DbfChunkedReader m_dbfReader = null;
+    private String currentFeatureID = "";
+    // geometries returned without attributes although a .dbf was added
+    private int unattributedCount = 0;
+    // no more chunks will be added
+    private boolean m_bFinished = false;
+    private final LinkedHashMap<Integer, Map<String, String>> m_returnedAttributes = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Map<String, String>> eldest) {
+            return size() > MAX_RETURNED_ATTRIBUTES;
         }
-        m_byteBufferDeque = new ArrayDeque<>();
-        m_byteBufferCursor = new SimpleByteBufferCursor(m_byteBufferDeque, null);
-        m_operatorImport = new OperatorImportFromESRIShapeCursor(0, 0, m_byteBufferCursor);
-        position = 0;
-        inputStreamList = Collections.synchronizedList(new ArrayList<MixedEndianDataInputStream>());
-        synchronized (inputStreamList) {
-            MixedEndianDataInputStream mixedEndianDataInputStream = new MixedEndianDataInputStream(in, chunk_size);
-            inputStreamList.add(mixedEndianDataInputStream);
-
-            /*
-                Byte 0 File Code 9994 Integer Big
-            */
-            int fileCode = mixedEndianDataInputStream.readInt();
-            if (fileCode != 9994) {
-                throw new IOException("file code " + fileCode + " is not supported.");
-            }
-
-            /*
-                Byte 4 Unused 0 Integer Big
-                Byte 8 Unused 0 Integer Big
-                Byte 12 Unused 0 Integer Big
-                Byte 16 Unused 0 Integer Big
-                Byte 20 Unused 0 Integer Big
-             */
-            mixedEndianDataInputStream.skipBytes(20);
-
-            /* Byte 24 File Length File Length Integer Big */
-            // TODO what is the times 2 here? is it the number of doubles? the number of xy coordinates? would this be * 3 if we had zs?
-            fileLengthBytes = mixedEndianDataInputStream.readInt() * 2;
+    };
 
-            /* Byte 28 Version 1000 Integer Little */
-            int v = mixedEndianDataInputStream.readLittleEndianInt();
-
-            if (v != 1000) {
-                throw new IOException("version " + v + " is not supported.");
-            }
-
-            /* Byte 32 Shape Type Shape Type Integer Little */
-            int shpTypeId = mixedEndianDataInputStream.readLittleEndianInt();
-            geomType = geometryTypeFromShpType(shpTypeId);
+    public ShapefileChunkedReader() {
+        this(ForkJoinPool.commonPool());
+    }
 
-            /* Byte 36 Bounding Box Xmin Double Little
-               Byte 44 Bounding Box Ymin Double Little
-               Byte 52 Bounding Box Xmax Double Little
-               Byte 60 Bounding Box Ymax Double Little */
-            double xmin = mixedEndianDataInputStream.readLittleEndianDouble();
-            double ymin = mixedEndianDataInputStream.readLittleEndianDouble();
-            double xmax = mixedEndianDataInputStream.readLittleEndianDouble();
-            double ymax = mixedEndianDataInputStream.readLittleEndianDouble();
-            partsPerVertex = 2;
+    /**
+     * @param pool the pool large runs of indexed records are imported on
+     */
+    public ShapefileChunkedReader(ForkJoinPool pool) {
+        m_pool = pool;
+        position = 0;
+    }
 
-            /* Byte 68* Bounding Box Zmin Double Little
-               Byte 76* Bounding Box Zmax Double Little */
-            double zmin = mixedEndianDataInputStream.readLittleEndianDouble();
-            double zmax = mixedEndianDataInputStream.readLittleEndianDouble();
-            // if has z
-            // partsPerVertex += 1;
+    ShapefileChunkedReader(InputStream in, int chunk_size) throws IOException {
+        this();
+        addStream(in, chunk_size);
+    }
 
-            /* Byte 84* Bounding Box Mmin Double Little
-               Byte 92* Bounding Box Mmax Double Little */
-            double mmin = mixedEndianDataInputStream.readLittleEndianDouble();
-            double mmax = mixedEndianDataInputStream.readLittleEndianDouble();
-            // if has m
-            // partsPerVertex += 1;
+    /**
+     * Append the next chunk of the .shp file.
+     *
+     * @throws IOException if the chunk completes a file header that is not a version 1000 shapefile header, or whose
+     *                     shape type is not the shape type of the .shx
+     */
+    public void addChunk(ByteString chunk) throws IOException {
+        m_chunkBuffer.append(chunk);
+        readHeaderIfComplete();
+    }
 
-            envelope2D = new Envelope2D(xmin, ymin, xmax, ymax);
-            //  envelope3D = new Envelope3D(xmin, ymin, zmin, xmax, ymax, zmax);
+    public void addStream(InputStream in, int chunk_size) throws IOException {
+        while (m_chunkBuffer.append(in, Math.max(chunk_size, RECORD_HEADER_SIZE))) {
+            // keep reading to the end of the stream
+        }
+        in.close();
+        readHeaderIfComplete();
+    }
 
-            position = 2 * 50; //header is always 50 words long
-            mixedEndianDataInputStream.updateSize(2 * 50);
+    /**
+     * Append the next chunk of the .shx index. The index must be added before the .shp records it locates.
+     *
+     * @throws IOException if the chunk completes a file header that is not a version 1000 shapefile header, or whose
+     *                     shape type is not the shape type of the .shp
+     */
+    public void addIndexChunk(ByteString chunk) throws IOException {
+        if (m_indexBuffer == null) {
+            m_indexBuffer = new ChunkBuffer(Math.max(chunk.size(), HEADER_SIZE));
+        }
+        m_indexBuffer.append(chunk);
+        ByteBuffer buffer = m_indexBuffer.buffer();
+        if (!m_bIndexHeaderRead) {
+            if (buffer.remaining() < HEADER_SIZE) {
+                return;
+            }
+            // the .shx header is the .shp header with the length of the .shx. Only the .shp header is kept.
+            indexShapeType = readShapeType(buffer.slice());
+            buffer.position(buffer.position() + HEADER_SIZE);
+            m_bIndexHeaderRead = true;
+            checkIndexShapeType();
+        }
 
-            nextRecordNumber = mixedEndianDataInputStream.readInt();//1 based
-            recordVertexCount = mixedEndianDataInputStream.readInt();
-            position += 8;
-            mixedEndianDataInputStream.updateSize(8);
+        int count = buffer.remaining() / INDEX_RECORD_SIZE;
+        if (indexCount + count > indexOffsets.length) {
+            int capacity = Math.max(indexOffsets.length * 2, indexCount + count);
+            indexOffsets = Arrays.copyOf(indexOffsets, capacity);
+            indexLengths = Arrays.copyOf(indexLengths, capacity);
+        }
+        for (int i = 0; i < count; i++) {
+            // offset and content length in 16 bit words, both big endian
+            indexOffsets[indexCount] = (buffer.getInt() & 0xFFFFFFFFL) * 2;
+            indexLengths[indexCount] = buffer.getInt() * 2;
+            indexCount++;
+        }
+    }
 
-            inputStreamList.notify();
+    /**
+     * Append the next chunk of the .dbf attribute table. The table must be started before the .shp records it
+     * describes, after that its chunks may be interleaved with the .shp chunks.
+     *
+     * @param featureIdField name of the field that holds the feature id. if empty the first field is used. only read
+     *                       with the first chunk
+     * @throws IOException if the chunk completes a header that is not a dBASE table header
+     */
+    public void addAttributeChunk(ByteString chunk, String featureIdField) throws IOException {
+        if (m_dbfReader == null) {
+            m_dbfReader = new DbfChunkedReader(featureIdField);
         }
+        m_dbfReader.addChunk(chunk);
     }
 
-    public Geometry next() {
-        if (!hasNext()) {
-            return null;
+    private void readHeaderIfComplete() throws IOException {
+        ByteBuffer buffer = m_chunkBuffer.buffer();
+        if (m_bHeaderRead || buffer.remaining() < HEADER_SIZE) {
+            return;
         }
-        try {
-            synchronized (inputStreamList) {
-                MixedEndianDataInputStream inputStream = inputStreamList.get(0);
 
-                int recordSizeBytes = (recordVertexCount * partsPerVertex);
-                byte[] bytes = new byte[recordSizeBytes];
-                int read = inputStream.read(bytes, 0, recordSizeBytes);
+        ByteBuffer header = buffer.slice();
+        shapeType = readShapeType(header);
+
+        /*
+            Byte 4 - 20 Unused 0 Integer Big
+            Byte 24 File Length File Length Integer Big (in 16 bit words)
+         */
+        fileLengthBytes = header.getInt(24) * 2L;
+
+        /* Byte 32 Shape Type, Z and M types map to the same geometry type and their records are imported with their
+           Z and M values */
+        geomType = geometryTypeFromShpType(shapeType);
+
+        /* Byte 36 Bounding Box Xmin Double Little
+           Byte 44 Bounding Box Ymin Double Little
+           Byte 52 Bounding Box Xmax Double Little
+           Byte 60 Bounding Box Ymax Double Little
+           Byte 68* - 92* Bounding Box Z and M ranges, unused */
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        envelope2D = new Envelope2D(header.getDouble(36), header.getDouble(44), header.getDouble(52), header.getDouble(60));
+
+        buffer.position(buffer.position() + HEADER_SIZE);
+        position = HEADER_SIZE; //header is always 50 words long
+        m_bHeaderRead = true;
+        checkIndexShapeType();
+    }
 
-                // SequenceInputStream is stupid
-                while (read < recordSizeBytes) {
-                    int len = recordSizeBytes - read;
-                    read += inputStream.read(bytes, read, len);
-                }
-                position += read;
-                inputStream.updateSize(read);
-                currentRecordNumber = nextRecordNumber;
-
-                if (position < fileLengthBytes) {
-                    nextRecordNumber = inputStream.readInt();//1 based
-                    recordVertexCount = inputStream.readInt();
-                    position += 8;
-
-                    inputStream.updateSize(8);
-                } else {
-                    inputStream.close();
-                    inputStreamList.remove(0);
-                }
+    /**
+     * Check the file code and the version of the 100 byte header shared by the .shp and the .shx. Returns the shape
+     * type.
+     */
+    private static int readShapeType(ByteBuffer header) throws IOException {
+        /*
+            Byte 0 File Code 9994 Integer Big
+        */
+        int fileCode = header.getInt(0);
+        if (fileCode != 9994) {
+            throw new IOException("file code " + fileCode + " is not supported.");
+        }
 
-                inputStreamList.notify();
-                m_byteBufferDeque.push(ByteBuffer.wrap(bytes));
-                return m_operatorImport.next();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        ByteBuffer littleEndian = header.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        /* Byte 28 Version 1000 Integer Little */
+        int v = littleEndian.getInt(28);
+        if (v != 1000) {
+            throw new IOException("version " + v + " is not supported.");
         }
 
-        return null;
+        /* Byte 32 Shape Type Shape Type Integer Little */
+        return littleEndian.getInt(32);
     }
 
-    public void addStream(InputStream in, int chunk_size) {
-        synchronized (inputStreamList) {
-            MixedEndianDataInputStream mixedEndianDataInputStream = new MixedEndianDataInputStream(in, chunk_size);
-            inputStreamList.add(mixedEndianDataInputStream);
-            inputStreamList.notify();
+    /**
+     * The .shx must index records of the shape type of the .shp, whichever header arrives first.
+     */
+    private void checkIndexShapeType() throws IOException {
+        if (m_bHeaderRead && m_bIndexHeaderRead && indexShapeType != shapeType) {
+            throw new IOException("shape type " + indexShapeType + " of the .shx does not match shape type "
+                    + shapeType + " of the .shp.");
         }
     }
 
-    @Override
-    public int getGeometryID() {
-        return currentRecordNumber;
-    }
-
-    public Envelope2D getEnvelope2D() {
-        return envelope2D;
+    /**
+     * Mark the end of the chunks. The geometries that wait for .dbf records are returned without attributes.
+     */
+    public void finish() {
+        m_bFinished = true;
     }
 
-    public Geometry.Type getGeometryType() { return geomType; }
-
     @Override
     public boolean hasNext() {
-        synchronized (inputStreamList) {
-            if (inputStreamList.size() == 0 || position >= fileLengthBytes) {
-                return false;
+        if (m_geometries.isEmpty() && m_bHeaderRead) {
+            if (m_indexBuffer != null) {
+                importIndexedRecords();
+            } else {
+                importSequentialRecords();
             }
+        }
 
-            int count = 0;
+        // a geometry only waits for its .dbf record while more .dbf records can arrive
+        return !m_geometries.isEmpty()
+                && (m_dbfReader == null || m_dbfReader.hasRecord() || m_bFinished || !m_dbfReader.expectsRecords());
+    }
 
-            long value = inputStreamList.stream().mapToInt(MixedEndianDataInputStream::getSize).sum();
-            while (count++ < 2 && position < fileLengthBytes && value < recordVertexCount) {
-                try {
-                    inputStreamList.wait(100);
-                } catch (InterruptedException e) {
-                    e.printStackTrace();
+    /**
+     * Walk the record headers and import every complete record that is buffered.
+     */
+    private void importSequentialRecords() {
+        ByteBuffer buffer = m_chunkBuffer.buffer();
+        while (position < fileLengthBytes) {
+            if (recordSizeBytes < 0) {
+                if (buffer.remaining() < RECORD_HEADER_SIZE) {
+                    return;
                 }
-                value = inputStreamList.stream().mapToInt(MixedEndianDataInputStream::getSize).sum();
+                // record number and content length in 16 bit words, both big endian
+                nextRecordNumber = buffer.getInt(buffer.position());//1 based
+                recordSizeBytes = buffer.getInt(buffer.position() + 4) * 2;
+                buffer.position(buffer.position() + RECORD_HEADER_SIZE);
+                position += RECORD_HEADER_SIZE;
             }
 
-            if (position < fileLengthBytes && value < recordVertexCount) {
-                return false;
+            if (buffer.remaining() < recordSizeBytes) {
+                return;
             }
 
-            // plus 8 is
-            //int recordSizeBytes = (recordVertexCount * partsPerVertex)
-            long bytesRequired = recordVertexCount * partsPerVertex + 8;
-            if (recordVertexCount == fileLengthBytes - position) {
-                bytesRequired = recordVertexCount;
-            }
-
-            while (bytesRequired > inputStreamList.get(0).getSize() && inputStreamList.size() > 1) {
-                if (inputStreamList.size() > 1) {
-                    MixedEndianDataInputStream input1 = inputStreamList.remove(0);
-                    int remaining_bytes_1 = input1.getSize();
+            m_geometries.add(importRecord(buffer, buffer.position(), recordSizeBytes));
+            m_recordNumbers.add(nextRecordNumber);
+            buffer.position(buffer.position() + recordSizeBytes);
+            position += recordSizeBytes;
+            recordSizeBytes = -1;
+        }
+    }
 
-                    MixedEndianDataInputStream input2 = inputStreamList.remove(0);
-                    int remaining_bytes_2 = input2.getSize();
+    /**
+     * Locate the buffered records by their index offsets and import them, in parallel if there are enough of them.
+     */
+    private void importIndexedRecords() {
+        ByteBuffer buffer = m_chunkBuffer.buffer();
+        int first = indexedImportCount;
+        long bufferedEnd = position + buffer.remaining();
+        int last = first;
+        while (last < indexCount && indexOffsets[last] + RECORD_HEADER_SIZE + indexLengths[last] <= bufferedEnd) {
+            last++;
+        }
+        if (last == first) {
+            return;
+        }
 
-                    InputStream merged = new java.io.SequenceInputStream(input1, input2);
-                    MixedEndianDataInputStream mixedEndianDataInputStream = new MixedEndianDataInputStream(merged, input1.getSize() + input2.getSize());
-                    inputStreamList.add(0, mixedEndianDataInputStream);
+        int base = buffer.position();
+        long baseOffset = position;
+        Geometry[] geometries = new Geometry[last - first];
+        ImportTask task = new ImportTask(buffer, base, baseOffset, first, geometries, 0, geometries.length);
+        if (geometries.length >= PARALLEL_RECORD_THRESHOLD) {
+            m_pool.invoke(task);
+        } else {
+            task.compute();
+        }
 
-//                    try {
-//                        input1.close();
-//                        input2.close();
-//                    } catch (IOException e) {
-//                        e.printStackTrace();
-//                    }
+        for (int i = first; i < last; i++) {
+            m_geometries.add(geometries[i - first]);
+            // the .shx has no record numbers, they are 1 based in file order
+            m_recordNumbers.add(i + 1);
+        }
+        indexedImportCount = last;
+        long end = indexOffsets[last - 1] + RECORD_HEADER_SIZE + indexLengths[last - 1];
+        buffer.position(base + (int) (end - baseOffset));
+        position = end;
+    }
 
+    /**
+     * Imports the indexed records first + from to first + to - 1 of the buffer, splitting the range in halves down to
+     * IMPORT_TASK_RECORDS records.
+     */
+    private final class ImportTask extends RecursiveAction {
+        private final ByteBuffer buffer;
+        private final int base;
+        private final long baseOffset;
+        private final int first;
+        private final Geometry[] geometries;
+        private final int from;
+        private final int to;
+
+        ImportTask(ByteBuffer buffer, int base, long baseOffset, int first, Geometry[] geometries, int from, int to) {
+            this.buffer = buffer;
+            this.base = base;
+            this.baseOffset = baseOffset;
+            this.first = first;
+            this.geometries = geometries;
+            this.from = from;
+            this.to = to;
+        }
 
+        @Override
+        protected void compute() {
+            if (to - from <= IMPORT_TASK_RECORDS) {
+                for (int k = from; k < to; k++) {
+                    int i = first + k;
+                    geometries[k] = importRecord(
+                            buffer,
+                            base + (int) (indexOffsets[i] - baseOffset) + RECORD_HEADER_SIZE,
+                            indexLengths[i]);
                 }
+                return;
             }
 
-            if (bytesRequired > inputStreamList.get(0).getSize()) {
-                return false;
+            int mid = (from + to) >>> 1;
+            invokeAll(new ImportTask(buffer, base, baseOffset, first, geometries, from, mid),
+                    new ImportTask(buffer, base, baseOffset, first, geometries, mid, to));
+        }
+    }
+
+    private static Geometry importRecord(ByteBuffer buffer, int offset, int length) {
+        // the geometry copies the coordinates, so the buffer can be reused once it is imported
+        ByteBuffer record = buffer.duplicate();
+        record.limit(offset + length).position(offset);
+        return OperatorImportFromESRIShape.local().execute(0, Geometry.Type.Unknown, record.slice());
+    }
+
+    @Override
+    public Geometry next() {
+        if (!hasNext()) {
+            return null;
+        }
+
+        currentRecordNumber = m_recordNumbers.poll();
+        if (m_dbfReader != null) {
+            if (m_dbfReader.hasRecord()) {
+                Map<String, String> attributes = m_dbfReader.pollRecord();
+                currentFeatureID = m_dbfReader.getFeatureID(attributes);
+                m_returnedAttributes.put(currentRecordNumber, attributes);
+            } else {
+                // the .dbf has fewer records than the .shp, or it ended before its last record
+                currentFeatureID = "";
+                unattributedCount++;
             }
+        }
+        return m_geometries.poll();
+    }
 
-            return position < fileLengthBytes;
+    @Override
+    public int getGeometryID() {
+        return currentRecordNumber;
+    }
+
+    @Override
+    public String getFeatureID() {
+        // without a .dbf the .shp file has no feature ids
+        return currentFeatureID;
+    }
+
+    /**
+     * The .dbf attributes of a geometry returned by next(). The attributes are only kept until they are looked up, so
+     * every geometry id can be looked up once. Empty if the geometry has not been returned, was already looked up, or
+     * if no .dbf was added.
+     */
+    public Map<String, String> getAttributes(long geometryId) {
+        if (geometryId < Integer.MIN_VALUE || geometryId > Integer.MAX_VALUE) {
+            return Collections.emptyMap();
         }
+        Map<String, String> attributes = m_returnedAttributes.remove((int) geometryId);
+        return attributes != null ? attributes : Collections.emptyMap();
     }
+
+    /**
+     * The number of geometries returned without attributes although a .dbf was added, because the .dbf has fewer
+     * records than the .shp or its chunks ended before its last record.
+     */
+    public int getUnattributedCount() {
+        return unattributedCount;
+    }
+
+    @Override
+    public SimpleStateEnum getSimpleState() {
+        return SimpleStateEnum.SIMPLE_UNKNOWN;
+    }
+
+    public Envelope2D getEnvelope2D() {
+        return envelope2D;
+    }
+
+    public Geometry.Type getGeometryType() { return geomType; }
 }
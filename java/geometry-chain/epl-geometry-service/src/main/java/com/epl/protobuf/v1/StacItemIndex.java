@@ -0,0 +1,555 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.esri.core.geometry.*;
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Timestamp;
+import com.google.protobuf.util.Timestamps;
+import org.epl.geometry.OperatorProject;
+import org.epl.geometry.ProjectionCache;
+import org.epl.geometry.SpatialReferenceEx;
+
+import java.util.*;
+// the STAC Collection message of this package hides java.util.Collection
+import java.util.Collection;
+import java.util.regex.Pattern;
+
+/**
+ * STAC items held in memory and indexed by their footprint and by their datetime and observed intervals.
+ *
+ * Footprints are indexed in WGS 84 by a quad tree that items are added to and removed from one at a time, and
+ * footprints in another spatial reference are projected on insert. The datetime and observed intervals are indexed by
+ * their start, which together with the longest interval bounds the intervals that can overlap a query. A search takes
+ * its candidates from the most selective index that applies to the request and tests every candidate with all of the
+ * filters of the request. Results are ordered by item id, so offset and limit page through a stable order.
+ *
+ * The index is not thread safe, the caller synchronizes access.
+ */
+class StacItemIndex {
+    private static final int WGS84 = 4326;
+    private static final SpatialReference WGS84_SR = SpatialReference.create(WGS84);
+    private static final Envelope2D WGS84_EXTENT = Envelope2D.construct(-180, -90, 180, 90);
+    private static final int QUAD_TREE_HEIGHT = 8;
+
+    private static final class Entry {
+        final StacItem item;
+        final int key;
+        // the footprint in WGS 84, null if the item has none
+        final Geometry footprint;
+        // handle in the quad tree, -1 if the footprint is not in the quad tree
+        int quadTreeHandle = -1;
+        // interval of the datetime and of the observation in microseconds, null if not set
+        final long[] datetime;
+        final long[] observed;
+
+        Entry(StacItem item, int key, Geometry footprint) {
+            this.item = item;
+            this.key = key;
+            this.footprint = footprint;
+            this.datetime = item.hasDatetime()
+                    ? interval_(item.getDatetime(), null)
+                    : item.hasStartDatetime() ? interval_(item.getStartDatetime(), item.hasEndDatetime() ? item.getEndDatetime() : null) : null;
+            this.observed = item.hasObserved()
+                    ? interval_(item.getObserved(), null)
+                    : item.hasStartObservation() ? interval_(item.getStartObservation(), item.hasEndObservation() ? item.getEndObservation() : null) : null;
+        }
+    }
+
+    /**
+     * Intervals by their start. Every interval that overlaps [start, end] starts between start minus the longest
+     * interval and end.
+     */
+    private static final class IntervalIndex {
+        private final TreeMap<Long, Set<String>> m_byStart = new TreeMap<>();
+        // only grows, an overestimate only adds candidates
+        private long m_maxLength = 0;
+
+        void add(String id, long[] interval) {
+            m_byStart.computeIfAbsent(interval[0], start -> new HashSet<>()).add(id);
+            m_maxLength = Math.max(m_maxLength, interval[1] - interval[0]);
+        }
+
+        void remove(String id, long[] interval) {
+            Set<String> ids = m_byStart.get(interval[0]);
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                m_byStart.remove(interval[0]);
+            }
+        }
+
+        void query(long start, long end, Collection<String> ids) {
+            long from = start < Long.MIN_VALUE + m_maxLength ? Long.MIN_VALUE : start - m_maxLength;
+            for (Set<String> starting : m_byStart.subMap(from, true, end, true).values()) {
+                ids.addAll(starting);
+            }
+        }
+    }
+
+    // items by id, in id order
+    private final TreeMap<String, Entry> m_items = new TreeMap<>();
+    private final Map<Integer, String> m_idsByKey = new HashMap<>();
+    private int m_nextKey = 0;
+    private final QuadTree m_quadTree = new QuadTree(WGS84_EXTENT, QUAD_TREE_HEIGHT);
+    // items with a footprint outside of the extent of the quad tree
+    private final Set<String> m_unindexed = new HashSet<>();
+    private final IntervalIndex m_datetimeIndex = new IntervalIndex();
+    private final IntervalIndex m_observedIndex = new IntervalIndex();
+
+    int size() {
+        return m_items.size();
+    }
+
+    boolean contains(String id) {
+        return m_items.containsKey(id);
+    }
+
+    StacItem get(String id) {
+        Entry entry = m_items.get(id);
+        return entry == null ? null : entry.item;
+    }
+
+    /**
+     * Adds the item, or replaces the item with the same id.
+     */
+    void put(StacItem item) {
+        remove(item.getId());
+
+        Entry entry = new Entry(item, m_nextKey++, footprint_(item));
+        if (entry.footprint != null) {
+            Envelope2D envelope2D = new Envelope2D();
+            entry.footprint.queryLooseEnvelope2D(envelope2D);
+            entry.quadTreeHandle = m_quadTree.insert(entry.key, envelope2D);
+            if (entry.quadTreeHandle == -1) {
+                m_unindexed.add(item.getId());
+            }
+        }
+        if (entry.datetime != null) {
+            m_datetimeIndex.add(item.getId(), entry.datetime);
+        }
+        if (entry.observed != null) {
+            m_observedIndex.add(item.getId(), entry.observed);
+        }
+        m_items.put(item.getId(), entry);
+        m_idsByKey.put(entry.key, item.getId());
+    }
+
+    /**
+     * Removes the item with the id. Returns false if there is none.
+     */
+    boolean remove(String id) {
+        Entry entry = m_items.remove(id);
+        if (entry == null) {
+            return false;
+        }
+
+        m_idsByKey.remove(entry.key);
+        if (entry.quadTreeHandle != -1) {
+            m_quadTree.removeElement(entry.quadTreeHandle);
+        }
+        m_unindexed.remove(id);
+        if (entry.datetime != null) {
+            m_datetimeIndex.remove(id, entry.datetime);
+        }
+        if (entry.observed != null) {
+            m_observedIndex.remove(id, entry.observed);
+        }
+        return true;
+    }
+
+    /**
+     * The items that match every filter of the request, in id order, after skipping offset matches. A limit of 0
+     * returns all of the remaining matches.
+     */
+    List<StacItem> search(StacRequest request, Geometry searchArea, long offset, long limit) {
+        List<StacItem> items = new ArrayList<>();
+        long skipped = 0;
+        for (String id : candidates_(request, searchArea)) {
+            Entry entry = m_items.get(id);
+            if (entry == null || !matches_(entry, request, searchArea)) {
+                continue;
+            }
+            if (skipped++ < offset) {
+                continue;
+            }
+            items.add(entry.item);
+            if (limit > 0 && items.size() == limit) {
+                break;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * The number of items that match every filter of the request.
+     */
+    long count(StacRequest request, Geometry searchArea) {
+        long count = 0;
+        for (String id : candidates_(request, searchArea)) {
+            Entry entry = m_items.get(id);
+            if (entry != null && matches_(entry, request, searchArea)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The search area of the request in WGS 84. Null if the request has no spatial filter.
+     */
+    static Geometry searchArea(StacRequest request) {
+        switch (request.getSpatialCase()) {
+            case INTERSECTS:
+                return toWgs84_(GeometryServiceUtil.extractGeometry(request.getIntersects()), request.getIntersects().getProj());
+            case BBOX:
+                EnvelopeData bbox = request.getBbox();
+                return toWgs84_(new Envelope(bbox.getXmin(), bbox.getYmin(), bbox.getXmax(), bbox.getYmax()), bbox.getProj());
+            case GEOMETRY_REQUEST:
+                GeometryRequest geometryRequest = request.getGeometryRequest();
+                try {
+                    Geometry geometry = GeometryServiceUtil.cursorFromRequest(geometryRequest, null, null).next();
+                    SpatialReferenceGroup srGroup = new SpatialReferenceGroup(geometryRequest);
+                    return toWgs84_(geometry, srGroup.getFinalSpatialRef());
+                } catch (java.io.IOException e) {
+                    throw new GeometryException(e.getMessage());
+                }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * The ids of the items that can match the request, in id order.
+     */
+    private Collection<String> candidates_(StacRequest request, Geometry searchArea) {
+        if (request.getIdentityCase() == StacRequest.IdentityCase.ID) {
+            return Collections.singletonList(request.getId());
+        }
+        if (request.getIdentityCase() == StacRequest.IdentityCase.ID_COMPLEX && request.getIdComplex().getRelType() == FilterRelationship.EQ) {
+            return Collections.singletonList(request.getIdComplex().getValue());
+        }
+
+        if (searchArea != null) {
+            Set<String> ids = new TreeSet<>(m_unindexed);
+            if (searchArea.isEmpty()) {
+                return ids;
+            }
+            Envelope2D envelope2D = new Envelope2D();
+            searchArea.queryLooseEnvelope2D(envelope2D);
+            QuadTree.QuadTreeIterator iterator = m_quadTree.getIterator(envelope2D, 0);
+            for (int handle = iterator.next(); handle != -1; handle = iterator.next()) {
+                ids.add(m_idsByKey.get(m_quadTree.getElement(handle)));
+            }
+            return ids;
+        }
+
+        TimestampFilter temporal = request.getTemporalCase() == StacRequest.TemporalCase.DATETIME
+                ? request.getDatetime()
+                : request.getTemporalCase() == StacRequest.TemporalCase.OBSERVED ? request.getObserved() : null;
+        long[] range = temporal == null ? null : candidateRange_(temporal);
+        if (range != null) {
+            Set<String> ids = new TreeSet<>();
+            IntervalIndex index = request.getTemporalCase() == StacRequest.TemporalCase.DATETIME ? m_datetimeIndex : m_observedIndex;
+            index.query(range[0], range[1], ids);
+            return ids;
+        }
+
+        return m_items.keySet();
+    }
+
+    /**
+     * The range every interval that matches the filter overlaps, null if the filter can match intervals anywhere.
+     */
+    private static long[] candidateRange_(TimestampFilter filter) {
+        switch (filter.getRelType()) {
+            case EQ:
+                return new long[]{micros_(filter.getValue()), micros_(filter.getValue())};
+            case LT:
+            case LTE:
+                return new long[]{Long.MIN_VALUE, micros_(filter.getValue())};
+            case GT:
+            case GTE:
+                return new long[]{micros_(filter.getValue()), Long.MAX_VALUE};
+            case BETWEEN:
+                return new long[]{micros_(filter.getStart()), micros_(filter.getEnd())};
+            default:
+                return null;
+        }
+    }
+
+    private static boolean matches_(Entry entry, StacRequest request, Geometry searchArea) {
+        StacItem item = entry.item;
+        switch (request.getIdentityCase()) {
+            case ID:
+                if (!item.getId().equals(request.getId())) {
+                    return false;
+                }
+                break;
+            case ID_COMPLEX:
+                if (!matches_(item.getId(), request.getIdComplex())) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+        }
+        if (!request.getCollection().isEmpty() && !request.getCollection().equals(item.getCollection())) {
+            return false;
+        }
+
+        if (searchArea != null) {
+            if (entry.footprint == null || searchArea.isEmpty()
+                    || OperatorDisjoint.local().execute(entry.footprint, searchArea, WGS84_SR, null)) {
+                return false;
+            }
+        }
+
+        switch (request.getTemporalCase()) {
+            case DATETIME:
+                if (!matches_(entry.datetime, request.getDatetime())) {
+                    return false;
+                }
+                break;
+            case OBSERVED:
+                if (!matches_(entry.observed, request.getObserved())) {
+                    return false;
+                }
+                break;
+            default:
+                break;
+        }
+        if (request.hasCreated() && !matches_(item.hasCreated() ? interval_(item.getCreated(), null) : null, request.getCreated())) {
+            return false;
+        }
+        if (request.hasUpdated() && !matches_(item.hasUpdated() ? interval_(item.getUpdated(), null) : null, request.getUpdated())) {
+            return false;
+        }
+
+        // enums are bit flags, a request for LANDSAT_123 matches LANDSAT_1 to LANDSAT_3
+        if (!matchesFlags_(item.getPlatformEnumValue(), request.getPlatformEnumValue())
+                || !matchesFlags_(item.getInstrumentEnumValue(), request.getInstrumentEnumValue())
+                || !matchesFlags_(item.getConstellationEnumValue(), request.getConstellationEnumValue())
+                || !matchesFlags_(item.getMissionEnumValue(), request.getMissionEnumValue())) {
+            return false;
+        }
+
+        if (request.hasGsd() && !matches_(item.hasGsd() ? item.getGsd() : null, request.getGsd())) {
+            return false;
+        }
+
+        if (request.hasEo()) {
+            EoRequest eoRequest = request.getEo();
+            Eo eo = item.getEo();
+            if (eoRequest.hasCloudCover() && !matches_(eo.hasCloudCover() ? eo.getCloudCover() : null, eoRequest.getCloudCover())) {
+                return false;
+            }
+            // the item has all of the requested bands
+            if ((eo.getBandsValue() & eoRequest.getBandsValue()) != eoRequest.getBandsValue()) {
+                return false;
+            }
+        }
+
+        if (request.hasView()) {
+            ViewRequest viewRequest = request.getView();
+            View view = item.getView();
+            if ((viewRequest.hasOffNadir() && !matches_(view.hasOffNadir() ? view.getOffNadir() : null, viewRequest.getOffNadir()))
+                    || (viewRequest.hasIncidenceAngle() && !matches_(view.hasIncidenceAngle() ? view.getIncidenceAngle() : null, viewRequest.getIncidenceAngle()))
+                    || (viewRequest.hasAzimuth() && !matches_(view.hasAzimuth() ? view.getAzimuth() : null, viewRequest.getAzimuth()))
+                    || (viewRequest.hasSunAzimuth() && !matches_(view.hasSunAzimuth() ? view.getSunAzimuth() : null, viewRequest.getSunAzimuth()))
+                    || (viewRequest.hasSunElevation() && !matches_(view.hasSunElevation() ? view.getSunElevation() : null, viewRequest.getSunElevation()))) {
+                return false;
+            }
+        }
+
+        if (request.hasLandsat()) {
+            LandsatRequest landsatRequest = request.getLandsat();
+            Landsat landsat = item.getLandsat();
+            if ((!landsatRequest.getSceneId().isEmpty() && !landsatRequest.getSceneId().equals(landsat.getSceneId()))
+                    || (!landsatRequest.getProductId().isEmpty() && !landsatRequest.getProductId().equals(landsat.getProductId()))
+                    || (landsatRequest.getProcessingLevelValue() != 0 && landsatRequest.getProcessingLevel() != landsat.getProcessingLevel())
+                    || (landsatRequest.getWrsPath() != 0 && landsatRequest.getWrsPath() != landsat.getWrsPath())
+                    || (landsatRequest.getWrsRow() != 0 && landsatRequest.getWrsRow() != landsat.getWrsRow())
+                    || (landsatRequest.hasCloudCoverLand() && !matches_(landsat.hasCloudCoverLand() ? landsat.getCloudCoverLand() : null, landsatRequest.getCloudCoverLand()))) {
+                return false;
+            }
+        }
+
+        if (request.hasMosaic()) {
+            MosaicRequest mosaicRequest = request.getMosaic();
+            Mosaic mosaic = item.getMosaic();
+            if ((!mosaicRequest.getName().isEmpty() && !mosaicRequest.getName().equals(mosaic.getName()))
+                    || (!mosaicRequest.getQuadKey().isEmpty() && !mosaicRequest.getQuadKey().equals(mosaic.getQuadKey()))) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean matchesFlags_(int itemValue, int requestValue) {
+        return requestValue == 0 || (itemValue & requestValue) != 0;
+    }
+
+    /**
+     * Tests an optional float. An item without the value matches no filter.
+     */
+    private static boolean matches_(FloatValue value, FloatFilter filter) {
+        if (value == null) {
+            return false;
+        }
+
+        float v = value.getValue();
+        switch (filter.getRelType()) {
+            case EQ:
+                return v == filter.getValue();
+            case NEQ:
+                return v != filter.getValue();
+            case LT:
+                return v < filter.getValue();
+            case LTE:
+                return v <= filter.getValue();
+            case GT:
+                return v > filter.getValue();
+            case GTE:
+                return v >= filter.getValue();
+            case BETWEEN:
+                return filter.getStart() <= v && v <= filter.getEnd();
+            case NOT_BETWEEN:
+                return v < filter.getStart() || filter.getEnd() < v;
+            case IN:
+                return filter.getSetList().contains(v);
+            case NOT_IN:
+                return !filter.getSetList().contains(v);
+            default:
+                throw new GeometryException(filter.getRelType().name() + " is not supported for float filters");
+        }
+    }
+
+    /**
+     * Tests an interval of microseconds. EQ matches the intervals that contain the value, LT and LTE the ones that
+     * start before it, GT and GTE the ones that end after it and BETWEEN the ones that overlap the range. An item
+     * without the interval matches no filter.
+     */
+    private static boolean matches_(long[] interval, TimestampFilter filter) {
+        if (interval == null) {
+            return false;
+        }
+
+        switch (filter.getRelType()) {
+            case EQ:
+                return interval[0] <= micros_(filter.getValue()) && micros_(filter.getValue()) <= interval[1];
+            case NEQ:
+                return micros_(filter.getValue()) < interval[0] || interval[1] < micros_(filter.getValue());
+            case LT:
+                return interval[0] < micros_(filter.getValue());
+            case LTE:
+                return interval[0] <= micros_(filter.getValue());
+            case GT:
+                return interval[1] > micros_(filter.getValue());
+            case GTE:
+                return interval[1] >= micros_(filter.getValue());
+            case BETWEEN:
+                return interval[0] <= micros_(filter.getEnd()) && micros_(filter.getStart()) <= interval[1];
+            case NOT_BETWEEN:
+                return interval[1] < micros_(filter.getStart()) || micros_(filter.getEnd()) < interval[0];
+            default:
+                throw new GeometryException(filter.getRelType().name() + " is not supported for timestamp filters");
+        }
+    }
+
+    /**
+     * Tests a string. LIKE and NOT_LIKE use the SQL wildcards % and _.
+     */
+    private static boolean matches_(String value, StringFilter filter) {
+        switch (filter.getRelType()) {
+            case EQ:
+                return value.equals(filter.getValue());
+            case NEQ:
+                return !value.equals(filter.getValue());
+            case IN:
+                return filter.getSetList().contains(value);
+            case NOT_IN:
+                return !filter.getSetList().contains(value);
+            case LIKE:
+                return like_(filter.getValue()).matcher(value).matches();
+            case NOT_LIKE:
+                return !like_(filter.getValue()).matcher(value).matches();
+            default:
+                throw new GeometryException(filter.getRelType().name() + " is not supported for string filters");
+        }
+    }
+
+    private static Pattern like_(String pattern) {
+        StringBuilder regex = new StringBuilder();
+        StringBuilder literal = new StringBuilder();
+        for (char c : pattern.toCharArray()) {
+            if (c == '%' || c == '_') {
+                if (literal.length() > 0) {
+                    regex.append(Pattern.quote(literal.toString()));
+                    literal.setLength(0);
+                }
+                regex.append(c == '%' ? ".*" : ".");
+            } else {
+                literal.append(c);
+            }
+        }
+        if (literal.length() > 0) {
+            regex.append(Pattern.quote(literal.toString()));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+
+    private static long micros_(Timestamp timestamp) {
+        return Timestamps.toMicros(timestamp);
+    }
+
+    private static long[] interval_(Timestamp start, Timestamp end) {
+        long startMicros = micros_(start);
+        return new long[]{startMicros, end == null ? startMicros : Math.max(startMicros, micros_(end))};
+    }
+
+    /**
+     * The geometry of the item, or else its bounding box, in WGS 84.
+     */
+    private static Geometry footprint_(StacItem item) {
+        if (item.hasGeometry()) {
+            return toWgs84_(GeometryServiceUtil.extractGeometry(item.getGeometry()), item.getGeometry().getProj());
+        }
+        if (item.hasBbox()) {
+            EnvelopeData bbox = item.getBbox();
+            return toWgs84_(new Envelope(bbox.getXmin(), bbox.getYmin(), bbox.getXmax(), bbox.getYmax()), bbox.getProj());
+        }
+        return null;
+    }
+
+    /**
+     * Projects the geometry to WGS 84. A geometry without a spatial reference is taken to be in WGS 84.
+     */
+    private static Geometry toWgs84_(Geometry geometry, ProjectionData projectionData) {
+        if (projectionData == null || projectionData.getEpsg() == WGS84 || ProjectionData.getDefaultInstance().equals(projectionData)) {
+            return geometry;
+        }
+
+        SpatialReferenceEx spatialReference = GeometryServiceUtil.extractSpatialReference(projectionData);
+        ProjectionCache projectionCache = ProjectionCache.getInstance();
+        return OperatorProject.local().execute(geometry, projectionCache.getTransformation(spatialReference, projectionCache.get(WGS84)), null);
+    }
+}
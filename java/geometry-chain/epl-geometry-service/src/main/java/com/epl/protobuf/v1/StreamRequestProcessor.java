@@ -0,0 +1,204 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import io.grpc.Status;
+import io.grpc.stub.ServerCallStreamObserver;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Evaluates the GeometryRequests of one bi-directional stream on a worker pool.
+ *
+ * The request stream is switched to manual flow control, and only as many messages are requested from the client as
+ * there are free slots, so at most maxInFlight requests of the stream are buffered or running at once. A slot is
+ * released once the responses of its request have been written to the response stream, and new messages are only
+ * requested while the response stream is ready.
+ *
+ * When ordered, the responses are written in the order the requests arrived. Otherwise they are written as soon as
+ * their request is done and the client matches them up by the geometry_id of the returned geometries.
+ */
+class StreamRequestProcessor {
+    private final ServerCallStreamObserver<GeometryResponse> responseObserver;
+    private final Executor executor;
+    private final ForkJoinPool computePool;
+    private final int maxInFlight;
+    private final boolean ordered;
+
+    // guards all of the fields below and every call on the responseObserver, which is not thread safe
+    private final Object lock = new Object();
+    // responses of finished requests that wait on an earlier request (ordered mode only)
+    private final HashMap<Long, List<GeometryResponse>> pendingResponses = new HashMap<>();
+    private long nextSequence = 0;
+    private long nextToSend = 0;
+    // requests received whose responses have not been written yet
+    private int inFlight = 0;
+    // messages requested from the client that have not arrived yet
+    private int requested = 0;
+    private boolean halfClosed = false;
+    private boolean finished = false;
+
+    StreamRequestProcessor(ServerCallStreamObserver<GeometryResponse> responseObserver,
+                           Executor executor,
+                           ForkJoinPool computePool,
+                           int maxInFlight,
+                           boolean ordered) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be at least 1");
+        }
+        this.responseObserver = responseObserver;
+        this.executor = executor;
+        this.computePool = computePool;
+        this.maxInFlight = maxInFlight;
+        this.ordered = ordered;
+
+        // must be called before the service method returns
+        responseObserver.disableAutoInboundFlowControl();
+        responseObserver.setOnReadyHandler(this::pump);
+    }
+
+    /**
+     * Hand a request received by the request observer's onNext to the worker pool.
+     */
+    void submit(GeometryRequest geometryRequest) {
+        final long sequence;
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            requested--;
+            inFlight++;
+            sequence = nextSequence++;
+        }
+
+        try {
+            executor.execute(() -> evaluate(sequence, geometryRequest));
+        } catch (RejectedExecutionException e) {
+            fail(Status.RESOURCE_EXHAUSTED.withDescription("Geometry worker pool is saturated").withCause(e));
+        }
+    }
+
+    /**
+     * The client has finished sending requests. The response stream completes once every request in flight is done.
+     */
+    void halfClose() {
+        synchronized (lock) {
+            halfClosed = true;
+            completeIfDone();
+        }
+    }
+
+    /**
+     * The client has cancelled or errored. Results of requests still running are dropped.
+     */
+    void cancel() {
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            pendingResponses.clear();
+            responseObserver.onCompleted();
+        }
+    }
+
+    private void evaluate(long sequence, GeometryRequest geometryRequest) {
+        List<GeometryResponse> responses = new ArrayList<>();
+        try {
+            GeometryResponsesIterator operatorResultsIterator = GeometryServiceUtil.buildResultsIterable(geometryRequest, null, false, computePool);
+            while (operatorResultsIterator.hasNext()) {
+                responses.add(operatorResultsIterator.next());
+            }
+        } catch (Throwable throwable) {
+            fail(Status.UNKNOWN.withDescription("Error handling request").withCause(throwable));
+            return;
+        }
+
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+
+            if (ordered) {
+                pendingResponses.put(sequence, responses);
+                List<GeometryResponse> next;
+                while ((next = pendingResponses.remove(nextToSend)) != null) {
+                    send(next);
+                    nextToSend++;
+                }
+            } else {
+                send(responses);
+            }
+            completeIfDone();
+        }
+
+        pump();
+    }
+
+    private void send(List<GeometryResponse> responses) {
+        for (GeometryResponse response : responses) {
+            responseObserver.onNext(response);
+        }
+        inFlight--;
+    }
+
+    private void completeIfDone() {
+        if (halfClosed && inFlight == 0 && !finished) {
+            finished = true;
+            responseObserver.onCompleted();
+        }
+    }
+
+    private void fail(Status status) {
+        synchronized (lock) {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            pendingResponses.clear();
+            responseObserver.onError(status.asException());
+        }
+    }
+
+    /**
+     * Request as many messages from the client as there are free slots, as long as the response stream is ready.
+     */
+    private void pump() {
+        int count;
+        synchronized (lock) {
+            if (finished || halfClosed || !responseObserver.isReady()) {
+                return;
+            }
+            count = maxInFlight - inFlight - requested;
+            if (count <= 0) {
+                return;
+            }
+            requested += count;
+        }
+        // request is safe to call from any thread
+        responseObserver.request(count);
+    }
+}
@@ -24,10 +24,17 @@ import org.epl.geometry.*;
 import com.esri.core.geometry.*;
 import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
 import io.grpc.inprocess.InProcessChannelBuilder;
 import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
 import io.grpc.stub.ClientCallStreamObserver;
 import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.MetadataUtils;
+import io.grpc.stub.StreamObserver;
 import junit.framework.TestCase;
 import org.junit.After;
 import org.junit.Before;
@@ -35,9 +42,16 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.Assert.*;
 
@@ -1517,4 +1531,1029 @@ public class GeometryServerTest {
         assertEquals(-Math.PI / 2, geometryResponse.getGeodeticInverse().getAz12(), 0);
         assertEquals(Math.PI / 2, geometryResponse.getGeodeticInverse().getAz21(), 0);
     }
+    private List<GeometryResponse> workerPoolStream(boolean flow, boolean unordered, int requestCount) throws Exception {
+        String uniqueServerName = "worker pool server for " + getClass();
+        ExecutorService streamExecutor = Executors.newFixedThreadPool(4);
+        GeometryServer workerServer = new GeometryServer(InProcessServerBuilder.forName(uniqueServerName), 0, streamExecutor, 3);
+        workerServer.start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(uniqueServerName).build();
+        try {
+            GeometryServiceGrpc.GeometryServiceStub stub = GeometryServiceGrpc.newStub(channel);
+            if (unordered) {
+                Metadata headers = new Metadata();
+                headers.put(GeometryServer.STREAM_ORDER_HEADER, GeometryServer.STREAM_ORDER_UNORDERED);
+                stub = MetadataUtils.attachHeaders(stub, headers);
+            }
+
+            List<GeometryResponse> responses = Collections.synchronizedList(new ArrayList<>());
+            CountDownLatch done = new CountDownLatch(1);
+            StreamObserver<GeometryResponse> responseObserver = new StreamObserver<>() {
+                @Override
+                public void onNext(GeometryResponse geometryResponse) {
+                    responses.add(geometryResponse);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    fail(throwable.getMessage());
+                    done.countDown();
+                }
+
+                @Override
+                public void onCompleted() {
+                    done.countDown();
+                }
+            };
+            StreamObserver<GeometryRequest> requestObserver = flow ? stub.operateBiStreamFlow(responseObserver) : stub.operateBiStream(responseObserver);
+
+            for (int i = 0; i < requestCount; i++) {
+                // later requests are cheaper, so they tend to finish first
+                Polygon polygon = new Polygon();
+                int pointCount = 4 + (requestCount - i) * 20;
+                for (int j = 0; j < pointCount; j++) {
+                    double a = -2 * Math.PI * j / pointCount;
+                    if (j == 0)
+                        polygon.startPath(i + Math.cos(a), Math.sin(a));
+                    else
+                        polygon.lineTo(i + Math.cos(a), Math.sin(a));
+                }
+                GeometryData geometryData = GeometryData.newBuilder()
+                        .setWkt(OperatorExportToWkt.local().execute(0, polygon, null))
+                        .setGeometryId(i)
+                        .build();
+                requestObserver.onNext(GeometryRequest.newBuilder()
+                        .setGeometry(geometryData)
+                        .setOperator(OperatorType.BUFFER)
+                        .setBufferParams(Params.Buffer.newBuilder().setDistance(0.5))
+                        .setResultEncoding(Encoding.WKT)
+                        .build());
+            }
+            requestObserver.onCompleted();
+
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+            return responses;
+        } finally {
+            channel.shutdownNow();
+            workerServer.stop();
+            streamExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testBiStreamWorkerPoolOrdered() throws Exception {
+        for (boolean flow : new boolean[]{false, true}) {
+            List<GeometryResponse> responses = workerPoolStream(flow, false, 40);
+            assertEquals(40, responses.size());
+            for (int i = 0; i < responses.size(); i++) {
+                assertEquals(i, responses.get(i).getGeometry().getGeometryId());
+                // the buffered circle of request i is centered on x = i
+                assertEquals(i - 1.5, responses.get(i).getGeometry().getEnvelope().getXmin(), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void testBiStreamWorkerPoolUnordered() throws Exception {
+        List<GeometryResponse> responses = workerPoolStream(true, true, 40);
+        assertEquals(40, responses.size());
+        Set<Long> ids = new HashSet<>();
+        for (GeometryResponse response : responses) {
+            ids.add(response.getGeometry().getGeometryId());
+        }
+        assertEquals(40, ids.size());
+    }
+
+    @Test
+    public void testCallAdmissionLimit() throws Exception {
+        String uniqueServerName = "admission server for " + getClass();
+        GeometryServer admissionServer = new GeometryServer(InProcessServerBuilder.forName(uniqueServerName), 0, null, 0, 1);
+        admissionServer.start();
+        ManagedChannel channel = InProcessChannelBuilder.forName(uniqueServerName).build();
+        try {
+            // an open stream holds the only permit
+            CountDownLatch done = new CountDownLatch(1);
+            StreamObserver<GeometryRequest> requestObserver = GeometryServiceGrpc.newStub(channel).operateBiStream(new StreamObserver<>() {
+                @Override
+                public void onNext(GeometryResponse geometryResponse) {
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    done.countDown();
+                }
+
+                @Override
+                public void onCompleted() {
+                    done.countDown();
+                }
+            });
+            requestObserver.onNext(GeometryRequest.newBuilder()
+                    .setGeometry(GeometryData.newBuilder().setWkt("POINT (1 2)"))
+                    .setOperator(OperatorType.BUFFER)
+                    .setBufferParams(Params.Buffer.newBuilder().setDistance(1))
+                    .build());
+
+            GeometryRequest geometryRequest = GeometryRequest.newBuilder()
+                    .setGeometry(GeometryData.newBuilder().setWkt("POINT (1 2)"))
+                    .setOperator(OperatorType.BUFFER)
+                    .setBufferParams(Params.Buffer.newBuilder().setDistance(1))
+                    .build();
+            GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(channel);
+            try {
+                stub.operate(geometryRequest);
+                fail("expected RESOURCE_EXHAUSTED");
+            } catch (StatusRuntimeException e) {
+                assertEquals(Status.Code.RESOURCE_EXHAUSTED, e.getStatus().getCode());
+            }
+
+            requestObserver.onCompleted();
+            assertTrue(done.await(30, TimeUnit.SECONDS));
+
+            // the permit is released once the stream is done
+            GeometryResponse geometryResponse = null;
+            for (int i = 0; i < 50 && geometryResponse == null; i++) {
+                try {
+                    geometryResponse = stub.operate(geometryRequest);
+                } catch (StatusRuntimeException e) {
+                    Thread.sleep(20);
+                }
+            }
+            assertNotNull(geometryResponse);
+        } finally {
+            channel.shutdownNow();
+            admissionServer.stop();
+        }
+    }
+
+    @Test
+    public void testComputePool() throws Exception {
+        GeometryRequest bufferRequest = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.BUFFER)
+                .setBufferParams(Params.Buffer.newBuilder().setDistance(1))
+                .build();
+        List<Geometry> points = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            points.add(new Point(3 * i, 0));
+        }
+
+        // the buffers are evaluated on the given pool, so a pool that was shut down rejects them
+        ForkJoinPool pool = new ForkJoinPool(2);
+        pool.shutdown();
+        try {
+            GeometryServiceUtil.cursorFromRequest(bufferRequest, new SimpleGeometryCursor(points), null, pool).next();
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+
+        pool = new ForkJoinPool(2);
+        try {
+            GeometryCursor buffers = GeometryServiceUtil.cursorFromRequest(bufferRequest, new SimpleGeometryCursor(points), null, pool);
+            for (int i = 0; i < points.size(); i++) {
+                Geometry buffer = buffers.next();
+                assertEquals(i, buffers.getGeometryID());
+                assertEquals(Math.PI, buffer.calculateArea2D(), 0.01);
+            }
+            assertNull(buffers.next());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testServerOptions() throws Exception {
+        for (GeometryServerOptions.ExecutorType executorType : GeometryServerOptions.ExecutorType.values()) {
+            GeometryServerOptions options = new GeometryServerOptions()
+                    .setPort(0)
+                    .setExecutorType(executorType)
+                    .setThreads(2)
+                    .setQueueLimit(4)
+                    .setBossEventLoopThreads(1)
+                    .setWorkerEventLoopThreads(2)
+                    .setFlowControlWindow(4 * 1024 * 1024)
+                    .setStreamWorkerThreads(2);
+            GeometryServer nettyServer = new GeometryServer(options);
+            nettyServer.start();
+            ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", nettyServer.getPort()).usePlaintext().build();
+            try {
+                GeometryRequest geometryRequest = GeometryRequest.newBuilder()
+                        .setGeometry(GeometryData.newBuilder().setWkt("POINT (1 2)"))
+                        .setOperator(OperatorType.BUFFER)
+                        .setBufferParams(Params.Buffer.newBuilder().setDistance(1))
+                        .setResultEncoding(Encoding.WKT)
+                        .build();
+                GeometryResponse geometryResponse = GeometryServiceGrpc.newBlockingStub(channel).operate(geometryRequest);
+                Geometry result = GeometryEngine.geometryFromWkt(geometryResponse.getGeometry().getWkt(), 0, Geometry.Type.Unknown);
+                assertEquals(Geometry.Type.Polygon, result.getType());
+            } finally {
+                channel.shutdownNow();
+                nettyServer.stop();
+            }
+        }
+    }
+
+    @Test
+    public void testAliasingMarshaller() throws Exception {
+        Polygon polygon = new Polygon();
+        polygon.startPath(0, 0);
+        polygon.lineTo(0, 10);
+        polygon.lineTo(10, 10);
+        polygon.lineTo(10, 0);
+        ByteBuffer wkb = OperatorExportToWkb.local().execute(0, polygon, null);
+        GeometryRequest geometryRequest = GeometryRequest.newBuilder()
+                .setGeometry(GeometryData.newBuilder().setGeometryId(7).setWkb(ByteString.copyFrom(wkb)))
+                .setOperator(OperatorType.BUFFER)
+                .setBufferParams(Params.Buffer.newBuilder().setDistance(1))
+                .build();
+
+        @SuppressWarnings("unchecked")
+        MethodDescriptor.PrototypeMarshaller<GeometryRequest> defaultMarshaller =
+                (MethodDescriptor.PrototypeMarshaller<GeometryRequest>) GeometryServiceGrpc.getOperateMethod().getRequestMarshaller();
+        AliasingMarshaller<GeometryRequest> marshaller = new AliasingMarshaller<>(defaultMarshaller, GeometryRequest.parser());
+        GeometryRequest parsed = marshaller.parse(new java.io.ByteArrayInputStream(geometryRequest.toByteArray()));
+        assertEquals(geometryRequest, parsed);
+
+        // the wkb is a view into the message buffer, not a copy
+        assertTrue(parsed.getGeometry().getWkb().asReadOnlyByteBuffer().position() > 0);
+        Geometry geometry = GeometryServiceUtil.extractGeometry(parsed.getGeometry());
+        assertTrue(GeometryEngine.equals(polygon, geometry, null));
+    }
+
+    @Test
+    public void testBinaryEncodingNettyRoundTrip() throws Exception {
+        GeometryServer nettyServer = new GeometryServer(new GeometryServerOptions().setPort(0));
+        nettyServer.start();
+        ManagedChannel channel = NettyChannelBuilder.forAddress("localhost", nettyServer.getPort()).usePlaintext().build();
+        try {
+            Polyline polyline = new Polyline();
+            for (int i = 0; i < 100000; i++) {
+                if (i == 0)
+                    polyline.startPath(i, i % 7);
+                else
+                    polyline.lineTo(i, i % 7);
+            }
+            ByteString wkb = ByteString.copyFrom(OperatorExportToWkb.local().execute(0, polyline, null));
+            GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(channel);
+            for (Encoding encoding : new Encoding[]{Encoding.WKB, Encoding.ESRI_SHAPE}) {
+                GeometryRequest geometryRequest = GeometryRequest.newBuilder()
+                        .setGeometry(GeometryData.newBuilder().setWkb(wkb))
+                        .setOperator(OperatorType.GENERALIZE)
+                        .setGeneralizeParams(Params.Generalize.newBuilder().setMaxDeviation(0))
+                        .setResultEncoding(encoding)
+                        .build();
+                GeometryResponse geometryResponse = stub.operate(geometryRequest);
+                Geometry result = GeometryServiceUtil.extractGeometry(geometryResponse.getGeometry());
+                assertEquals(Geometry.Type.Polyline, result.getType());
+                Envelope2D envelope2D = new Envelope2D();
+                result.queryEnvelope2D(envelope2D);
+                assertEquals(99999, envelope2D.xmax, 0);
+                assertEquals(6, envelope2D.ymax, 0);
+            }
+        } finally {
+            channel.shutdownNow();
+            nettyServer.stop();
+        }
+    }
+
+    @Test
+    public void testGeoJsonEncoding() {
+        Polygon polygon = new Polygon();
+        polygon.startPath(-122.41941550000001, 37.7749295);
+        polygon.lineTo(-122.4, 37.8);
+        polygon.lineTo(-122.3, 37.7);
+        GeometryData geometryData = GeometryData.newBuilder()
+                .setWkb(ByteString.copyFrom(OperatorExportToWkb.local().execute(0, polygon, null)))
+                .build();
+        GeometryRequest geometryRequest = GeometryRequest.newBuilder()
+                .setGeometry(geometryData)
+                .setOperator(OperatorType.EXPORT_TO_GEOJSON)
+                .build();
+
+        GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(inProcessChannel);
+        GeometryResponse geometryResponse = stub.operate(geometryRequest);
+        String geoJson = geometryResponse.getGeometry().getGeojson();
+        assertEquals("{\"type\":\"Polygon\",\"coordinates\":[[[-122.41941550000001,37.7749295],[-122.3,37.7],[-122.4,37.8],[-122.41941550000001,37.7749295]]]}", geoJson);
+        Geometry result = GeometryServiceUtil.extractGeometry(geometryResponse.getGeometry());
+        assertTrue(GeometryEngine.equals(polygon, result, null));
+    }
+
+    @Test
+    public void testGeoJsonEncodingMatchesStringExport() {
+        // the UTF-8 GeoJSON of the service is the String export, including numbers it writes with exponents
+        Polyline polyline = new Polyline();
+        polyline.startPath(1e-5, 1.5e-7);
+        polyline.lineTo(1e17, -0.0);
+        polyline.lineTo(2.675, 0.1 + 0.2);
+        MultiPoint multiPoint = new MultiPoint();
+        Random random = new Random(42);
+        for (int i = 0; i < 50; i++) {
+            multiPoint.add((random.nextDouble() - 0.5) * 360, (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(20) - 10));
+        }
+        Polygon polygon = new Polygon();
+        polygon.startPath(-122.41941550000001, 37.7749295);
+        polygon.lineTo(-122.4, 37.8);
+        polygon.lineTo(-179.99999999999997, 1.0 / 3);
+        Geometry[] geometries = {new Point(-0.000012345, 123456789012345678.0), polyline, multiPoint, polygon};
+
+        GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(inProcessChannel);
+        for (Geometry geometry : geometries) {
+            ByteBuffer wkb = OperatorExportToWkb.local().execute(0, geometry, null);
+            GeometryRequest geometryRequest = GeometryRequest.newBuilder()
+                    .setGeometry(GeometryData.newBuilder().setWkb(ByteString.copyFrom(wkb.duplicate())))
+                    .setOperator(OperatorType.EXPORT_TO_GEOJSON)
+                    .build();
+            // the String export of the geometry as the service imports it
+            StringCursor expected = new OperatorExportToGeoJsonCursor(GeoJsonExportFlags.geoJsonExportSkipCRS, null,
+                    new SimpleGeometryCursor(OperatorImportFromWkb.local().execute(0, Geometry.Type.Unknown, wkb, null)));
+            assertEquals(expected.next(), stub.operate(geometryRequest).getGeometry().getGeojson());
+        }
+    }
+
+    @Test
+    public void testOperateClientStreamUnion() throws Exception {
+        List<GeometryResponse> responses = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<GeometryRequest> requestObserver = GeometryServiceGrpc.newStub(inProcessChannel).operateClientStream(new StreamObserver<>() {
+            @Override
+            public void onNext(GeometryResponse geometryResponse) {
+                responses.add(geometryResponse);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable.getMessage());
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+
+        // overlapping rectangles, large enough for the union to dissolve bins before the stream ends
+        for (int i = 0; i < 500; i++) {
+            Polygon polygon = new Polygon();
+            polygon.startPath(i, 0);
+            polygon.lineTo(i, 1);
+            polygon.lineTo(i + 2, 1);
+            for (int j = 100; j > 0; j--) {
+                polygon.lineTo(i + j * 0.02, 0);
+            }
+            requestObserver.onNext(GeometryRequest.newBuilder()
+                    .setGeometry(GeometryData.newBuilder().setWkt(GeometryEngine.geometryToWkt(polygon, 0)))
+                    .setOperator(OperatorType.UNION)
+                    .build());
+        }
+        requestObserver.onCompleted();
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(1, responses.size());
+        Geometry result = GeometryServiceUtil.extractGeometry(responses.get(0).getGeometry());
+        assertEquals(501, result.calculateArea2D(), 1e-9);
+    }
+
+    private static byte[] polygonShapefile(int recordCount) {
+        List<byte[]> records = new ArrayList<>();
+        int fileLength = 100;
+        for (int i = 0; i < recordCount; i++) {
+            Polygon polygon = new Polygon();
+            // every 10th record is large enough to span several chunks
+            int pointCount = i % 10 == 0 ? 5000 : 4 + i % 7;
+            for (int j = 0; j < pointCount; j++) {
+                double a = -2 * Math.PI * j / pointCount;
+                if (j == 0)
+                    polygon.startPath(i + Math.cos(a), Math.sin(a));
+                else
+                    polygon.lineTo(i + Math.cos(a), Math.sin(a));
+            }
+            ByteBuffer shape = OperatorExportToESRIShape.local().execute(0, polygon);
+            byte[] record = new byte[shape.remaining()];
+            shape.get(record);
+            records.add(record);
+            fileLength += 8 + record.length;
+        }
+
+        ByteBuffer file = ByteBuffer.allocate(fileLength);
+        file.putInt(9994).putInt(0).putInt(0).putInt(0).putInt(0).putInt(0).putInt(fileLength / 2);
+        file.order(java.nio.ByteOrder.LITTLE_ENDIAN).putInt(1000).putInt(5);
+        file.putDouble(-1).putDouble(-1).putDouble(recordCount).putDouble(1);
+        file.putDouble(0).putDouble(0).putDouble(0).putDouble(0);
+        file.order(java.nio.ByteOrder.BIG_ENDIAN);
+        for (int i = 0; i < records.size(); i++) {
+            file.putInt(i + 1).putInt(records.get(i).length / 2).put(records.get(i));
+        }
+        return file.array();
+    }
+
+    @Test
+    public void testShapefileChunkedReader() throws Exception {
+        byte[] shapefile = polygonShapefile(50);
+        for (int chunkSize : new int[]{7, 100, 1000, 65536, shapefile.length}) {
+            ShapefileChunkedReader reader = new ShapefileChunkedReader();
+            List<Geometry> geometries = new ArrayList<>();
+            for (int offset = 0; offset < shapefile.length; offset += chunkSize) {
+                reader.addChunk(ByteString.copyFrom(shapefile, offset, Math.min(chunkSize, shapefile.length - offset)));
+                while (reader.hasNext()) {
+                    Geometry geometry = reader.next();
+                    assertEquals(geometries.size() + 1, reader.getGeometryID());
+                    geometries.add(geometry);
+                }
+            }
+
+            assertEquals(Geometry.Type.Polygon, reader.getGeometryType());
+            assertEquals(50, geometries.size());
+            for (int i = 0; i < geometries.size(); i++) {
+                Envelope2D envelope2D = new Envelope2D();
+                geometries.get(i).queryEnvelope2D(envelope2D);
+                assertEquals(i + 1, envelope2D.xmax, 1e-9);
+                assertEquals(i % 10 == 0 ? 5000 : 4 + i % 7, ((Polygon) geometries.get(i)).getPointCount());
+            }
+        }
+    }
+
+    private static byte[] shapefileIndex(byte[] shapefile) {
+        ByteBuffer shp = ByteBuffer.wrap(shapefile);
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        for (int offset = 100; offset < shapefile.length; offset += 8 + shp.getInt(offset + 4) * 2) {
+            records.write(ByteBuffer.allocate(8).putInt(offset / 2).putInt(shp.getInt(offset + 4)).array(), 0, 8);
+        }
+
+        ByteBuffer index = ByteBuffer.allocate(100 + records.size());
+        index.put(shapefile, 0, 100).putInt(24, index.capacity() / 2);
+        index.put(records.toByteArray());
+        return index.array();
+    }
+
+    private static byte[] attributeTable(int recordCount) {
+        // a character field NAME of 12 bytes and a numeric field ID of 6 bytes
+        int recordLength = 1 + 12 + 6;
+        int headerLength = 32 + 2 * 32 + 1;
+        ByteBuffer dbf = ByteBuffer.allocate(headerLength + recordCount * recordLength + 1).order(java.nio.ByteOrder.LITTLE_ENDIAN);
+        dbf.put((byte) 3).put((byte) 120).put((byte) 1).put((byte) 1);
+        dbf.putInt(recordCount).putShort((short) headerLength).putShort((short) recordLength);
+        dbf.position(32);
+        dbf.put(Arrays.copyOf("NAME".getBytes(StandardCharsets.US_ASCII), 11)).put((byte) 'C').putInt(0).put((byte) 12).put((byte) 0).put(new byte[14]);
+        dbf.put(Arrays.copyOf("ID".getBytes(StandardCharsets.US_ASCII), 11)).put((byte) 'N').putInt(0).put((byte) 6).put((byte) 0).put(new byte[14]);
+        dbf.put((byte) 0x0D);
+        for (int i = 0; i < recordCount; i++) {
+            dbf.put((byte) ' ');
+            dbf.put(String.format("%-12s%6d", "parcel " + i, 1000 + i).getBytes(StandardCharsets.US_ASCII));
+        }
+        dbf.put((byte) 0x1A);
+        return dbf.array();
+    }
+
+    @Test
+    public void testShapefileChunkedReaderIndexAndAttributes() throws Exception {
+        byte[] shapefile = polygonShapefile(200);
+        byte[] index = shapefileIndex(shapefile);
+        byte[] attributes = attributeTable(200);
+        ForkJoinPool pool = new ForkJoinPool(2);
+        for (int chunkSize : new int[]{7, 1000, shapefile.length}) {
+            ShapefileChunkedReader reader = new ShapefileChunkedReader(pool);
+            reader.addIndexChunk(ByteString.copyFrom(index));
+            List<Geometry> geometries = new ArrayList<>();
+            int attributeOffset = 0;
+            for (int offset = 0; offset < shapefile.length; offset += chunkSize) {
+                reader.addChunk(ByteString.copyFrom(shapefile, offset, Math.min(chunkSize, shapefile.length - offset)));
+                // the attribute table arrives after the geometries it describes
+                int attributeChunk = Math.min(60, attributes.length - attributeOffset);
+                reader.addAttributeChunk(ByteString.copyFrom(attributes, attributeOffset, attributeChunk), "ID");
+                attributeOffset += attributeChunk;
+                while (reader.hasNext()) {
+                    Geometry geometry = reader.next();
+                    int id = geometries.size();
+                    assertEquals(id + 1, reader.getGeometryID());
+                    assertEquals(Integer.toString(1000 + id), reader.getFeatureID());
+                    assertEquals("parcel " + id, reader.getAttributes(id + 1).get("NAME"));
+                    geometries.add(geometry);
+                }
+            }
+            if (attributeOffset < attributes.length) {
+                reader.addAttributeChunk(ByteString.copyFrom(attributes, attributeOffset, attributes.length - attributeOffset), "ID");
+            }
+            while (reader.hasNext()) {
+                geometries.add(reader.next());
+                assertEquals(Integer.toString(1000 + geometries.size() - 1), reader.getFeatureID());
+            }
+
+            assertEquals(200, geometries.size());
+            for (int i = 0; i < geometries.size(); i++) {
+                Envelope2D envelope2D = new Envelope2D();
+                geometries.get(i).queryEnvelope2D(envelope2D);
+                assertEquals(i + 1, envelope2D.xmax, 1e-9);
+            }
+        }
+
+        // large runs of indexed records are imported on the given pool, so a pool that was shut down rejects them
+        pool.shutdown();
+        ShapefileChunkedReader reader = new ShapefileChunkedReader(pool);
+        reader.addIndexChunk(ByteString.copyFrom(index));
+        reader.addChunk(ByteString.copyFrom(shapefile));
+        try {
+            reader.hasNext();
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFileOperateBiStreamFlowAttributes() throws Exception {
+        byte[] shapefile = polygonShapefile(30);
+        GeometryRequest nestedRequest = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.CONVEX_HULL)
+                .setResultEncoding(Encoding.WKB)
+                .build();
+
+        List<GeometryResponse> responses = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<FileRequestChunk> requestObserver = GeometryServiceGrpc.newStub(inProcessChannel).fileOperateBiStreamFlow(new StreamObserver<>() {
+            @Override
+            public void onNext(GeometryResponse geometryResponse) {
+                responses.add(geometryResponse);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable.getMessage());
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+
+        requestObserver.onNext(FileRequestChunk.newBuilder()
+                .setFileType(FileRequestChunk.FileType.SHAPEFILE_INDEX)
+                .setData(ByteString.copyFrom(shapefileIndex(shapefile)))
+                .setNestedRequest(nestedRequest)
+                .build());
+        requestObserver.onNext(FileRequestChunk.newBuilder()
+                .setFileType(FileRequestChunk.FileType.SHAPEFILE_DBASE)
+                .setData(ByteString.copyFrom(attributeTable(30)))
+                .build());
+        int chunkSize = 3000;
+        for (int offset = 0; offset < shapefile.length; offset += chunkSize) {
+            int size = Math.min(chunkSize, shapefile.length - offset);
+            requestObserver.onNext(FileRequestChunk.newBuilder()
+                    .setData(ByteString.copyFrom(shapefile, offset, size))
+                    .setSize(size)
+                    .build());
+        }
+        requestObserver.onCompleted();
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(30, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            GeometryData geometryData = responses.get(i).getGeometry();
+            assertEquals(i + 1, geometryData.getGeometryId());
+            // without a feature_id_field the first field is the feature id
+            assertEquals("parcel " + i, geometryData.getFeatureId());
+            assertEquals(Integer.toString(1000 + i), geometryData.getAttributesOrThrow("ID"));
+            Envelope2D envelope2D = new Envelope2D();
+            GeometryServiceUtil.extractGeometry(geometryData).queryEnvelope2D(envelope2D);
+            assertEquals(i + 1, envelope2D.xmax, 1e-9);
+        }
+    }
+
+    @Test
+    public void testShapefileChunkedReaderShortAttributes() throws Exception {
+        byte[] shapefile = polygonShapefile(50);
+        // a complete table with fewer records than the .shp
+        ShapefileChunkedReader reader = new ShapefileChunkedReader();
+        reader.addAttributeChunk(ByteString.copyFrom(attributeTable(30)), "ID");
+        List<Geometry> geometries = new ArrayList<>();
+        for (int offset = 0; offset < shapefile.length; offset += 1000) {
+            reader.addChunk(ByteString.copyFrom(shapefile, offset, Math.min(1000, shapefile.length - offset)));
+            while (reader.hasNext()) {
+                geometries.add(reader.next());
+                int id = geometries.size() - 1;
+                assertEquals(id < 30 ? Integer.toString(1000 + id) : "", reader.getFeatureID());
+                assertEquals(id < 30 ? 2 : 0, reader.getAttributes(id + 1).size());
+            }
+        }
+        assertEquals(50, geometries.size());
+        assertEquals(20, reader.getUnattributedCount());
+
+        // a table that ends before its last record waits for it until finish()
+        byte[] attributes = attributeTable(50);
+        reader = new ShapefileChunkedReader();
+        reader.addAttributeChunk(ByteString.copyFrom(attributes, 0, 32 + 2 * 32 + 1 + 20 * 19), "ID");
+        reader.addChunk(ByteString.copyFrom(shapefile));
+        geometries.clear();
+        while (reader.hasNext()) {
+            geometries.add(reader.next());
+            assertEquals(Integer.toString(1000 + geometries.size() - 1), reader.getFeatureID());
+        }
+        assertEquals(20, geometries.size());
+        assertEquals(0, reader.getUnattributedCount());
+
+        reader.finish();
+        while (reader.hasNext()) {
+            geometries.add(reader.next());
+            assertEquals("", reader.getFeatureID());
+        }
+        assertEquals(50, geometries.size());
+        assertEquals(30, reader.getUnattributedCount());
+        for (int i = 0; i < geometries.size(); i++) {
+            Envelope2D envelope2D = new Envelope2D();
+            geometries.get(i).queryEnvelope2D(envelope2D);
+            assertEquals(i + 1, envelope2D.xmax, 1e-9);
+        }
+    }
+
+    @Test
+    public void testShapefileChunkedReaderIndexHeader() throws Exception {
+        byte[] shapefile = polygonShapefile(20);
+        // the .shx header doesn't replace the extent of the .shp header
+        byte[] index = shapefileIndex(shapefile);
+        ByteBuffer.wrap(index).order(java.nio.ByteOrder.LITTLE_ENDIAN).putDouble(52, 1000);
+        ShapefileChunkedReader reader = new ShapefileChunkedReader();
+        reader.addChunk(ByteString.copyFrom(shapefile, 0, 100));
+        reader.addIndexChunk(ByteString.copyFrom(index));
+        assertEquals(20, reader.getEnvelope2D().xmax, 0);
+        assertEquals(Geometry.Type.Polygon, reader.getGeometryType());
+
+        // a .shx of polylines doesn't index a .shp of polygons, whichever header arrives first
+        ByteBuffer.wrap(index).order(java.nio.ByteOrder.LITTLE_ENDIAN).putInt(32, 3);
+        try {
+            reader = new ShapefileChunkedReader();
+            reader.addChunk(ByteString.copyFrom(shapefile, 0, 100));
+            reader.addIndexChunk(ByteString.copyFrom(index));
+            fail("expected a shape type mismatch");
+        } catch (java.io.IOException e) {
+            assertTrue(e.getMessage().contains("shape type 3"));
+        }
+        try {
+            reader = new ShapefileChunkedReader();
+            reader.addIndexChunk(ByteString.copyFrom(index));
+            reader.addChunk(ByteString.copyFrom(shapefile, 0, 100));
+            fail("expected a shape type mismatch");
+        } catch (java.io.IOException e) {
+            assertTrue(e.getMessage().contains("shape type 3"));
+        }
+    }
+
+    @Test
+    public void testFileOperateBiStreamFlowShortAttributes() throws Exception {
+        byte[] shapefile = polygonShapefile(30);
+        GeometryRequest nestedRequest = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.CONVEX_HULL)
+                .setResultEncoding(Encoding.WKB)
+                .build();
+
+        List<GeometryResponse> responses = Collections.synchronizedList(new ArrayList<>());
+        List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<FileRequestChunk> requestObserver = GeometryServiceGrpc.newStub(inProcessChannel).fileOperateBiStreamFlow(new StreamObserver<>() {
+            @Override
+            public void onNext(GeometryResponse geometryResponse) {
+                responses.add(geometryResponse);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                errors.add(throwable);
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+
+        // the .dbf is cut off after 20 of its 30 records
+        byte[] attributes = attributeTable(30);
+        requestObserver.onNext(FileRequestChunk.newBuilder()
+                .setFileType(FileRequestChunk.FileType.SHAPEFILE_DBASE)
+                .setData(ByteString.copyFrom(attributes, 0, 32 + 2 * 32 + 1 + 20 * 19))
+                .setNestedRequest(nestedRequest)
+                .build());
+        int chunkSize = 3000;
+        for (int offset = 0; offset < shapefile.length; offset += chunkSize) {
+            int size = Math.min(chunkSize, shapefile.length - offset);
+            requestObserver.onNext(FileRequestChunk.newBuilder()
+                    .setData(ByteString.copyFrom(shapefile, offset, size))
+                    .setSize(size)
+                    .build());
+        }
+        requestObserver.onCompleted();
+
+        // every geometry is returned, the ones without a record with an error at the end
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertEquals(30, responses.size());
+        for (int i = 0; i < responses.size(); i++) {
+            GeometryData geometryData = responses.get(i).getGeometry();
+            assertEquals(i + 1, geometryData.getGeometryId());
+            assertEquals(i < 20 ? "parcel " + i : "", geometryData.getFeatureId());
+            assertEquals(i < 20 ? 2 : 0, geometryData.getAttributesCount());
+        }
+        assertEquals(1, errors.size());
+        assertEquals(Status.Code.INVALID_ARGUMENT, Status.fromThrowable(errors.get(0)).getCode());
+    }
+
+    @Test
+    public void testFileOperateBiStreamFlow() throws Exception {
+        byte[] shapefile = polygonShapefile(30);
+        // the records that complete in one chunk are unioned into one response
+        GeometryRequest nestedRequest = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.UNION)
+                .setResultEncoding(Encoding.WKT)
+                .build();
+
+        List<GeometryResponse> responses = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<FileRequestChunk> requestObserver = GeometryServiceGrpc.newStub(inProcessChannel).fileOperateBiStreamFlow(new StreamObserver<>() {
+            @Override
+            public void onNext(GeometryResponse geometryResponse) {
+                responses.add(geometryResponse);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                fail(throwable.getMessage());
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+
+        int chunkSize = 3000;
+        for (int offset = 0; offset < shapefile.length; offset += chunkSize) {
+            int size = Math.min(chunkSize, shapefile.length - offset);
+            requestObserver.onNext(FileRequestChunk.newBuilder()
+                    .setData(ByteString.copyFrom(shapefile, offset, size))
+                    .setSize(size)
+                    .setNestedRequest(nestedRequest)
+                    .build());
+        }
+        requestObserver.onCompleted();
+
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        assertTrue(responses.size() > 1);
+        Envelope2D envelope2D = new Envelope2D();
+        envelope2D.setEmpty();
+        for (GeometryResponse response : responses) {
+            Envelope2D responseEnvelope = new Envelope2D();
+            GeometryServiceUtil.extractGeometry(response.getGeometry()).queryEnvelope2D(responseEnvelope);
+            envelope2D.merge(responseEnvelope);
+        }
+        assertEquals(-1, envelope2D.xmin, 1e-9);
+        assertEquals(30, envelope2D.xmax, 1e-9);
+    }
+
+    @Test
+    public void testRelateBatchServerStream() {
+        RelateBatchRequest.Builder requestBuilder = RelateBatchRequest.newBuilder().setOperator(OperatorType.CONTAINS);
+        for (int i = 0; i < 3; i++) {
+            requestBuilder.addLeftGeometries(GeometryData.newBuilder()
+                    .setGeometryId(100 + i)
+                    .setWkt(String.format("POLYGON ((%d 0, %d 10, %d 10, %d 0, %d 0))", 10 * i, 10 * i, 10 * i + 10, 10 * i + 10, 10 * i)));
+        }
+        for (int i = 0; i < 6; i++) {
+            requestBuilder.addRightGeometries(GeometryData.newBuilder()
+                    .setGeometryId(200 + i)
+                    .setWkt(String.format("POINT (%d 5)", 5 * i + 2)));
+        }
+
+        GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(inProcessChannel);
+        List<RelateBatchResponse> responses = new ArrayList<>();
+        stub.relateBatchServerStream(requestBuilder.build()).forEachRemaining(responses::add);
+        assertEquals(3, responses.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(100 + i, responses.get(i).getLeftGeometryId());
+            assertEquals(Arrays.asList(200L + 2 * i, 201L + 2 * i), responses.get(i).getRightGeometryIdsList());
+        }
+
+        // disjoint as bitsets over the right geometries
+        requestBuilder.setOperator(OperatorType.DISJOINT).setBitsetResult(true);
+        responses.clear();
+        stub.relateBatchServerStream(requestBuilder.build()).forEachRemaining(responses::add);
+        assertEquals(3, responses.size());
+        for (int i = 0; i < 3; i++) {
+            BitSet bits = BitSet.valueOf(responses.get(i).getRightBits().toByteArray());
+            assertEquals(0, responses.get(i).getRightGeometryIdsCount());
+            assertEquals(4, bits.cardinality());
+            assertFalse(bits.get(2 * i));
+            assertFalse(bits.get(2 * i + 1));
+        }
+
+        try {
+            stub.relateBatchServerStream(requestBuilder.setOperator(OperatorType.BUFFER).build()).hasNext();
+            fail("expected INVALID_ARGUMENT");
+        } catch (StatusRuntimeException e) {
+            assertEquals(Status.Code.INVALID_ARGUMENT, e.getStatus().getCode());
+        }
+
+        // the rows are tested on the given pool, so a pool that was shut down rejects them
+        ForkJoinPool pool = new ForkJoinPool(1);
+        pool.shutdown();
+        try {
+            GeometryServiceUtil.relateBatch(requestBuilder.setOperator(OperatorType.CONTAINS).build(), pool);
+            fail("expected RejectedExecutionException");
+        } catch (RejectedExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testTrustedSimpleState() {
+        // a self intersecting polygon that a client declares simple
+        GeometryData.Builder bowtie = GeometryData.newBuilder()
+                .setWkt("POLYGON ((0 0, 0 10, 10 0, 10 10, 0 0))")
+                .setSimple(SimpleState.STRONG_SIMPLE)
+                .setSimpleTolerance(0.001);
+        GeometryRequest.Builder requestBuilder = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.SIMPLIFY)
+                .setSimplifyParams(Params.Simplify.newBuilder().setForce(false))
+                .setResultEncoding(Encoding.WKT);
+
+        GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(inProcessChannel);
+        // the declared state is only reported back, so the polygon is simplified
+        GeometryResponse response = stub.operate(requestBuilder.setGeometry(bowtie).build());
+        Polygon simplified = (Polygon) OperatorImportFromWkt.local().execute(0, Geometry.Type.Unknown, response.getGeometry().getWkt(), null);
+        assertEquals(2, simplified.getPathCount());
+
+        // the trusted state skips the simplification
+        response = stub.operate(requestBuilder.setGeometry(bowtie.setTrustSimple(true)).build());
+        Polygon trusted = (Polygon) OperatorImportFromWkt.local().execute(0, Geometry.Type.Unknown, response.getGeometry().getWkt(), null);
+        assertEquals(1, trusted.getPathCount());
+
+        // unless it is forced
+        response = stub.operate(requestBuilder.setSimplifyParams(Params.Simplify.newBuilder().setForce(true)).build());
+        Polygon forced = (Polygon) OperatorImportFromWkt.local().execute(0, Geometry.Type.Unknown, response.getGeometry().getWkt(), null);
+        assertEquals(2, forced.getPathCount());
+    }
+
+    @Test
+    public void testProximity() {
+        GeometryData point = GeometryData.newBuilder().setGeometryId(7).setWkt("POINT (35 5)").build();
+        GeometryData square = GeometryData.newBuilder().setGeometryId(3).setWkt("POLYGON ((0 0, 0 10, 30 10, 30 0, 0 0))").build();
+        GeometryRequest.Builder requestBuilder = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.PROXIMITY_2D)
+                .setLeftGeometry(point)
+                .setRightGeometry(square);
+
+        GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(inProcessChannel);
+        GeometryResponse response = stub.operate(requestBuilder.build());
+        assertEquals(1, response.getProximityResultsCount());
+        ProximityResult nearestCoordinate = response.getProximityResults(0);
+        assertEquals(7, nearestCoordinate.getLeftGeometryId());
+        assertEquals(3, nearestCoordinate.getRightGeometryId());
+        assertEquals(5.0, nearestCoordinate.getDistance(), 1e-12);
+        assertEquals(30.0, nearestCoordinate.getX(), 1e-12);
+        assertEquals(5.0, nearestCoordinate.getY(), 1e-12);
+
+        response = stub.operate(requestBuilder.setProximityParams(Params.Proximity.newBuilder()
+                .setProximityType(Params.Proximity.ProximityType.NEAREST_VERTEX)).build());
+        assertEquals(Math.sqrt(50), response.getProximityResults(0).getDistance(), 1e-12);
+        assertEquals(30.0, response.getProximityResults(0).getX(), 1e-12);
+
+        // the pieces of the square cut in three, nearest first
+        GeometryRequest pieces = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.CUT)
+                .setLeftGeometry(square)
+                .setRightGeometry(GeometryData.newBuilder().setWkt("MULTILINESTRING ((10 -1, 10 11), (20 -1, 20 11))"))
+                .build();
+        requestBuilder.clearRightGeometry().setRightGeometryRequest(pieces);
+        Params.Proximity.Builder nearestGeometries = Params.Proximity.newBuilder()
+                .setProximityType(Params.Proximity.ProximityType.NEAREST_GEOMETRY)
+                .setMaxCount(5);
+        response = stub.operate(requestBuilder.setProximityParams(nearestGeometries).build());
+        assertEquals(3, response.getProximityResultsCount());
+        assertEquals(5.0, response.getProximityResults(0).getDistance(), 1e-12);
+        assertEquals(15.0, response.getProximityResults(1).getDistance(), 1e-12);
+        assertEquals(25.0, response.getProximityResults(2).getDistance(), 1e-12);
+
+        response = stub.operate(requestBuilder.setProximityParams(nearestGeometries.setMaxDistance(20)).build());
+        assertEquals(2, response.getProximityResultsCount());
+
+        // the nearest coordinate is measured from a point
+        try {
+            stub.operate(requestBuilder
+                    .setLeftGeometry(square)
+                    .setProximityParams(Params.Proximity.newBuilder().setProximityType(Params.Proximity.ProximityType.NEAREST_COORDINATE))
+                    .build());
+            fail("expected a left point");
+        } catch (StatusRuntimeException e) {
+            assertEquals(Status.Code.UNKNOWN, e.getStatus().getCode());
+        }
+    }
+
+    @Test
+    public void testProximityMaxCount() {
+        GeometryRequest request = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.PROXIMITY_2D)
+                .setLeftGeometry(GeometryData.newBuilder().setWkt("POINT (35 5)"))
+                .setRightGeometryRequest(GeometryRequest.newBuilder()
+                        .setOperator(OperatorType.CUT)
+                        .setLeftGeometry(GeometryData.newBuilder().setWkt("POLYGON ((0 0, 0 10, 30 10, 30 0, 0 0))"))
+                        .setRightGeometry(GeometryData.newBuilder().setWkt("LINESTRING (10 -1, 10 11)")))
+                .setProximityParams(Params.Proximity.newBuilder()
+                        .setProximityType(Params.Proximity.ProximityType.NEAREST_GEOMETRY)
+                        .setMaxCount(Integer.MAX_VALUE))
+                .build();
+
+        // every right geometry, without a result buffer for max_count of them
+        GeometryResponse response = GeometryServiceGrpc.newBlockingStub(inProcessChannel).operate(request);
+        assertEquals(2, response.getProximityResultsCount());
+        assertEquals(5.0, response.getProximityResults(0).getDistance(), 1e-12);
+        assertEquals(25.0, response.getProximityResults(1).getDistance(), 1e-12);
+    }
+
+    @Test
+    public void testRequestPlan() throws Exception {
+        ProjectionData wgs84 = ProjectionData.newBuilder().setEpsg(4326).build();
+        ProjectionData webMercator = ProjectionData.newBuilder().setEpsg(3857).build();
+        ProjectionData utm11 = ProjectionData.newBuilder().setEpsg(32611).build();
+        GeometryData point = GeometryData.newBuilder().setWkt("POINT (-118 34)").setProj(wgs84).build();
+
+        // back to back projections project once from the input
+        GeometryRequest projections = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.PROJECT)
+                .setResultProj(utm11)
+                .setGeometryRequest(GeometryRequest.newBuilder()
+                        .setOperator(OperatorType.PROJECT)
+                        .setResultProj(webMercator)
+                        .setLeftGeometry(point))
+                .build();
+        GeometryRequestPlan plan = GeometryRequestPlan.compile(projections);
+        assertEquals(1, plan.getRewrites().size());
+        assertEquals(GeometryRequest.newBuilder()
+                .setOperator(OperatorType.PROJECT)
+                .setResultProj(utm11)
+                .setLeftGeometry(point)
+                .build(), plan.getRequest());
+
+        // a projection of a hull is the result spatial reference of the hull
+        GeometryRequest hull = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.PROJECT)
+                .setResultProj(webMercator)
+                .setResultEncoding(Encoding.WKB)
+                .setGeometryRequest(GeometryRequest.newBuilder().setOperator(OperatorType.CONVEX_HULL).setLeftGeometry(point))
+                .build();
+        plan = GeometryRequestPlan.compile(hull);
+        assertEquals(OperatorType.CONVEX_HULL, plan.getRequest().getOperator());
+        assertEquals(webMercator, plan.getRequest().getResultProj());
+        assertEquals(Encoding.WKB, plan.getRequest().getResultEncoding());
+        assertEquals("CONVEX_HULL result_proj=epsg:3857\n  left_geometry: geometry id=0 proj=epsg:4326\n", plan.explain());
+
+        // a projection to the spatial reference of its input is dropped
+        GeometryRequest intersection = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.INTERSECTION)
+                .setLeftGeometry(point)
+                .setRightGeometry(point)
+                .build();
+        GeometryRequest identity = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.CONVEX_HULL)
+                .setGeometryRequest(GeometryRequest.newBuilder()
+                        .setOperator(OperatorType.PROJECT)
+                        .setResultProj(wgs84)
+                        .setGeometryRequest(intersection))
+                .build();
+        plan = GeometryRequestPlan.compile(identity);
+        assertEquals(intersection, plan.getRequest().getGeometryRequest());
+
+        // a request without rewrites is its own plan
+        assertSame(intersection, GeometryRequestPlan.compile(intersection).getRequest());
+
+        // clips of clips and of buffers give the same result as the request as it was sent
+        GeometryData polygons = GeometryData.newBuilder()
+                .setWkt("MULTIPOLYGON (((0 0, 0 10, 10 10, 10 0, 0 0)), ((100 100, 100 110, 110 110, 110 100, 100 100)), ((-50 4, -50 6, 4 6, 4 4, -50 4)))")
+                .build();
+        GeometryRequest clipOfBuffer = GeometryRequest.newBuilder()
+                .setOperator(OperatorType.CLIP)
+                .setClipParams(Params.Clip.newBuilder().setEnvelope(EnvelopeData.newBuilder().setXmin(-5).setYmin(-5).setXmax(5).setYmax(5)))
+                .setResultEncoding(Encoding.WKT)
+                .setGeometryRequest(GeometryRequest.newBuilder()
+                        .setOperator(OperatorType.CLIP)
+                        .setClipParams(Params.Clip.newBuilder().setEnvelope(EnvelopeData.newBuilder().setXmin(-3).setYmin(-20).setXmax(20).setYmax(3)))
+                        .setGeometryRequest(GeometryRequest.newBuilder()
+                                .setOperator(OperatorType.BUFFER)
+                                .setBufferParams(Params.Buffer.newBuilder().setDistance(2))
+                                .setLeftGeometry(polygons)))
+                .build();
+        plan = GeometryRequestPlan.compile(clipOfBuffer);
+        assertEquals(2, plan.getRewrites().size());
+        EnvelopeData merged = plan.getRequest().getClipParams().getEnvelope();
+        assertEquals(EnvelopeData.newBuilder().setXmin(-3).setYmin(-5).setXmax(5).setYmax(3).build(), merged);
+        GeometryRequest bufferInput = plan.getRequest().getGeometryRequest().getGeometryRequest();
+        assertEquals(OperatorType.CLIP, bufferInput.getOperator());
+        assertEquals(EnvelopeData.newBuilder().setXmin(-7).setYmin(-24).setXmax(24).setYmax(7).build(), bufferInput.getClipParams().getEnvelope());
+
+        Geometry expected = GeometryServiceUtil.cursorFromRequest(clipOfBuffer, null, null).next();
+        GeometryServiceGrpc.GeometryServiceBlockingStub stub = GeometryServiceGrpc.newBlockingStub(inProcessChannel);
+        GeometryResponse response = stub.operate(clipOfBuffer);
+        Geometry planned = OperatorImportFromWkt.local().execute(0, Geometry.Type.Unknown, response.getGeometry().getWkt(), null);
+        assertEquals(((Polygon) expected).calculateArea2D(), planned.calculateArea2D(), 1e-9);
+        assertTrue(OperatorEquals.local().execute(expected, planned, null, null));
+    }
 }
@@ -0,0 +1,236 @@
+/*
+Copyright 2017-2020 Echo Park Labs
+
+Licensed under the Apache License, Version 2.0 (the "License");
+you may not use this file except in compliance with the License.
+You may obtain a copy of the License at
+
+http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing, software
+distributed under the License is distributed on an "AS IS" BASIS,
+WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+See the License for the specific language governing permissions and
+limitations under the License.
+
+For additional information, contact:
+
+email: info@echoparklabs.io
+*/
+
+package com.epl.protobuf.v1;
+
+import com.google.protobuf.FloatValue;
+import com.google.protobuf.Timestamp;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.Status;
+import io.grpc.StatusRuntimeException;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.stub.StreamObserver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@RunWith(JUnit4.class)
+public class InMemoryStacServiceTest {
+    private static final long DAY = 24 * 60 * 60;
+
+    private Server server;
+    private ManagedChannel inProcessChannel;
+    private StacServiceGrpc.StacServiceBlockingStub stub;
+
+    @Before
+    public void setUp() throws Exception {
+        String uniqueServerName = "in-process stac server for " + getClass();
+        server = InProcessServerBuilder.forName(uniqueServerName).directExecutor().addService(new InMemoryStacService()).build().start();
+        inProcessChannel = InProcessChannelBuilder.forName(uniqueServerName).directExecutor().build();
+        stub = StacServiceGrpc.newBlockingStub(inProcessChannel);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        inProcessChannel.shutdownNow();
+        server.shutdownNow();
+    }
+
+    /**
+     * A 1 degree square at (i % 10, i / 10), observed on day i, with i percent cloud cover, from Landsat 8 for even i.
+     */
+    private static StacItem item(int i) {
+        int x = i % 10;
+        int y = i / 10;
+        return StacItem.newBuilder()
+                .setId(String.format("item-%02d", i))
+                .setCollection("grid")
+                .setGeometry(GeometryData.newBuilder()
+                        .setWkt(String.format("POLYGON ((%d %d, %d %d, %d %d, %d %d, %d %d))", x, y, x, y + 1, x + 1, y + 1, x + 1, y, x, y))
+                        .setProj(ProjectionData.newBuilder().setEpsg(4326)))
+                .setObserved(Timestamp.newBuilder().setSeconds(i * DAY))
+                .setPlatformEnum(i % 2 == 0 ? Platform.LANDSAT_8 : Platform.LANDSAT_7)
+                .setEo(Eo.newBuilder().setCloudCover(FloatValue.of(i)).setBands(Eo.Band.RGBIR))
+                .build();
+    }
+
+    private static List<String> ids(java.util.Iterator<StacItem> items) {
+        List<String> ids = new ArrayList<>();
+        items.forEachRemaining(item -> ids.add(item.getId()));
+        return ids;
+    }
+
+    private void insertItems(int count) throws InterruptedException {
+        List<StacDbResponse> responses = new ArrayList<>();
+        CountDownLatch done = new CountDownLatch(1);
+        StreamObserver<StacItem> requestObserver = StacServiceGrpc.newStub(inProcessChannel).insertItems(new StreamObserver<StacDbResponse>() {
+            @Override
+            public void onNext(StacDbResponse stacDbResponse) {
+                responses.add(stacDbResponse);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                done.countDown();
+            }
+
+            @Override
+            public void onCompleted() {
+                done.countDown();
+            }
+        });
+        for (int i = 0; i < count; i++) {
+            requestObserver.onNext(item(i));
+        }
+        requestObserver.onCompleted();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(count, responses.size());
+        for (int i = 0; i < count; i++) {
+            assertEquals(201, responses.get(i).getStatusCode());
+            assertEquals(item(i).getId(), responses.get(i).getDataId());
+        }
+    }
+
+    @Test
+    public void testSearchItems() throws InterruptedException {
+        insertItems(50);
+        assertEquals(50, stub.countItems(StacRequest.getDefaultInstance()).getCount());
+
+        // the squares that touch the box from (2.5 1.5) to (3.5 2.5)
+        StacRequest bboxRequest = StacRequest.newBuilder()
+                .setBbox(EnvelopeData.newBuilder().setXmin(2.5).setYmin(1.5).setXmax(3.5).setYmax(2.5))
+                .build();
+        assertEquals(List.of("item-12", "item-13", "item-22", "item-23"), ids(stub.searchItems(bboxRequest)));
+
+        // a triangle whose envelope covers item-11 but that stops short of it
+        StacRequest intersectsRequest = StacRequest.newBuilder()
+                .setIntersects(GeometryData.newBuilder().setWkt("POLYGON ((0.1 0.1, 1.8 0.1, 0.1 1.8, 0.1 0.1))"))
+                .build();
+        assertEquals(List.of("item-00", "item-01", "item-10"), ids(stub.searchItems(intersectsRequest)));
+        intersectsRequest = intersectsRequest.toBuilder()
+                .setIntersects(GeometryData.newBuilder().setWkt("POLYGON ((0.1 0.1, 1.5 0.1, 0.1 0.5, 0.1 0.1))"))
+                .build();
+        assertEquals(List.of("item-00", "item-01"), ids(stub.searchItems(intersectsRequest)));
+
+        // observed from day 10 to day 14 with less than 13 percent cloud cover from Landsat 8
+        StacRequest filterRequest = StacRequest.newBuilder()
+                .setObserved(TimestampFilter.newBuilder()
+                        .setRelType(FilterRelationship.BETWEEN)
+                        .setStart(Timestamp.newBuilder().setSeconds(10 * DAY))
+                        .setEnd(Timestamp.newBuilder().setSeconds(14 * DAY)))
+                .setEo(EoRequest.newBuilder().setCloudCover(FloatFilter.newBuilder().setRelType(FilterRelationship.LT).setValue(13)))
+                .setPlatformEnum(Platform.LANDSAT_8)
+                .build();
+        assertEquals(List.of("item-10", "item-12"), ids(stub.searchItems(filterRequest)));
+        assertEquals(2, stub.countItems(filterRequest).getCount());
+
+        StacRequest likeRequest = StacRequest.newBuilder()
+                .setIdComplex(StringFilter.newBuilder().setRelType(FilterRelationship.LIKE).setValue("item-4_"))
+                .setGsd(FloatFilter.newBuilder().setRelType(FilterRelationship.GT).setValue(0))
+                .build();
+        // no item has a gsd
+        assertEquals(0, stub.countItems(likeRequest).getCount());
+        assertEquals(10, stub.countItems(likeRequest.toBuilder().clearGsd().build()).getCount());
+
+        // pages concatenate to all of the matches in id order
+        List<String> paged = new ArrayList<>();
+        for (int offset = 0; offset < 50; offset += 7) {
+            StacRequest pageRequest = StacRequest.newBuilder().setCollection("grid").setLimit(7).setOffset(offset).build();
+            paged.addAll(ids(stub.searchItems(pageRequest)));
+        }
+        assertEquals(ids(stub.searchItems(StacRequest.getDefaultInstance())), paged);
+        assertEquals(50, paged.size());
+        assertEquals("item-00", paged.get(0));
+        assertEquals("item-49", paged.get(49));
+    }
+
+    @Test
+    public void testInsertUpdateDelete() throws InterruptedException {
+        insertItems(5);
+        assertEquals(409, stub.insertOneItem(item(3)).getStatusCode());
+        assertEquals(400, stub.insertOneItem(StacItem.getDefaultInstance()).getStatusCode());
+        assertEquals(404, stub.updateOneItem(item(7)).getStatusCode());
+
+        // an update moves the item in the indices
+        StacItem moved = item(3).toBuilder()
+                .setGeometry(GeometryData.newBuilder().setWkt("POINT (50 50)"))
+                .setObserved(Timestamp.newBuilder().setSeconds(100 * DAY))
+                .build();
+        assertEquals(200, stub.updateOneItem(moved).getStatusCode());
+        StacRequest bboxRequest = StacRequest.newBuilder()
+                .setBbox(EnvelopeData.newBuilder().setXmin(49).setYmin(49).setXmax(51).setYmax(51))
+                .build();
+        assertEquals(List.of("item-03"), ids(stub.searchItems(bboxRequest)));
+        StacRequest observedRequest = StacRequest.newBuilder()
+                .setObserved(TimestampFilter.newBuilder().setRelType(FilterRelationship.GTE).setValue(Timestamp.newBuilder().setSeconds(3 * DAY)))
+                .build();
+        assertEquals(List.of("item-03", "item-04"), ids(stub.searchItems(observedRequest)));
+
+        assertEquals(200, stub.deleteOneItem(StacItem.newBuilder().setId("item-03").build()).getStatusCode());
+        assertEquals(404, stub.deleteOneItem(StacItem.newBuilder().setId("item-03").build()).getStatusCode());
+        assertEquals(List.of(), ids(stub.searchItems(bboxRequest)));
+        assertEquals(4, stub.countItems(StacRequest.getDefaultInstance()).getCount());
+
+        assertEquals("item-04", stub.searchOneItem(StacRequest.newBuilder().setId("item-04").build()).getId());
+        try {
+            stub.searchOneItem(StacRequest.newBuilder().setId("item-03").build());
+            fail("expected NOT_FOUND");
+        } catch (StatusRuntimeException e) {
+            assertEquals(Status.Code.NOT_FOUND, e.getStatus().getCode());
+        }
+    }
+
+    @Test
+    public void testCollections() {
+        Collection grid = Collection.newBuilder()
+                .setId("grid")
+                .setExtent(Extent.newBuilder().addSpatial(EnvelopeData.newBuilder().setXmin(0).setYmin(0).setXmax(10).setYmax(5)))
+                .build();
+        assertEquals(201, stub.insertOneCollection(grid).getStatusCode());
+        assertEquals(409, stub.insertOneCollection(grid).getStatusCode());
+        assertEquals(404, stub.updateCollection(grid.toBuilder().setId("other").build()).getStatusCode());
+
+        List<Collection> found = new ArrayList<>();
+        stub.searchCollections(CollectionRequest.newBuilder()
+                .setBbox(EnvelopeData.newBuilder().setXmin(9).setYmin(4).setXmax(12).setYmax(6))
+                .build()).forEachRemaining(found::add);
+        assertEquals(1, found.size());
+        found.clear();
+        stub.searchCollections(CollectionRequest.newBuilder()
+                .setBbox(EnvelopeData.newBuilder().setXmin(11).setYmin(4).setXmax(12).setYmax(6))
+                .build()).forEachRemaining(found::add);
+        assertEquals(0, found.size());
+
+        assertEquals(200, stub.updateCollection(grid.toBuilder().setTitle("a grid").build()).getStatusCode());
+        assertEquals("a grid", stub.searchCollections(CollectionRequest.newBuilder().setId("grid").build()).next().getTitle());
+    }
+}